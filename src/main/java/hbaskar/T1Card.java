@@ -96,6 +96,11 @@ public class T1Card {
         return averageScore;
     }
 
+    // For a reveal made by another client, whose average stands as revealed
+    public void setAverageScore(double averageScore) {
+        this.averageScore = averageScore;
+    }
+
     public boolean isRevealed() {
         return isRevealed;
     }
@@ -136,42 +136,45 @@ public class T1TaigaStoryFetcher {
         logger.info("Backlog stories:");
         T1PlanItPokerRepository repo = T1PlanItPokerRepository.getInstance();
     
-        for (int i = 0; i < allStories.length(); i++) {
-            JSONObject story = allStories.getJSONObject(i);
-            if (story.isNull("milestone")) {
-                backlogStories.put(story);
+        // One batch, so change listeners see the whole import at once
+        repo.batch(() -> {
+            for (int i = 0; i < allStories.length(); i++) {
+                JSONObject story = allStories.getJSONObject(i);
+                if (story.isNull("milestone")) {
+                    backlogStories.put(story);
     
-                int id = story.getInt("id");
-                String subject = story.optString("subject", "(no title)");
+                    int id = story.getInt("id");
+                    String subject = story.optString("subject", "(no title)");
     
-                String responsible = "Unassigned";
-                if (!story.isNull("assigned_to_extra_info")) {
-                    responsible = story.getJSONObject("assigned_to_extra_info")
-                        .optString("full_name_display", "Unassigned");
-                }
+                    String responsible = "Unassigned";
+                    if (!story.isNull("assigned_to_extra_info")) {
+                        responsible = story.getJSONObject("assigned_to_extra_info")
+                            .optString("full_name_display", "Unassigned");
+                    }
     
-                double totalPoints = 0.0;
-                if (!story.isNull("total_points")) {
-                    totalPoints = story.getDouble("total_points");
-                }
+                    double totalPoints = 0.0;
+                    if (!story.isNull("total_points")) {
+                        totalPoints = story.getDouble("total_points");
+                    }
     
-                // Create the T1Card with assignedUser and totalPoints
-                T1Card card = new T1Card(
-                    "story_" + id,
-                    subject,
-                    "", // Description can be added if available in the JSON
-                    responsible,
-                    totalPoints
-                );
+                    // Create the T1Card with assignedUser and totalPoints
+                    T1Card card = new T1Card(
+                        "story_" + id,
+                        subject,
+                        "", // Description can be added if available in the JSON
+                        responsible,
+                        totalPoints
+                    );
     
-                // Add the story card to the current room in the repository
-                repo.addStoryToCurrentRoom(card);
+                    // Add the story card to the current room in the repository
+                    repo.addStoryToCurrentRoom(card);
     
-                logger.info("• #%d - %s\n   Responsible: %s\n   Total Points: %.1f\n",
-                    id, subject, responsible, totalPoints);
+                    logger.info("• #%d - %s\n   Responsible: %s\n   Total Points: %.1f\n",
+                        id, subject, responsible, totalPoints);
                 
+                }
             }
-        }
+        });
     
         return backlogStories;
     }
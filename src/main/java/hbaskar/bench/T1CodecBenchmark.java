@@ -0,0 +1,69 @@
+package hbaskar.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import hbaskar.one.T1EventCodec;
+import hbaskar.one.T1EventCodecs;
+import hbaskar.one.T1PlanItPokerPublisher;
+
+/**
+ * Compares payload size and encode/decode time of the JSON and binary codecs
+ * for the two most frequent events, ScoreEvent and RoomsUpdatedEvent.
+ *
+ * Run with: mvn -q compile exec:java -Dexec.mainClass=hbaskar.bench.T1CodecBenchmark
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1CodecBenchmark {
+    private static final int WARMUP_ROUNDS = 200_000;
+    private static final int MEASURED_ROUNDS = 1_000_000;
+
+    // Keeps the JIT from discarding the work being measured
+    private static long sink;
+
+    public static void main(String[] args) {
+        T1PlanItPokerPublisher.ScoreEvent score =
+                new T1PlanItPokerPublisher.ScoreEvent("sprint-42-planning", "story-1187", "Daniel Miranda", 8);
+
+        List<String> rooms = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            rooms.add("team-room-" + i);
+        }
+        T1PlanItPokerPublisher.RoomsUpdatedEvent roomsUpdated = new T1PlanItPokerPublisher.RoomsUpdatedEvent(rooms);
+
+        System.out.printf("%-18s %-7s %8s %12s %12s%n", "event", "codec", "bytes", "encode ns", "decode ns");
+        for (T1EventCodec codec : new T1EventCodec[] { T1EventCodecs.json(), T1EventCodecs.binary() }) {
+            run("ScoreEvent", codec, score, T1PlanItPokerPublisher.ScoreEvent.class);
+            run("RoomsUpdatedEvent", codec, roomsUpdated, T1PlanItPokerPublisher.RoomsUpdatedEvent.class);
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    private static <T> void run(String label, T1EventCodec codec, T event, Class<T> eventClass) {
+        byte[] payload = codec.encode(event);
+        int rounds = eventClass == T1PlanItPokerPublisher.RoomsUpdatedEvent.class ? MEASURED_ROUNDS / 20 : MEASURED_ROUNDS;
+
+        for (int i = 0; i < WARMUP_ROUNDS / 10; i++) {
+            sink += codec.encode(event).length;
+            sink += T1EventCodecs.decode(payload, eventClass).hashCode();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            sink += codec.encode(event).length;
+        }
+        double encodeNs = (System.nanoTime() - start) / (double) rounds;
+
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            sink += T1EventCodecs.decode(payload, eventClass).hashCode();
+        }
+        double decodeNs = (System.nanoTime() - start) / (double) rounds;
+
+        String codecName = codec == T1EventCodecs.json() ? "json" : "binary";
+        System.out.printf("%-18s %-7s %8d %12.1f %12.1f%n", label, codecName, payload.length, encodeNs, decodeNs);
+    }
+}
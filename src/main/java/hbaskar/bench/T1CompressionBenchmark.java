@@ -0,0 +1,100 @@
+package hbaskar.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import hbaskar.one.T1CompressingCodec;
+import hbaskar.one.T1EventCodec;
+import hbaskar.one.T1EventCodecs;
+import hbaskar.one.T1PlanItPokerPublisher;
+
+/**
+ * Finds the payload size at which deflate pays off: encodes StoryEvents with
+ * growing descriptions and RoomsUpdatedEvents with growing room lists, with
+ * and without compression, and reports bytes on the wire next to the extra
+ * encode and decode time. Descriptions are built from a fixed vocabulary, so
+ * they compress about as well as real user stories.
+ *
+ * Run with: mvn -q compile exec:java -Dexec.mainClass=hbaskar.bench.T1CompressionBenchmark
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1CompressionBenchmark {
+    private static final int[] DESCRIPTION_LENGTHS = { 32, 128, 256, 512, 1024, 4096, 16384 };
+    private static final int[] ROOM_COUNTS = { 5, 20, 50, 200, 1000 };
+    private static final long TARGET_NANOS = 200_000_000L;
+    private static final String[] WORDS = { "as", "a", "user", "I", "want", "to", "the", "story", "points",
+            "estimate", "sprint", "backlog", "so", "that", "team", "can", "see", "vote", "reveal", "cards",
+            "import", "from", "Taiga", "acceptance", "criteria", "given", "when", "then", "dashboard", "room" };
+
+    // Keeps the JIT from discarding the work being measured
+    private static long sink;
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        System.out.printf("%-22s %-7s %8s %8s %7s %11s %11s %11s %11s%n", "event", "codec", "plain", "deflated",
+                "ratio", "enc ns", "enc+z ns", "dec ns", "dec+z ns");
+        for (T1EventCodec codec : new T1EventCodec[] { T1EventCodecs.json(), T1EventCodecs.binary() }) {
+            for (int length : DESCRIPTION_LENGTHS) {
+                T1PlanItPokerPublisher.StoryEvent story = new T1PlanItPokerPublisher.StoryEvent("sprint-42-planning",
+                        "story-1187", "Import stories from Taiga", text(random, length));
+                run("StoryEvent " + length, codec, story, T1PlanItPokerPublisher.StoryEvent.class);
+            }
+            for (int count : ROOM_COUNTS) {
+                List<String> rooms = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    rooms.add(Integer.toString(100000 + random.nextInt(900000)));
+                }
+                run("RoomsUpdated " + count, codec, new T1PlanItPokerPublisher.RoomsUpdatedEvent(rooms),
+                        T1PlanItPokerPublisher.RoomsUpdatedEvent.class);
+            }
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    private static <T> void run(String label, T1EventCodec codec, T event, Class<T> eventClass) {
+        // Threshold 0 would mean "off" in the config; 1 compresses everything
+        T1EventCodec compressing = new T1CompressingCodec(codec, 1, 1);
+        byte[] plain = codec.encode(event);
+        byte[] deflated = compressing.encode(event);
+
+        double encodeNs = time(() -> sink += codec.encode(event).length);
+        double encodeZNs = time(() -> sink += compressing.encode(event).length);
+        double decodeNs = time(() -> sink += T1EventCodecs.decode(plain, eventClass).hashCode());
+        double decodeZNs = time(() -> sink += T1EventCodecs.decode(deflated, eventClass).hashCode());
+
+        String codecName = codec == T1EventCodecs.json() ? "json" : "binary";
+        System.out.printf("%-22s %-7s %8d %8d %6.0f%% %11.0f %11.0f %11.0f %11.0f%n", label, codecName,
+                plain.length, deflated.length, 100.0 * deflated.length / plain.length,
+                encodeNs, encodeZNs, decodeNs, decodeZNs);
+    }
+
+    // Runs the task for about TARGET_NANOS after a warm-up, returns nanoseconds per call
+    private static double time(Runnable task) {
+        for (int i = 0; i < 20_000; i++) {
+            task.run();
+        }
+        long rounds = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < 1000; i++) {
+                task.run();
+            }
+            rounds += 1000;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < TARGET_NANOS);
+        return elapsed / (double) rounds;
+    }
+
+    private static String text(Random random, int length) {
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return text.substring(0, length);
+    }
+}
@@ -0,0 +1,64 @@
+package hbaskar.bench;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import hbaskar.one.T1EventCodec;
+import hbaskar.one.T1EventCodecs;
+import hbaskar.one.T1PlanItPokerPublisher;
+
+/**
+ * Measures bytes allocated per received message on the subscriber's decode
+ * path: the room pre-check for a foreign-room message, and the full decode
+ * of a message for the current room, for both codecs.
+ *
+ * Uses the HotSpot per-thread allocation counter, so it needs a HotSpot JVM.
+ * Run with: mvn -q compile exec:java -Dexec.mainClass=hbaskar.bench.T1DecodeAllocationBenchmark
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1DecodeAllocationBenchmark {
+    private static final int WARMUP_ROUNDS = 200_000;
+    private static final int MEASURED_ROUNDS = 500_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        T1PlanItPokerPublisher.ScoreEvent score =
+                new T1PlanItPokerPublisher.ScoreEvent("sprint-42-planning", "story-1187", "Daniel Miranda", 8);
+        byte[] ownRoom = "sprint-42-planning".getBytes(StandardCharsets.UTF_8);
+        byte[] otherRoom = "sprint-43-planning".getBytes(StandardCharsets.UTF_8);
+
+        System.out.printf("%-8s %-24s %12s%n", "codec", "path", "bytes/msg");
+        for (T1EventCodec codec : new T1EventCodec[] { T1EventCodecs.json(), T1EventCodecs.binary() }) {
+            String name = codec == T1EventCodecs.json() ? "json" : "binary";
+            byte[] payload = codec.encode(score);
+
+            report(name, "reject foreign room", () -> sink += T1EventCodecs.matchesRoom(payload, otherRoom) ? 1 : 0);
+            report(name, "check + decode own room", () -> {
+                if (T1EventCodecs.matchesRoom(payload, ownRoom)) {
+                    sink += T1EventCodecs.decode(payload, T1PlanItPokerPublisher.ScoreEvent.class).score;
+                }
+            });
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    private static void report(String codec, String path, Runnable work) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            work.run();
+        }
+        long thread = Thread.currentThread().getId();
+        long before = THREADS.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            work.run();
+        }
+        long allocated = THREADS.getThreadAllocatedBytes(thread) - before;
+        System.out.printf("%-8s %-24s %12.1f%n", codec, path, allocated / (double) MEASURED_ROUNDS);
+    }
+}
@@ -0,0 +1,89 @@
+package hbaskar.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import hbaskar.one.T1EventCodecs;
+import hbaskar.one.T1LoopbackBroker;
+import hbaskar.one.T1MessagingConfig;
+import hbaskar.one.T1PlanItPokerPublisher;
+import hbaskar.one.T1PlanItPokerSubscriber;
+import hbaskar.one.T1Topics;
+
+/**
+ * Load test of the whole messaging path on the in-process loopback broker:
+ * several publishers, one per room, send score events through their publish
+ * pipelines while a single subscriber listens to every room. Needs no
+ * network, so results are repeatable.
+ *
+ * Run with: mvn -q compile exec:java -Dexec.mainClass=hbaskar.bench.T1LoopbackLoadBenchmark
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1LoopbackLoadBenchmark {
+    private static final String BROKER = "loopback://load-benchmark";
+    private static final int PUBLISHERS = 8;
+    private static final int EVENTS_PER_PUBLISHER = 50_000;
+
+    public static void main(String[] args) throws Exception {
+        for (String codec : new String[] { "json", "binary" }) {
+            run(codec);
+        }
+    }
+
+    private static void run(String codecName) throws Exception {
+        T1MessagingConfig config = new T1MessagingConfig();
+        config.setBrokerUrl(BROKER);
+        config.setPublishTopicScheme(T1Topics.Scheme.ROOM);
+        config.setCodec("json".equals(codecName) ? T1EventCodecs.json() : T1EventCodecs.binary());
+        config.setMaxInflight(100);
+        // One connection per simulated client, as on separate machines
+        config.setSharedConnection(false);
+
+        int total = PUBLISHERS * EVENTS_PER_PUBLISHER;
+        CountDownLatch received = new CountDownLatch(total);
+        T1PlanItPokerSubscriber subscriber = new T1PlanItPokerSubscriber(config);
+        subscriber.subscribeToStoryScored(null, event -> received.countDown());
+
+        List<T1PlanItPokerPublisher> publishers = new ArrayList<>();
+        for (int i = 0; i < PUBLISHERS; i++) {
+            publishers.add(T1PlanItPokerPublisher.create(config));
+        }
+
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < PUBLISHERS; i++) {
+            T1PlanItPokerPublisher publisher = publishers.get(i);
+            String room = "room-" + i;
+            Thread t = new Thread(() -> {
+                CompletableFuture<Void> last = null;
+                for (int n = 0; n < EVENTS_PER_PUBLISHER; n++) {
+                    last = publisher.publishStoryScored(room, "story-" + (n % 20), "player-" + (n % 7), n % 13);
+                }
+                last.join();
+            });
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        boolean complete = received.await(60, TimeUnit.SECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%-7s %d publishers x %d events: %s in %.2f s, %.0f events/s%n",
+                codecName, PUBLISHERS, EVENTS_PER_PUBLISHER, complete ? "all received" : "INCOMPLETE",
+                seconds, (total - received.getCount()) / seconds);
+
+        for (T1PlanItPokerPublisher publisher : publishers) {
+            publisher.disconnect();
+        }
+        subscriber.disconnect();
+        T1LoopbackBroker.shutdown(BROKER.substring(BROKER.indexOf("//") + 2));
+    }
+}
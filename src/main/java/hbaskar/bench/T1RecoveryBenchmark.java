@@ -0,0 +1,184 @@
+package hbaskar.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import hbaskar.T1Card;
+import hbaskar.one.T1PlanItPokerRepository;
+import hbaskar.one.T1RepositoryStore;
+import hbaskar.one.T1StoreConfig;
+
+/**
+ * Measures how long a durable repository takes to come back: 10,000 rooms
+ * with 10 players and 10 stories each, every player voting on every story
+ * (1,000,000 votes), recovered from the log alone, from a snapshot alone,
+ * and from a snapshot plus a tail of re-votes. Also shows group commit at
+ * work: many threads voting with every commit synced share few syncs.
+ *
+ * Run with: mvn -q compile exec:java -Dexec.mainClass=hbaskar.bench.T1RecoveryBenchmark
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1RecoveryBenchmark {
+    private static final int ROOMS = 10_000;
+    private static final int PLAYERS = 10;
+    private static final int STORIES = 10;
+    private static final int WRITERS = 4;
+    private static final int TAIL_VOTES = 100_000;
+    private static final int COMMIT_THREADS = 16;
+    private static final int COMMITS_PER_THREAD = 2_000;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("planit-recovery");
+        try {
+            recovery(directory.resolve("recovery"));
+            groupCommit(directory.resolve("group-commit"));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void recovery(Path directory) throws Exception {
+        T1StoreConfig config = new T1StoreConfig();
+        config.setDirectory(directory);
+        config.setSyncPolicy(T1RepositoryStore.SyncPolicy.PERIODIC);
+        config.setSnapshotIntervalMillis(0);
+
+        // Fill an empty store
+        T1PlanItPokerRepository repository = T1PlanItPokerRepository.createDetached();
+        T1RepositoryStore store = T1RepositoryStore.open(repository, config);
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            threads.add(new Thread(() -> {
+                for (int r = writer; r < ROOMS; r += WRITERS) {
+                    fillRoom(repository, "room-" + r);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        store.close();
+        long elapsed = System.nanoTime() - start;
+        long records = store.getRecordCount();
+        System.out.printf("Wrote %,d records (%,d votes) in %d ms, %,.0f records/s, %.1f records per batch, log %s%n",
+                records, countVotes(repository), elapsed / 1_000_000, records * 1e9 / elapsed,
+                (double) records / store.getBatchCount(), size(directory));
+
+        // Log only
+        store = recover("log only", directory, config);
+        store.snapshot();
+        store.close();
+
+        // Snapshot only
+        recover("snapshot only", directory, config).close();
+
+        // Snapshot plus a tail of re-votes
+        T1PlanItPokerRepository tail = T1PlanItPokerRepository.createDetached();
+        store = T1RepositoryStore.open(tail, config);
+        for (int i = 0; i < TAIL_VOTES; i++) {
+            tail.recordScore("room-" + (i % ROOMS), "story-" + (i % STORIES), "player-" + (i % PLAYERS), i % 13);
+        }
+        store.close();
+        recover("snapshot + " + TAIL_VOTES + " log records", directory, config).close();
+    }
+
+    private static T1RepositoryStore recover(String label, Path directory, T1StoreConfig config) throws IOException {
+        T1PlanItPokerRepository repository = T1PlanItPokerRepository.createDetached();
+        T1RepositoryStore store = T1RepositoryStore.open(repository, config);
+        System.out.printf("Recovered %-32s %,6d ms  %,d rooms from snapshot, %,d log records, %,d votes (%s on disk)%n",
+                label, store.getRecoveryNanos() / 1_000_000, store.getRecoveredRooms(), store.getReplayedRecords(),
+                countVotes(repository), size(directory));
+        return store;
+    }
+
+    private static void fillRoom(T1PlanItPokerRepository repository, String roomCode) {
+        repository.restoreRoom(roomCode, roomCode, "player-0");
+        for (int p = 1; p < PLAYERS; p++) {
+            repository.joinRoom(roomCode, "player-" + p);
+        }
+        for (int s = 0; s < STORIES; s++) {
+            String storyId = "story-" + s;
+            repository.addStory(roomCode, new T1Card(storyId, "Story " + s, "As a user I want " + s, null, 0));
+            for (int p = 0; p < PLAYERS; p++) {
+                repository.recordScore(roomCode, storyId, "player-" + p, (p + s) % 13);
+            }
+            if (s % 2 == 0) {
+                repository.revealCards(roomCode, storyId);
+            }
+        }
+    }
+
+    private static void groupCommit(Path directory) throws Exception {
+        T1StoreConfig config = new T1StoreConfig();
+        config.setDirectory(directory);
+        config.setSyncPolicy(T1RepositoryStore.SyncPolicy.EVERY_COMMIT);
+        config.setSnapshotIntervalMillis(0);
+        T1PlanItPokerRepository repository = T1PlanItPokerRepository.createDetached();
+        T1RepositoryStore store = T1RepositoryStore.open(repository, config);
+        for (int t = 0; t < COMMIT_THREADS; t++) {
+            repository.restoreRoom("room-" + t, "room-" + t, "player-0");
+            repository.addStory("room-" + t, new T1Card("story-0", "Story", "", null, 0));
+        }
+        long before = store.getRecordCount();
+        long batchesBefore = store.getBatchCount();
+        long syncsBefore = store.getSyncCount();
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < COMMIT_THREADS; t++) {
+            String roomCode = "room-" + t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < COMMITS_PER_THREAD; i++) {
+                    repository.recordScore(roomCode, "story-0", "player-" + (i % PLAYERS), i % 13);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        long records = store.getRecordCount() - before;
+        long batches = store.getBatchCount() - batchesBefore;
+        long syncs = store.getSyncCount() - syncsBefore;
+        store.close();
+        System.out.printf("Every commit synced, %d threads: %,d votes in %d ms, %,.0f votes/s, "
+                + "%,d syncs, %.1f votes per batch%n", COMMIT_THREADS, records, elapsed / 1_000_000,
+                records * 1e9 / elapsed, syncs, (double) records / batches);
+    }
+
+    private static long countVotes(T1PlanItPokerRepository repository) {
+        long votes = 0;
+        for (String code : repository.getAvailableRoomCodes()) {
+            for (T1Card card : repository.getRoom(code).getAllStories()) {
+                votes += card.getScores().size();
+            }
+        }
+        return votes;
+    }
+
+    private static String size(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            long bytes = files.mapToLong(path -> path.toFile().length()).sum();
+            return String.format("%.1f MB", bytes / 1048576.0);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
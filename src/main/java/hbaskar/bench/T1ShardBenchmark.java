@@ -0,0 +1,191 @@
+package hbaskar.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import hbaskar.T1Card;
+import hbaskar.one.T1LoopbackBroker;
+import hbaskar.one.T1MessagingConfig;
+import hbaskar.one.T1PlanItPokerRepository;
+import hbaskar.one.T1ShardConfig;
+import hbaskar.one.T1ShardNode;
+
+/**
+ * Runs a small cluster of shard nodes in one JVM over a loopback broker:
+ * three nodes share 3,000 rooms filled through whichever node is at hand,
+ * a fourth joins while votes keep coming, and one of the first three
+ * leaves. After each step every room must be on exactly its owner with all
+ * of its votes, and the share of rooms that moved is printed next to the
+ * one in n that consistent hashing promises.
+ *
+ * Run with: mvn -q compile exec:java -Dexec.mainClass=hbaskar.bench.T1ShardBenchmark
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1ShardBenchmark {
+    private static final String BROKER = "shard-bench";
+    private static final int ROOMS = 3_000;
+    private static final int PLAYERS = 4;
+    private static final int STORIES = 2;
+
+    public static void main(String[] args) throws Exception {
+        T1MessagingConfig messaging = new T1MessagingConfig();
+        messaging.setBrokerUrl("loopback://" + BROKER);
+        messaging.setOutboxDirectory(null);
+        messaging.setLatencyMetrics(false);
+        T1ShardConfig config = new T1ShardConfig();
+        config.setHeartbeatIntervalMillis(100);
+        config.setMemberTimeoutMillis(1000);
+        config.setHandoffWaitMillis(500);
+        config.setCheckpointIntervalMillis(200);
+        config.setLeaveGraceMillis(200);
+
+        Map<String, T1ShardNode> nodes = new HashMap<>();
+        for (String id : new String[] {"node-a", "node-b", "node-c"}) {
+            nodes.put(id, T1ShardNode.start(id, T1PlanItPokerRepository.createDetached(), messaging, config));
+        }
+        awaitMembers(nodes, 3);
+
+        // Each change goes in through a node chosen by the room, not by its owner
+        List<T1ShardNode> entry = new ArrayList<>(nodes.values());
+        long start = System.nanoTime();
+        for (int r = 0; r < ROOMS; r++) {
+            String room = "room-" + r;
+            T1ShardNode via = entry.get(r % entry.size());
+            via.createRoom(room, "Room " + r, "host");
+            for (int s = 0; s < STORIES; s++) {
+                via.addStory(room, new T1Card("story-" + s, "Story " + s, "", null, 0));
+            }
+            for (int p = 0; p < PLAYERS; p++) {
+                via.joinRoom(room, "player-" + p);
+                for (int s = 0; s < STORIES; s++) {
+                    via.vote(room, "story-" + s, "player-" + p, p + s);
+                }
+            }
+        }
+        long votes = (long) ROOMS * PLAYERS * STORIES;
+        check("fill", nodes, votes);
+        long elapsed = System.nanoTime() - start;
+        long changes = (long) ROOMS * (1 + STORIES + PLAYERS + PLAYERS * STORIES);
+        System.out.printf("Filled %,d rooms with %,d changes in %d ms (%,.0f changes/s), %.0f%% forwarded%n",
+                ROOMS, changes, elapsed / 1_000_000, changes * 1e9 / elapsed,
+                100.0 * forwarded(nodes) / changes);
+        printShares(nodes);
+
+        // A node joins while every room gets another vote
+        long handedBefore = handedOff(nodes);
+        nodes.put("node-d", T1ShardNode.start("node-d", T1PlanItPokerRepository.createDetached(), messaging, config));
+        for (int r = 0; r < ROOMS; r++) {
+            entry.get(r % entry.size()).vote("room-" + r, "story-0", "late-" + r, 3);
+        }
+        votes += ROOMS;
+        awaitMembers(nodes, 4);
+        check("join", nodes, votes);
+        System.out.printf("node-d joined: %,d rooms moved (%.1f%%, ideal %.1f%%)%n", handedOff(nodes) - handedBefore,
+                100.0 * (handedOff(nodes) - handedBefore) / ROOMS, 100.0 / 4);
+        printShares(nodes);
+
+        // A node leaves while every room gets another vote; only its own rooms move
+        T1ShardNode leaving = nodes.remove("node-b");
+        int held = leaving.getRoomCount();
+        handedBefore = leaving.getHandedOffCount();
+        for (int r = 0; r < ROOMS; r++) {
+            nodes.get("node-a").vote("room-" + r, "story-1", "late-" + r, 5);
+        }
+        votes += ROOMS;
+        leaving.close();
+        awaitMembers(nodes, 3);
+        check("leave", nodes, votes);
+        System.out.printf("node-b left: %,d rooms moved, the %,d it held%n",
+                leaving.getHandedOffCount() - handedBefore, held);
+        printShares(nodes);
+
+        for (T1ShardNode node : nodes.values()) {
+            node.close();
+        }
+        T1LoopbackBroker.shutdown(BROKER);
+    }
+
+    private static void awaitMembers(Map<String, T1ShardNode> nodes, int count) throws InterruptedException {
+        await(() -> nodes.values().stream().allMatch(node -> node.getRing().size() == count), 10_000);
+    }
+
+    // Every room on its owner only, with every vote
+    private static void check(String step, Map<String, T1ShardNode> nodes, long votes) throws InterruptedException {
+        boolean settled = await(() -> countVotes(nodes) == votes && placed(nodes) == ROOMS, 30_000);
+        System.out.printf("%s: %s (%,d of %,d votes, %,d rooms placed, %,d dropped)%n", step,
+                settled ? "consistent" : "NOT CONSISTENT", countVotes(nodes), votes, placed(nodes), dropped(nodes));
+    }
+
+    private static boolean await(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+
+    private static long countVotes(Map<String, T1ShardNode> nodes) {
+        long votes = 0;
+        for (T1ShardNode node : nodes.values()) {
+            T1PlanItPokerRepository repository = node.getRepository();
+            for (String code : repository.getAvailableRoomCodes()) {
+                T1PlanItPokerRepository.Room room = repository.getRoom(code);
+                if (room == null) {
+                    continue;
+                }
+                for (T1Card card : room.getAllStories()) {
+                    votes += card.getScores().size();
+                }
+            }
+        }
+        return votes;
+    }
+
+    // Rooms held by their owner and by no other node
+    private static int placed(Map<String, T1ShardNode> nodes) {
+        int placed = 0;
+        for (int r = 0; r < ROOMS; r++) {
+            String room = "room-" + r;
+            int copies = 0;
+            boolean onOwner = false;
+            for (T1ShardNode node : nodes.values()) {
+                if (node.getRepository().getRoom(room) != null) {
+                    copies++;
+                    onOwner |= node.owns(room);
+                }
+            }
+            if (copies == 1 && onOwner) {
+                placed++;
+            }
+        }
+        return placed;
+    }
+
+    private static void printShares(Map<String, T1ShardNode> nodes) {
+        StringBuilder line = new StringBuilder("  rooms per node:");
+        nodes.keySet().stream().sorted().forEach(id -> line.append(' ').append(id).append('=')
+                .append(nodes.get(id).getRoomCount()));
+        System.out.println(line);
+    }
+
+    private static long forwarded(Map<String, T1ShardNode> nodes) {
+        return nodes.values().stream().mapToLong(T1ShardNode::getForwardedCount).sum();
+    }
+
+    private static long handedOff(Map<String, T1ShardNode> nodes) {
+        return nodes.values().stream().mapToLong(T1ShardNode::getHandedOffCount).sum();
+    }
+
+    private static long dropped(Map<String, T1ShardNode> nodes) {
+        return nodes.values().stream().mapToLong(T1ShardNode::getDroppedCount).sum();
+    }
+}
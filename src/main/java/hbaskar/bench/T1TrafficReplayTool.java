@@ -0,0 +1,120 @@
+package hbaskar.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import hbaskar.one.T1MessagingConfig;
+import hbaskar.one.T1PlanItPokerPublisher;
+import hbaskar.one.T1PlanItPokerSubscriber;
+import hbaskar.one.T1Topics;
+import hbaskar.one.T1TrafficReplay;
+
+/**
+ * Replays a traffic capture against this build and prints throughput and
+ * latency. Arguments: the capture file, the speed ("1", "10", ... or "max";
+ * default 1), the target ("subscriber", the default, feeds messageArrived
+ * directly; "broker" publishes to the configured broker) and optionally the
+ * broker URL.
+ *
+ * Without arguments, records a synthetic planning session on the loopback
+ * broker (one room, a few players voting in rounds) and replays it at 1x,
+ * 10x and max speed into a fresh subscriber.
+ *
+ * Run with: mvn -q compile exec:java -Dexec.mainClass=hbaskar.bench.T1TrafficReplayTool -Dexec.args="session.ptrc 10"
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1TrafficReplayTool {
+    private static final String DEMO_BROKER = "loopback://replay-demo";
+    private static final int ROUNDS = 40;
+    private static final int PLAYERS = 8;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            demo();
+            return;
+        }
+        Path capture = Paths.get(args[0]);
+        double speed = args.length > 1 && !"max".equalsIgnoreCase(args[1]) ? Double.parseDouble(args[1])
+                : args.length > 1 ? T1TrafficReplay.MAX_SPEED : 1;
+        boolean broker = args.length > 2 && "broker".equalsIgnoreCase(args[2]);
+        T1MessagingConfig config = new T1MessagingConfig();
+        if (args.length > 3) {
+            config.setBrokerUrl(args[3]);
+        }
+        T1TrafficReplay replay = new T1TrafficReplay(capture, speed);
+        if (broker) {
+            T1PlanItPokerPublisher publisher = T1PlanItPokerPublisher.create(config);
+            System.out.println(replay.replayThrough(publisher));
+            publisher.disconnect();
+        } else {
+            System.out.println(replay.replayInto(listeningSubscriber(config)));
+        }
+        System.exit(0);
+    }
+
+    private static void demo() throws Exception {
+        T1MessagingConfig config = new T1MessagingConfig();
+        config.setBrokerUrl(DEMO_BROKER);
+        config.setPublishTopicScheme(T1Topics.Scheme.ROOM);
+        config.setSharedConnection(false);
+        config.setOutboxDirectory(null);
+        // Handlers run inline, so the replay's per-message time includes them
+        config.setDispatchThreads(0);
+
+        Path capture = Files.createTempFile("planit-session", ".ptrc");
+        Files.delete(capture);
+        T1PlanItPokerSubscriber recorder = new T1PlanItPokerSubscriber(config);
+        int expected = ROUNDS * (PLAYERS + 1);
+        CountDownLatch received = new CountDownLatch(expected);
+        recorder.subscribeToStoryScored(null, event -> received.countDown());
+        recorder.subscribeToCardsRevealed(null, event -> received.countDown());
+        recorder.startCapture(capture);
+
+        T1PlanItPokerPublisher publisher = T1PlanItPokerPublisher.create(config);
+        Random random = new Random(7);
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            String story = "story-" + round;
+            for (int player = 0; player < PLAYERS; player++) {
+                // Players take a few milliseconds to pick a card
+                Thread.sleep(1 + random.nextInt(8));
+                publisher.publishStoryScored("sprint-42", story, "player" + player, 1 + random.nextInt(13));
+            }
+            publisher.publishCardsRevealed("sprint-42", story, 5.0);
+        }
+        received.await(10, TimeUnit.SECONDS);
+        recorder.disconnect();
+        publisher.disconnect();
+        System.out.printf("Recorded %d messages in %.2f s to %s (%d bytes)%n", expected,
+                (System.nanoTime() - start) / 1e9, capture, Files.size(capture));
+
+        for (double speed : new double[] { 1, 10, T1TrafficReplay.MAX_SPEED }) {
+            T1PlanItPokerSubscriber target = listeningSubscriber(config);
+            T1TrafficReplay.Result result = new T1TrafficReplay(capture, speed).replayInto(target);
+            System.out.println("--- speed " + (speed == T1TrafficReplay.MAX_SPEED ? "max" : speed + "x"));
+            System.out.println(result);
+            target.disconnect();
+        }
+        Files.deleteIfExists(capture);
+        System.exit(0);
+    }
+
+    // A subscriber with listeners on every room, so replayed events reach handlers
+    private static T1PlanItPokerSubscriber listeningSubscriber(T1MessagingConfig config) {
+        T1PlanItPokerSubscriber subscriber = new T1PlanItPokerSubscriber(config);
+        subscriber.subscribeToRoomCreated(event -> { });
+        subscriber.subscribeToPlayerJoined(null, event -> { });
+        subscriber.subscribeToStoryCreated(null, event -> { });
+        subscriber.subscribeToStoryScored(null, event -> { });
+        subscriber.subscribeToCardsRevealed(null, event -> { });
+        subscriber.subscribeToModeChanged(null, event -> { });
+        return subscriber;
+    }
+}
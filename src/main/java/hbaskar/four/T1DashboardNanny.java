@@ -1,10 +1,17 @@
 package hbaskar.four;
 import hbaskar.T1Card;
 import hbaskar.one.Main;
+import hbaskar.one.T1EventDispatcher;
 import hbaskar.one.T1PlanItPokerRepository;
+import hbaskar.one.T1PlanItPokerSubscriber;
+import hbaskar.one.T1RepositoryChange;
+import hbaskar.one.T1SessionContext;
 import hbaskar.one.T1PlanItPokerRepository.Room;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +26,11 @@ import org.slf4j.LoggerFactory;
  * It interacts with {@link T1StoriesPanel} to refresh UI elements and uses
  * {@link T1PlanItPokerRepository} to access and modify story data for the current room.</p>
  * 
+ * Changes to the repository, local or applied from an attached subscriber,
+ * reach the panels through a {@link T1SwingEventBridge}: each frame hands
+ * the panels every change made since the last one, and they patch only the
+ * stories and players those changes touched.</p>
+ * 
  * 
  * @author DarienR5
  */
@@ -26,17 +38,92 @@ public class T1DashboardNanny {
     private static final Logger logger = LoggerFactory.getLogger(T1DashboardNanny.class);
     private T1StoriesPanel T1StoriesPanel;
     private Main main;  // Assuming you want to use Main in this class
+    private volatile T1PlanItPokerSubscriber subscriber;
+    private boolean closed;
+    private T1WestPanel westPanel;
+    private final T1SwingEventBridge uiBridge = new T1SwingEventBridge();
+    // Changes not yet handed to the panels
+    private final Queue<T1RepositoryChange> pendingChanges = new ConcurrentLinkedQueue<>();
+    private final T1EventDispatcher.Registration changeRegistration;
+    // Session whose repository and selected room this dashboard shows
+    private final T1SessionContext session;
 
     // Modify constructor to accept Main instance
     public T1DashboardNanny(Main main) {
+        this(main, T1PlanItPokerRepository.getInstance().getDefaultSession());
+    }
+
+    public T1DashboardNanny(Main main, T1SessionContext session) {
         this.main = main;
+        this.session = session;
+        // Batches are queued as they come; the bridge hands them over at most once per frame
+        this.changeRegistration = session.getRepository().addChangeListener(changes -> {
+            pendingChanges.addAll(changes);
+            uiBridge.post("changes", this::applyChanges);
+        });
     }
 
     public void setT1StoriesPanel(T1StoriesPanel T1StoriesPanel) {
         this.T1StoriesPanel = T1StoriesPanel;
     }
 
+    public void setWestPanel(T1WestPanel westPanel) {
+        this.westPanel = westPanel;
+    }
+
+    // Subscriber whose per-room MQTT subscription follows the selected room; the
+    // events it applies reach the panels as repository changes. The dashboard
+    // disconnects it on close.
+    public synchronized void setSubscriber(T1PlanItPokerSubscriber subscriber) {
+        if (closed) {
+            subscriber.disconnect();
+            return;
+        }
+        this.subscriber = subscriber;
+        subscriber.switchRoom(session.getCurrentRoomCode());
+    }
+
+    // Runs on the Swing thread, once per frame with changes
+    private void applyChanges() {
+        List<T1RepositoryChange> changes = new ArrayList<>();
+        for (T1RepositoryChange change; (change = pendingChanges.poll()) != null; ) {
+            changes.add(change);
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (T1StoriesPanel != null) {
+            T1StoriesPanel.applyChanges(changes);
+        }
+        if (westPanel != null) {
+            westPanel.applyChanges(changes);
+        }
+    }
+
+    /** Stops following the repository and the broker, for a dashboard that is being replaced. */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        changeRegistration.close();
+        uiBridge.shutdown();
+        pendingChanges.clear();
+        if (subscriber != null) {
+            subscriber.disconnect();
+            subscriber = null;
+        }
+    }
+
+    public T1SwingEventBridge getUiBridge() {
+        return uiBridge;
+    }
+
     public void onRoomSelected(String roomName) {
+        T1PlanItPokerSubscriber current = subscriber;
+        if (current != null) {
+            current.switchRoom(roomName);
+        }
         // Logic to fetch stories based on the room selected
         if (T1StoriesPanel != null) {
             T1StoriesPanel.updateActiveStories();
@@ -60,7 +147,7 @@ public class T1DashboardNanny {
         T1Card story = room.getStory(id);
         
         if (story != null) {
-            story.addScore("guest", score);
+            T1PlanItPokerRepository.getInstance().recordScore(currentRoomCode, id, "guest", score);
             story.calculateAverageScore(); // Calculate average after adding score
             logger.info("This is assigned to the current story: " + value + " for story: " + story.getTitle());
         } else {
@@ -4,7 +4,9 @@ import java.awt.BorderLayout;
 
 import javax.swing.JPanel;
 
+import hbaskar.one.T1PlanItPokerPublisher;
 import hbaskar.one.T1PlanItPokerRepository;
+import hbaskar.one.T1PlanItPokerSubscriber;
 import hbaskar.three.T1StoriesNanny;
 
 /**
@@ -12,6 +14,8 @@ import hbaskar.three.T1StoriesNanny;
  * 
  * This panel uses T1StoriesNanny for story management and initializes
  * sub-panels for stories, cards, and controls for the selected user and room.
+ * It also connects the subscriber that follows the selected room, and closes
+ * the dashboard nanny when the panel leaves the frame.
  * 
  * 
  * @author Darien
@@ -19,8 +23,10 @@ import hbaskar.three.T1StoriesNanny;
  */
 public class T1DashboardPanel extends JPanel {
     private T1StoriesNanny storiesNanny;
+    private final T1DashboardNanny dashboardNanny;
 
     public T1DashboardPanel(T1DashboardNanny dashboardNanny) {
+        this.dashboardNanny = dashboardNanny;
         setLayout(new BorderLayout());
 
         // Create stories panel
@@ -45,10 +51,22 @@ public class T1DashboardPanel extends JPanel {
         }
 
         T1WestPanel westPanel = new T1WestPanel(dashboardNanny, username);
+        dashboardNanny.setWestPanel(westPanel);
 
         // Add components to layout
         add(cardsPanel, BorderLayout.CENTER);
         add(storiesPanel, BorderLayout.SOUTH);
         add(westPanel, BorderLayout.EAST);
+
+        // Other clients' changes to the selected room; connecting can take a while, so not on the EDT
+        new Thread(() -> dashboardNanny.setSubscriber(
+                new T1PlanItPokerSubscriber(T1PlanItPokerPublisher.getDefaultConfig())), "planit-dashboard-connect").start();
+    }
+
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        // Replaced in the frame, or the frame was closed
+        dashboardNanny.close();
     }
 }
\ No newline at end of file
@@ -4,7 +4,12 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.GridLayout;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.swing.JButton;
 import javax.swing.JPanel;
@@ -13,6 +18,8 @@ import javax.swing.border.LineBorder;
 import hbaskar.T1Card;
 import hbaskar.one.T1PlanItPokerRepository;
 import hbaskar.one.T1PlanItPokerRepository.Room;
+import hbaskar.one.T1RepositoryChange;
+import hbaskar.one.T1RoomView;
 import hbaskar.three.T1StoriesNanny;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +29,8 @@ import org.slf4j.LoggerFactory;
  * <p>
  * The panel dynamically updates to show the current active stories in the
  * selected room and provides UI controls for story interaction.
+ * Switching rooms redraws every story; changes within the room only patch
+ * the buttons of the stories they touched.
  * </p>
  * 
  * @author DarienR5
@@ -30,6 +39,12 @@ import org.slf4j.LoggerFactory;
 public class T1StoriesPanel extends JPanel {
     private static final Logger logger = LoggerFactory.getLogger(T1StoriesPanel.class);
     private static JPanel storyCardsPanel;
+    // Room and view version last drawn, to skip redrawing an unchanged room
+    private T1PlanItPokerRepository.Room shownRoom;
+    private long shownVersion = -1;
+    // Buttons of the shown room's stories by id, and the empty cells after them
+    private final Map<String, JButton> storyButtons = new HashMap<>();
+    private final List<JPanel> placeholders = new ArrayList<>();
     public Object storyTextArea;
     public String id;
     
@@ -44,26 +59,39 @@ public class T1StoriesPanel extends JPanel {
         }
     
         public void updateActiveStories() {
-            storyCardsPanel.removeAll();
-
         String currentRoomCode = T1PlanItPokerRepository.getInstance().getCurrentRoomCode();
-        if (currentRoomCode == null) return;
-
-        Room room = T1PlanItPokerRepository.getInstance().getRoom(currentRoomCode);
-        if (room == null) return;
+        Room room = currentRoomCode == null ? null : T1PlanItPokerRepository.getInstance().getRoom(currentRoomCode);
+        T1RoomView view = room == null ? null : room.getView();
+        if (room == shownRoom && (view == null || view.getVersion() == shownVersion)) {
+            return;
+        }
+        shownRoom = room;
+        shownVersion = view == null ? -1 : view.getVersion();
+
+        storyCardsPanel.removeAll();
+        storyButtons.clear();
+        placeholders.clear();
+        if (view == null) {
+            revalidate();
+            repaint();
+            return;
+        }
 
-        List<T1Card> stories = room.getAllStories();
+        List<T1Card> stories = view.getStories();
 
         int count = 0;
         for (T1Card card : stories) {
             JButton storyButton = createStoryButton(card);
             storyCardsPanel.add(storyButton);
+            storyButtons.put(card.getId(), storyButton);
             count++;
         }
 
         // Pad the rest of the grid with empty placeholders if needed
         while (count < 10) {
-            storyCardsPanel.add(new JPanel());
+            JPanel placeholder = new JPanel();
+            storyCardsPanel.add(placeholder);
+            placeholders.add(placeholder);
             count++;
         }
 
@@ -71,19 +99,73 @@ public class T1StoriesPanel extends JPanel {
         repaint();
     }
 
-    private JButton createStoryButton(T1Card card) {
+    /**
+     * Patches the buttons of the stories the changes touched, adding buttons
+     * for new stories; redraws everything if another room is selected now.
+     */
+    public void applyChanges(List<T1RepositoryChange> changes) {
+        String currentRoomCode = T1PlanItPokerRepository.getInstance().getCurrentRoomCode();
+        if (shownRoom == null || !shownRoom.getCode().equals(currentRoomCode)) {
+            updateActiveStories();
+            return;
+        }
+        // Each story once, however many changes it had; the card holds its latest state
+        Set<String> touched = new LinkedHashSet<>();
+        for (T1RepositoryChange change : changes) {
+            if (change.isStoryChange() && change.roomCode.equals(currentRoomCode)) {
+                touched.add(change.storyId);
+            }
+        }
+        if (touched.isEmpty()) {
+            return;
+        }
+        Room room = T1PlanItPokerRepository.getInstance().getRoom(currentRoomCode);
+        if (room != shownRoom) {
+            // The room was replaced or evicted and loaded back, so its cards are new objects
+            updateActiveStories();
+            return;
+        }
+        for (String storyId : touched) {
+            T1Card card = room.getStory(storyId);
+            if (card == null) {
+                continue;
+            }
+            JButton button = storyButtons.get(storyId);
+            if (button != null) {
+                button.setText(labelOf(card));
+            } else {
+                addStoryButton(card);
+            }
+        }
+        shownVersion = room.getView().getVersion();
+        storyCardsPanel.revalidate();
+        storyCardsPanel.repaint();
+    }
+
+    // Takes the first empty cell if there is one, keeping the buttons in the order the stories came
+    private void addStoryButton(T1Card card) {
+        JButton button = createStoryButton(card);
+        if (!placeholders.isEmpty()) {
+            storyCardsPanel.remove(placeholders.remove(0));
+        }
+        storyCardsPanel.add(button, storyButtons.size());
+        storyButtons.put(card.getId(), button);
+    }
+
+    private static String labelOf(T1Card card) {
         String assignedUser = card.getAssignedUser() != null ? card.getAssignedUser() : "Unassigned";
         String totalPoints = String.format("%.2f", card.getTotalPoints());
-       
 
-        String label = "<html><b>" + card.getTitle() + "</b><br/>"
+        return "<html><b>" + card.getTitle() + "</b><br/>"
                      + card.getDescription() + "<br/>"
                      + "Assigned to: " + assignedUser + "<br/>"
                      + "Total Points: " + totalPoints + "<br/>"
                      + "Size: " + card.getAverageScore()
                      + "</html>";
+    }
 
-        JButton button = new JButton(label);
+    private JButton createStoryButton(T1Card card) {
+        JButton button = new JButton(labelOf(card));
         button.setPreferredSize(new Dimension(150, 100));
 
         // Highlighted color (light yellow)
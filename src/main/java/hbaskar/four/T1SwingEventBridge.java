@@ -0,0 +1,99 @@
+package hbaskar.four;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Bridges MQTT events onto the Swing event dispatch thread, one frame at a time.
+ *
+ * The dashboard posts here whenever the repository changes, which includes
+ * every event its subscriber applies from other clients.
+ *
+ * UI updates are posted under a key (usually the panel they refresh). Updates
+ * collected during a frame are applied together in a single invokeLater, and
+ * a later update under the same key replaces an earlier one, so a burst of
+ * votes turns into one refresh of each affected panel per frame instead of
+ * one per message.
+ *
+ * @author DarienR5
+ * @version 1.0
+ */
+public class T1SwingEventBridge {
+    public static final long DEFAULT_FRAME_MILLIS = 16;
+
+    private final long frameMillis;
+    private final ScheduledExecutorService timer;
+    private Map<Object, Runnable> pending = new LinkedHashMap<>();
+    private boolean frameScheduled;
+    private long lastFrameNanos;
+
+    private final AtomicLong posted = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+
+    public T1SwingEventBridge() {
+        this(DEFAULT_FRAME_MILLIS);
+    }
+
+    public T1SwingEventBridge(long frameMillis) {
+        this.frameMillis = frameMillis;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "planit-ui-frames");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Queues an update for the next frame, replacing any update under the same key. */
+    public void post(Object key, Runnable update) {
+        posted.incrementAndGet();
+        synchronized (this) {
+            pending.put(key, update);
+            if (frameScheduled) {
+                return;
+            }
+            frameScheduled = true;
+            long sinceLastFrame = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastFrameNanos);
+            long delay = Math.max(0, frameMillis - sinceLastFrame);
+            try {
+                timer.schedule(() -> SwingUtilities.invokeLater(this::runFrame), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Shut down along with its dashboard; late updates have nothing left to refresh
+                pending.clear();
+            }
+        }
+    }
+
+    private void runFrame() {
+        Map<Object, Runnable> updates;
+        synchronized (this) {
+            // Swap on the EDT so updates posted after the timer fired still make this frame
+            updates = pending;
+            pending = new LinkedHashMap<>();
+            frameScheduled = false;
+            lastFrameNanos = System.nanoTime();
+        }
+        frames.incrementAndGet();
+        for (Runnable update : updates.values()) {
+            update.run();
+        }
+    }
+
+    public long getPostedCount() {
+        return posted.get();
+    }
+
+    public long getFrameCount() {
+        return frames.get();
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+}
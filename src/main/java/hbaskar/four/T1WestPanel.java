@@ -2,7 +2,9 @@ package hbaskar.four;
 
 import java.awt.Color;
 import java.awt.Font;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
@@ -16,6 +18,7 @@ import javax.swing.SwingUtilities;
 
 import hbaskar.T1Card;
 import hbaskar.one.T1PlanItPokerRepository;
+import hbaskar.one.T1RepositoryChange;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +43,8 @@ public class T1WestPanel extends JPanel {
     private JComboBox<String> roomSelector;
     private JComboBox<String> inviteRoomSelector; // Changed from JTextField to JComboBox
     private JPanel playersPanel;
+    // One label per listed player, so arrivals and departures patch the list in place
+    private final Map<String, JLabel> playerLabels = new HashMap<>();
     private T1PlanItPokerRepository repository = T1PlanItPokerRepository.getInstance();
 
     private JTextField inviteNameField;
@@ -234,15 +239,14 @@ public class T1WestPanel extends JPanel {
 
     private void refreshPlayerList() {
         playersPanel.removeAll();
+        playerLabels.clear();
 
         String currentRoom = repository.getCurrentRoomCode();
         if (currentRoom != null) {
             List<String> names = repository.getRoom(currentRoom).getPlayers();
             logger.info("Players in room " + currentRoom + ": " + names);
             for (String name : names) {
-                JLabel nameLabel = new JLabel(name + " just entered the room");
-                nameLabel.setFont(new Font("Arial", Font.PLAIN, 12));
-                playersPanel.add(nameLabel);
+                addPlayerLabel(name);
             }
         }
 
@@ -250,6 +254,40 @@ public class T1WestPanel extends JPanel {
         playersPanel.repaint();
     }
 
+    private void addPlayerLabel(String name) {
+        JLabel nameLabel = new JLabel(name + " just entered the room");
+        nameLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+        playersPanel.add(nameLabel);
+        playerLabels.put(name, nameLabel);
+    }
+
+    /** Adds or removes one label per arrival or departure in the current room, instead of rebuilding the list. */
+    public void applyChanges(List<T1RepositoryChange> changes) {
+        String currentRoom = repository.getCurrentRoomCode();
+        boolean patched = false;
+        for (T1RepositoryChange change : changes) {
+            if (!change.roomCode.equals(currentRoom)) {
+                continue;
+            }
+            if (change.kind == T1RepositoryChange.Kind.PLAYER_JOINED) {
+                if (!playerLabels.containsKey(change.playerName)) {
+                    addPlayerLabel(change.playerName);
+                    patched = true;
+                }
+            } else if (change.kind == T1RepositoryChange.Kind.PLAYER_LEFT) {
+                JLabel nameLabel = playerLabels.remove(change.playerName);
+                if (nameLabel != null) {
+                    playersPanel.remove(nameLabel);
+                    patched = true;
+                }
+            }
+        }
+        if (patched) {
+            playersPanel.revalidate();
+            playersPanel.repaint();
+        }
+    }
+
     public void updatePlayers() {
         refreshPlayerList();
     }
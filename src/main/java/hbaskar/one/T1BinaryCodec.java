@@ -0,0 +1,350 @@
+package hbaskar.one;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * T1BinaryCodec - compact binary wire format for PlanItPoker events
+ *
+ * Fields are written in a fixed order per event class, without names.
+ * Numbers are varints (timestamps, counts) or zig-zag varints (scores);
+ * averages are raw IEEE doubles. Strings go through a dictionary scoped to
+ * the message: the first occurrence is written in full and every repeat
+ * (the room code of each vote in a batch, a player who voted on several
+ * stories) becomes a one- or two-byte back reference.
+ *
+ * String slot encoding, as a varint {@code v}:
+ * <pre>
+ *   v == 0        null
+ *   v odd         reference to dictionary entry v >>> 1
+ *   v even, > 0   literal of (v >>> 1) - 1 UTF-8 bytes, added to the dictionary
+ * </pre>
+ * For every room-scoped event the room code is the first field after the
+ * header, which lets receivers check the room without a full decode.
+ *
+ * Version 2 appends the room sequence number to each room-scoped event and
+ * adds room snapshots; version 3 follows it with the origin id and origin
+ * sequence number. Older payloads still decode, with those fields unset.
+ * A reveal may end with the votes it reveals, as a varint count and
+ * player/score pairs; readers tell whether they are there from the bytes
+ * left, and older readers stop before them.
+ *
+ * The header holds versions 0 to 3, so version 3 is the last revision this
+ * codec id can signal. A further change to the layout is written under a
+ * new codec id in {@link T1EventCodecs}, and this codec keeps decoding
+ * versions 1 to 3.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1BinaryCodec implements T1EventCodec {
+    public static final int ID = 2;
+    // The largest version the header can hold
+    public static final int VERSION = 3;
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(Object event) {
+        Encoder out = new Encoder();
+        out.writer.writeByte(T1EventCodecs.header(ID, VERSION));
+
+        if (event instanceof T1PlanItPokerPublisher.ScoreEvent) {
+            writeScore(out, (T1PlanItPokerPublisher.ScoreEvent) event);
+        } else if (event instanceof T1PlanItPokerPublisher.ScoreBatchEvent) {
+            T1PlanItPokerPublisher.ScoreBatchEvent e = (T1PlanItPokerPublisher.ScoreBatchEvent) event;
+            out.string(e.roomCode);
+            out.writer.writeVarLong(e.timestamp);
+            out.writer.writeVarInt(e.scores.size());
+            for (T1PlanItPokerPublisher.ScoreEvent score : e.scores) {
+                writeScore(out, score);
+            }
+        } else if (event instanceof T1PlanItPokerPublisher.RoomsUpdatedEvent) {
+            T1PlanItPokerPublisher.RoomsUpdatedEvent e = (T1PlanItPokerPublisher.RoomsUpdatedEvent) event;
+            out.writer.writeVarInt(e.availableRooms.size());
+            for (String room : e.availableRooms) {
+                // Room codes in the list are unique, so skip the dictionary lookup
+                out.literal(room);
+            }
+            out.writer.writeVarLong(e.timestamp);
+        } else if (event instanceof T1PlanItPokerPublisher.PlayerEvent) {
+            T1PlanItPokerPublisher.PlayerEvent e = (T1PlanItPokerPublisher.PlayerEvent) event;
+            out.string(e.roomCode);
+            out.string(e.playerName);
+            out.writer.writeVarLong(e.timestamp);
+            out.writer.writeVarLong(e.seq);
+            writeOrigin(out, e.origin, e.originSeq);
+        } else if (event instanceof T1PlanItPokerPublisher.RevealEvent) {
+            T1PlanItPokerPublisher.RevealEvent e = (T1PlanItPokerPublisher.RevealEvent) event;
+            out.string(e.roomCode);
+            out.string(e.storyId);
+            out.writer.writeDouble(e.averageScore);
+            out.writer.writeVarLong(e.timestamp);
+            out.writer.writeVarLong(e.seq);
+            writeOrigin(out, e.origin, e.originSeq);
+            if (e.scores != null) {
+                writeScores(out, e.scores);
+            }
+        } else if (event instanceof T1PlanItPokerPublisher.StoryEvent) {
+            T1PlanItPokerPublisher.StoryEvent e = (T1PlanItPokerPublisher.StoryEvent) event;
+            out.string(e.roomCode);
+            out.string(e.storyId);
+            out.string(e.title);
+            out.string(e.description);
+            out.writer.writeVarLong(e.timestamp);
+            out.writer.writeVarLong(e.seq);
+            writeOrigin(out, e.origin, e.originSeq);
+        } else if (event instanceof T1PlanItPokerPublisher.ModeEvent) {
+            T1PlanItPokerPublisher.ModeEvent e = (T1PlanItPokerPublisher.ModeEvent) event;
+            out.string(e.roomCode);
+            out.string(e.mode);
+            out.writer.writeVarLong(e.timestamp);
+            out.writer.writeVarLong(e.seq);
+            writeOrigin(out, e.origin, e.originSeq);
+        } else if (event instanceof T1PlanItPokerPublisher.RoomSnapshotEvent) {
+            writeSnapshot(out, (T1PlanItPokerPublisher.RoomSnapshotEvent) event);
+        } else if (event instanceof T1PlanItPokerPublisher.RoomEvent) {
+            T1PlanItPokerPublisher.RoomEvent e = (T1PlanItPokerPublisher.RoomEvent) event;
+            out.string(e.roomCode);
+            out.string(e.roomName);
+            out.string(e.creatorName);
+            out.writer.writeVarLong(e.timestamp);
+        } else {
+            throw new IllegalArgumentException("No binary encoding for " + event.getClass().getName());
+        }
+        return out.writer.toByteArray();
+    }
+
+    private static void writeScore(Encoder out, T1PlanItPokerPublisher.ScoreEvent e) {
+        out.string(e.roomCode);
+        out.string(e.storyId);
+        out.string(e.playerName);
+        out.writer.writeSignedVarLong(e.score);
+        out.writer.writeVarLong(e.timestamp);
+        out.writer.writeVarLong(e.seq);
+        writeOrigin(out, e.origin, e.originSeq);
+    }
+
+    private static void writeOrigin(Encoder out, String origin, long originSeq) {
+        // Every score in a batch shares the origin, so repeats are back references
+        out.string(origin);
+        out.writer.writeVarLong(originSeq);
+    }
+
+    private static void writeSnapshot(Encoder out, T1PlanItPokerPublisher.RoomSnapshotEvent e) {
+        out.string(e.roomCode);
+        out.string(e.roomName);
+        out.string(e.creatorName);
+        out.writer.writeVarLong(e.seq);
+        out.writer.writeVarLong(e.timestamp);
+        out.writer.writeVarInt(e.players.size());
+        for (String player : e.players) {
+            out.string(player);
+        }
+        out.writer.writeVarInt(e.stories.size());
+        for (T1PlanItPokerPublisher.StorySnapshot story : e.stories) {
+            out.string(story.storyId);
+            out.string(story.title);
+            out.string(story.description);
+            out.string(story.assignedUser);
+            out.writer.writeDouble(story.totalPoints);
+            writeScores(out, story.scores);
+            out.writer.writeByte(story.revealed ? 1 : 0);
+            out.writer.writeDouble(story.averageScore);
+        }
+    }
+
+    private static void writeScores(Encoder out, Map<String, Integer> scores) {
+        out.writer.writeVarInt(scores.size());
+        for (Map.Entry<String, Integer> score : scores.entrySet()) {
+            // Voters are mostly the room's players, so these are usually back references
+            out.string(score.getKey());
+            out.writer.writeSignedVarLong(score.getValue());
+        }
+    }
+
+    @Override
+    public <T> T decode(byte[] payload, int offset, Class<T> eventClass) {
+        int version = (payload[offset - 1] & T1EventCodecs.VERSION_MASK) >>> T1EventCodecs.VERSION_SHIFT;
+        Decoder in = new Decoder(new T1ByteReader(payload, offset, payload.length - offset), version);
+        Object event;
+
+        if (eventClass == T1PlanItPokerPublisher.ScoreEvent.class) {
+            event = readScore(in);
+        } else if (eventClass == T1PlanItPokerPublisher.ScoreBatchEvent.class) {
+            String roomCode = in.string();
+            long timestamp = in.reader.readVarLong();
+            int count = in.reader.readVarInt();
+            List<T1PlanItPokerPublisher.ScoreEvent> scores = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                scores.add(readScore(in));
+            }
+            event = new T1PlanItPokerPublisher.ScoreBatchEvent(roomCode, scores, timestamp);
+        } else if (eventClass == T1PlanItPokerPublisher.RoomsUpdatedEvent.class) {
+            int count = in.reader.readVarInt();
+            List<String> rooms = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                rooms.add(in.string());
+            }
+            event = new T1PlanItPokerPublisher.RoomsUpdatedEvent(rooms, in.reader.readVarLong());
+        } else if (eventClass == T1PlanItPokerPublisher.PlayerEvent.class) {
+            event = new T1PlanItPokerPublisher.PlayerEvent(in.string(), in.string(), in.reader.readVarLong(), in.seq(),
+                    in.origin(), in.originSeq());
+        } else if (eventClass == T1PlanItPokerPublisher.RevealEvent.class) {
+            event = new T1PlanItPokerPublisher.RevealEvent(in.string(), in.string(),
+                    in.reader.readDouble(), in.reader.readVarLong(), in.seq(),
+                    in.origin(), in.originSeq(), in.reader.hasRemaining() ? readScores(in) : null);
+        } else if (eventClass == T1PlanItPokerPublisher.StoryEvent.class) {
+            event = new T1PlanItPokerPublisher.StoryEvent(in.string(), in.string(), in.string(),
+                    in.string(), in.reader.readVarLong(), in.seq(),
+                    in.origin(), in.originSeq());
+        } else if (eventClass == T1PlanItPokerPublisher.ModeEvent.class) {
+            event = new T1PlanItPokerPublisher.ModeEvent(in.string(), in.string(), in.reader.readVarLong(), in.seq(),
+                    in.origin(), in.originSeq());
+        } else if (eventClass == T1PlanItPokerPublisher.RoomSnapshotEvent.class) {
+            event = readSnapshot(in);
+        } else if (eventClass == T1PlanItPokerPublisher.RoomEvent.class) {
+            event = new T1PlanItPokerPublisher.RoomEvent(in.string(), in.string(), in.string(),
+                    in.reader.readVarLong());
+        } else {
+            throw new IllegalArgumentException("No binary decoding for " + eventClass.getName());
+        }
+        return eventClass.cast(event);
+    }
+
+    @Override
+    public boolean matchesRoom(byte[] payload, int offset, byte[] roomCodeUtf8) {
+        T1ByteReader reader = new T1ByteReader(payload, offset, payload.length - offset);
+        int slot = reader.readVarInt();
+        if (slot == 0) {
+            return false;
+        }
+        if ((slot & 1) != 0) {
+            // The room code is always the first string, so it cannot be a reference
+            return true;
+        }
+        return reader.regionEquals((slot >>> 1) - 1, roomCodeUtf8);
+    }
+
+    private static T1PlanItPokerPublisher.ScoreEvent readScore(Decoder in) {
+        return new T1PlanItPokerPublisher.ScoreEvent(in.string(), in.string(), in.string(),
+                (int) in.reader.readSignedVarLong(), in.reader.readVarLong(), in.seq(),
+                    in.origin(), in.originSeq());
+    }
+
+    private static T1PlanItPokerPublisher.RoomSnapshotEvent readSnapshot(Decoder in) {
+        String roomCode = in.string();
+        String roomName = in.string();
+        String creatorName = in.string();
+        long seq = in.reader.readVarLong();
+        long timestamp = in.reader.readVarLong();
+        int playerCount = in.reader.readVarInt();
+        List<String> players = new ArrayList<>(playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            players.add(in.string());
+        }
+        int storyCount = in.reader.readVarInt();
+        List<T1PlanItPokerPublisher.StorySnapshot> stories = new ArrayList<>(storyCount);
+        for (int i = 0; i < storyCount; i++) {
+            String storyId = in.string();
+            String title = in.string();
+            String description = in.string();
+            String assignedUser = in.string();
+            double totalPoints = in.reader.readDouble();
+            Map<String, Integer> scores = readScores(in);
+            boolean revealed = in.reader.readByte() != 0;
+            stories.add(new T1PlanItPokerPublisher.StorySnapshot(storyId, title, description, assignedUser,
+                    totalPoints, scores, revealed, in.reader.readDouble()));
+        }
+        return new T1PlanItPokerPublisher.RoomSnapshotEvent(roomCode, roomName, creatorName, seq,
+                players, stories, timestamp);
+    }
+
+    private static Map<String, Integer> readScores(Decoder in) {
+        int count = in.reader.readVarInt();
+        Map<String, Integer> scores = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            scores.put(in.string(), (int) in.reader.readSignedVarLong());
+        }
+        return scores;
+    }
+
+    // Per-message string dictionary on the writing side
+    private static final class Encoder {
+        final T1ByteWriter writer = new T1ByteWriter();
+        private Map<String, Integer> dictionary;
+        private int entries;
+
+        void string(String value) {
+            if (value == null) {
+                writer.writeVarInt(0);
+                return;
+            }
+            if (dictionary == null) {
+                dictionary = new HashMap<>();
+            }
+            Integer index = dictionary.get(value);
+            if (index != null) {
+                writer.writeVarInt((index << 1) | 1);
+                return;
+            }
+            dictionary.put(value, entries);
+            literal(value);
+        }
+
+        // Writes a literal that will not be referenced again; the reader
+        // still numbers it, so the entry count has to advance
+        void literal(String value) {
+            if (value == null) {
+                writer.writeVarInt(0);
+                return;
+            }
+            entries++;
+            writer.writeUtf8Slot(value);
+        }
+    }
+
+    // Per-message string dictionary on the reading side
+    private static final class Decoder {
+        final T1ByteReader reader;
+        final int version;
+        private final List<String> dictionary = new ArrayList<>();
+
+        Decoder(T1ByteReader reader, int version) {
+            this.reader = reader;
+            this.version = version;
+        }
+
+        long seq() {
+            return version >= 2 ? reader.readVarLong() : 0;
+        }
+
+        String origin() {
+            return version >= 3 ? string() : null;
+        }
+
+        long originSeq() {
+            return version >= 3 ? reader.readVarLong() : 0;
+        }
+
+        String string() {
+            int slot = reader.readVarInt();
+            if (slot == 0) {
+                return null;
+            }
+            if ((slot & 1) != 0) {
+                return dictionary.get(slot >>> 1);
+            }
+            String value = reader.readUtf8((slot >>> 1) - 1);
+            dictionary.add(value);
+            return value;
+        }
+    }
+}
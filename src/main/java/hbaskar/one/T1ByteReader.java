@@ -0,0 +1,108 @@
+package hbaskar.one;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * T1ByteReader - cursor over a byte array written by {@link T1ByteWriter}
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1ByteReader {
+    private final byte[] buffer;
+    private final int limit;
+    private int position;
+
+    public T1ByteReader(byte[] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    public T1ByteReader(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    private void require(int count) {
+        if (position + count > limit) {
+            throw new IllegalArgumentException("Truncated payload at offset " + position);
+        }
+    }
+
+    public int readByte() {
+        require(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    public long readVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at offset " + position);
+    }
+
+    public int readVarInt() {
+        return (int) readVarLong();
+    }
+
+    public long readSignedVarLong() {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public double readDouble() {
+        require(8);
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | (buffer[position++] & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    public String readString() {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        return readUtf8(length - 1);
+    }
+
+    public String readUtf8(int length) {
+        require(length);
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    /** Compares the next {@code length} bytes with {@code expected} without consuming them. */
+    public boolean regionEquals(int length, byte[] expected) {
+        if (length != expected.length || position + length > limit) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer[position + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void skip(int count) {
+        require(count);
+        position += count;
+    }
+
+    public int position() {
+        return position;
+    }
+
+    public boolean hasRemaining() {
+        return position < limit;
+    }
+}
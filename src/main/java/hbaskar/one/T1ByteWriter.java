@@ -0,0 +1,120 @@
+package hbaskar.one;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * T1ByteWriter - growable byte buffer with varint primitives
+ *
+ * Used by the compact binary formats in this package. Unsigned values are
+ * written as LEB128 varints, signed values zig-zag encoded first so small
+ * negative numbers stay small.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1ByteWriter {
+    private byte[] buffer;
+    private int size;
+
+    public T1ByteWriter() {
+        this(64);
+    }
+
+    public T1ByteWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    public void writeByte(int value) {
+        ensure(1);
+        buffer[size++] = (byte) value;
+    }
+
+    public void writeBytes(byte[] bytes, int offset, int length) {
+        ensure(length);
+        System.arraycopy(bytes, offset, buffer, size, length);
+        size += length;
+    }
+
+    public void writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    public void writeVarInt(int value) {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    public void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (bits >>> shift);
+        }
+    }
+
+    /** Writes a length-prefixed UTF-8 string; null is written as length 0 with a flag. */
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(utf8.length + 1);
+        writeBytes(utf8, 0, utf8.length);
+    }
+
+    /**
+     * Writes a string as a dictionary literal slot: varint ((utf8Length + 1) << 1)
+     * followed by the UTF-8 bytes. ASCII strings are copied without an
+     * intermediate byte array.
+     */
+    public void writeUtf8Slot(String value) {
+        int length = value.length();
+        boolean ascii = true;
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                ascii = false;
+                break;
+            }
+        }
+        if (!ascii) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt((utf8.length + 1) << 1);
+            writeBytes(utf8, 0, utf8.length);
+            return;
+        }
+        writeVarInt((length + 1) << 1);
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            buffer[size++] = (byte) value.charAt(i);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+}
@@ -0,0 +1,83 @@
+package hbaskar.one;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * T1ChangeNotifier - collects a thread's repository changes into batches
+ *
+ * A change to the repository runs between {@link #begin()} and
+ * {@link #end()}; what it changes is emitted as it happens, often under the
+ * room's lock, and held on the thread until the outermost change ends. Only
+ * then, with no lock held, do listeners get the whole batch, so one vote
+ * that also brings its player in is one delivery, and a batch opened around
+ * an import is one delivery however many stories it adds. A change emitted
+ * outside any batch, like a player expiring on the presence thread, is
+ * delivered on its own.
+ *
+ * With no listeners nothing is collected.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+final class T1ChangeNotifier {
+    private static final Logger logger = LoggerFactory.getLogger(T1ChangeNotifier.class);
+
+    // How deep in changes a thread is, and what they changed so far
+    private static final class Batch {
+        int depth;
+        List<T1RepositoryChange> changes = new ArrayList<>();
+    }
+
+    private final CopyOnWriteArrayList<Consumer<List<T1RepositoryChange>>> listeners = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Batch> batches = ThreadLocal.withInitial(Batch::new);
+
+    T1EventDispatcher.Registration addListener(Consumer<List<T1RepositoryChange>> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    void begin() {
+        batches.get().depth++;
+    }
+
+    void emit(T1RepositoryChange change) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        Batch batch = batches.get();
+        if (batch.depth == 0) {
+            deliver(Collections.singletonList(change));
+        } else {
+            batch.changes.add(change);
+        }
+    }
+
+    void end() {
+        Batch batch = batches.get();
+        if (--batch.depth > 0 || batch.changes.isEmpty()) {
+            return;
+        }
+        // Swapped first, so changes made by a listener form a batch of their own
+        List<T1RepositoryChange> changes = Collections.unmodifiableList(batch.changes);
+        batch.changes = new ArrayList<>();
+        deliver(changes);
+    }
+
+    private void deliver(List<T1RepositoryChange> changes) {
+        for (Consumer<List<T1RepositoryChange>> listener : listeners) {
+            try {
+                listener.accept(changes);
+            } catch (RuntimeException e) {
+                logger.error("Change listener failed on {}: {}", changes, e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package hbaskar.one;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * T1ClockSync - estimates how far other hosts' clocks are from ours
+ *
+ * Every publisher answers pings on its own topic ({@link #PING_PREFIX} plus
+ * its origin) by echoing them to the pinging origin's pong topic, stamped
+ * with its own clock. Pings go only to the origins whose events recently
+ * reached a listener here, as reported by {@link T1LatencyMetrics}, so the
+ * traffic grows with the peers a client actually hears from rather than with
+ * every client on the broker. From a pong the
+ * pinging side knows when it sent the ping (t0), when the peer answered (t1,
+ * peer clock) and when the answer came back (t2), and estimates the peer's
+ * offset as {@code t1 - (t0 + t2) / 2}, the NTP way. The error of that
+ * estimate is at most half the round trip, so of the last few samples per
+ * peer the one with the shortest round trip is kept.
+ *
+ * Offsets are handed to {@link T1LatencyMetrics}, which uses them to turn a
+ * peer's event timestamps into local time before measuring end-to-end
+ * latency. Messages are a few bytes written with {@link T1ByteWriter}: the
+ * sender's origin and microsecond timestamps.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1ClockSync implements MqttCallback {
+    private static final Logger logger = LoggerFactory.getLogger(T1ClockSync.class);
+
+    public static final String PING_PREFIX = "planit/clock/ping/";
+    public static final String PONG_PREFIX = "planit/clock/pong/";
+    private static final int SAMPLES = 8;
+    // Peers silent for this many intervals are no longer pinged
+    private static final int PEER_IDLE_INTERVALS = 4;
+
+    // Recent samples of one peer; the one with the shortest round trip wins
+    private static final class Peer {
+        final long[] roundTrips = new long[SAMPLES];
+        final long[] offsets = new long[SAMPLES];
+        int count;
+        int next;
+        volatile long bestRoundTrip;
+        volatile long bestOffset;
+
+        synchronized void add(long roundTrip, long offset) {
+            roundTrips[next] = roundTrip;
+            offsets[next] = offset;
+            next = (next + 1) % SAMPLES;
+            count = Math.min(count + 1, SAMPLES);
+            int best = 0;
+            for (int i = 1; i < count; i++) {
+                if (roundTrips[i] < roundTrips[best]) {
+                    best = i;
+                }
+            }
+            bestRoundTrip = roundTrips[best];
+            bestOffset = offsets[best];
+        }
+    }
+
+    private final T1MessageTransport transport;
+    private final String origin;
+    private final long intervalMillis;
+    private final Map<String, Peer> peers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+
+    /**
+     * @param transport a transport whose callback this object may take over
+     * @param origin    the local publisher's origin id, which peers stamp on events
+     */
+    public T1ClockSync(T1MessageTransport transport, String origin, long intervalMillis) {
+        this.transport = transport;
+        this.origin = origin;
+        this.intervalMillis = intervalMillis;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "planit-clock-sync");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Wall-clock time in microseconds since the epoch. */
+    public static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000 + now.getNano() / 1000;
+    }
+
+    /** Subscribes to pings and pongs and starts pinging. */
+    public void start() throws MqttException {
+        transport.setCallback(this);
+        transport.subscribe(PING_PREFIX + origin, 0);
+        transport.subscribe(PONG_PREFIX + origin, 0);
+        timer.scheduleWithFixedDelay(this::ping, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    /** The peer's clock minus ours in microseconds, or 0 while unknown. */
+    public long getOffsetMicros(String peerOrigin) {
+        Peer peer = peers.get(peerOrigin);
+        return peer == null ? 0 : peer.bestOffset;
+    }
+
+    /** Shortest recent round trip to the peer in microseconds, or -1 while unknown. */
+    public long getRoundTripMicros(String peerOrigin) {
+        Peer peer = peers.get(peerOrigin);
+        return peer == null ? -1 : peer.bestRoundTrip;
+    }
+
+    private void ping() {
+        long since = System.currentTimeMillis() - PEER_IDLE_INTERVALS * intervalMillis;
+        for (String peer : T1LatencyMetrics.getInstance().getOriginsHeardSince(since)) {
+            if (peer.equals(origin)) {
+                continue;
+            }
+            T1ByteWriter out = new T1ByteWriter(32);
+            out.writeString(origin);
+            out.writeVarLong(nowMicros());
+            send(PING_PREFIX + peer, out.toByteArray());
+        }
+    }
+
+    private void send(String topic, byte[] payload) {
+        // A ping kept in the outbox would only be answered long after it was stamped
+        if (!transport.isConnected()) {
+            return;
+        }
+        try {
+            transport.publish(topic, payload, 0, false, null);
+        } catch (MqttException e) {
+            logger.debug("Clock sync message to {} not sent: {}", topic, e.getMessage());
+        }
+    }
+
+    @Override
+    public void messageArrived(String topic, MqttMessage message) {
+        try {
+            T1ByteReader in = new T1ByteReader(message.getPayload());
+            String sender = in.readString();
+            if (sender.equals(origin)) {
+                return;
+            }
+            if (topic.startsWith(PING_PREFIX)) {
+                // Echo the ping with our own clock reading
+                T1ByteWriter out = new T1ByteWriter(48);
+                out.writeString(origin);
+                out.writeVarLong(in.readVarLong());
+                out.writeVarLong(nowMicros());
+                send(PONG_PREFIX + sender, out.toByteArray());
+            } else {
+                long t2 = nowMicros();
+                long t0 = in.readVarLong();
+                long t1 = in.readVarLong();
+                long offset = t1 - (t0 + t2) / 2;
+                Peer peer = peers.computeIfAbsent(sender, s -> new Peer());
+                peer.add(t2 - t0, offset);
+                T1LatencyMetrics.getInstance().setClockOffsetMicros(sender, peer.bestOffset);
+            }
+        } catch (RuntimeException e) {
+            logger.debug("Ignoring malformed clock sync message on {}: {}", topic, e.getMessage());
+        }
+    }
+
+    @Override
+    public void connectionLost(Throwable cause) {
+        // The supervisor reconnects and resubscribes; pings resume on their own
+    }
+
+    @Override
+    public void deliveryComplete(IMqttDeliveryToken token) {
+    }
+}
@@ -0,0 +1,146 @@
+package hbaskar.one;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * T1CompressingCodec - deflates the payloads of another codec once they get large
+ *
+ * Payloads shorter than the threshold are passed through unchanged. Longer
+ * ones are compressed with the JDK's raw deflate and flagged by
+ * {@link T1EventCodecs#HEADER_COMPRESSED} in the header byte; if compression
+ * does not make the payload smaller, it is sent uncompressed after all.
+ * Receivers inflate flagged payloads in {@link T1EventCodecs#decode} whatever
+ * codec they are configured with.
+ *
+ * Layout of a compressed payload:
+ * <pre>
+ *   header    the inner codec's header byte with the compressed bit set
+ *             (JSON, which normally has none, gets the JSON header)
+ *   varint    length of the uncompressed body, header excluded
+ *   bytes     raw deflate stream of the body
+ * </pre>
+ * Clients that predate compression reject the reserved bit instead of
+ * misreading the payload, so turn compression on once every client has it.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1CompressingCodec implements T1EventCodec {
+    // Refuses to inflate anything claiming to be larger; an MQTT message is never that big in practice
+    private static final int MAX_BODY_LENGTH = 16 * 1024 * 1024;
+
+    private final T1EventCodec inner;
+    private final int threshold;
+    private final int level;
+
+    // Deflater and Inflater hold native memory; one of each per thread, reused
+    private final ThreadLocal<Deflater> deflaters;
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    /**
+     * @param threshold smallest encoded size, in bytes, that is compressed
+     * @param level     deflate level, 1 (fastest) to 9 (smallest)
+     */
+    public T1CompressingCodec(T1EventCodec inner, int threshold, int level) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between 1 and 9: " + level);
+        }
+        this.inner = inner;
+        this.threshold = threshold;
+        this.level = level;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level, true));
+    }
+
+    public T1EventCodec getInner() {
+        return inner;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    @Override
+    public int getId() {
+        return inner.getId();
+    }
+
+    @Override
+    public byte[] encode(Object event) {
+        byte[] plain = inner.encode(event);
+        if (plain.length < threshold) {
+            return plain;
+        }
+        int bodyOffset = T1EventCodecs.hasHeader(plain) ? 1 : 0;
+        int bodyLength = plain.length - bodyOffset;
+        int header = bodyOffset == 1 ? plain[0] & 0xFF : T1EventCodecs.header(T1JsonCodec.ID, 0);
+
+        T1ByteWriter out = new T1ByteWriter(bodyLength / 2 + 16);
+        out.writeByte(header | T1EventCodecs.HEADER_COMPRESSED);
+        out.writeVarInt(bodyLength);
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(plain, bodyOffset, bodyLength);
+        deflater.finish();
+        byte[] chunk = new byte[Math.max(64, bodyLength / 2)];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(chunk);
+            out.writeBytes(chunk, 0, n);
+            if (out.size() >= plain.length) {
+                // Not worth it: incompressible data
+                return plain;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public <T> T decode(byte[] payload, int offset, Class<T> eventClass) {
+        return T1EventCodecs.decode(payload, eventClass);
+    }
+
+    /**
+     * Restores the payload the inner codec wrote: its header byte with the
+     * compressed bit cleared, followed by the inflated body.
+     */
+    static byte[] inflate(byte[] payload) {
+        T1ByteReader in = new T1ByteReader(payload, 1, payload.length - 1);
+        int bodyLength = in.readVarInt();
+        if (bodyLength < 0 || bodyLength > MAX_BODY_LENGTH) {
+            throw new IllegalArgumentException("Corrupt compressed payload: length " + bodyLength);
+        }
+        byte[] plain = new byte[bodyLength + 1];
+        plain[0] = (byte) (payload[0] & ~T1EventCodecs.HEADER_COMPRESSED);
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(payload, in.position(), payload.length - in.position());
+        try {
+            int filled = 1;
+            while (filled < plain.length) {
+                int n = inflater.inflate(plain, filled, plain.length - filled);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                filled += n;
+            }
+            if (filled != plain.length) {
+                throw new IllegalArgumentException("Corrupt compressed payload: " + (filled - 1) + " of "
+                        + bodyLength + " bytes");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compressed payload: " + e.getMessage(), e);
+        }
+        return plain;
+    }
+
+    @Override
+    public String toString() {
+        return "compressed(" + inner + ", >= " + threshold + " bytes, level " + level + ")";
+    }
+}
@@ -0,0 +1,284 @@
+package hbaskar.one;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.MqttTopic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * T1ConnectionManager - one broker connection per process, shared by every publisher and subscriber
+ *
+ * {@link #acquire(T1MessagingConfig)} hands out a {@link Handle} on the
+ * connection to the configured broker, opening it on first use and closing it
+ * when the last handle is disconnected. However many subscribers the UI
+ * creates, the process holds one TCP connection (and one client id) per
+ * broker, together with its {@link T1ConnectionSupervisor} and outbox.
+ *
+ * Subscriptions are reference counted per topic filter: the broker sees a
+ * filter subscribed once, and unsubscribed only when no handle needs it any
+ * more. Incoming messages are demultiplexed to every handle whose own filters
+ * match the topic, so each handle's callback receives exactly what it would
+ * have received on a connection of its own.
+ *
+ * Connections are keyed by broker URL and user name; the options of the
+ * first handle's configuration apply. A configuration with
+ * {@link T1MessagingConfig#isSharedConnection()} turned off gets a private
+ * connection instead, for example to simulate many clients in a load test.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public final class T1ConnectionManager {
+    private static final Logger logger = LoggerFactory.getLogger(T1ConnectionManager.class);
+
+    private static final Map<String, Connection> CONNECTIONS = new HashMap<>();
+
+    private T1ConnectionManager() {
+    }
+
+    /** Returns a handle on the shared connection for this configuration, connecting if needed. */
+    public static Handle acquire(T1MessagingConfig config) {
+        Connection connection;
+        boolean opened = false;
+        synchronized (T1ConnectionManager.class) {
+            if (!config.isSharedConnection()) {
+                connection = new Connection(null, config);
+                opened = true;
+            } else {
+                String key = keyOf(config);
+                connection = CONNECTIONS.get(key);
+                if (connection == null) {
+                    connection = new Connection(key, config);
+                    CONNECTIONS.put(key, connection);
+                    opened = true;
+                }
+            }
+            connection.refs++;
+        }
+        if (opened) {
+            connection.open();
+        }
+        return new Handle(connection);
+    }
+
+    /** Shared connections currently open. */
+    public static synchronized int getConnectionCount() {
+        return CONNECTIONS.size();
+    }
+
+    private static String keyOf(T1MessagingConfig config) {
+        return config.getBrokerUrl() + "|" + (config.getUsername() == null ? "" : config.getUsername());
+    }
+
+    private static synchronized boolean release(Connection connection) {
+        if (--connection.refs > 0) {
+            return false;
+        }
+        if (connection.key != null) {
+            CONNECTIONS.remove(connection.key);
+        }
+        return true;
+    }
+
+    // One supervised transport and the handles using it
+    private static final class Connection implements MqttCallback {
+        final String key;
+        final T1MessagingConfig config;
+        final T1ConnectionSupervisor supervisor;
+        final CopyOnWriteArrayList<Handle> handles = new CopyOnWriteArrayList<>();
+        final Map<String, Integer> filterRefs = new HashMap<>();
+        int refs;
+
+        Connection(String key, T1MessagingConfig config) {
+            this.key = key;
+            this.config = config;
+            String clientId = "PlanIt_" + UUID.randomUUID();
+            this.supervisor = new T1ConnectionSupervisor(T1MessageTransport.create(config, clientId), config,
+                    openOutbox(config));
+            supervisor.setCallback(this);
+        }
+
+        void open() {
+            try {
+                supervisor.connect();
+                logger.trace("Opened connection {} to {}", supervisor.getClientId(), config.getBrokerUrl());
+            } catch (MqttException me) {
+                logger.error("Failed to connect to MQTT broker: " + me.getMessage());
+            }
+        }
+
+        void subscribe(String filter, int qos) throws MqttException {
+            synchronized (filterRefs) {
+                if (filterRefs.merge(filter, 1, Integer::sum) > 1) {
+                    return;
+                }
+            }
+            supervisor.subscribe(filter, qos);
+        }
+
+        void unsubscribe(String filter) throws MqttException {
+            synchronized (filterRefs) {
+                Integer refs = filterRefs.get(filter);
+                if (refs == null) {
+                    return;
+                }
+                if (refs > 1) {
+                    filterRefs.put(filter, refs - 1);
+                    return;
+                }
+                filterRefs.remove(filter);
+            }
+            supervisor.unsubscribe(filter);
+        }
+
+        @Override
+        public void connectionLost(Throwable cause) {
+            for (Handle handle : handles) {
+                MqttCallback target = handle.callback;
+                if (target != null) {
+                    target.connectionLost(cause);
+                }
+            }
+        }
+
+        @Override
+        public void messageArrived(String topic, MqttMessage message) throws Exception {
+            for (Handle handle : handles) {
+                MqttCallback target = handle.callback;
+                if (target != null && handle.matches(topic)) {
+                    try {
+                        target.messageArrived(topic, message);
+                    } catch (Exception e) {
+                        // One handle's failure must not keep the message from the others
+                        logger.error("Failed to handle {}: {}", topic, e.getMessage(), e);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void deliveryComplete(IMqttDeliveryToken token) {
+            // Publishers hear about acknowledgements through their action listeners
+        }
+    }
+
+    // One outbox per broker, so messages are only ever sent where they were meant to go
+    private static T1Outbox openOutbox(T1MessagingConfig config) {
+        if (config.getOutboxDirectory() == null) {
+            return null;
+        }
+        String name = "planit-" + Integer.toHexString(config.getBrokerUrl().hashCode());
+        try {
+            return T1Outbox.open(config.getOutboxDirectory(), name, config.getOutboxMaxBytes());
+        } catch (IOException e) {
+            logger.warn("Cannot open outbox in {}: {}; messages published while disconnected will fail",
+                    config.getOutboxDirectory(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * One user's view of a shared connection. Behaves like a connection of
+     * its own: its callback only hears about topics it subscribed to, and
+     * disconnecting it leaves the connection to the remaining handles.
+     */
+    public static final class Handle implements T1MessageTransport {
+        private final Connection connection;
+        private final Set<String> filters = ConcurrentHashMap.newKeySet();
+        private volatile MqttCallback callback;
+        private boolean closed;
+
+        private Handle(Connection connection) {
+            this.connection = connection;
+        }
+
+        /** The supervisor of the underlying connection, for its state and outbox. */
+        public T1ConnectionSupervisor getSupervisor() {
+            return connection.supervisor;
+        }
+
+        @Override
+        public String getClientId() {
+            return connection.supervisor.getClientId();
+        }
+
+        @Override
+        public void setCallback(MqttCallback callback) {
+            this.callback = callback;
+            connection.handles.addIfAbsent(this);
+        }
+
+        /** The connection is opened when the handle is acquired; nothing left to do. */
+        @Override
+        public void connect() {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connection.supervisor.isConnected();
+        }
+
+        @Override
+        public void publish(String topic, byte[] payload, int qos, boolean retained, IMqttActionListener listener)
+                throws MqttException {
+            connection.supervisor.publish(topic, payload, qos, retained, listener);
+        }
+
+        @Override
+        public void subscribe(String topicFilter, int qos) throws MqttException {
+            if (filters.add(topicFilter)) {
+                connection.subscribe(topicFilter, qos);
+            }
+        }
+
+        @Override
+        public void unsubscribe(String topicFilter) throws MqttException {
+            if (filters.remove(topicFilter)) {
+                connection.unsubscribe(topicFilter);
+            }
+        }
+
+        /** Releases this handle; the connection closes with its last handle. */
+        @Override
+        public void disconnect() throws MqttException {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            connection.handles.remove(this);
+            for (String filter : filters) {
+                connection.unsubscribe(filter);
+            }
+            filters.clear();
+            if (release(connection)) {
+                connection.supervisor.disconnect();
+                logger.trace("Closed connection {}", connection.supervisor.getClientId());
+            }
+        }
+
+        boolean matches(String topic) {
+            for (String filter : filters) {
+                if (MqttTopic.isMatched(filter, topic)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,520 @@
+package hbaskar.one;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * T1ConnectionSupervisor - keeps a transport connected and holds publishes while it is not
+ *
+ * Wraps the {@link T1MessageTransport} of a publisher or subscriber. When the
+ * connection drops, reconnect attempts are scheduled with exponential backoff
+ * and random jitter, so a broker that restarts is not hit by every client at
+ * once. After reconnecting, the topics subscribed so far are subscribed again
+ * and the {@link T1Outbox}, if there is one, is drained before new messages
+ * go out, so they keep their order. Recovery always runs on the
+ * supervisor's own thread, also after the first connect, so a caller of
+ * {@link #connect()} is never held up by an outbox left from a previous run.
+ *
+ * While disconnected, publishes are appended to the outbox and reported as
+ * successful once they are on disk. The outbox is drained at a limited rate
+ * and with a limited number of messages in flight, so a long outage does not
+ * end in a burst the broker has to absorb at once. A message whose send
+ * failed in flight is retried from the outbox and may then arrive after
+ * messages sent later; receivers tolerate that (see {@link T1ReplicaApplier}).
+ * Without an outbox, publishing while disconnected fails as before.
+ *
+ * The client accepts only so many unacknowledged publishes. Everything
+ * sending through one supervisor, the outbox drain and the pipelines of
+ * every handle on a shared connection alike, takes a slot of
+ * {@link #getInflightWindow()} first, so together they never exceed it.
+ *
+ * The connection state can be observed with {@link #addStateListener}.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1ConnectionSupervisor implements T1MessageTransport, MqttCallback {
+    private static final Logger logger = LoggerFactory.getLogger(T1ConnectionSupervisor.class);
+
+    /** Where the connection stands. */
+    public enum State {
+        /** Waiting for the next reconnect attempt. */
+        DISCONNECTED,
+        /** A connect attempt is running. */
+        CONNECTING,
+        /** Connected; subscriptions are being restored and the outbox drained. */
+        RECOVERING,
+        /** Connected and publishing directly. */
+        CONNECTED,
+        /** Disconnected for good. */
+        CLOSED
+    }
+
+    private final T1MessageTransport delegate;
+    private final T1MessagingConfig config;
+    private final T1Outbox outbox;
+    private final Map<String, Integer> subscriptions = new ConcurrentHashMap<>();
+    private final List<Consumer<State>> stateListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong reconnects = new AtomicLong();
+    // Slots of the client's inflight window, shared by all senders
+    private final Semaphore inflightWindow;
+    private volatile MqttCallback callback;
+    private volatile State state = State.DISCONNECTED;
+    private ScheduledFuture<?> pendingAttempt;
+    private int attempt;
+
+    /** @param outbox where publishes wait while disconnected; null to fail them instead */
+    public T1ConnectionSupervisor(T1MessageTransport delegate, T1MessagingConfig config, T1Outbox outbox) {
+        this.delegate = delegate;
+        this.config = config;
+        this.outbox = outbox;
+        this.inflightWindow = new Semaphore(config.getMaxInflight());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "planit-connection-" + delegate.getClientId());
+            t.setDaemon(true);
+            return t;
+        });
+        delegate.setCallback(this);
+    }
+
+    @Override
+    public String getClientId() {
+        return delegate.getClientId();
+    }
+
+    @Override
+    public void setCallback(MqttCallback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Makes the first connection attempt and waits for it. If it fails, the
+     * supervisor keeps trying in the background and publishes go to the
+     * outbox in the meantime. If it succeeds, the outbox is drained in the
+     * background while new publishes queue up behind it.
+     */
+    @Override
+    public void connect() throws MqttException {
+        if (state == State.CLOSED) {
+            throw new MqttException(MqttException.REASON_CODE_CLIENT_CLOSED);
+        }
+        setState(State.CONNECTING);
+        try {
+            delegate.connect();
+        } catch (MqttException me) {
+            logger.warn("Failed to connect to {}: {}; retrying in the background", config.getBrokerUrl(),
+                    me.getMessage());
+            setState(State.DISCONNECTED);
+            scheduleReconnect();
+            return;
+        }
+        // Nothing subscribed yet, but a previous run may have left messages in the outbox
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return;
+            }
+            // Before returning, so subscriptions made meanwhile go straight to the broker
+            setState(State.RECOVERING);
+        }
+        try {
+            scheduler.execute(this::restore);
+        } catch (RejectedExecutionException e) {
+            // Disconnected in the meantime
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return delegate.isConnected();
+    }
+
+    @Override
+    public void publish(String topic, byte[] payload, int qos, boolean retained, IMqttActionListener listener)
+            throws MqttException {
+        synchronized (this) {
+            // Without an outbox there is nothing to wait for once connected
+            if (state != State.CONNECTED && (state != State.RECOVERING || outbox != null)) {
+                // Also while recovering: the outbox goes first
+                store(topic, payload, qos, retained, listener);
+                return;
+            }
+            try {
+                delegate.publish(topic, payload, qos, retained, storingOnFailure(topic, payload, qos, retained, listener));
+            } catch (MqttException me) {
+                if (!isConnectionFailure(me)) {
+                    throw me;
+                }
+                store(topic, payload, qos, retained, listener);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(String topicFilter, int qos) throws MqttException {
+        subscriptions.put(topicFilter, qos);
+        State current = state;
+        if (current != State.CONNECTED && current != State.RECOVERING) {
+            // Subscribed on reconnect
+            return;
+        }
+        try {
+            delegate.subscribe(topicFilter, qos);
+        } catch (MqttException me) {
+            if (!isConnectionFailure(me)) {
+                throw me;
+            }
+        }
+    }
+
+    @Override
+    public void unsubscribe(String topicFilter) throws MqttException {
+        subscriptions.remove(topicFilter);
+        if (delegate.isConnected()) {
+            try {
+                delegate.unsubscribe(topicFilter);
+            } catch (MqttException me) {
+                if (!isConnectionFailure(me)) {
+                    throw me;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void disconnect() throws MqttException {
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return;
+            }
+            if (pendingAttempt != null) {
+                pendingAttempt.cancel(false);
+            }
+            setState(State.CLOSED);
+        }
+        scheduler.shutdownNow();
+        try {
+            delegate.disconnect();
+        } finally {
+            if (outbox != null) {
+                outbox.close();
+            }
+        }
+    }
+
+    /**
+     * Calls the listener with the current state now and with every change
+     * afterwards, on the thread making the change.
+     */
+    public T1EventDispatcher.Registration addStateListener(Consumer<State> listener) {
+        stateListeners.add(listener);
+        listener.accept(state);
+        return () -> stateListeners.remove(listener);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /** The outbox, or null when publishes fail while disconnected. */
+    public T1Outbox getOutbox() {
+        return outbox;
+    }
+
+    /**
+     * Slots of the client's inflight window. Take one before each publish
+     * and give it back when the publish completes or fails.
+     */
+    public Semaphore getInflightWindow() {
+        return inflightWindow;
+    }
+
+    /** Successful reconnects since the first connection. */
+    public long getReconnectCount() {
+        return reconnects.get();
+    }
+
+    // MqttCallback of the wrapped transport
+    @Override
+    public void connectionLost(Throwable cause) {
+        logger.warn("Connection to {} lost: {}", config.getBrokerUrl(), cause == null ? "" : cause.getMessage());
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return;
+            }
+            setState(State.DISCONNECTED);
+        }
+        MqttCallback target = callback;
+        if (target != null) {
+            target.connectionLost(cause);
+        }
+        if (config.isAutomaticReconnect()) {
+            scheduleReconnect();
+        }
+    }
+
+    @Override
+    public void messageArrived(String topic, MqttMessage message) throws Exception {
+        MqttCallback target = callback;
+        if (target != null) {
+            target.messageArrived(topic, message);
+        }
+    }
+
+    @Override
+    public void deliveryComplete(IMqttDeliveryToken token) {
+        MqttCallback target = callback;
+        if (target != null) {
+            target.deliveryComplete(token);
+        }
+    }
+
+    private synchronized void scheduleReconnect() {
+        if (state == State.CLOSED || (pendingAttempt != null && !pendingAttempt.isDone())) {
+            return;
+        }
+        long delay = backoff(attempt++);
+        logger.debug("Reconnecting to {} in {} ms (attempt {})", config.getBrokerUrl(), delay, attempt);
+        pendingAttempt = scheduler.schedule(this::reconnect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /** Exponential backoff with "equal jitter": half the ceiling, plus up to the other half at random. */
+    private long backoff(int attempt) {
+        long ceiling = Math.min(config.getReconnectMaxDelayMillis(),
+                config.getReconnectInitialDelayMillis() << Math.min(attempt, 30));
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    private void reconnect() {
+        synchronized (this) {
+            pendingAttempt = null;
+            if (state == State.CLOSED) {
+                return;
+            }
+            setState(State.CONNECTING);
+        }
+        try {
+            if (!delegate.isConnected()) {
+                delegate.connect();
+            }
+        } catch (MqttException me) {
+            logger.debug("Reconnect to {} failed: {}", config.getBrokerUrl(), me.getMessage());
+            synchronized (this) {
+                if (state == State.CONNECTING) {
+                    setState(State.DISCONNECTED);
+                }
+            }
+            scheduleReconnect();
+            return;
+        }
+        reconnects.incrementAndGet();
+        logger.info("Reconnected to {}", config.getBrokerUrl());
+        recover();
+    }
+
+    private void recover() {
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return;
+            }
+            setState(State.RECOVERING);
+        }
+        restore();
+    }
+
+    // Restores subscriptions and drains the outbox; publishing goes direct once both are done
+    private void restore() {
+        try {
+            for (Map.Entry<String, Integer> subscription : subscriptions.entrySet()) {
+                delegate.subscribe(subscription.getKey(), subscription.getValue());
+            }
+            while (true) {
+                drain();
+                synchronized (this) {
+                    // Under the lock, so nothing is appended between the check and the switch
+                    if (outbox == null || outbox.isEmpty()) {
+                        if (state == State.RECOVERING) {
+                            attempt = 0;
+                            setState(State.CONNECTED);
+                        }
+                        return;
+                    }
+                }
+            }
+        } catch (MqttException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            logger.warn("Recovering the connection to {} failed: {}", config.getBrokerUrl(), e.getMessage());
+            synchronized (this) {
+                if (state == State.RECOVERING) {
+                    setState(State.DISCONNECTED);
+                }
+            }
+            scheduleReconnect();
+        }
+    }
+
+    // Sends what is in the outbox, in order, removing each message once it and all before it are acknowledged
+    private void drain() throws MqttException, InterruptedException {
+        if (outbox == null) {
+            return;
+        }
+        List<T1Outbox.Entry> entries = outbox.entries();
+        if (entries.isEmpty()) {
+            return;
+        }
+        logger.info("Sending {} messages held while disconnected", entries.size());
+        ArrayDeque<CompletableFuture<T1Outbox.Entry>> sent = new ArrayDeque<>();
+        long interval = config.getOutboxDrainRate() > 0 ? TimeUnit.SECONDS.toNanos(1) / config.getOutboxDrainRate() : 0;
+        long next = System.nanoTime();
+        for (T1Outbox.Entry entry : entries) {
+            if (interval > 0) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                next = Math.max(next, System.nanoTime() - interval) + interval;
+            }
+            inflightWindow.acquire();
+            CompletableFuture<T1Outbox.Entry> acked = new CompletableFuture<>();
+            sent.add(acked);
+            try {
+                delegate.publish(entry.topic, entry.payload, entry.qos, entry.retained, new IMqttActionListener() {
+                    @Override
+                    public void onSuccess(IMqttToken token) {
+                        inflightWindow.release();
+                        acked.complete(entry);
+                    }
+
+                    @Override
+                    public void onFailure(IMqttToken token, Throwable cause) {
+                        inflightWindow.release();
+                        acked.completeExceptionally(cause);
+                    }
+                });
+            } catch (MqttException | RuntimeException e) {
+                // The window outlives this drain, so the slot must not leak
+                inflightWindow.release();
+                throw e;
+            }
+            removeAcknowledged(sent, false);
+        }
+        removeAcknowledged(sent, true);
+    }
+
+    private void removeAcknowledged(ArrayDeque<CompletableFuture<T1Outbox.Entry>> sent, boolean wait)
+            throws MqttException {
+        while (!sent.isEmpty() && (wait || sent.peek().isDone())) {
+            try {
+                outbox.remove(sent.poll().join());
+            } catch (RuntimeException e) {
+                // The rest stays in the outbox for the next attempt
+                throw new MqttException(MqttException.REASON_CODE_CONNECTION_LOST, e.getCause());
+            }
+        }
+    }
+
+    // Called with the lock held
+    private void store(String topic, byte[] payload, int qos, boolean retained, IMqttActionListener listener)
+            throws MqttException {
+        if (outbox == null) {
+            throw new MqttException(MqttException.REASON_CODE_CLIENT_NOT_CONNECTED);
+        }
+        try {
+            outbox.append(topic, payload, qos, retained);
+        } catch (IOException e) {
+            throw new MqttException(MqttException.REASON_CODE_CLIENT_EXCEPTION, e);
+        }
+        if (listener != null) {
+            listener.onSuccess(null);
+        }
+    }
+
+    // Puts a message whose send was cut off by a lost connection into the outbox
+    private IMqttActionListener storingOnFailure(String topic, byte[] payload, int qos, boolean retained,
+            IMqttActionListener listener) {
+        if (outbox == null) {
+            return listener;
+        }
+        return new IMqttActionListener() {
+            @Override
+            public void onSuccess(IMqttToken token) {
+                if (listener != null) {
+                    listener.onSuccess(token);
+                }
+            }
+
+            @Override
+            public void onFailure(IMqttToken token, Throwable cause) {
+                if (cause instanceof MqttException && isConnectionFailure((MqttException) cause)) {
+                    try {
+                        synchronized (T1ConnectionSupervisor.this) {
+                            store(topic, payload, qos, retained, listener);
+                        }
+                        return;
+                    } catch (MqttException me) {
+                        cause = me;
+                    }
+                }
+                if (listener != null) {
+                    listener.onFailure(token, cause);
+                }
+            }
+        };
+    }
+
+    private static boolean isConnectionFailure(MqttException me) {
+        switch (me.getReasonCode()) {
+            case MqttException.REASON_CODE_CLIENT_NOT_CONNECTED:
+            case MqttException.REASON_CODE_CONNECTION_LOST:
+            case MqttException.REASON_CODE_CLIENT_DISCONNECTING:
+            case MqttException.REASON_CODE_CLIENT_TIMEOUT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void setState(State newState) {
+        if (state == newState) {
+            return;
+        }
+        state = newState;
+        for (Consumer<State> listener : stateListeners) {
+            try {
+                listener.accept(newState);
+            } catch (RuntimeException e) {
+                logger.error("Connection state listener failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package hbaskar.one;
+
+import java.util.function.Function;
+
+/**
+ * T1DeliveryPolicy - how one type of event travels to the broker
+ *
+ * Holds the QoS level, the retained flag, the lane of the
+ * {@link T1PublishPipeline} and, optionally, a conflation key. Messages of
+ * the HIGH lane are sent before any queued NORMAL message, so a reveal is not
+ * stuck behind a backlog of votes; it carries the votes it reveals, so
+ * overtaking them changes nothing on replicas. Two queued messages with the same
+ * conflation key are merged: only the newer one is sent. That suits events
+ * where only the latest value matters, such as a player changing their vote
+ * before the first one went out.
+ *
+ * Policies are immutable; the withXxx methods return modified copies.
+ * The defaults per event type come from {@link #defaultFor(T1EventType)} and
+ * can be replaced with {@link T1MessagingConfig#setDeliveryPolicy}.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public final class T1DeliveryPolicy {
+
+    /** Lane of the publish pipeline. */
+    public enum Priority {
+        /** Sent ahead of everything queued in the normal lane. */
+        HIGH,
+        NORMAL
+    }
+
+    /** QoS value meaning "whatever {@link T1MessagingConfig#getQos()} says". */
+    public static final int DEFAULT_QOS = -1;
+
+    private final int qos;
+    private final boolean retained;
+    private final Priority priority;
+    private final Function<Object, String> conflationKey;
+
+    /**
+     * @param conflationKey maps an event to its conflation key (null for events
+     *                      that are never merged); null turns conflation off
+     */
+    public T1DeliveryPolicy(int qos, boolean retained, Priority priority, Function<Object, String> conflationKey) {
+        if (qos < DEFAULT_QOS || qos > 2) {
+            throw new IllegalArgumentException("QoS must be 0, 1, 2 or DEFAULT_QOS: " + qos);
+        }
+        if (priority == null) {
+            throw new IllegalArgumentException("Priority must not be null");
+        }
+        this.qos = qos;
+        this.retained = retained;
+        this.priority = priority;
+        this.conflationKey = conflationKey;
+    }
+
+    /**
+     * The built-in policy of an event type: reveals and mode changes take the
+     * high lane, a player's newer vote on a story replaces their queued one,
+     * and only the latest mode of a room and the latest room list are sent.
+     */
+    public static T1DeliveryPolicy defaultFor(T1EventType type) {
+        switch (type) {
+            case STORY_SCORED:
+                return new T1DeliveryPolicy(DEFAULT_QOS, false, Priority.NORMAL, event -> {
+                    T1PlanItPokerPublisher.ScoreEvent score = (T1PlanItPokerPublisher.ScoreEvent) event;
+                    return score.roomCode + "/" + score.storyId + "/" + score.playerName;
+                });
+            case CARDS_REVEALED:
+                return new T1DeliveryPolicy(DEFAULT_QOS, false, Priority.HIGH, null);
+            case MODE_CHANGED:
+                return new T1DeliveryPolicy(DEFAULT_QOS, false, Priority.HIGH,
+                        event -> ((T1PlanItPokerPublisher.ModeEvent) event).roomCode);
+            case ROOMS_UPDATED:
+                return new T1DeliveryPolicy(DEFAULT_QOS, false, Priority.NORMAL, event -> "");
+            case ROOM_SNAPSHOT:
+                return new T1DeliveryPolicy(DEFAULT_QOS, true, Priority.NORMAL,
+                        event -> ((T1PlanItPokerPublisher.RoomSnapshotEvent) event).roomCode);
+            default:
+                return new T1DeliveryPolicy(DEFAULT_QOS, false, Priority.NORMAL, null);
+        }
+    }
+
+    /** The QoS to publish with; {@link #DEFAULT_QOS} resolves to {@code configuredQos}. */
+    public int getQos(int configuredQos) {
+        return qos == DEFAULT_QOS ? configuredQos : qos;
+    }
+
+    public int getQos() {
+        return qos;
+    }
+
+    public boolean isRetained() {
+        return retained;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public boolean isConflating() {
+        return conflationKey != null;
+    }
+
+    /** Key under which queued messages of this event are merged, or null. */
+    public String conflationKey(Object event) {
+        return conflationKey == null ? null : conflationKey.apply(event);
+    }
+
+    public T1DeliveryPolicy withQos(int qos) {
+        return new T1DeliveryPolicy(qos, retained, priority, conflationKey);
+    }
+
+    public T1DeliveryPolicy withRetained(boolean retained) {
+        return new T1DeliveryPolicy(qos, retained, priority, conflationKey);
+    }
+
+    public T1DeliveryPolicy withPriority(Priority priority) {
+        return new T1DeliveryPolicy(qos, retained, priority, conflationKey);
+    }
+
+    public T1DeliveryPolicy withConflation(Function<Object, String> conflationKey) {
+        return new T1DeliveryPolicy(qos, retained, priority, conflationKey);
+    }
+
+    @Override
+    public String toString() {
+        return "T1DeliveryPolicy[qos=" + (qos == DEFAULT_QOS ? "default" : qos) + ", retained=" + retained
+                + ", priority=" + priority + ", conflating=" + isConflating() + "]";
+    }
+}
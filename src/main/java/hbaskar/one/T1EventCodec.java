@@ -0,0 +1,38 @@
+package hbaskar.one;
+
+/**
+ * T1EventCodec - wire format for the event classes in {@link T1PlanItPokerPublisher}
+ *
+ * A codec turns an event object into a message payload and back. Payloads
+ * other than plain JSON start with the header byte defined in
+ * {@link T1EventCodecs}, which carries the codec id and format version so a
+ * receiver can decode messages from clients configured with another codec.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public interface T1EventCodec {
+
+    /** Id stored in the header byte; must be unique and fit in four bits. */
+    int getId();
+
+    /** Encodes an event into a complete payload, header included. */
+    byte[] encode(Object event);
+
+    /**
+     * Decodes a payload produced by this codec.
+     *
+     * @param offset index of the first byte after the header, if any
+     */
+    <T> T decode(byte[] payload, int offset, Class<T> eventClass);
+
+    /**
+     * Checks whether a room-scoped payload belongs to the given room without
+     * decoding it. Implementations must return true when they cannot tell,
+     * so that the caller falls back to a full decode.
+     */
+    default boolean matchesRoom(byte[] payload, int offset, byte[] roomCodeUtf8) {
+        return true;
+    }
+}
@@ -0,0 +1,103 @@
+package hbaskar.one;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * T1EventCodecs - header byte layout and codec lookup for incoming payloads
+ *
+ * Header byte of every non-JSON payload:
+ * <pre>
+ *   bit 7     always 1 (a JSON payload starts with '{', which has bit 7 clear)
+ *   bit 6     body is deflated (see {@link T1CompressingCodec})
+ *   bits 4-5  format version of the codec
+ *   bits 0-3  codec id
+ * </pre>
+ * A payload whose first byte has bit 7 clear is treated as headerless JSON,
+ * so messages from clients that predate codecs still decode. A compressed
+ * payload is inflated first and then decoded by the codec its header names.
+ * A codec whose format outgrows the four versions takes a new codec id
+ * rather than reusing a version number.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public final class T1EventCodecs {
+    public static final int HEADER_MARKER = 0x80;
+    public static final int HEADER_COMPRESSED = 0x40;
+    public static final int VERSION_SHIFT = 4;
+    public static final int VERSION_MASK = 0x30;
+    public static final int CODEC_MASK = 0x0F;
+
+    private static final T1EventCodec JSON = new T1JsonCodec();
+    private static final T1EventCodec BINARY = new T1BinaryCodec();
+
+    private T1EventCodecs() {
+    }
+
+    public static T1EventCodec json() {
+        return JSON;
+    }
+
+    public static T1EventCodec binary() {
+        return BINARY;
+    }
+
+    public static int header(int codecId, int version) {
+        if (version < 0 || version > (VERSION_MASK >>> VERSION_SHIFT)) {
+            throw new IllegalArgumentException("Codec version does not fit the header: " + version);
+        }
+        return HEADER_MARKER | ((version << VERSION_SHIFT) & VERSION_MASK) | (codecId & CODEC_MASK);
+    }
+
+    public static boolean hasHeader(byte[] payload) {
+        return payload.length > 0 && (payload[0] & HEADER_MARKER) != 0;
+    }
+
+    /** Picks the codec a payload was written with, based on its first byte. */
+    public static T1EventCodec codecFor(byte[] payload) {
+        if (!hasHeader(payload)) {
+            return JSON;
+        }
+        int header = payload[0] & 0xFF;
+        switch (header & CODEC_MASK) {
+            case T1JsonCodec.ID:
+                return JSON;
+            case T1BinaryCodec.ID:
+                return BINARY;
+            default:
+                throw new IllegalArgumentException("Unknown codec id " + (header & CODEC_MASK));
+        }
+    }
+
+    public static boolean isCompressed(byte[] payload) {
+        return hasHeader(payload) && (payload[0] & HEADER_COMPRESSED) != 0;
+    }
+
+    /** Decodes a payload written by any known codec, compressed or not. */
+    public static <T> T decode(byte[] payload, Class<T> eventClass) {
+        if (isCompressed(payload)) {
+            payload = T1CompressingCodec.inflate(payload);
+        }
+        T1EventCodec codec = codecFor(payload);
+        return codec.decode(payload, hasHeader(payload) ? 1 : 0, eventClass);
+    }
+
+    /** Cheap room check on a room-scoped payload; see {@link T1EventCodec#matchesRoom}. */
+    public static boolean matchesRoom(byte[] payload, byte[] roomCodeUtf8) {
+        if (isCompressed(payload)) {
+            // Cannot tell without inflating; the full decode will check
+            return true;
+        }
+        return codecFor(payload).matchesRoom(payload, hasHeader(payload) ? 1 : 0, roomCodeUtf8);
+    }
+
+    /** Human-readable form of a payload for log output. */
+    public static String describe(byte[] payload) {
+        if (!hasHeader(payload)) {
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+        return "<codec " + (payload[0] & CODEC_MASK) + (isCompressed(payload) ? ", compressed" : "") + ", "
+                + payload.length + " bytes>";
+    }
+}
@@ -0,0 +1,407 @@
+package hbaskar.one;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * T1EventDispatcher - routes incoming payloads to any number of listeners
+ *
+ * Holds one route per {@link T1EventType}: the event class to decode into, a
+ * way to read the event's room, and a copy-on-write list of listeners. A
+ * payload is decoded at most once, however many listeners are registered, and
+ * not at all when no listener could want it. Score batches are unpacked and
+ * delivered to the score listeners one event at a time.
+ *
+ * Decoding happens on the calling thread. When a {@link T1RoomDispatchExecutor}
+ * is supplied, listener calls are handed to it keyed by the event's room, so
+ * each room's events stay in order without holding up the caller.
+ *
+ * {@link Interceptor}s see every decoded event before the listeners do, on
+ * the calling thread and in arrival order, and may hold events back; the
+ * subscriber uses this to load room snapshots before later events. An
+ * interceptor that names the rooms it tracks lets the dispatcher drop
+ * payloads of other rooms undecoded, as it does for listeners of the
+ * current room.
+ *
+ * A {@link DeliveryObserver} hears about each event that arrived through
+ * {@link #dispatch} just before its first listener runs, which is where the
+ * subscriber measures publish-to-handler latency.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1EventDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(T1EventDispatcher.class);
+
+    /** Handle returned for every listener; closing it unregisters the listener. */
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /** Sees decoded events before any listener, and may hold them back. */
+    public interface Interceptor {
+        /** Whether this interceptor needs events of a type even without listeners. */
+        boolean wants(T1EventType type);
+
+        /**
+         * Called for every decoded event. Returning false keeps the event from
+         * the listeners and from later interceptors; an interceptor that holds
+         * an event passes it on later through
+         * {@link T1EventDispatcher#release(Interceptor, T1EventType, Object)}.
+         */
+        boolean admit(T1EventType type, Object event);
+
+        /**
+         * The rooms whose events this interceptor needs, as a live view, or
+         * null for every room. A room-scoped payload that may belong to none
+         * of the rooms of any interceptor, nor to a room a listener wants, is
+         * dropped before it is decoded.
+         */
+        default Collection<String> trackedRooms() {
+            return null;
+        }
+    }
+
+    /** Told when an event received from the broker reaches its listeners. */
+    public interface DeliveryObserver {
+        /** Called on the listener thread, once per event, before the first listener. */
+        void delivered(T1EventType type, Object event);
+    }
+
+    /** Which rooms a listener wants to hear about. */
+    public static final class RoomFilter {
+        /** Only the room that is current when the event arrives. */
+        public static final RoomFilter CURRENT = new RoomFilter(null, true);
+        /** Every room. */
+        public static final RoomFilter ANY = new RoomFilter(null, false);
+
+        private final String roomCode;
+        private final boolean current;
+
+        private RoomFilter(String roomCode, boolean current) {
+            this.roomCode = roomCode;
+            this.current = current;
+        }
+
+        /** One fixed room; {@code null} means any room. */
+        public static RoomFilter of(String roomCode) {
+            return roomCode == null ? ANY : new RoomFilter(roomCode, false);
+        }
+
+        public String getRoomCode() {
+            return roomCode;
+        }
+
+        public boolean isCurrent() {
+            return current;
+        }
+
+        boolean accepts(String eventRoom, String currentRoom) {
+            if (current) {
+                return currentRoom == null || currentRoom.equals(eventRoom);
+            }
+            return roomCode == null || roomCode.equals(eventRoom);
+        }
+    }
+
+    private static final class Listener {
+        final RoomFilter filter;
+        final Consumer<Object> consumer;
+
+        Listener(RoomFilter filter, Consumer<Object> consumer) {
+            this.filter = filter;
+            this.consumer = consumer;
+        }
+    }
+
+    private static final class Route {
+        final T1EventType type;
+        final Function<Object, String> roomOf;
+        final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+        // True while every listener follows the current room, which allows
+        // dropping other rooms' payloads before decoding them
+        volatile boolean currentRoomOnly = true;
+
+        Route(T1EventType type, Function<Object, String> roomOf) {
+            this.type = type;
+            this.roomOf = roomOf;
+        }
+
+        void refresh() {
+            boolean onlyCurrent = true;
+            for (Listener listener : listeners) {
+                onlyCurrent &= listener.filter.isCurrent();
+            }
+            currentRoomOnly = onlyCurrent;
+        }
+    }
+
+    // Byte and topic forms of the current room, rebuilt only when the room changes
+    private static final class RoomKey {
+        final String roomCode;
+        final byte[] utf8;
+        final String topicLevel;
+
+        RoomKey(String roomCode) {
+            this.roomCode = roomCode;
+            this.utf8 = roomCode.getBytes(StandardCharsets.UTF_8);
+            this.topicLevel = T1Topics.encodeLevel(roomCode);
+        }
+    }
+
+    private final Map<T1EventType, Route> routes = new EnumMap<>(T1EventType.class);
+    private final CopyOnWriteArrayList<Interceptor> interceptors = new CopyOnWriteArrayList<>();
+    private final Supplier<String> currentRoom;
+    private final T1RoomDispatchExecutor executor;
+    private volatile RoomKey currentRoomKey;
+    // UTF-8 forms of tracked rooms, for payloads on topics that do not name the room
+    private final Map<String, byte[]> roomBytes = new ConcurrentHashMap<>();
+    private volatile DeliveryObserver observer;
+
+    public T1EventDispatcher(Supplier<String> currentRoom) {
+        this(currentRoom, null);
+    }
+
+    /**
+     * @param executor where listeners run; {@code null} runs them on the
+     *                 thread that calls {@link #dispatch}
+     */
+    public T1EventDispatcher(Supplier<String> currentRoom, T1RoomDispatchExecutor executor) {
+        this.currentRoom = currentRoom;
+        this.executor = executor;
+        addRoute(T1EventType.ROOM_CREATED, e -> null);
+        addRoute(T1EventType.PLAYER_JOINED, e -> ((T1PlanItPokerPublisher.PlayerEvent) e).roomCode);
+        addRoute(T1EventType.STORY_CREATED, e -> ((T1PlanItPokerPublisher.StoryEvent) e).roomCode);
+        addRoute(T1EventType.STORY_SCORED, e -> ((T1PlanItPokerPublisher.ScoreEvent) e).roomCode);
+        addRoute(T1EventType.CARDS_REVEALED, e -> ((T1PlanItPokerPublisher.RevealEvent) e).roomCode);
+        addRoute(T1EventType.ROOMS_UPDATED, e -> null);
+        addRoute(T1EventType.MODE_CHANGED, e -> ((T1PlanItPokerPublisher.ModeEvent) e).roomCode);
+        addRoute(T1EventType.ROOM_SNAPSHOT, e -> ((T1PlanItPokerPublisher.RoomSnapshotEvent) e).roomCode);
+        // Batches have no listeners of their own; they feed the score route
+        routes.put(T1EventType.STORY_SCORED_BATCH, routes.get(T1EventType.STORY_SCORED));
+    }
+
+    private void addRoute(T1EventType type, Function<Object, String> roomOf) {
+        routes.put(type, new Route(type, roomOf));
+    }
+
+    /**
+     * Adds a listener for one event type. Filters only apply to room-scoped
+     * events; global events reach every listener.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Registration addListener(T1EventType type, RoomFilter filter, Consumer<? super T> consumer) {
+        if (type == T1EventType.STORY_SCORED_BATCH) {
+            throw new IllegalArgumentException("Listen for STORY_SCORED; batches are unpacked automatically");
+        }
+        Route route = routes.get(type);
+        Listener listener = new Listener(filter, (Consumer<Object>) consumer);
+        route.listeners.add(listener);
+        route.refresh();
+        return () -> {
+            if (route.listeners.remove(listener)) {
+                route.refresh();
+            }
+        };
+    }
+
+    public boolean hasListeners(T1EventType type) {
+        Route route = routes.get(type);
+        return route != null && !route.listeners.isEmpty();
+    }
+
+    /** Sets the observer of delivered events; {@code null} removes it. */
+    public void setDeliveryObserver(DeliveryObserver observer) {
+        this.observer = observer;
+    }
+
+    public Registration addInterceptor(Interceptor interceptor) {
+        interceptors.add(interceptor);
+        return () -> interceptors.remove(interceptor);
+    }
+
+    /** Whether payloads of a type need decoding at all: a listener or an interceptor wants them. */
+    public boolean wants(T1EventType type) {
+        return hasListeners(type) || intercepted(type);
+    }
+
+    private boolean intercepted(T1EventType type) {
+        for (Interceptor interceptor : interceptors) {
+            if (interceptor.wants(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean admit(T1EventType type, Object event) {
+        return admitAfter(-1, type, event);
+    }
+
+    private boolean admitAfter(int index, T1EventType type, Object event) {
+        List<Interceptor> chain = interceptors;
+        for (int i = index + 1; i < chain.size(); i++) {
+            if (!chain.get(i).admit(type, event)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Passes an event an interceptor had held back on to the interceptors
+     * after it, then to the listeners.
+     */
+    public void release(Interceptor holder, T1EventType type, Object event) {
+        Route route = routes.get(type);
+        if (route != null && admitAfter(interceptors.indexOf(holder), type, event)) {
+            String room = currentRoom.get();
+            run(route.roomOf.apply(event), () -> deliver(route, event, room, true));
+        }
+    }
+
+    /** Decodes a payload once and hands it to every interested listener. */
+    public void dispatch(T1EventType type, String topic, byte[] payload) {
+        Route route = routes.get(type);
+        if (route == null) {
+            return;
+        }
+        boolean intercepted = intercepted(type);
+        if (route.listeners.isEmpty() && !intercepted) {
+            return;
+        }
+        String room = currentRoom.get();
+        if (type.isRoomScoped() && !mayBeWanted(route, intercepted, topic, payload, room)) {
+            return;
+        }
+
+        Object event = T1EventCodecs.decode(payload, type.getEventClass());
+        if (type == T1EventType.STORY_SCORED_BATCH) {
+            T1PlanItPokerPublisher.ScoreBatchEvent batch = (T1PlanItPokerPublisher.ScoreBatchEvent) event;
+            List<T1PlanItPokerPublisher.ScoreEvent> admitted = new ArrayList<>(batch.scores.size());
+            for (T1PlanItPokerPublisher.ScoreEvent score : batch.scores) {
+                if (admit(T1EventType.STORY_SCORED, score)) {
+                    admitted.add(score);
+                }
+            }
+            if (!admitted.isEmpty() && !route.listeners.isEmpty()) {
+                run(batch.roomCode, () -> {
+                    for (T1PlanItPokerPublisher.ScoreEvent score : admitted) {
+                        deliver(route, score, room, true);
+                    }
+                });
+            }
+        } else if (admit(type, event) && !route.listeners.isEmpty()) {
+            run(route.roomOf.apply(event), () -> deliver(route, event, room, true));
+        }
+    }
+
+    private void run(String roomCode, Runnable delivery) {
+        if (executor == null) {
+            delivery.run();
+        } else {
+            executor.execute(roomCode, delivery);
+        }
+    }
+
+    /**
+     * Delivers an already-decoded event, for sources that do not go through
+     * MQTT (for example the local repository echo or a replay tool). The
+     * delivery observer is not told about these.
+     */
+    public void deliver(T1EventType type, Object event) {
+        Route route = routes.get(type);
+        if (route != null) {
+            String room = currentRoom.get();
+            run(route.roomOf.apply(event), () -> deliver(route, event, room, false));
+        }
+    }
+
+    private void deliver(Route route, Object event, String room, boolean observed) {
+        String eventRoom = route.roomOf.apply(event);
+        DeliveryObserver observer = observed ? this.observer : null;
+        for (Listener listener : route.listeners) {
+            if (eventRoom != null && !listener.filter.accepts(eventRoom, room)) {
+                continue;
+            }
+            if (observer != null) {
+                observer.delivered(route.type, event);
+                observer = null;
+            }
+            try {
+                listener.consumer.accept(event);
+            } catch (RuntimeException e) {
+                // One failing listener must not keep the event from the others
+                logger.error("Listener failed on " + event.getClass().getSimpleName() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // Per-room topics carry the room in the topic name; legacy payloads are checked byte by byte
+    // Whether a listener of the route or an interceptor may need the room the payload belongs to
+    private boolean mayBeWanted(Route route, boolean intercepted, String topic, byte[] payload, String room) {
+        if (!route.listeners.isEmpty()
+                && (room == null || !route.currentRoomOnly || mayBelongToRoom(topic, payload, room))) {
+            return true;
+        }
+        if (!intercepted) {
+            return false;
+        }
+        // Every interceptor, not only those wanting the type: one may hold the event for the listeners
+        for (Interceptor interceptor : interceptors) {
+            Collection<String> rooms = interceptor.trackedRooms();
+            if (rooms == null || mayBelongToAny(topic, payload, rooms)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean mayBelongToAny(String topic, byte[] payload, Collection<String> rooms) {
+        if (topic.startsWith(T1Topics.ROOM_PREFIX)) {
+            String roomCode = T1Topics.roomCodeOf(topic);
+            return roomCode == null || rooms.contains(roomCode);
+        }
+        for (String roomCode : rooms) {
+            byte[] utf8 = roomBytes.get(roomCode);
+            if (utf8 == null) {
+                if (roomBytes.size() > 4096) {
+                    // Rooms come and go; start over rather than keep every one seen
+                    roomBytes.clear();
+                }
+                utf8 = roomCode.getBytes(StandardCharsets.UTF_8);
+                roomBytes.put(roomCode, utf8);
+            }
+            if (T1EventCodecs.matchesRoom(payload, utf8)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean mayBelongToRoom(String topic, byte[] payload, String room) {
+        RoomKey key = currentRoomKey;
+        if (key == null || !key.roomCode.equals(room)) {
+            key = new RoomKey(room);
+            currentRoomKey = key;
+        }
+        if (topic.startsWith(T1Topics.ROOM_PREFIX)) {
+            return T1Topics.isTopicOfRoom(topic, key.topicLevel);
+        }
+        return T1EventCodecs.matchesRoom(payload, key.utf8);
+    }
+}
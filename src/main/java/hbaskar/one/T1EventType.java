@@ -0,0 +1,74 @@
+package hbaskar.one;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * T1EventType - the kinds of events exchanged over MQTT
+ *
+ * Ties each event to its payload class, its legacy global topic and, for
+ * events that belong to a single room, the last level of its per-room topic
+ * ({@code planit/room/{code}/{suffix}}). Global events such as room creation
+ * and the room list have no per-room form.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public enum T1EventType {
+    ROOM_CREATED(T1PlanItPokerPublisher.TOPIC_ROOM_CREATED, null, T1PlanItPokerPublisher.RoomEvent.class),
+    PLAYER_JOINED(T1PlanItPokerPublisher.TOPIC_PLAYER_JOINED, "player-joined", T1PlanItPokerPublisher.PlayerEvent.class),
+    STORY_CREATED(T1PlanItPokerPublisher.TOPIC_STORY_CREATED, "story-created", T1PlanItPokerPublisher.StoryEvent.class),
+    STORY_SCORED(T1PlanItPokerPublisher.TOPIC_STORY_SCORED, "story-scored", T1PlanItPokerPublisher.ScoreEvent.class),
+    STORY_SCORED_BATCH(T1PlanItPokerPublisher.TOPIC_STORY_SCORED_BATCH, "story-scored-batch", T1PlanItPokerPublisher.ScoreBatchEvent.class),
+    CARDS_REVEALED(T1PlanItPokerPublisher.TOPIC_CARDS_REVEALED, "cards-revealed", T1PlanItPokerPublisher.RevealEvent.class),
+    ROOMS_UPDATED(T1PlanItPokerPublisher.TOPIC_ROOMS_UPDATED, null, T1PlanItPokerPublisher.RoomsUpdatedEvent.class),
+    MODE_CHANGED(T1PlanItPokerPublisher.TOPIC_MODE_CHANGED, "mode-changed", T1PlanItPokerPublisher.ModeEvent.class),
+    ROOM_SNAPSHOT(T1PlanItPokerPublisher.TOPIC_ROOM_SNAPSHOT, "snapshot", T1PlanItPokerPublisher.RoomSnapshotEvent.class);
+
+    private static final Map<String, T1EventType> BY_LEGACY_TOPIC = new HashMap<>();
+    private static final Map<String, T1EventType> BY_ROOM_SUFFIX = new HashMap<>();
+
+    static {
+        for (T1EventType type : values()) {
+            BY_LEGACY_TOPIC.put(type.legacyTopic, type);
+            if (type.roomSuffix != null) {
+                BY_ROOM_SUFFIX.put(type.roomSuffix, type);
+            }
+        }
+    }
+
+    private final String legacyTopic;
+    private final String roomSuffix;
+    private final Class<?> eventClass;
+
+    T1EventType(String legacyTopic, String roomSuffix, Class<?> eventClass) {
+        this.legacyTopic = legacyTopic;
+        this.roomSuffix = roomSuffix;
+        this.eventClass = eventClass;
+    }
+
+    public String getLegacyTopic() {
+        return legacyTopic;
+    }
+
+    public String getRoomSuffix() {
+        return roomSuffix;
+    }
+
+    public Class<?> getEventClass() {
+        return eventClass;
+    }
+
+    public boolean isRoomScoped() {
+        return roomSuffix != null;
+    }
+
+    public static T1EventType fromLegacyTopic(String topic) {
+        return BY_LEGACY_TOPIC.get(topic);
+    }
+
+    public static T1EventType fromRoomSuffix(String suffix) {
+        return BY_ROOM_SUFFIX.get(suffix);
+    }
+}
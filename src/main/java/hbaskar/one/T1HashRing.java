@@ -0,0 +1,131 @@
+package hbaskar.one;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * T1HashRing - consistent hashing of room codes onto a set of nodes
+ *
+ * Each node is placed on a 64-bit ring at a number of pseudo-random points
+ * (virtual nodes), and a room belongs to the node at the first point at or
+ * after the room code's hash. Adding or removing a node therefore only moves
+ * the rooms between that node's points and their predecessors, about one
+ * room in n, and with enough virtual nodes every node gets a similar share.
+ *
+ * Rings are immutable; {@link #with} and {@link #without} build new ones.
+ * Nodes that agree on the members and the number of virtual nodes build the
+ * same ring, whatever order they learned about the members in.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public final class T1HashRing {
+    private final int virtualNodes;
+    private final List<String> nodes;
+    // Points in ascending order and the node at each
+    private final long[] points;
+    private final String[] owners;
+
+    public T1HashRing(Collection<String> nodes, int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Virtual nodes must be positive: " + virtualNodes);
+        }
+        this.virtualNodes = virtualNodes;
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(nodes)));
+        // Nodes in sorted order, so the first one keeps a point two nodes hash to
+        TreeMap<Long, String> ring = new TreeMap<>();
+        for (String node : this.nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.putIfAbsent(hash(node + "#" + i), node);
+            }
+        }
+        this.points = new long[ring.size()];
+        this.owners = new String[ring.size()];
+        int i = 0;
+        for (Map.Entry<Long, String> point : ring.entrySet()) {
+            points[i] = point.getKey();
+            owners[i] = point.getValue();
+            i++;
+        }
+    }
+
+    /** The node the room belongs to, or null if the ring has no nodes. */
+    public String ownerOf(String roomCode) {
+        if (points.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(points, hash(roomCode));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        // Past the last point the ring wraps around to the first
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public T1HashRing with(String node) {
+        if (nodes.contains(node)) {
+            return this;
+        }
+        List<String> grown = new ArrayList<>(nodes);
+        grown.add(node);
+        return new T1HashRing(grown, virtualNodes);
+    }
+
+    public T1HashRing without(String node) {
+        if (!nodes.contains(node)) {
+            return this;
+        }
+        List<String> shrunk = new ArrayList<>(nodes);
+        shrunk.remove(node);
+        return new T1HashRing(shrunk, virtualNodes);
+    }
+
+    /** The members in sorted order. */
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    public boolean contains(String node) {
+        return nodes.contains(node);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    /** Whether both rings place every room on the same node. */
+    public boolean sameAs(T1HashRing other) {
+        return other != null && virtualNodes == other.virtualNodes && nodes.equals(other.nodes);
+    }
+
+    // FNV-1a over the characters, then the MurmurHash3 finalizer so nearby codes land far apart
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return nodes + " x" + virtualNodes;
+    }
+}
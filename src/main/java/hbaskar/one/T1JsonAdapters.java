@@ -0,0 +1,483 @@
+package hbaskar.one;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * T1JsonAdapters - hand-written Gson adapters for the event classes
+ *
+ * Replaces Gson's reflective adapters, which set final fields one by one
+ * through reflection, with adapters that read a streaming JsonReader and
+ * call the event constructor directly. Field names and order match what the
+ * reflective adapters produced, so the JSON on the wire is unchanged and
+ * unknown fields from newer clients are skipped.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public final class T1JsonAdapters {
+
+    private T1JsonAdapters() {
+    }
+
+    /** Registers an adapter for every event class. */
+    public static GsonBuilder register(GsonBuilder builder) {
+        return builder
+                .registerTypeAdapter(T1PlanItPokerPublisher.RoomEvent.class, ROOM.nullSafe())
+                .registerTypeAdapter(T1PlanItPokerPublisher.PlayerEvent.class, PLAYER.nullSafe())
+                .registerTypeAdapter(T1PlanItPokerPublisher.StoryEvent.class, STORY.nullSafe())
+                .registerTypeAdapter(T1PlanItPokerPublisher.ScoreEvent.class, SCORE.nullSafe())
+                .registerTypeAdapter(T1PlanItPokerPublisher.ScoreBatchEvent.class, SCORE_BATCH.nullSafe())
+                .registerTypeAdapter(T1PlanItPokerPublisher.RevealEvent.class, REVEAL.nullSafe())
+                .registerTypeAdapter(T1PlanItPokerPublisher.RoomsUpdatedEvent.class, ROOMS_UPDATED.nullSafe())
+                .registerTypeAdapter(T1PlanItPokerPublisher.ModeEvent.class, MODE.nullSafe())
+                .registerTypeAdapter(T1PlanItPokerPublisher.RoomSnapshotEvent.class, SNAPSHOT.nullSafe());
+    }
+
+    private static void string(JsonWriter out, String name, String value) throws IOException {
+        // Gson omits null fields by default; keep doing the same
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    private static void seq(JsonWriter out, long seq, String origin, long originSeq) throws IOException {
+        // 0 and null mean unsequenced; leaving them out keeps those payloads as they were
+        if (seq != 0) {
+            out.name("seq").value(seq);
+        }
+        if (origin != null) {
+            out.name("origin").value(origin);
+            out.name("originSeq").value(originSeq);
+        }
+    }
+
+    private static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    // Votes as an object of player to score
+    private static void scores(JsonWriter out, Map<String, Integer> scores) throws IOException {
+        out.name("scores").beginObject();
+        for (Map.Entry<String, Integer> score : scores.entrySet()) {
+            out.name(score.getKey()).value(score.getValue());
+        }
+        out.endObject();
+    }
+
+    private static Map<String, Integer> scores(JsonReader in) throws IOException {
+        Map<String, Integer> scores = new LinkedHashMap<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            scores.put(in.nextName(), in.nextInt());
+        }
+        in.endObject();
+        return scores;
+    }
+
+    static final TypeAdapter<T1PlanItPokerPublisher.RoomEvent> ROOM = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, T1PlanItPokerPublisher.RoomEvent e) throws IOException {
+            out.beginObject();
+            string(out, "roomCode", e.roomCode);
+            string(out, "roomName", e.roomName);
+            string(out, "creatorName", e.creatorName);
+            out.name("timestamp").value(e.timestamp);
+            out.endObject();
+        }
+
+        @Override
+        public T1PlanItPokerPublisher.RoomEvent read(JsonReader in) throws IOException {
+            String roomCode = null, roomName = null, creatorName = null;
+            long timestamp = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "roomCode": roomCode = nextString(in); break;
+                    case "roomName": roomName = nextString(in); break;
+                    case "creatorName": creatorName = nextString(in); break;
+                    case "timestamp": timestamp = in.nextLong(); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new T1PlanItPokerPublisher.RoomEvent(roomCode, roomName, creatorName, timestamp);
+        }
+    };
+
+    static final TypeAdapter<T1PlanItPokerPublisher.PlayerEvent> PLAYER = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, T1PlanItPokerPublisher.PlayerEvent e) throws IOException {
+            out.beginObject();
+            string(out, "roomCode", e.roomCode);
+            string(out, "playerName", e.playerName);
+            out.name("timestamp").value(e.timestamp);
+            seq(out, e.seq, e.origin, e.originSeq);
+            out.endObject();
+        }
+
+        @Override
+        public T1PlanItPokerPublisher.PlayerEvent read(JsonReader in) throws IOException {
+            String roomCode = null, playerName = null;
+            long timestamp = 0, seq = 0, originSeq = 0;
+            String origin = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "roomCode": roomCode = nextString(in); break;
+                    case "playerName": playerName = nextString(in); break;
+                    case "timestamp": timestamp = in.nextLong(); break;
+                    case "seq": seq = in.nextLong(); break;
+                    case "origin": origin = nextString(in); break;
+                    case "originSeq": originSeq = in.nextLong(); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new T1PlanItPokerPublisher.PlayerEvent(roomCode, playerName, timestamp, seq,
+                    origin, originSeq);
+        }
+    };
+
+    static final TypeAdapter<T1PlanItPokerPublisher.StoryEvent> STORY = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, T1PlanItPokerPublisher.StoryEvent e) throws IOException {
+            out.beginObject();
+            string(out, "roomCode", e.roomCode);
+            string(out, "storyId", e.storyId);
+            string(out, "title", e.title);
+            string(out, "description", e.description);
+            out.name("timestamp").value(e.timestamp);
+            seq(out, e.seq, e.origin, e.originSeq);
+            out.endObject();
+        }
+
+        @Override
+        public T1PlanItPokerPublisher.StoryEvent read(JsonReader in) throws IOException {
+            String roomCode = null, storyId = null, title = null, description = null;
+            long timestamp = 0, seq = 0, originSeq = 0;
+            String origin = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "roomCode": roomCode = nextString(in); break;
+                    case "storyId": storyId = nextString(in); break;
+                    case "title": title = nextString(in); break;
+                    case "description": description = nextString(in); break;
+                    case "timestamp": timestamp = in.nextLong(); break;
+                    case "seq": seq = in.nextLong(); break;
+                    case "origin": origin = nextString(in); break;
+                    case "originSeq": originSeq = in.nextLong(); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new T1PlanItPokerPublisher.StoryEvent(roomCode, storyId, title, description, timestamp, seq,
+                    origin, originSeq);
+        }
+    };
+
+    static final TypeAdapter<T1PlanItPokerPublisher.ScoreEvent> SCORE = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, T1PlanItPokerPublisher.ScoreEvent e) throws IOException {
+            out.beginObject();
+            string(out, "roomCode", e.roomCode);
+            string(out, "storyId", e.storyId);
+            string(out, "playerName", e.playerName);
+            out.name("score").value(e.score);
+            out.name("timestamp").value(e.timestamp);
+            seq(out, e.seq, e.origin, e.originSeq);
+            out.endObject();
+        }
+
+        @Override
+        public T1PlanItPokerPublisher.ScoreEvent read(JsonReader in) throws IOException {
+            String roomCode = null, storyId = null, playerName = null;
+            int score = 0;
+            long timestamp = 0, seq = 0, originSeq = 0;
+            String origin = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "roomCode": roomCode = nextString(in); break;
+                    case "storyId": storyId = nextString(in); break;
+                    case "playerName": playerName = nextString(in); break;
+                    case "score": score = in.nextInt(); break;
+                    case "timestamp": timestamp = in.nextLong(); break;
+                    case "seq": seq = in.nextLong(); break;
+                    case "origin": origin = nextString(in); break;
+                    case "originSeq": originSeq = in.nextLong(); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new T1PlanItPokerPublisher.ScoreEvent(roomCode, storyId, playerName, score, timestamp, seq,
+                    origin, originSeq);
+        }
+    };
+
+    static final TypeAdapter<T1PlanItPokerPublisher.ScoreBatchEvent> SCORE_BATCH = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, T1PlanItPokerPublisher.ScoreBatchEvent e) throws IOException {
+            out.beginObject();
+            string(out, "roomCode", e.roomCode);
+            out.name("scores").beginArray();
+            for (T1PlanItPokerPublisher.ScoreEvent score : e.scores) {
+                SCORE.write(out, score);
+            }
+            out.endArray();
+            out.name("timestamp").value(e.timestamp);
+            out.endObject();
+        }
+
+        @Override
+        public T1PlanItPokerPublisher.ScoreBatchEvent read(JsonReader in) throws IOException {
+            String roomCode = null;
+            List<T1PlanItPokerPublisher.ScoreEvent> scores = new ArrayList<>();
+            long timestamp = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "roomCode": roomCode = nextString(in); break;
+                    case "scores":
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            scores.add(SCORE.read(in));
+                        }
+                        in.endArray();
+                        break;
+                    case "timestamp": timestamp = in.nextLong(); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new T1PlanItPokerPublisher.ScoreBatchEvent(roomCode, scores, timestamp);
+        }
+    };
+
+    static final TypeAdapter<T1PlanItPokerPublisher.RevealEvent> REVEAL = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, T1PlanItPokerPublisher.RevealEvent e) throws IOException {
+            out.beginObject();
+            string(out, "roomCode", e.roomCode);
+            string(out, "storyId", e.storyId);
+            out.name("averageScore").value(e.averageScore);
+            out.name("timestamp").value(e.timestamp);
+            seq(out, e.seq, e.origin, e.originSeq);
+            if (e.scores != null) {
+                scores(out, e.scores);
+            }
+            out.endObject();
+        }
+
+        @Override
+        public T1PlanItPokerPublisher.RevealEvent read(JsonReader in) throws IOException {
+            String roomCode = null, storyId = null;
+            double averageScore = 0;
+            long timestamp = 0, seq = 0, originSeq = 0;
+            String origin = null;
+            Map<String, Integer> scores = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "roomCode": roomCode = nextString(in); break;
+                    case "storyId": storyId = nextString(in); break;
+                    case "averageScore": averageScore = in.nextDouble(); break;
+                    case "scores": scores = scores(in); break;
+                    case "timestamp": timestamp = in.nextLong(); break;
+                    case "seq": seq = in.nextLong(); break;
+                    case "origin": origin = nextString(in); break;
+                    case "originSeq": originSeq = in.nextLong(); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new T1PlanItPokerPublisher.RevealEvent(roomCode, storyId, averageScore, timestamp, seq,
+                    origin, originSeq, scores);
+        }
+    };
+
+    static final TypeAdapter<T1PlanItPokerPublisher.RoomsUpdatedEvent> ROOMS_UPDATED = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, T1PlanItPokerPublisher.RoomsUpdatedEvent e) throws IOException {
+            out.beginObject();
+            out.name("availableRooms").beginArray();
+            for (String room : e.availableRooms) {
+                out.value(room);
+            }
+            out.endArray();
+            out.name("timestamp").value(e.timestamp);
+            out.endObject();
+        }
+
+        @Override
+        public T1PlanItPokerPublisher.RoomsUpdatedEvent read(JsonReader in) throws IOException {
+            List<String> rooms = new ArrayList<>();
+            long timestamp = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "availableRooms":
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            rooms.add(nextString(in));
+                        }
+                        in.endArray();
+                        break;
+                    case "timestamp": timestamp = in.nextLong(); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new T1PlanItPokerPublisher.RoomsUpdatedEvent(rooms, timestamp);
+        }
+    };
+
+    static final TypeAdapter<T1PlanItPokerPublisher.ModeEvent> MODE = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, T1PlanItPokerPublisher.ModeEvent e) throws IOException {
+            out.beginObject();
+            string(out, "roomCode", e.roomCode);
+            string(out, "mode", e.mode);
+            out.name("timestamp").value(e.timestamp);
+            seq(out, e.seq, e.origin, e.originSeq);
+            out.endObject();
+        }
+
+        @Override
+        public T1PlanItPokerPublisher.ModeEvent read(JsonReader in) throws IOException {
+            String roomCode = null, mode = null;
+            long timestamp = 0, seq = 0, originSeq = 0;
+            String origin = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "roomCode": roomCode = nextString(in); break;
+                    case "mode": mode = nextString(in); break;
+                    case "timestamp": timestamp = in.nextLong(); break;
+                    case "seq": seq = in.nextLong(); break;
+                    case "origin": origin = nextString(in); break;
+                    case "originSeq": originSeq = in.nextLong(); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new T1PlanItPokerPublisher.ModeEvent(roomCode, mode, timestamp, seq,
+                    origin, originSeq);
+        }
+    };
+
+    static final TypeAdapter<T1PlanItPokerPublisher.StorySnapshot> STORY_SNAPSHOT = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, T1PlanItPokerPublisher.StorySnapshot e) throws IOException {
+            out.beginObject();
+            string(out, "storyId", e.storyId);
+            string(out, "title", e.title);
+            string(out, "description", e.description);
+            string(out, "assignedUser", e.assignedUser);
+            out.name("totalPoints").value(e.totalPoints);
+            scores(out, e.scores);
+            out.name("revealed").value(e.revealed);
+            out.name("averageScore").value(e.averageScore);
+            out.endObject();
+        }
+
+        @Override
+        public T1PlanItPokerPublisher.StorySnapshot read(JsonReader in) throws IOException {
+            String storyId = null, title = null, description = null, assignedUser = null;
+            double totalPoints = 0, averageScore = 0;
+            Map<String, Integer> scores = new LinkedHashMap<>();
+            boolean revealed = false;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "storyId": storyId = nextString(in); break;
+                    case "title": title = nextString(in); break;
+                    case "description": description = nextString(in); break;
+                    case "assignedUser": assignedUser = nextString(in); break;
+                    case "totalPoints": totalPoints = in.nextDouble(); break;
+                    case "scores": scores = scores(in); break;
+                    case "revealed": revealed = in.nextBoolean(); break;
+                    case "averageScore": averageScore = in.nextDouble(); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new T1PlanItPokerPublisher.StorySnapshot(storyId, title, description, assignedUser,
+                    totalPoints, scores, revealed, averageScore);
+        }
+    };
+
+    static final TypeAdapter<T1PlanItPokerPublisher.RoomSnapshotEvent> SNAPSHOT = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, T1PlanItPokerPublisher.RoomSnapshotEvent e) throws IOException {
+            out.beginObject();
+            string(out, "roomCode", e.roomCode);
+            string(out, "roomName", e.roomName);
+            string(out, "creatorName", e.creatorName);
+            out.name("seq").value(e.seq);
+            out.name("players").beginArray();
+            for (String player : e.players) {
+                out.value(player);
+            }
+            out.endArray();
+            out.name("stories").beginArray();
+            for (T1PlanItPokerPublisher.StorySnapshot story : e.stories) {
+                STORY_SNAPSHOT.write(out, story);
+            }
+            out.endArray();
+            out.name("timestamp").value(e.timestamp);
+            out.endObject();
+        }
+
+        @Override
+        public T1PlanItPokerPublisher.RoomSnapshotEvent read(JsonReader in) throws IOException {
+            String roomCode = null, roomName = null, creatorName = null;
+            List<String> players = new ArrayList<>();
+            List<T1PlanItPokerPublisher.StorySnapshot> stories = new ArrayList<>();
+            long seq = 0, timestamp = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "roomCode": roomCode = nextString(in); break;
+                    case "roomName": roomName = nextString(in); break;
+                    case "creatorName": creatorName = nextString(in); break;
+                    case "seq": seq = in.nextLong(); break;
+                    case "players":
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            players.add(nextString(in));
+                        }
+                        in.endArray();
+                        break;
+                    case "stories":
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            stories.add(STORY_SNAPSHOT.read(in));
+                        }
+                        in.endArray();
+                        break;
+                    case "timestamp": timestamp = in.nextLong(); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new T1PlanItPokerPublisher.RoomSnapshotEvent(roomCode, roomName, creatorName, seq,
+                    players, stories, timestamp);
+        }
+    };
+}
@@ -0,0 +1,128 @@
+package hbaskar.one;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * T1JsonCodec - the original JSON wire format
+ *
+ * Payloads are plain UTF-8 JSON without a header byte, exactly as published
+ * before codecs were pluggable, so older clients can still read them.
+ * Decoding streams over the payload bytes with the adapters from
+ * {@link T1JsonAdapters}, looked up once per class and cached. Each thread
+ * keeps one lenient JsonReader, which accepts a sequence of top-level
+ * documents, and feeds it payload after payload, so the reader's 2 KB buffer
+ * is not allocated again for every message.
+ *
+ * @author Daniel Miranda
+ * @version 1.1
+ * @since 2025
+ */
+public class T1JsonCodec implements T1EventCodec {
+    public static final int ID = 1;
+
+    private static final byte[] ROOM_CODE_KEY = "\"roomCode\":\"".getBytes(StandardCharsets.US_ASCII);
+
+    private final Gson gson = T1JsonAdapters.register(new GsonBuilder()).create();
+
+    private final ClassValue<TypeAdapter<?>> adapters = new ClassValue<>() {
+        @Override
+        protected TypeAdapter<?> computeValue(Class<?> type) {
+            return gson.getAdapter(type);
+        }
+    };
+
+    // A JsonReader plus the byte reader underneath it, reused for every payload on one thread
+    private static final class ReaderSlot {
+        final T1Utf8ByteReader bytes = new T1Utf8ByteReader(new byte[0], 0, 0);
+        final JsonReader json = new JsonReader(bytes);
+
+        ReaderSlot() {
+            json.setLenient(true);
+        }
+    }
+
+    private final ThreadLocal<ReaderSlot> readers = ThreadLocal.withInitial(ReaderSlot::new);
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(Object event) {
+        return gson.toJson(event).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public <T> T decode(byte[] payload, int offset, Class<T> eventClass) {
+        @SuppressWarnings("unchecked")
+        TypeAdapter<T> adapter = (TypeAdapter<T>) adapters.get(eventClass);
+        ReaderSlot slot = readers.get();
+        slot.bytes.reset(payload, offset, payload.length - offset);
+        try {
+            return adapter.read(slot.json);
+        } catch (IOException | RuntimeException e) {
+            // The reader may be stuck mid-document; start the next payload on a fresh one
+            readers.remove();
+            throw new JsonParseException("Malformed " + eventClass.getSimpleName() + " payload", e);
+        }
+    }
+
+    /**
+     * Looks for {@code "roomCode":"<value>"} in the raw bytes. Falls back to
+     * "maybe" (true) whenever the answer is not certain, for example when the
+     * key is missing or the value contains escapes.
+     */
+    @Override
+    public boolean matchesRoom(byte[] payload, int offset, byte[] roomCodeUtf8) {
+        int key = indexOf(payload, offset, ROOM_CODE_KEY);
+        if (key < 0) {
+            return true;
+        }
+        int value = key + ROOM_CODE_KEY.length;
+        int end = value + roomCodeUtf8.length;
+        if (end >= payload.length) {
+            return false;
+        }
+        for (int i = 0; i < roomCodeUtf8.length; i++) {
+            byte b = payload[value + i];
+            if (b == '\\') {
+                return true;
+            }
+            if (b != roomCodeUtf8[i]) {
+                return payload[value + i] == '"' ? false : scanForEscape(payload, value + i);
+            }
+        }
+        return payload[end] == '"';
+    }
+
+    // A mismatch is only certain if the rest of the value has no escape sequences
+    private static boolean scanForEscape(byte[] payload, int from) {
+        for (int i = from; i < payload.length && payload[i] != '"'; i++) {
+            if (payload[i] == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOf(byte[] haystack, int from, byte[] needle) {
+        outer:
+        for (int i = from; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
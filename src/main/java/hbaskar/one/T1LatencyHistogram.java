@@ -0,0 +1,107 @@
+package hbaskar.one;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * T1LatencyHistogram - fixed-size log-linear histogram of latencies in nanoseconds
+ *
+ * Buckets follow the HdrHistogram layout: values below 128 get a bucket
+ * each, and every power of two above that is split into 64 equal buckets, so
+ * any recorded value is reported within 1.6% of itself, from nanoseconds up
+ * to about 18 minutes. Larger values land in the last bucket. Recording is
+ * lock-free and allocation-free, so it can sit on the publish and dispatch
+ * paths; percentiles are computed on demand by walking the 2.3 thousand
+ * counters.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1LatencyHistogram {
+    private static final int LINEAR = 128;
+    private static final int HALF = LINEAR / 2;
+    private static final int MAX_SHIFT = 34;
+    private static final int BUCKETS = LINEAR + MAX_SHIFT * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /** Records one latency; negative values (from clock skew) count as 0. */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        total.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return total.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = total.sum();
+        return count == 0 ? 0 : sum.sum() / (double) count;
+    }
+
+    /**
+     * The value below which the given percentage of recordings fall, as the
+     * highest value of its bucket (never above the largest value recorded).
+     * Returns 0 when nothing has been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = total.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /** Forgets everything recorded so far. */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        // Keep the top seven bits: a mantissa of 64..127 times 2^shift
+        int shift = 57 - Long.numberOfLeadingZeros(value);
+        if (shift > MAX_SHIFT) {
+            return BUCKETS - 1;
+        }
+        int mantissa = (int) (value >>> shift);
+        return LINEAR + (shift - 1) * HALF + (mantissa - HALF);
+    }
+
+    static long highestValueOf(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int shift = (index - LINEAR) / HALF + 1;
+        long mantissa = (index - LINEAR) % HALF + HALF;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,186 @@
+package hbaskar.one;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * T1LatencyMetrics - process-wide latency histograms per event type
+ *
+ * Three stages are measured for every {@link T1EventType}:
+ * <ul>
+ *   <li>{@link Stage#PUBLISH_CALL}: how long a publishXxx call kept the
+ *       caller, from encoding to enqueueing (or to the acknowledgement when
+ *       publishing synchronously);</li>
+ *   <li>{@link Stage#BROKER_ACK}: from the call until the broker
+ *       acknowledged the message, for QoS 1 and 2 only. A message stored in
+ *       the outbox while disconnected counts as acknowledged when stored;</li>
+ *   <li>{@link Stage#END_TO_END}: from the event's timestamp on the
+ *       publishing host until a listener on this host was about to run.</li>
+ * </ul>
+ * Event timestamps have millisecond resolution, so end-to-end values are only
+ * accurate to a millisecond. Timestamps written on another host are shifted
+ * by that host's clock offset as measured by {@link T1ClockSync}; until an
+ * offset is known the clocks are assumed to agree.
+ *
+ * Histograms are created on first use and can be read at any time, for
+ * example {@code getPercentile(T1EventType.CARDS_REVEALED, Stage.END_TO_END, 99)},
+ * or printed with {@link #report()}.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public final class T1LatencyMetrics {
+
+    /** What a histogram measures. */
+    public enum Stage {
+        PUBLISH_CALL,
+        BROKER_ACK,
+        END_TO_END
+    }
+
+    private static final T1LatencyMetrics INSTANCE = new T1LatencyMetrics();
+    private static final double[] REPORTED_PERCENTILES = { 50, 99, 99.9 };
+
+    private final AtomicReferenceArray<T1LatencyHistogram> histograms =
+            new AtomicReferenceArray<>(T1EventType.values().length * Stage.values().length);
+    // Peer clock minus local clock, in microseconds, per origin
+    private final Map<String, Long> clockOffsets = new ConcurrentHashMap<>();
+    // When an event from each origin last reached a listener, in epoch milliseconds
+    private final Map<String, AtomicLong> lastHeard = new ConcurrentHashMap<>();
+
+    private T1LatencyMetrics() {
+    }
+
+    public static T1LatencyMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public void record(T1EventType type, Stage stage, long nanos) {
+        getHistogram(type, stage).record(nanos);
+    }
+
+    /** Records the end-to-end latency of an event that is about to reach its listeners. */
+    public void recordDelivered(T1EventType type, Object event) {
+        long timestamp = timestampOf(event);
+        if (timestamp <= 0) {
+            return;
+        }
+        String origin = originOf(event);
+        if (origin != null) {
+            lastHeard.computeIfAbsent(origin, o -> new AtomicLong()).set(System.currentTimeMillis());
+        }
+        long offsetMicros = origin == null ? 0 : getClockOffsetMicros(origin);
+        long latencyMicros = T1ClockSync.nowMicros() - (timestamp * 1000 - offsetMicros);
+        record(type, Stage.END_TO_END, latencyMicros * 1000);
+    }
+
+    /** The histogram of one stage of one event type, created empty if nothing was recorded yet. */
+    public T1LatencyHistogram getHistogram(T1EventType type, Stage stage) {
+        int index = type.ordinal() * Stage.values().length + stage.ordinal();
+        T1LatencyHistogram histogram = histograms.get(index);
+        if (histogram == null) {
+            histograms.compareAndSet(index, null, new T1LatencyHistogram());
+            histogram = histograms.get(index);
+        }
+        return histogram;
+    }
+
+    /** Latency in nanoseconds below which the given percentage of recordings fall. */
+    public long getPercentile(T1EventType type, Stage stage, double percentile) {
+        T1LatencyHistogram histogram = histograms.get(type.ordinal() * Stage.values().length + stage.ordinal());
+        return histogram == null ? 0 : histogram.getValueAtPercentile(percentile);
+    }
+
+    /** Stores a peer's clock offset (its clock minus ours) for correcting its timestamps. */
+    public void setClockOffsetMicros(String origin, long offsetMicros) {
+        clockOffsets.put(origin, offsetMicros);
+    }
+
+    /** The peer's clock offset in microseconds, or 0 while unknown. */
+    public long getClockOffsetMicros(String origin) {
+        return clockOffsets.getOrDefault(origin, 0L);
+    }
+
+    /** Origins whose events reached a listener here at or after the given epoch millisecond. */
+    public List<String> getOriginsHeardSince(long sinceMillis) {
+        List<String> origins = new ArrayList<>();
+        lastHeard.forEach((origin, heard) -> {
+            if (heard.get() >= sinceMillis) {
+                origins.add(origin);
+            }
+        });
+        return origins;
+    }
+
+    /** Empties every histogram; clock offsets are kept. */
+    public void reset() {
+        for (int i = 0; i < histograms.length(); i++) {
+            T1LatencyHistogram histogram = histograms.get(i);
+            if (histogram != null) {
+                histogram.reset();
+            }
+        }
+    }
+
+    /** One line per event type and stage with recordings: count, p50, p99, p999 and max in milliseconds. */
+    public String report() {
+        StringBuilder report = new StringBuilder(String.format("%-20s %-12s %9s %9s %9s %9s %9s%n",
+                "event", "stage", "count", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (T1EventType type : T1EventType.values()) {
+            for (Stage stage : Stage.values()) {
+                T1LatencyHistogram histogram = histograms.get(type.ordinal() * Stage.values().length + stage.ordinal());
+                if (histogram == null || histogram.getCount() == 0) {
+                    continue;
+                }
+                report.append(String.format("%-20s %-12s %9d", type, stage, histogram.getCount()));
+                for (double percentile : REPORTED_PERCENTILES) {
+                    report.append(String.format(" %9.3f", histogram.getValueAtPercentile(percentile) / 1e6));
+                }
+                report.append(String.format(" %9.3f%n", histogram.getMax() / 1e6));
+            }
+        }
+        return report.toString();
+    }
+
+    private static long timestampOf(Object event) {
+        if (event instanceof T1PlanItPokerPublisher.RoomEvent) {
+            return ((T1PlanItPokerPublisher.RoomEvent) event).timestamp;
+        } else if (event instanceof T1PlanItPokerPublisher.PlayerEvent) {
+            return ((T1PlanItPokerPublisher.PlayerEvent) event).timestamp;
+        } else if (event instanceof T1PlanItPokerPublisher.StoryEvent) {
+            return ((T1PlanItPokerPublisher.StoryEvent) event).timestamp;
+        } else if (event instanceof T1PlanItPokerPublisher.ScoreEvent) {
+            return ((T1PlanItPokerPublisher.ScoreEvent) event).timestamp;
+        } else if (event instanceof T1PlanItPokerPublisher.RevealEvent) {
+            return ((T1PlanItPokerPublisher.RevealEvent) event).timestamp;
+        } else if (event instanceof T1PlanItPokerPublisher.RoomsUpdatedEvent) {
+            return ((T1PlanItPokerPublisher.RoomsUpdatedEvent) event).timestamp;
+        } else if (event instanceof T1PlanItPokerPublisher.ModeEvent) {
+            return ((T1PlanItPokerPublisher.ModeEvent) event).timestamp;
+        } else if (event instanceof T1PlanItPokerPublisher.RoomSnapshotEvent) {
+            return ((T1PlanItPokerPublisher.RoomSnapshotEvent) event).timestamp;
+        }
+        return 0;
+    }
+
+    // Events without an origin come from unknown hosts; their timestamps are taken as they are
+    private static String originOf(Object event) {
+        if (event instanceof T1PlanItPokerPublisher.PlayerEvent) {
+            return ((T1PlanItPokerPublisher.PlayerEvent) event).origin;
+        } else if (event instanceof T1PlanItPokerPublisher.StoryEvent) {
+            return ((T1PlanItPokerPublisher.StoryEvent) event).origin;
+        } else if (event instanceof T1PlanItPokerPublisher.ScoreEvent) {
+            return ((T1PlanItPokerPublisher.ScoreEvent) event).origin;
+        } else if (event instanceof T1PlanItPokerPublisher.RevealEvent) {
+            return ((T1PlanItPokerPublisher.RevealEvent) event).origin;
+        } else if (event instanceof T1PlanItPokerPublisher.ModeEvent) {
+            return ((T1PlanItPokerPublisher.ModeEvent) event).origin;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,138 @@
+package hbaskar.one;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttTopic;
+
+/**
+ * T1LoopbackBroker - an MQTT-like broker that lives inside the JVM
+ *
+ * Routes messages between {@link T1LoopbackTransport} instances using the
+ * usual MQTT topic filters ({@code +} and {@code #}) and keeps retained
+ * messages, so publishers and subscribers can be load-tested and
+ * benchmarked without a network or an external broker. Brokers are looked
+ * up by name; select one with a broker URL of {@code loopback://name}.
+ *
+ * Every connected transport has its own delivery thread, like a Paho client,
+ * so a slow subscriber does not hold up the publisher or other subscribers.
+ * Payload arrays are handed over as they are, not copied.
+ *
+ * {@link #setAvailable(boolean)} simulates an outage: connected clients lose
+ * their connection and new ones are refused until the broker is back, while
+ * retained messages survive, as they would on a restarted broker.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public final class T1LoopbackBroker {
+    private static final Map<String, T1LoopbackBroker> BROKERS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final CopyOnWriteArrayList<T1LoopbackTransport> sessions = new CopyOnWriteArrayList<>();
+    private final Map<String, byte[]> retained = new ConcurrentHashMap<>();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private volatile boolean available = true;
+
+    private T1LoopbackBroker(String name) {
+        this.name = name;
+    }
+
+    /** Returns the broker of that name, starting it on first use. */
+    public static T1LoopbackBroker named(String name) {
+        return BROKERS.computeIfAbsent(name, T1LoopbackBroker::new);
+    }
+
+    /**
+     * Stops a broker: its clients see the connection drop and its retained
+     * messages are forgotten. The next lookup of the name starts a fresh one.
+     */
+    public static void shutdown(String name) {
+        T1LoopbackBroker broker = BROKERS.remove(name);
+        if (broker != null) {
+            MqttException cause = new MqttException(MqttException.REASON_CODE_CONNECTION_LOST);
+            for (T1LoopbackTransport session : broker.sessions) {
+                session.connectionLost(cause);
+            }
+            broker.sessions.clear();
+            broker.retained.clear();
+        }
+    }
+
+    /** Takes the broker down (dropping every client) or brings it back up. */
+    public void setAvailable(boolean available) {
+        this.available = available;
+        if (!available) {
+            MqttException cause = new MqttException(MqttException.REASON_CODE_CONNECTION_LOST);
+            for (T1LoopbackTransport session : sessions) {
+                session.connectionLost(cause);
+            }
+        }
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void attach(T1LoopbackTransport session) {
+        sessions.addIfAbsent(session);
+    }
+
+    void detach(T1LoopbackTransport session) {
+        sessions.remove(session);
+    }
+
+    void publish(String topic, byte[] payload, int qos, boolean retain) {
+        published.incrementAndGet();
+        if (retain) {
+            // As in MQTT, an empty retained message clears the topic
+            if (payload.length == 0) {
+                retained.remove(topic);
+            } else {
+                retained.put(topic, payload);
+            }
+        }
+        for (T1LoopbackTransport session : sessions) {
+            if (session.isSubscribedTo(topic)) {
+                delivered.incrementAndGet();
+                session.deliver(topic, payload, qos, false);
+            }
+        }
+    }
+
+    // A new subscription receives the retained messages it matches
+    void sendRetained(T1LoopbackTransport session, String topicFilter, int qos) {
+        for (Map.Entry<String, byte[]> entry : retained.entrySet()) {
+            if (MqttTopic.isMatched(topicFilter, entry.getKey())) {
+                delivered.incrementAndGet();
+                session.deliver(entry.getKey(), entry.getValue(), qos, true);
+            }
+        }
+    }
+
+    public int getClientCount() {
+        return sessions.size();
+    }
+
+    public int getRetainedCount() {
+        return retained.size();
+    }
+
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    /** Messages handed to subscribers, counting each subscriber separately. */
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+}
@@ -0,0 +1,161 @@
+package hbaskar.one;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.MqttTopic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * T1LoopbackTransport - {@link T1MessageTransport} connected to a {@link T1LoopbackBroker}
+ *
+ * Publishes are acknowledged as soon as the broker has routed them. Incoming
+ * messages reach the callback on this client's own delivery thread, in the
+ * order they were published.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1LoopbackTransport implements T1MessageTransport {
+    private static final Logger logger = LoggerFactory.getLogger(T1LoopbackTransport.class);
+
+    private final String brokerName;
+    private final String clientId;
+    private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+    private volatile MqttCallback callback;
+    private volatile ExecutorService delivery;
+    private volatile T1LoopbackBroker broker;
+
+    public T1LoopbackTransport(String brokerName, String clientId) {
+        this.brokerName = brokerName;
+        this.clientId = clientId;
+    }
+
+    @Override
+    public String getClientId() {
+        return clientId;
+    }
+
+    @Override
+    public void setCallback(MqttCallback callback) {
+        this.callback = callback;
+    }
+
+    @Override
+    public synchronized void connect() throws MqttException {
+        if (delivery != null) {
+            throw new MqttException(MqttException.REASON_CODE_CLIENT_CONNECTED);
+        }
+        // Looked up each time: a broker that was shut down is replaced by a fresh one
+        T1LoopbackBroker target = T1LoopbackBroker.named(brokerName);
+        if (!target.isAvailable()) {
+            throw new MqttException(MqttException.REASON_CODE_BROKER_UNAVAILABLE);
+        }
+        broker = target;
+        delivery = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "planit-loopback-" + clientId);
+            t.setDaemon(true);
+            return t;
+        });
+        broker.attach(this);
+        logger.trace("{} connected to loopback broker {}", clientId, broker.getName());
+    }
+
+    @Override
+    public boolean isConnected() {
+        return delivery != null;
+    }
+
+    @Override
+    public void publish(String topic, byte[] payload, int qos, boolean retained, IMqttActionListener listener)
+            throws MqttException {
+        T1LoopbackBroker target = broker;
+        if (delivery == null || target == null) {
+            throw new MqttException(MqttException.REASON_CODE_CLIENT_NOT_CONNECTED);
+        }
+        target.publish(topic, payload, qos, retained);
+        if (listener != null) {
+            listener.onSuccess(null);
+        }
+    }
+
+    @Override
+    public void subscribe(String topicFilter, int qos) throws MqttException {
+        T1LoopbackBroker target = broker;
+        if (delivery == null || target == null) {
+            throw new MqttException(MqttException.REASON_CODE_CLIENT_NOT_CONNECTED);
+        }
+        MqttTopic.validate(topicFilter, true);
+        if (subscriptions.add(topicFilter)) {
+            target.sendRetained(this, topicFilter, qos);
+        }
+    }
+
+    @Override
+    public void unsubscribe(String topicFilter) {
+        subscriptions.remove(topicFilter);
+    }
+
+    @Override
+    public synchronized void disconnect() {
+        if (broker != null) {
+            broker.detach(this);
+            broker = null;
+        }
+        subscriptions.clear();
+        if (delivery != null) {
+            // Messages already routed to this client are still delivered
+            delivery.shutdown();
+            delivery = null;
+        }
+    }
+
+    boolean isSubscribedTo(String topic) {
+        for (String filter : subscriptions) {
+            if (MqttTopic.isMatched(filter, topic)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void deliver(String topic, byte[] payload, int qos, boolean retained) {
+        ExecutorService executor = delivery;
+        MqttCallback target = callback;
+        if (executor == null || target == null) {
+            return;
+        }
+        MqttMessage message = new MqttMessage(payload);
+        message.setQos(qos);
+        message.setRetained(retained);
+        try {
+            executor.execute(() -> {
+                try {
+                    target.messageArrived(topic, message);
+                } catch (Exception e) {
+                    logger.error("Loopback client {} failed to handle {}: {}", clientId, topic, e.getMessage(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Disconnected while the message was being routed
+        }
+    }
+
+    void connectionLost(Throwable cause) {
+        disconnect();
+        MqttCallback target = callback;
+        if (target != null) {
+            target.connectionLost(cause);
+        }
+    }
+}
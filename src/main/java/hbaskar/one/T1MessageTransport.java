@@ -0,0 +1,54 @@
+package hbaskar.one;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttException;
+
+/**
+ * T1MessageTransport - the connection publishers and subscribers talk through
+ *
+ * Hides whether messages travel over a real MQTT broker or stay inside the
+ * JVM. {@link #create} picks the implementation from the configured broker
+ * URL: {@code loopback://name} selects the in-process {@link T1LoopbackBroker}
+ * of that name, anything else is handed to the Paho client.
+ *
+ * Incoming messages and connection loss are reported through the Paho
+ * {@link MqttCallback}, so the same subscriber code runs on either transport.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public interface T1MessageTransport {
+    String LOOPBACK_SCHEME = "loopback://";
+
+    /** Builds the transport selected by {@link T1MessagingConfig#getBrokerUrl()}. */
+    static T1MessageTransport create(T1MessagingConfig config, String clientId) {
+        String url = config.getBrokerUrl();
+        if (url.startsWith(LOOPBACK_SCHEME)) {
+            return new T1LoopbackTransport(url.substring(LOOPBACK_SCHEME.length()), clientId);
+        }
+        return new T1MqttTransport(config, clientId);
+    }
+
+    String getClientId();
+
+    /** Receives incoming messages and connection loss; set before connecting. */
+    void setCallback(MqttCallback callback);
+
+    /** Connects and waits until the connection is usable. */
+    void connect() throws MqttException;
+
+    boolean isConnected();
+
+    /** Sends without waiting; the listener hears about the broker acknowledgement. */
+    void publish(String topic, byte[] payload, int qos, boolean retained, IMqttActionListener listener)
+            throws MqttException;
+
+    /** Subscribes and waits for the broker to confirm. */
+    void subscribe(String topicFilter, int qos) throws MqttException;
+
+    void unsubscribe(String topicFilter) throws MqttException;
+
+    void disconnect() throws MqttException;
+}
@@ -0,0 +1,464 @@
+package hbaskar.one;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * T1MessagingConfig - tunable settings for the PlanItPoker messaging layer
+ *
+ * Holds the options used by {@link T1PlanItPokerPublisher} and
+ * {@link T1PlanItPokerSubscriber} when they are created. A fresh instance
+ * carries the defaults, so callers only need to set the values they want to
+ * change before passing it to
+ * {@link T1PlanItPokerPublisher#configure(T1MessagingConfig)} or a
+ * constructor.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1MessagingConfig {
+    public static final String DEFAULT_BROKER_URL = "tcp://test.mosquitto.org:1883";
+
+    private String brokerUrl = DEFAULT_BROKER_URL;
+    private int qos = 1;
+    private boolean cleanSession = true;
+    private boolean automaticReconnect = true;
+    private int keepAliveSeconds = 60;
+    private int connectionTimeoutSeconds = 30;
+    private String username;
+    private String password;
+    private boolean sharedConnection = true;
+    private boolean asyncPublish = true;
+    private int publishQueueCapacity = 1024;
+    private int maxInflight = 10;
+    private T1PublishPipeline.BackpressurePolicy backpressurePolicy = T1PublishPipeline.BackpressurePolicy.BLOCK;
+    private long scoreBatchWindowMillis = 0;
+    private int scoreBatchMaxEvents = 50;
+    private T1Topics.Scheme publishTopicScheme = T1Topics.Scheme.BOTH;
+    private T1Topics.Scheme subscribeTopicScheme = T1Topics.Scheme.ROOM;
+    private T1EventCodec codec = T1EventCodecs.json();
+    private int compressionThreshold = 0;
+    private int compressionLevel = 1;
+    private final Map<T1EventType, T1DeliveryPolicy> deliveryPolicies = new EnumMap<>(T1EventType.class);
+    private int dispatchThreads = Math.min(4, Runtime.getRuntime().availableProcessors());
+    private int dispatchWarnDepth = 1000;
+    private long snapshotIntervalMillis = 500;
+    private long snapshotWaitMillis = 3000;
+    private boolean replicateToRepository = true;
+    private int replayWindowSize = 256;
+    private long reconnectInitialDelayMillis = 250;
+    private long reconnectMaxDelayMillis = 30000;
+    private Path outboxDirectory = Paths.get(System.getProperty("java.io.tmpdir"), "planit-outbox");
+    private long outboxMaxBytes = 64L * 1024 * 1024;
+    private int outboxDrainRate = 500;
+    private boolean latencyMetrics = true;
+    private long clockSyncIntervalMillis = 30000;
+    private Path captureFile;
+
+    // Connection
+    /** MQTT broker URL, or {@code loopback://name} for an in-process {@link T1LoopbackBroker}. */
+    public String getBrokerUrl() {
+        return brokerUrl;
+    }
+
+    public void setBrokerUrl(String brokerUrl) {
+        if (brokerUrl == null || brokerUrl.isEmpty()) {
+            throw new IllegalArgumentException("Broker URL must not be empty");
+        }
+        this.brokerUrl = brokerUrl;
+    }
+
+    /** QoS used for subscribing, and for publishing unless a delivery policy says otherwise. */
+    public int getQos() {
+        return qos;
+    }
+
+    public void setQos(int qos) {
+        if (qos < 0 || qos > 2) {
+            throw new IllegalArgumentException("QoS must be 0, 1 or 2: " + qos);
+        }
+        this.qos = qos;
+    }
+
+    public boolean isCleanSession() {
+        return cleanSession;
+    }
+
+    public void setCleanSession(boolean cleanSession) {
+        this.cleanSession = cleanSession;
+    }
+
+    /** Whether {@link T1ConnectionSupervisor} reconnects after the connection drops. */
+    public boolean isAutomaticReconnect() {
+        return automaticReconnect;
+    }
+
+    public void setAutomaticReconnect(boolean automaticReconnect) {
+        this.automaticReconnect = automaticReconnect;
+    }
+
+    public int getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+
+    public void setKeepAliveSeconds(int keepAliveSeconds) {
+        if (keepAliveSeconds < 0) {
+            throw new IllegalArgumentException("Keep-alive must not be negative: " + keepAliveSeconds);
+        }
+        this.keepAliveSeconds = keepAliveSeconds;
+    }
+
+    public int getConnectionTimeoutSeconds() {
+        return connectionTimeoutSeconds;
+    }
+
+    public void setConnectionTimeoutSeconds(int connectionTimeoutSeconds) {
+        if (connectionTimeoutSeconds < 0) {
+            throw new IllegalArgumentException("Connection timeout must not be negative: " + connectionTimeoutSeconds);
+        }
+        this.connectionTimeoutSeconds = connectionTimeoutSeconds;
+    }
+
+    /** Broker user name; null connects anonymously. */
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    /** Whether publishers and subscribers share one connection per broker (see {@link T1ConnectionManager}). */
+    public boolean isSharedConnection() {
+        return sharedConnection;
+    }
+
+    public void setSharedConnection(boolean sharedConnection) {
+        this.sharedConnection = sharedConnection;
+    }
+
+    // Publish pipeline
+    public boolean isAsyncPublish() {
+        return asyncPublish;
+    }
+
+    public void setAsyncPublish(boolean asyncPublish) {
+        this.asyncPublish = asyncPublish;
+    }
+
+    public int getPublishQueueCapacity() {
+        return publishQueueCapacity;
+    }
+
+    public void setPublishQueueCapacity(int publishQueueCapacity) {
+        if (publishQueueCapacity < 1) {
+            throw new IllegalArgumentException("Publish queue capacity must be positive: " + publishQueueCapacity);
+        }
+        this.publishQueueCapacity = publishQueueCapacity;
+    }
+
+    public int getMaxInflight() {
+        return maxInflight;
+    }
+
+    public void setMaxInflight(int maxInflight) {
+        if (maxInflight < 1) {
+            throw new IllegalArgumentException("Max inflight must be positive: " + maxInflight);
+        }
+        this.maxInflight = maxInflight;
+    }
+
+    public T1PublishPipeline.BackpressurePolicy getBackpressurePolicy() {
+        return backpressurePolicy;
+    }
+
+    public void setBackpressurePolicy(T1PublishPipeline.BackpressurePolicy backpressurePolicy) {
+        if (backpressurePolicy == null) {
+            throw new IllegalArgumentException("Backpressure policy must not be null");
+        }
+        this.backpressurePolicy = backpressurePolicy;
+    }
+
+    // Score batching
+    /** Window for coalescing score events per room; 0 disables batching. */
+    public long getScoreBatchWindowMillis() {
+        return scoreBatchWindowMillis;
+    }
+
+    public void setScoreBatchWindowMillis(long scoreBatchWindowMillis) {
+        if (scoreBatchWindowMillis < 0) {
+            throw new IllegalArgumentException("Score batch window must not be negative: " + scoreBatchWindowMillis);
+        }
+        this.scoreBatchWindowMillis = scoreBatchWindowMillis;
+    }
+
+    public int getScoreBatchMaxEvents() {
+        return scoreBatchMaxEvents;
+    }
+
+    public void setScoreBatchMaxEvents(int scoreBatchMaxEvents) {
+        if (scoreBatchMaxEvents < 1) {
+            throw new IllegalArgumentException("Score batch size must be positive: " + scoreBatchMaxEvents);
+        }
+        this.scoreBatchMaxEvents = scoreBatchMaxEvents;
+    }
+
+    // Topic layout
+    /** Topics room events are published on; BOTH keeps legacy clients working. */
+    public T1Topics.Scheme getPublishTopicScheme() {
+        return publishTopicScheme;
+    }
+
+    public void setPublishTopicScheme(T1Topics.Scheme publishTopicScheme) {
+        if (publishTopicScheme == null) {
+            throw new IllegalArgumentException("Publish topic scheme must not be null");
+        }
+        this.publishTopicScheme = publishTopicScheme;
+    }
+
+    /** Topics room events are received on; either LEGACY or ROOM. */
+    public T1Topics.Scheme getSubscribeTopicScheme() {
+        return subscribeTopicScheme;
+    }
+
+    public void setSubscribeTopicScheme(T1Topics.Scheme subscribeTopicScheme) {
+        if (subscribeTopicScheme == null || subscribeTopicScheme == T1Topics.Scheme.BOTH) {
+            // Listening on both families would deliver every event twice
+            throw new IllegalArgumentException("Subscribe topic scheme must be LEGACY or ROOM");
+        }
+        this.subscribeTopicScheme = subscribeTopicScheme;
+    }
+
+    // Wire format
+    /** Codec used for outgoing events; incoming events are decoded by their header. */
+    public T1EventCodec getCodec() {
+        return codec;
+    }
+
+    public void setCodec(T1EventCodec codec) {
+        if (codec == null) {
+            throw new IllegalArgumentException("Codec must not be null");
+        }
+        this.codec = codec;
+    }
+
+    /**
+     * Encoded size in bytes from which payloads are deflated; 0 turns
+     * compression off. Older clients cannot read compressed payloads.
+     * Deflate costs a fixed 10-20 us plus about 10 ns per byte and halves
+     * payloads from about 500 bytes on; 512 suits a broker across the
+     * internet (see T1CompressionBenchmark).
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public void setCompressionThreshold(int compressionThreshold) {
+        if (compressionThreshold < 0) {
+            throw new IllegalArgumentException("Compression threshold must not be negative: " + compressionThreshold);
+        }
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /** Deflate level from 1 (fastest) to 9 (smallest). */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < 1 || compressionLevel > 9) {
+            throw new IllegalArgumentException("Compression level must be between 1 and 9: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+    // Delivery policies
+    /** QoS, retained flag, lane and conflation used for one event type. */
+    public T1DeliveryPolicy getDeliveryPolicy(T1EventType type) {
+        T1DeliveryPolicy policy = deliveryPolicies.get(type);
+        return policy != null ? policy : T1DeliveryPolicy.defaultFor(type);
+    }
+
+    public void setDeliveryPolicy(T1EventType type, T1DeliveryPolicy policy) {
+        if (type == null) {
+            throw new IllegalArgumentException("Event type must not be null");
+        }
+        if (policy == null) {
+            // Back to the built-in policy
+            deliveryPolicies.remove(type);
+        } else {
+            deliveryPolicies.put(type, policy);
+        }
+    }
+
+    // Inbound dispatch
+    /** Threads running subscriber handlers; 0 runs them on the MQTT callback thread. */
+    public int getDispatchThreads() {
+        return dispatchThreads;
+    }
+
+    public void setDispatchThreads(int dispatchThreads) {
+        if (dispatchThreads < 0) {
+            throw new IllegalArgumentException("Dispatch threads must not be negative: " + dispatchThreads);
+        }
+        this.dispatchThreads = dispatchThreads;
+    }
+
+    /** Queue depth per dispatch thread at which a warning is logged. */
+    public int getDispatchWarnDepth() {
+        return dispatchWarnDepth;
+    }
+
+    public void setDispatchWarnDepth(int dispatchWarnDepth) {
+        if (dispatchWarnDepth < 1) {
+            throw new IllegalArgumentException("Dispatch warn depth must be positive: " + dispatchWarnDepth);
+        }
+        this.dispatchWarnDepth = dispatchWarnDepth;
+    }
+
+    // Room snapshots
+    /** Delay before a changed room's retained snapshot is republished; 0 disables snapshots. */
+    public long getSnapshotIntervalMillis() {
+        return snapshotIntervalMillis;
+    }
+
+    public void setSnapshotIntervalMillis(long snapshotIntervalMillis) {
+        if (snapshotIntervalMillis < 0) {
+            throw new IllegalArgumentException("Snapshot interval must not be negative: " + snapshotIntervalMillis);
+        }
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    /** How long a joining client waits for a room snapshot before assuming the room has none. */
+    public long getSnapshotWaitMillis() {
+        return snapshotWaitMillis;
+    }
+
+    public void setSnapshotWaitMillis(long snapshotWaitMillis) {
+        if (snapshotWaitMillis < 0) {
+            throw new IllegalArgumentException("Snapshot wait must not be negative: " + snapshotWaitMillis);
+        }
+        this.snapshotWaitMillis = snapshotWaitMillis;
+    }
+
+    // Replication
+    /** Whether the subscriber writes other clients' events into the local repository. */
+    public boolean isReplicateToRepository() {
+        return replicateToRepository;
+    }
+
+    public void setReplicateToRepository(boolean replicateToRepository) {
+        this.replicateToRepository = replicateToRepository;
+    }
+
+    /** Events per origin remembered for duplicate detection. */
+    public int getReplayWindowSize() {
+        return replayWindowSize;
+    }
+
+    public void setReplayWindowSize(int replayWindowSize) {
+        if (replayWindowSize < 1) {
+            throw new IllegalArgumentException("Replay window size must be positive: " + replayWindowSize);
+        }
+        this.replayWindowSize = replayWindowSize;
+    }
+
+    // Reconnect and outbox
+    /** Delay before the first reconnect attempt; it doubles with every failed attempt. */
+    public long getReconnectInitialDelayMillis() {
+        return reconnectInitialDelayMillis;
+    }
+
+    public void setReconnectInitialDelayMillis(long reconnectInitialDelayMillis) {
+        if (reconnectInitialDelayMillis < 1) {
+            throw new IllegalArgumentException("Reconnect delay must be positive: " + reconnectInitialDelayMillis);
+        }
+        this.reconnectInitialDelayMillis = reconnectInitialDelayMillis;
+    }
+
+    /** Upper bound of the reconnect delay before jitter. */
+    public long getReconnectMaxDelayMillis() {
+        return reconnectMaxDelayMillis;
+    }
+
+    public void setReconnectMaxDelayMillis(long reconnectMaxDelayMillis) {
+        if (reconnectMaxDelayMillis < 1) {
+            throw new IllegalArgumentException("Reconnect delay must be positive: " + reconnectMaxDelayMillis);
+        }
+        this.reconnectMaxDelayMillis = reconnectMaxDelayMillis;
+    }
+
+    /** Directory of the publisher's {@link T1Outbox}; null fails publishes while disconnected instead. */
+    public Path getOutboxDirectory() {
+        return outboxDirectory;
+    }
+
+    public void setOutboxDirectory(Path outboxDirectory) {
+        this.outboxDirectory = outboxDirectory;
+    }
+
+    public long getOutboxMaxBytes() {
+        return outboxMaxBytes;
+    }
+
+    public void setOutboxMaxBytes(long outboxMaxBytes) {
+        if (outboxMaxBytes < 64 * 1024 || outboxMaxBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Outbox size must be between 64 KB and 2 GB: " + outboxMaxBytes);
+        }
+        this.outboxMaxBytes = outboxMaxBytes;
+    }
+
+    /** Messages per second sent from the outbox after reconnecting; 0 for no limit. */
+    public int getOutboxDrainRate() {
+        return outboxDrainRate;
+    }
+
+    public void setOutboxDrainRate(int outboxDrainRate) {
+        if (outboxDrainRate < 0) {
+            throw new IllegalArgumentException("Outbox drain rate must not be negative: " + outboxDrainRate);
+        }
+        this.outboxDrainRate = outboxDrainRate;
+    }
+
+    // Instrumentation
+    /** Whether publish, acknowledgement and delivery times are recorded in {@link T1LatencyMetrics}. */
+    public boolean isLatencyMetrics() {
+        return latencyMetrics;
+    }
+
+    public void setLatencyMetrics(boolean latencyMetrics) {
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    /** How often the publisher measures clock offsets to its peers (see {@link T1ClockSync}); 0 disables it. */
+    public long getClockSyncIntervalMillis() {
+        return clockSyncIntervalMillis;
+    }
+
+    public void setClockSyncIntervalMillis(long clockSyncIntervalMillis) {
+        if (clockSyncIntervalMillis < 0) {
+            throw new IllegalArgumentException("Clock sync interval must not be negative: " + clockSyncIntervalMillis);
+        }
+        this.clockSyncIntervalMillis = clockSyncIntervalMillis;
+    }
+
+    /** File a new subscriber captures received traffic to (see {@link T1TrafficCapture}); null captures nothing. */
+    public Path getCaptureFile() {
+        return captureFile;
+    }
+
+    public void setCaptureFile(Path captureFile) {
+        this.captureFile = captureFile;
+    }
+}
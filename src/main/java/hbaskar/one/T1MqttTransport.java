@@ -0,0 +1,104 @@
+package hbaskar.one;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * T1MqttTransport - {@link T1MessageTransport} over a Paho asynchronous client
+ *
+ * Connection options (broker URL, clean session, keep-alive, timeouts,
+ * in-flight window and credentials) all come from {@link T1MessagingConfig}.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1MqttTransport implements T1MessageTransport {
+    private static final Logger logger = LoggerFactory.getLogger(T1MqttTransport.class);
+
+    private final T1MessagingConfig config;
+    private final MqttAsyncClient client;
+
+    public T1MqttTransport(T1MessagingConfig config, String clientId) {
+        this.config = config;
+        try {
+            this.client = new MqttAsyncClient(config.getBrokerUrl(), clientId, new MemoryPersistence());
+        } catch (MqttException me) {
+            throw new IllegalArgumentException("Invalid broker URL " + config.getBrokerUrl() + ": " + me.getMessage(), me);
+        }
+    }
+
+    @Override
+    public String getClientId() {
+        return client.getClientId();
+    }
+
+    @Override
+    public void setCallback(MqttCallback callback) {
+        client.setCallback(callback);
+    }
+
+    @Override
+    public void connect() throws MqttException {
+        MqttConnectOptions connOpts = new MqttConnectOptions();
+        connOpts.setCleanSession(config.isCleanSession());
+        // T1ConnectionSupervisor reconnects, with backoff, and restores subscriptions itself
+        connOpts.setAutomaticReconnect(false);
+        connOpts.setKeepAliveInterval(config.getKeepAliveSeconds());
+        connOpts.setConnectionTimeout(config.getConnectionTimeoutSeconds());
+        connOpts.setMaxInflight(config.getMaxInflight());
+        if (config.getUsername() != null) {
+            connOpts.setUserName(config.getUsername());
+        }
+        if (config.getPassword() != null) {
+            connOpts.setPassword(config.getPassword().toCharArray());
+        }
+
+        logger.trace("Connecting to broker: {}", config.getBrokerUrl());
+        client.connect(connOpts).waitForCompletion();
+        logger.trace("{} connected", client.getClientId());
+    }
+
+    @Override
+    public boolean isConnected() {
+        return client.isConnected();
+    }
+
+    @Override
+    public void publish(String topic, byte[] payload, int qos, boolean retained, IMqttActionListener listener)
+            throws MqttException {
+        if (!client.isConnected()) {
+            throw new MqttException(MqttException.REASON_CODE_CLIENT_NOT_CONNECTED);
+        }
+        MqttMessage message = new MqttMessage(payload);
+        message.setQos(qos);
+        message.setRetained(retained);
+        client.publish(topic, message, null, listener);
+    }
+
+    @Override
+    public void subscribe(String topicFilter, int qos) throws MqttException {
+        client.subscribe(topicFilter, qos).waitForCompletion();
+    }
+
+    @Override
+    public void unsubscribe(String topicFilter) throws MqttException {
+        client.unsubscribe(topicFilter).waitForCompletion();
+    }
+
+    @Override
+    public void disconnect() throws MqttException {
+        if (client.isConnected()) {
+            client.disconnect().waitForCompletion();
+        }
+        client.close();
+    }
+}
@@ -0,0 +1,289 @@
+package hbaskar.one;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * T1Outbox - append-only file of messages that could not be published yet
+ *
+ * Messages published while the broker is unreachable are appended to a
+ * memory-mapped file and flushed to disk, so neither a broker outage nor a
+ * restart of the client loses them. Once the connection is back they are
+ * read in the order they were written and removed from the front as the
+ * broker acknowledges them.
+ *
+ * File layout:
+ * <pre>
+ *   header   int magic, int version, long offset of the first unsent record
+ *   record   int body length, int CRC-32 of the body, body
+ *   body     byte flags (bits 0-1 QoS, bit 2 retained), short topic length,
+ *            topic (UTF-8), payload
+ * </pre>
+ * A zero length ends the list. On opening, records are read from the saved
+ * offset until the end marker or the first record whose checksum does not
+ * match, which is where a crash in the middle of an append would leave off.
+ *
+ * Removed records leave a consumed prefix behind the first unsent one. Once
+ * that prefix is large enough, and at least as large as what is still
+ * unsent, the unsent records are copied to the front and the header is
+ * pointed at them. The copy never overlaps the originals, so a crash before
+ * the header moves leaves the old records intact. Without this an outbox
+ * that keeps receiving messages while it drains would never empty, and
+ * would grow until it is full.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1Outbox implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(T1Outbox.class);
+
+    private static final int MAGIC = 0x504F4258; // "POBX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int HEAD_OFFSET = 8;
+    private static final int RECORD_HEADER = 8;
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    // Consumed bytes at the front before the unsent records are moved down
+    private static final int COMPACT_THRESHOLD = INITIAL_CAPACITY / 2;
+
+    /** One message waiting in the outbox. */
+    public static final class Entry {
+        public final String topic;
+        public final byte[] payload;
+        public final int qos;
+        public final boolean retained;
+        final long end;
+
+        Entry(String topic, byte[] payload, int qos, boolean retained, long end) {
+            this.topic = topic;
+            this.payload = payload;
+            this.qos = qos;
+            this.retained = retained;
+            this.end = end;
+        }
+    }
+
+    private final Path path;
+    private final long maxBytes;
+    private final FileChannel channel;
+    private final FileLock lock;
+    private MappedByteBuffer buffer;
+    private int head;
+    private int tail;
+    private int count;
+    // Bytes dropped from the front so far; Entry.end counts them, so entries
+    // handed out before a compaction still say which records they cover
+    private long shift;
+
+    private T1Outbox(Path path, FileChannel channel, FileLock lock, long maxBytes) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.lock = lock;
+        this.maxBytes = maxBytes;
+        long size = Math.max(channel.size(), INITIAL_CAPACITY);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        recover();
+    }
+
+    /**
+     * Opens the outbox {@code name} in a directory, creating it if needed. If
+     * another process holds that file, a numbered variant is used instead.
+     */
+    public static T1Outbox open(Path directory, String name, long maxBytes) throws IOException {
+        Files.createDirectories(directory);
+        for (int attempt = 0; ; attempt++) {
+            Path path = directory.resolve(attempt == 0 ? name + ".outbox" : name + "-" + attempt + ".outbox");
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock != null) {
+                return new T1Outbox(path, channel, lock, maxBytes);
+            }
+            channel.close();
+        }
+    }
+
+    private void recover() {
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            setHead(HEADER_SIZE);
+            buffer.putInt(HEADER_SIZE, 0);
+            head = HEADER_SIZE;
+            tail = HEADER_SIZE;
+            return;
+        }
+        head = (int) buffer.getLong(HEAD_OFFSET);
+        tail = head;
+        Entry entry;
+        while ((entry = readAt(tail)) != null) {
+            tail = (int) (entry.end - shift);
+            count++;
+        }
+        // Cut off anything half written after the last good record
+        buffer.putInt(tail, 0);
+        if (count > 0) {
+            logger.info("Outbox {} holds {} unsent messages", path, count);
+        }
+    }
+
+    /** Appends a message and flushes it to disk before returning. */
+    public synchronized void append(String topic, byte[] payload, int qos, boolean retained) throws IOException {
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = 3 + topicBytes.length + payload.length;
+        int recordLength = RECORD_HEADER + bodyLength;
+        ensureCapacity(tail + recordLength + 4);
+
+        int body = tail + RECORD_HEADER;
+        buffer.put(body, (byte) ((qos & 0x3) | (retained ? 0x4 : 0)));
+        buffer.putShort(body + 1, (short) topicBytes.length);
+        buffer.put(body + 3, topicBytes);
+        buffer.put(body + 3 + topicBytes.length, payload);
+        buffer.putInt(tail + recordLength, 0);
+
+        buffer.putInt(tail + 4, crc(body, bodyLength));
+        // The length goes in last: it is what makes the record visible
+        buffer.putInt(tail, bodyLength);
+        buffer.force();
+        tail += recordLength;
+        count++;
+    }
+
+    /** The unsent messages, oldest first. */
+    public synchronized List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>(count);
+        int position = head;
+        Entry entry;
+        while (position < tail && (entry = readAt(position)) != null) {
+            entries.add(entry);
+            position = (int) (entry.end - shift);
+        }
+        return entries;
+    }
+
+    /** Removes every message up to and including {@code entry}, which the broker has acknowledged. */
+    public synchronized void remove(Entry entry) {
+        long end = entry.end - shift;
+        if (end <= head) {
+            return;
+        }
+        int removed = 0;
+        for (int position = head; position < end; removed++) {
+            position += RECORD_HEADER + buffer.getInt(position);
+        }
+        count -= removed;
+        head = (int) end;
+        if (head == tail) {
+            // Empty again: start over at the front, nothing to copy
+            shift += head - HEADER_SIZE;
+            head = HEADER_SIZE;
+            tail = HEADER_SIZE;
+            buffer.putInt(HEADER_SIZE, 0);
+        } else if (head - HEADER_SIZE >= Math.max(COMPACT_THRESHOLD, tail - head + 4)) {
+            compact();
+        }
+        setHead(head);
+        buffer.force();
+    }
+
+    // Copies the unsent records and the end marker to the front; the caller moves the header
+    private void compact() {
+        int live = tail - head + 4;
+        buffer.put(HEADER_SIZE, buffer, head, live);
+        // On disk before the header points at the copy
+        buffer.force();
+        shift += head - HEADER_SIZE;
+        tail -= head - HEADER_SIZE;
+        head = HEADER_SIZE;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    private Entry readAt(int position) {
+        if (position + RECORD_HEADER > buffer.capacity()) {
+            return null;
+        }
+        int bodyLength = buffer.getInt(position);
+        int body = position + RECORD_HEADER;
+        if (bodyLength < 3 || body + bodyLength > buffer.capacity()
+                || crc(body, bodyLength) != buffer.getInt(position + 4)) {
+            return null;
+        }
+        int flags = buffer.get(body);
+        int topicLength = buffer.getShort(body + 1) & 0xFFFF;
+        if (3 + topicLength > bodyLength) {
+            return null;
+        }
+        byte[] topic = new byte[topicLength];
+        buffer.get(body + 3, topic);
+        byte[] payload = new byte[bodyLength - 3 - topicLength];
+        buffer.get(body + 3 + topicLength, payload);
+        return new Entry(new String(topic, StandardCharsets.UTF_8), payload, flags & 0x3, (flags & 0x4) != 0,
+                shift + body + bodyLength);
+    }
+
+    private int crc(int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private void setHead(long offset) {
+        buffer.putLong(HEAD_OFFSET, offset);
+    }
+
+    private void ensureCapacity(long needed) throws IOException {
+        if (needed <= buffer.capacity()) {
+            return;
+        }
+        long capacity = buffer.capacity();
+        while (capacity < needed) {
+            capacity *= 2;
+        }
+        if (capacity > maxBytes || capacity > Integer.MAX_VALUE) {
+            throw new IOException("Outbox " + path + " is full (" + count + " messages)");
+        }
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            buffer.force();
+            lock.release();
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close outbox {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -1,23 +1,66 @@
 package hbaskar.one;
 
-import java.util.UUID;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.eclipse.paho.client.mqttv3.MqttClient;
-import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
 import org.eclipse.paho.client.mqttv3.MqttException;
-import org.eclipse.paho.client.mqttv3.MqttMessage;
-import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 
-import com.google.gson.Gson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import hbaskar.T1Card;
+
 /**
  * PlanItPokerPublisher - MQTT publisher for real-time game events
  * 
  * This singleton class broadcasts game events to all connected clients via MQTT.
  * Publishes events for room creation, player actions, story management, and game state changes.
- * Uses JSON serialization for structured message format and reliable delivery.
+ * Uses JSON serialization by default for structured message format and reliable
+ * delivery; a more compact {@link T1EventCodec} can be configured instead.
+ * 
+ * By default publishes go through a {@link T1PublishPipeline}, so the calling
+ * thread only enqueues the message; every publishXxx method returns a future
+ * that completes once the broker has acknowledged it.
+ * 
+ * How each event type is delivered (QoS, retained flag, priority lane and
+ * conflation) is set by its {@link T1DeliveryPolicy}: by default reveals and
+ * mode changes overtake queued votes, and a player's newer vote on a story
+ * replaces their older one if that has not been sent yet. A reveal carries
+ * the story's votes and average, so replicas reach the revealed result even
+ * when it arrives ahead of the votes.
+ * 
+ * Room events go to the per-room topics built by {@link T1Topics}, the legacy
+ * global topics, or both, depending on the configured topic scheme.
+ * 
+ * Room-scoped events carry the room's next sequence number, and after a
+ * burst of changes the publisher replaces the room's retained snapshot
+ * (see {@link T1RoomSnapshots}), so a client joining later loads the whole
+ * room in one message and only applies events newer than the snapshot.
+ * Each event also carries this publisher's origin id and a per-origin
+ * sequence number, which replicas use to drop duplicates. Numbers are taken
+ * when an event is queued, so one replaced by conflation or dropped under
+ * backpressure leaves a gap that is never sent; receivers must not wait for it.
+ * 
+ * The broker is reached through a {@link T1MessageTransport}; with a
+ * {@code loopback://} broker URL messages stay inside the JVM. Besides the
+ * application-wide singleton, {@link #create(T1MessagingConfig)} builds
+ * independent publishers, for example to simulate many clients in a load test.
+ * 
+ * The connection is shared with every subscriber in the process through
+ * {@link T1ConnectionManager}. A {@link T1ConnectionSupervisor} reconnects
+ * after the broker goes away;
+ * until then messages are kept in a {@link T1Outbox} on disk and sent, in
+ * order, once the connection is back.
+ * 
+ * Publish-call and broker acknowledgement times are recorded per event type
+ * in {@link T1LatencyMetrics}. The application-wide publisher also answers
+ * the {@link T1ClockSync} pings addressed to it and pings the peers whose
+ * events arrive here, so subscribers can correct other hosts' timestamps when
+ * measuring end-to-end latency.
  * 
  * @author Daniel Miranda
  * @version 1.0
@@ -28,121 +71,329 @@ public class T1PlanItPokerPublisher {
     private static final Logger logger = LoggerFactory.getLogger(T1PlanItPokerPublisher.class);
 
     private static T1PlanItPokerPublisher instance;
-    private MqttClient mqttClient;
-    private final Gson gson;
-    private final String broker = "tcp://test.mosquitto.org:1883"; // Change to your MQTT broker
-    private final String clientId;
+    private static T1MessagingConfig defaultConfig = new T1MessagingConfig();
+    private final T1MessagingConfig config;
+    // Source of room sequence numbers and snapshots
+    private final T1PlanItPokerRepository repository;
+    private T1ConnectionManager.Handle transport;
+    private T1PublishPipeline pipeline;
+    private T1ScoreBatcher scoreBatcher;
+    private T1SnapshotScheduler snapshotScheduler;
+    private T1ClockSync clockSync;
+    private final T1LatencyMetrics metrics;
+    private final T1EventCodec codec;
+    // Identifies this publisher's events to replicas; originSeq numbers them in order, with gaps for unsent ones
+    private final String origin;
+    private final AtomicLong originSeq = new AtomicLong();
     
     // MQTT Topics
     public static final String TOPIC_ROOM_CREATED = "planit/room/created";
     public static final String TOPIC_PLAYER_JOINED = "planit/player/joined";
     public static final String TOPIC_STORY_CREATED = "planit/story/created";
     public static final String TOPIC_STORY_SCORED = "planit/story/scored";
+    public static final String TOPIC_STORY_SCORED_BATCH = "planit/story/scored/batch";
     public static final String TOPIC_CARDS_REVEALED = "planit/cards/revealed";
     public static final String TOPIC_ROOMS_UPDATED = "planit/rooms/updated";
     public static final String TOPIC_MODE_CHANGED = "planit/mode/changed";
+    // Snapshots are only published per room; this name exists for completeness
+    public static final String TOPIC_ROOM_SNAPSHOT = "planit/room/snapshot";
     
-    private T1PlanItPokerPublisher() {
-        this.gson = new Gson();
-        this.clientId = "Publisher_" + UUID.randomUUID().toString();
+    private T1PlanItPokerPublisher(T1MessagingConfig config, T1PlanItPokerRepository repository) {
+        this.config = config;
+        this.repository = repository;
+        this.codec = config.getCompressionThreshold() > 0
+                ? new T1CompressingCodec(config.getCodec(), config.getCompressionThreshold(), config.getCompressionLevel())
+                : config.getCodec();
+        this.origin = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        this.metrics = config.isLatencyMetrics() ? T1LatencyMetrics.getInstance() : null;
         connectToBroker();
+        if (config.isAsyncPublish()) {
+            // Other handles on a shared connection draw on the same inflight window
+            pipeline = new T1PublishPipeline(this::send, config.getPublishQueueCapacity(),
+                    config.getMaxInflight(), config.getBackpressurePolicy(),
+                    transport.getSupervisor().getInflightWindow());
+        }
+        if (config.getScoreBatchWindowMillis() > 0) {
+            scoreBatcher = new T1ScoreBatcher(this::publishScoreBatch,
+                    config.getScoreBatchWindowMillis(), config.getScoreBatchMaxEvents());
+        }
+        if (config.getSnapshotIntervalMillis() > 0) {
+            snapshotScheduler = new T1SnapshotScheduler(this::publishRoomSnapshot, config.getSnapshotIntervalMillis());
+        }
+    }
+    
+    /**
+     * Sets the options used when the singleton is created. Has no effect on an
+     * instance that already exists.
+     */
+    public static synchronized void configure(T1MessagingConfig newConfig) {
+        if (instance != null) {
+            logger.warn("Publisher already created; new configuration applies to the next instance");
+        }
+        defaultConfig = newConfig;
+    }
+    
+    /** The options the singleton is, or will be, created with. */
+    public static synchronized T1MessagingConfig getDefaultConfig() {
+        return defaultConfig;
     }
     
     public static synchronized T1PlanItPokerPublisher getInstance() {
         if (instance == null) {
-            instance = new T1PlanItPokerPublisher();
+            instance = new T1PlanItPokerPublisher(defaultConfig, T1PlanItPokerRepository.getInstance());
+            // The desktop client changes the repository before publishing
+            instance.repository.addLocalOrigin(instance.origin);
+            // Peers measure their clock offset against the publisher whose origin they see
+            instance.startClockSync();
         }
         return instance;
     }
     
+    /**
+     * Creates a publisher separate from the singleton. It has its own
+     * connection only if {@link T1MessagingConfig#isSharedConnection()} is off.
+     */
+    public static T1PlanItPokerPublisher create(T1MessagingConfig config) {
+        return new T1PlanItPokerPublisher(config, T1PlanItPokerRepository.getInstance());
+    }
+    
+    /**
+     * Creates a publisher for the changes a session makes to its own
+     * repository: sequence numbers and snapshots come from that repository,
+     * and its replicas do not apply these events a second time.
+     */
+    public static T1PlanItPokerPublisher create(T1MessagingConfig config, T1SessionContext session) {
+        T1PlanItPokerPublisher publisher = new T1PlanItPokerPublisher(config, session.getRepository());
+        publisher.repository.addLocalOrigin(publisher.origin);
+        return publisher;
+    }
+    
     private void connectToBroker() {
+        transport = T1ConnectionManager.acquire(config);
+        logger.trace("Publisher using connection {}", transport.getClientId());
+    }
+    
+    private void startClockSync() {
+        if (config.getClockSyncIntervalMillis() == 0) {
+            return;
+        }
+        clockSync = new T1ClockSync(transport, origin, config.getClockSyncIntervalMillis());
         try {
-            MemoryPersistence persistence = new MemoryPersistence();
-            mqttClient = new MqttClient(broker, clientId, persistence);
-            
-            MqttConnectOptions connOpts = new MqttConnectOptions();
-            connOpts.setCleanSession(true);
-            connOpts.setAutomaticReconnect(true);
-            
-            logger.trace("Connecting to broker: " + broker);
-            mqttClient.connect(connOpts);
-            logger.trace("Publisher connected");
-            
+            clockSync.start();
         } catch (MqttException me) {
-            logger.error("Failed to connect to MQTT broker: " + me.getMessage());
-            me.printStackTrace();
+            logger.warn("Clock sync not started: {}", me.getMessage());
         }
     }
     
-    private void publishMessage(String topic, Object messageObject) {
-        try {
-            if (mqttClient != null && mqttClient.isConnected()) {
-                String messageJson = gson.toJson(messageObject);
-                MqttMessage message = new MqttMessage(messageJson.getBytes());
-                message.setQos(1); // At least once delivery
-                mqttClient.publish(topic, message);
-                System.out.println("Published to " + topic + ": " + messageJson);
-            } else {
-                System.err.println("MQTT client not connected. Cannot publish message.");
+    private void send(String topic, byte[] payload, int qos, boolean retained, IMqttActionListener listener)
+            throws MqttException {
+        transport.publish(topic, payload, qos, retained, listener);
+    }
+    
+    private CompletableFuture<Void> publishEvent(T1EventType type, String roomCode, Object event) {
+        if (!type.isRoomScoped()) {
+            return publishMessage(type, type.getLegacyTopic(), event);
+        }
+        if (snapshotScheduler != null) {
+            snapshotScheduler.roomChanged(roomCode);
+        }
+        switch (config.getPublishTopicScheme()) {
+            case LEGACY:
+                return publishMessage(type, type.getLegacyTopic(), event);
+            case ROOM:
+                return publishMessage(type, T1Topics.roomTopic(roomCode, type), event);
+            default:
+                return CompletableFuture.allOf(
+                        publishMessage(type, T1Topics.roomTopic(roomCode, type), event),
+                        publishMessage(type, type.getLegacyTopic(), event));
+        }
+    }
+    
+    // QoS, retained flag, lane and conflation come from the event type's delivery policy
+    private CompletableFuture<Void> publishMessage(T1EventType type, String topic, Object messageObject) {
+        long start = System.nanoTime();
+        T1DeliveryPolicy policy = config.getDeliveryPolicy(type);
+        return publishPayload(type, topic, codec.encode(messageObject), policy.getQos(config.getQos()),
+                policy.isRetained(), policy.getPriority(), policy.conflationKey(messageObject), start);
+    }
+    
+    /**
+     * Publishes a payload exactly as it was captured (see
+     * {@link T1TrafficReplay}), in the lane of its event type but never
+     * conflated.
+     */
+    public CompletableFuture<Void> publishCaptured(String topic, byte[] payload, int qos, boolean retained) {
+        long start = System.nanoTime();
+        T1EventType type = T1Topics.eventTypeOf(topic);
+        T1DeliveryPolicy.Priority priority = type == null ? T1DeliveryPolicy.Priority.NORMAL
+                : config.getDeliveryPolicy(type).getPriority();
+        return publishPayload(type, topic, payload, qos, retained, priority, null, start);
+    }
+    
+    private CompletableFuture<Void> publishPayload(T1EventType type, String topic, byte[] payload, int qos,
+            boolean retained, T1DeliveryPolicy.Priority priority, String conflationKey, long start) {
+        CompletableFuture<Void> result;
+        if (pipeline != null) {
+            result = pipeline.submit(topic, payload, qos, retained, priority, conflationKey);
+            if (logger.isTraceEnabled()) {
+                logger.trace("Queued for {}: {}", topic, T1EventCodecs.describe(payload));
+            }
+        } else {
+            // Synchronous mode: wait for the broker acknowledgement on the caller's thread
+            result = new CompletableFuture<>();
+            try {
+                send(topic, payload, qos, retained, completing(result));
+                result.exceptionally(e -> null).join();
+                if (!result.isCompletedExceptionally() && logger.isTraceEnabled()) {
+                    logger.trace("Published to {}: {}", topic, T1EventCodecs.describe(payload));
+                }
+            } catch (MqttException me) {
+                logger.warn("Failed to publish to {}: {}", topic, me.getMessage());
+                result.completeExceptionally(me);
+            }
+        }
+        if (metrics != null && type != null) {
+            metrics.record(type, T1LatencyMetrics.Stage.PUBLISH_CALL, System.nanoTime() - start);
+            // QoS 0 is never acknowledged; its future only says the message was handed over
+            if (qos > 0) {
+                result.thenRun(() -> metrics.record(type, T1LatencyMetrics.Stage.BROKER_ACK,
+                        System.nanoTime() - start));
             }
-        } catch (MqttException me) {
-            System.err.println("Failed to publish message: " + me.getMessage());
-            me.printStackTrace();
         }
+        return result;
+    }
+    
+    // Sequence number for the next event of a room, shared with the local replica
+    private long nextSeq(String roomCode) {
+        return repository.nextSequence(roomCode);
+    }
+    
+    private static IMqttActionListener completing(CompletableFuture<Void> result) {
+        return new IMqttActionListener() {
+            @Override
+            public void onSuccess(IMqttToken token) {
+                result.complete(null);
+            }
+            
+            @Override
+            public void onFailure(IMqttToken token, Throwable cause) {
+                result.completeExceptionally(cause);
+            }
+        };
+    }
+    
+    public String getOrigin() {
+        return origin;
+    }
+    
+    /** The supervised connection; observe it with {@link T1ConnectionSupervisor#addStateListener}. */
+    public T1ConnectionSupervisor getTransport() {
+        return transport.getSupervisor();
+    }
+    
+    public T1PublishPipeline getPipeline() {
+        return pipeline;
     }
     
     // Publish room created event
-    public void publishRoomCreated(String roomCode, String roomName, String creatorName) {
+    public CompletableFuture<Void> publishRoomCreated(String roomCode, String roomName, String creatorName) {
         RoomEvent event = new RoomEvent(roomCode, roomName, creatorName);
-        publishMessage(TOPIC_ROOM_CREATED, event);
+        return publishEvent(T1EventType.ROOM_CREATED, roomCode, event);
     }
     
     // Publish player joined event
-    public void publishPlayerJoined(String roomCode, String playerName) {
-        PlayerEvent event = new PlayerEvent(roomCode, playerName);
-        publishMessage(TOPIC_PLAYER_JOINED, event);
+    public CompletableFuture<Void> publishPlayerJoined(String roomCode, String playerName) {
+        PlayerEvent event = new PlayerEvent(roomCode, playerName, System.currentTimeMillis(), nextSeq(roomCode),
+                origin, originSeq.incrementAndGet());
+        return publishEvent(T1EventType.PLAYER_JOINED, roomCode, event);
     }
     
     // Publish story created event
-    public void publishStoryCreated(String roomCode, String storyId, String title, String description) {
-        StoryEvent event = new StoryEvent(roomCode, storyId, title, description);
-        publishMessage(TOPIC_STORY_CREATED, event);
+    public CompletableFuture<Void> publishStoryCreated(String roomCode, String storyId, String title, String description) {
+        StoryEvent event = new StoryEvent(roomCode, storyId, title, description,
+                System.currentTimeMillis(), nextSeq(roomCode), origin, originSeq.incrementAndGet());
+        return publishEvent(T1EventType.STORY_CREATED, roomCode, event);
     }
     
     // Publish story scored event
-    public void publishStoryScored(String roomCode, String storyId, String playerName, int score) {
-        ScoreEvent event = new ScoreEvent(roomCode, storyId, playerName, score);
-        publishMessage(TOPIC_STORY_SCORED, event);
+    public CompletableFuture<Void> publishStoryScored(String roomCode, String storyId, String playerName, int score) {
+        ScoreEvent event = new ScoreEvent(roomCode, storyId, playerName, score,
+                System.currentTimeMillis(), nextSeq(roomCode), origin, originSeq.incrementAndGet());
+        if (scoreBatcher != null) {
+            return scoreBatcher.add(event);
+        }
+        return publishEvent(T1EventType.STORY_SCORED, roomCode, event);
+    }
+    
+    // Publish a window of score events for one room as a single message
+    private CompletableFuture<Void> publishScoreBatch(String roomCode, List<ScoreEvent> events) {
+        if (events.size() == 1) {
+            return publishEvent(T1EventType.STORY_SCORED, roomCode, events.get(0));
+        }
+        return publishEvent(T1EventType.STORY_SCORED_BATCH, roomCode, new ScoreBatchEvent(roomCode, events));
     }
     
-    // Publish cards revealed event
-    public void publishCardsRevealed(String roomCode, String storyId, double averageScore) {
-        RevealEvent event = new RevealEvent(roomCode, storyId, averageScore);
-        publishMessage(TOPIC_CARDS_REVEALED, event);
+    // Publish cards revealed event, with the story's votes as they stand in the repository
+    public CompletableFuture<Void> publishCardsRevealed(String roomCode, String storyId, double averageScore) {
+        T1PlanItPokerRepository.Room room = repository.getRoom(roomCode);
+        T1Card story = room == null ? null : room.getStory(storyId);
+        RevealEvent event = new RevealEvent(roomCode, storyId, averageScore,
+                System.currentTimeMillis(), nextSeq(roomCode), origin, originSeq.incrementAndGet(),
+                story == null ? null : story.getScores());
+        return publishEvent(T1EventType.CARDS_REVEALED, roomCode, event);
     }
     
     // Publish rooms updated event
-    public void publishRoomsUpdated() {
-        T1PlanItPokerRepository repo = T1PlanItPokerRepository.getInstance();
-        RoomsUpdatedEvent event = new RoomsUpdatedEvent(repo.getAvailableRoomCodes());
-        publishMessage(TOPIC_ROOMS_UPDATED, event);
+    public CompletableFuture<Void> publishRoomsUpdated() {
+        RoomsUpdatedEvent event = new RoomsUpdatedEvent(repository.getAvailableRoomCodes());
+        return publishEvent(T1EventType.ROOMS_UPDATED, null, event);
     }
     
     // Publish mode changed event
-    public void publishModeChanged(String roomCode, String newMode) {
-        ModeEvent event = new ModeEvent(roomCode, newMode);
-        publishMessage(TOPIC_MODE_CHANGED, event);
+    public CompletableFuture<Void> publishModeChanged(String roomCode, String newMode) {
+        ModeEvent event = new ModeEvent(roomCode, newMode, System.currentTimeMillis(), nextSeq(roomCode),
+                origin, originSeq.incrementAndGet());
+        return publishEvent(T1EventType.MODE_CHANGED, roomCode, event);
+    }
+    
+    /**
+     * Replaces the room's retained snapshot with the local state of the room.
+     * Called automatically after changes; a room unknown locally is skipped.
+     */
+    public CompletableFuture<Void> publishRoomSnapshot(String roomCode) {
+        T1PlanItPokerRepository.Room room = repository.getRoom(roomCode);
+        if (room == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // Read the sequence before the state, so the state covers at least that sequence
+        long seq = repository.getSequence(roomCode);
+        // Retained by its delivery policy; a newer snapshot replaces one still queued
+        return publishMessage(T1EventType.ROOM_SNAPSHOT, T1Topics.roomTopic(roomCode, T1EventType.ROOM_SNAPSHOT),
+                T1RoomSnapshots.capture(room, seq));
     }
     
     // Disconnect from broker
     public void disconnect() {
+        if (clockSync != null) {
+            clockSync.close();
+        }
+        if (scoreBatcher != null) {
+            scoreBatcher.close();
+        }
+        if (snapshotScheduler != null) {
+            snapshotScheduler.close();
+        }
+        if (pipeline != null) {
+            pipeline.close(5000);
+        }
         try {
-            if (mqttClient != null && mqttClient.isConnected()) {
-                mqttClient.disconnect();
-                System.out.println("Publisher disconnected");
+            if (transport != null) {
+                // The shared connection closes with its last user; the outbox keeps what is left
+                transport.disconnect();
+                logger.trace("Publisher disconnected");
             }
         } catch (MqttException me) {
-            System.err.println("Failed to disconnect: " + me.getMessage());
+            logger.error("Failed to disconnect: " + me.getMessage());
         }
     }
     
@@ -154,10 +405,14 @@ public class T1PlanItPokerPublisher {
         public final long timestamp;
         
         public RoomEvent(String roomCode, String roomName, String creatorName) {
+            this(roomCode, roomName, creatorName, System.currentTimeMillis());
+        }
+        
+        public RoomEvent(String roomCode, String roomName, String creatorName, long timestamp) {
             this.roomCode = roomCode;
             this.roomName = roomName;
             this.creatorName = creatorName;
-            this.timestamp = System.currentTimeMillis();
+            this.timestamp = timestamp;
         }
     }
     
@@ -165,11 +420,26 @@ public class T1PlanItPokerPublisher {
         public final String roomCode;
         public final String playerName;
         public final long timestamp;
+        public final long seq;
+        public final String origin;
+        public final long originSeq;
         
         public PlayerEvent(String roomCode, String playerName) {
+            this(roomCode, playerName, System.currentTimeMillis());
+        }
+        
+        public PlayerEvent(String roomCode, String playerName, long timestamp) {
+            this(roomCode, playerName, timestamp, 0, null, 0);
+        }
+        
+        public PlayerEvent(String roomCode, String playerName, long timestamp, long seq,
+                String origin, long originSeq) {
             this.roomCode = roomCode;
             this.playerName = playerName;
-            this.timestamp = System.currentTimeMillis();
+            this.timestamp = timestamp;
+            this.seq = seq;
+            this.origin = origin;
+            this.originSeq = originSeq;
         }
     }
     
@@ -179,13 +449,28 @@ public class T1PlanItPokerPublisher {
         public final String title;
         public final String description;
         public final long timestamp;
+        public final long seq;
+        public final String origin;
+        public final long originSeq;
         
         public StoryEvent(String roomCode, String storyId, String title, String description) {
+            this(roomCode, storyId, title, description, System.currentTimeMillis());
+        }
+        
+        public StoryEvent(String roomCode, String storyId, String title, String description, long timestamp) {
+            this(roomCode, storyId, title, description, timestamp, 0, null, 0);
+        }
+        
+        public StoryEvent(String roomCode, String storyId, String title, String description, long timestamp, long seq,
+                String origin, long originSeq) {
             this.roomCode = roomCode;
             this.storyId = storyId;
             this.title = title;
             this.description = description;
-            this.timestamp = System.currentTimeMillis();
+            this.timestamp = timestamp;
+            this.seq = seq;
+            this.origin = origin;
+            this.originSeq = originSeq;
         }
     }
     
@@ -195,13 +480,44 @@ public class T1PlanItPokerPublisher {
         public final String playerName;
         public final int score;
         public final long timestamp;
+        public final long seq;
+        public final String origin;
+        public final long originSeq;
         
         public ScoreEvent(String roomCode, String storyId, String playerName, int score) {
+            this(roomCode, storyId, playerName, score, System.currentTimeMillis());
+        }
+        
+        public ScoreEvent(String roomCode, String storyId, String playerName, int score, long timestamp) {
+            this(roomCode, storyId, playerName, score, timestamp, 0, null, 0);
+        }
+        
+        public ScoreEvent(String roomCode, String storyId, String playerName, int score, long timestamp, long seq,
+                String origin, long originSeq) {
             this.roomCode = roomCode;
             this.storyId = storyId;
             this.playerName = playerName;
             this.score = score;
-            this.timestamp = System.currentTimeMillis();
+            this.timestamp = timestamp;
+            this.seq = seq;
+            this.origin = origin;
+            this.originSeq = originSeq;
+        }
+    }
+    
+    public static class ScoreBatchEvent {
+        public final String roomCode;
+        public final java.util.List<ScoreEvent> scores;
+        public final long timestamp;
+        
+        public ScoreBatchEvent(String roomCode, java.util.List<ScoreEvent> scores) {
+            this(roomCode, scores, System.currentTimeMillis());
+        }
+        
+        public ScoreBatchEvent(String roomCode, java.util.List<ScoreEvent> scores, long timestamp) {
+            this.roomCode = roomCode;
+            this.scores = new java.util.ArrayList<>(scores);
+            this.timestamp = timestamp;
         }
     }
     
@@ -210,12 +526,35 @@ public class T1PlanItPokerPublisher {
         public final String storyId;
         public final double averageScore;
         public final long timestamp;
+        public final long seq;
+        public final String origin;
+        public final long originSeq;
+        // Votes the average was taken over; null from senders that do not include them
+        public final java.util.Map<String, Integer> scores;
         
         public RevealEvent(String roomCode, String storyId, double averageScore) {
+            this(roomCode, storyId, averageScore, System.currentTimeMillis());
+        }
+        
+        public RevealEvent(String roomCode, String storyId, double averageScore, long timestamp) {
+            this(roomCode, storyId, averageScore, timestamp, 0, null, 0);
+        }
+        
+        public RevealEvent(String roomCode, String storyId, double averageScore, long timestamp, long seq,
+                String origin, long originSeq) {
+            this(roomCode, storyId, averageScore, timestamp, seq, origin, originSeq, null);
+        }
+        
+        public RevealEvent(String roomCode, String storyId, double averageScore, long timestamp, long seq,
+                String origin, long originSeq, java.util.Map<String, Integer> scores) {
             this.roomCode = roomCode;
             this.storyId = storyId;
             this.averageScore = averageScore;
-            this.timestamp = System.currentTimeMillis();
+            this.timestamp = timestamp;
+            this.seq = seq;
+            this.origin = origin;
+            this.originSeq = originSeq;
+            this.scores = scores == null ? null : new java.util.LinkedHashMap<>(scores);
         }
     }
     
@@ -224,8 +563,12 @@ public class T1PlanItPokerPublisher {
         public final long timestamp;
         
         public RoomsUpdatedEvent(java.util.List<String> availableRooms) {
+            this(availableRooms, System.currentTimeMillis());
+        }
+        
+        public RoomsUpdatedEvent(java.util.List<String> availableRooms, long timestamp) {
             this.availableRooms = new java.util.ArrayList<>(availableRooms);
-            this.timestamp = System.currentTimeMillis();
+            this.timestamp = timestamp;
         }
     }
     
@@ -233,11 +576,75 @@ public class T1PlanItPokerPublisher {
         public final String roomCode;
         public final String mode;
         public final long timestamp;
+        public final long seq;
+        public final String origin;
+        public final long originSeq;
         
         public ModeEvent(String roomCode, String mode) {
+            this(roomCode, mode, System.currentTimeMillis());
+        }
+        
+        public ModeEvent(String roomCode, String mode, long timestamp) {
+            this(roomCode, mode, timestamp, 0, null, 0);
+        }
+        
+        public ModeEvent(String roomCode, String mode, long timestamp, long seq,
+                String origin, long originSeq) {
             this.roomCode = roomCode;
             this.mode = mode;
-            this.timestamp = System.currentTimeMillis();
+            this.timestamp = timestamp;
+            this.seq = seq;
+            this.origin = origin;
+            this.originSeq = originSeq;
+        }
+    }
+    
+    /**
+     * Full state of one room as of sequence number {@code seq}: every
+     * room-scoped event with a sequence number up to {@code seq} is already
+     * reflected in it.
+     */
+    public static class RoomSnapshotEvent {
+        public final String roomCode;
+        public final String roomName;
+        public final String creatorName;
+        public final long seq;
+        public final java.util.List<String> players;
+        public final java.util.List<StorySnapshot> stories;
+        public final long timestamp;
+        
+        public RoomSnapshotEvent(String roomCode, String roomName, String creatorName, long seq,
+                java.util.List<String> players, java.util.List<StorySnapshot> stories, long timestamp) {
+            this.roomCode = roomCode;
+            this.roomName = roomName;
+            this.creatorName = creatorName;
+            this.seq = seq;
+            this.players = new java.util.ArrayList<>(players);
+            this.stories = new java.util.ArrayList<>(stories);
+            this.timestamp = timestamp;
+        }
+    }
+    
+    public static class StorySnapshot {
+        public final String storyId;
+        public final String title;
+        public final String description;
+        public final String assignedUser;
+        public final double totalPoints;
+        public final java.util.Map<String, Integer> scores;
+        public final boolean revealed;
+        public final double averageScore;
+        
+        public StorySnapshot(String storyId, String title, String description, String assignedUser,
+                double totalPoints, java.util.Map<String, Integer> scores, boolean revealed, double averageScore) {
+            this.storyId = storyId;
+            this.title = title;
+            this.description = description;
+            this.assignedUser = assignedUser;
+            this.totalPoints = totalPoints;
+            this.scores = new java.util.LinkedHashMap<>(scores);
+            this.revealed = revealed;
+            this.averageScore = averageScore;
         }
     }
 }
\ No newline at end of file
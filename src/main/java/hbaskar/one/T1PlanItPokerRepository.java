@@ -1,17 +1,39 @@
 package hbaskar.one;
 
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import hbaskar.T1Card;
 
 /**
  * Singleton repository for managing PlanItPoker data including rooms, stories, and user sessions.
  * Supports thread-safe operations for multi-user environments.
- * Also manages Taiga project credentials and session data.
+ * Per-user state (logged-in user, current room and mode, Taiga credentials) lives in
+ * {@link T1SessionContext}s over the shared rooms; the accessors here use the default session.
+ * Each room keeps its players on a concurrent {@link T1PlayerRoster}, and {@link T1PresenceTracker}
+ * reports arrivals and departures and can expire players who went quiet.
+ * Readers get a room's stories and players from its versioned, copy-on-write {@link T1RoomView},
+ * and can find stories by assignee, reveal state, average vote or points with a {@link T1StoryQuery}.
+ * A {@link T1RoomEvictor} can keep idle rooms on disk; looking them up loads them back.
+ * Change listeners get what each change did as a batch of {@link T1RepositoryChange}s,
+ * after the room's lock is released, so panels can patch what changed instead of rebuilding.
+ * With a {@link T1RepositoryStore} open, every change made through the repository is logged,
+ * under the room's lock so the log holds each room's changes in the order they were made.
  * 
  * @author Daniel Miranda
  * @version 1.1
@@ -23,22 +45,63 @@ public class T1PlanItPokerRepository {
     private final Map<String, Room> rooms;
     private final AtomicInteger roomCounter;
     private final AtomicInteger storyCounter;
+    // Highest event sequence number seen per room, local or remote
+    private final Map<String, AtomicLong> sequences;
+    // Publishers whose events were already applied here before they were sent
+    private final Set<String> localOrigins = ConcurrentHashMap.newKeySet();
+
+    // Per-user state; the desktop client works on the default session
+    private final T1SessionContext defaultSession;
+    private final Set<T1SessionContext> sessions = Collections.newSetFromMap(new WeakHashMap<>());
+    // Rosters and presence expiry of every room
+    private final T1PresenceTracker presence;
+    // Batches of what each change did, for change listeners
+    private final T1ChangeNotifier changes = new T1ChangeNotifier();
+    // Durable log of every change; null unless a store is open
+    private volatile T1RepositoryStore store;
+    // Spills idle rooms to disk; null unless eviction is on
+    private volatile T1RoomEvictor evictor;
+    // Resident rooms plus spilled ones, without copying either
+    private final Set<String> knownRoomCodes = new AbstractSet<>() {
+        @Override
+        public boolean contains(Object roomCode) {
+            if (rooms.containsKey(roomCode)) {
+                return true;
+            }
+            T1RoomEvictor spill = evictor;
+            return spill != null && spill.getSpilledCodes().contains(roomCode);
+        }
 
-    private String currentRoomCode;
-    private String currentMode;
-    private String loggedInUser;
+        @Override
+        public Iterator<String> iterator() {
+            T1RoomEvictor spill = evictor;
+            Stream<String> resident = rooms.keySet().stream();
+            if (spill == null) {
+                return resident.iterator();
+            }
+            // Spilled codes include rooms loaded back since
+            return Stream.concat(resident, spill.getSpilledCodes().stream().filter(code -> !rooms.containsKey(code)))
+                    .iterator();
+        }
 
-    // Taiga integration fields
-    private String taigaUsername;
-    private String taigaPassword;
-    private String taigaProjectSlug;
-    private String taigaAuthToken;
-    private int taigaProjectId;
+        @Override
+        public int size() {
+            int size = 0;
+            for (Iterator<String> it = iterator(); it.hasNext(); it.next()) {
+                size++;
+            }
+            return size;
+        }
+    };
 
     private T1PlanItPokerRepository() {
         this.rooms = new ConcurrentHashMap<>();
         this.roomCounter = new AtomicInteger(1);
         this.storyCounter = new AtomicInteger(1);
+        this.sequences = new ConcurrentHashMap<>();
+        this.presence = new T1PresenceTracker(rooms::get, this::expirePlayer);
+        this.presence.addListener(this::presenceChanged);
+        this.defaultSession = newSession();
     }
 
     public static synchronized T1PlanItPokerRepository getInstance() {
@@ -48,134 +111,533 @@ public class T1PlanItPokerRepository {
         return instance;
     }
 
+    /**
+     * A repository apart from the shared instance, for tools and servers
+     * that recover or host more than one store in a JVM.
+     */
+    public static T1PlanItPokerRepository createDetached() {
+        return new T1PlanItPokerRepository();
+    }
+
+    // Sessions
+    /** The session behind the repository's own user, room and Taiga accessors. */
+    public T1SessionContext getDefaultSession() {
+        return defaultSession;
+    }
+
+    /**
+     * Starts another user's session over the shared rooms. Sessions need no
+     * closing; one that is no longer referenced is simply forgotten.
+     */
+    public T1SessionContext newSession() {
+        T1SessionContext session = new T1SessionContext(this);
+        synchronized (sessions) {
+            sessions.add(session);
+        }
+        return session;
+    }
+
+    /** Sets the mode of every session currently in the room, after a remote mode change. */
+    public void applyRoomMode(String roomCode, String mode) {
+        synchronized (sessions) {
+            for (T1SessionContext session : sessions) {
+                if (roomCode.equals(session.getCurrentRoomCode())) {
+                    session.setCurrentMode(mode);
+                }
+            }
+        }
+    }
+
     // User management
     public String getLoggedInUser() {
-        return loggedInUser;
+        return defaultSession.getLoggedInUser();
     }
 
     public void setLoggedInUser(String username) {
-        this.loggedInUser = username;
+        defaultSession.setLoggedInUser(username);
     }
 
     // Room management
     public String createRoom(String roomName, String creatorName) {
-        Room room = new Room(roomName, roomName, creatorName);
-        rooms.put(roomName, room);
-        setCurrentRoomCode(roomName);
+        return defaultSession.createRoom(roomName, creatorName);
+    }
+
+    /** Adds a room to the shared store without changing any session's current room. */
+    String addRoom(String roomName, String creatorName) {
+        putRoom(roomName, roomName, creatorName);
         return roomName;
     }
 
+    // Creates the room, replacing any room with that code
+    Room putRoom(String roomCode, String roomName, String creatorName) {
+        Room room = new Room(roomCode, roomName, creatorName);
+        room.presence = presence;
+        T1RepositoryStore.Commit commit = null;
+        changes.begin();
+        try {
+            // Locked before it is visible, so nothing is logged for it ahead of its creation
+            synchronized (room) {
+                rooms.put(roomCode, room);
+                changes.emit(T1RepositoryChange.roomCreated(roomCode, creatorName));
+                T1RepositoryStore log = store;
+                if (log != null) {
+                    commit = log.roomCreated(roomCode, roomName, creatorName);
+                }
+            }
+            awaitDurable(commit);
+            presence.seen(room, creatorName);
+        } finally {
+            changes.end();
+        }
+        return room;
+    }
+
+    /**
+     * Adds a room known from another client without making it the current
+     * room; returns the existing room if there is one.
+     */
+    public Room restoreRoom(String roomCode, String roomName, String creatorName) {
+        Room existing = resolve(roomCode);
+        if (existing != null) {
+            return existing;
+        }
+        Room room = new Room(roomCode, roomName, creatorName);
+        room.presence = presence;
+        T1RepositoryStore.Commit commit = null;
+        changes.begin();
+        try {
+            synchronized (room) {
+                existing = rooms.putIfAbsent(roomCode, room);
+                if (existing != null) {
+                    return existing;
+                }
+                changes.emit(T1RepositoryChange.roomCreated(roomCode, creatorName));
+                T1RepositoryStore log = store;
+                if (log != null) {
+                    commit = log.roomCreated(roomCode, roomName, creatorName);
+                }
+            }
+            awaitDurable(commit);
+            presence.seen(room, creatorName);
+        } finally {
+            changes.end();
+        }
+        return room;
+    }
+
+    /** The room, loaded back first if it was evicted; null if there is no such room. */
     public Room getRoom(String roomCode) {
-        return rooms.get(roomCode);
+        return resolve(roomCode);
     }
 
     public List<String> getAvailableRoomCodes() {
-        return new ArrayList<>(rooms.keySet());
+        T1RoomEvictor spill = evictor;
+        if (spill == null) {
+            return new ArrayList<>(rooms.keySet());
+        }
+        // A set, since a room may move between memory and disk while this runs
+        Set<String> codes = new LinkedHashSet<>(rooms.keySet());
+        codes.addAll(spill.getSpilledCodes());
+        return new ArrayList<>(codes);
+    }
+
+    /**
+     * Codes of the rooms in memory or spilled to disk, as a live read-only
+     * view that is not copied. A room moving between the two while the view
+     * is iterated may be seen twice or not at all.
+     */
+    public Set<String> getKnownRoomCodes() {
+        return knownRoomCodes;
+    }
+
+    // Rooms in memory; spilled rooms are not included
+    Collection<Room> getRooms() {
+        return rooms.values();
     }
 
     public boolean joinRoom(String roomCode, String playerName) {
-        Room room = rooms.get(roomCode);
-        if (room != null) {
+        if (resolve(roomCode) == null) {
+            return false;
+        }
+        change(roomCode, room -> {
+            // Only arrivals are logged; a player already in the room is just seen again
+            boolean arriving = !room.getRoster().contains(playerName);
             room.addPlayer(playerName);
-            return true;
+            T1RepositoryStore log = store;
+            return arriving && log != null ? log.playerJoined(roomCode, playerName) : null;
+        });
+        return true;
+    }
+
+    /** Takes a player off a room's roster, telling presence listeners. */
+    public void leaveRoom(String roomCode, String playerName) {
+        change(roomCode, room -> {
+            presence.left(room, playerName);
+            T1RepositoryStore log = store;
+            return log != null ? log.playerLeft(roomCode, playerName) : null;
+        });
+    }
+
+    // Presence thread: a player who went quiet leaves under the room's lock and is logged like leaveRoom
+    private boolean expirePlayer(Room expiring, String playerName, long idleBefore) {
+        boolean[] expired = new boolean[1];
+        change(expiring.getCode(), room -> {
+            if (!presence.expireIfIdle(room, playerName, idleBefore)) {
+                return null;
+            }
+            expired[0] = true;
+            T1RepositoryStore log = store;
+            return log != null ? log.playerLeft(room.getCode(), playerName) : null;
+        });
+        return expired[0];
+    }
+
+    // Presence
+    /** Arrivals and departures in every room; set a timeout on it to expire quiet players. */
+    public T1PresenceTracker getPresence() {
+        return presence;
+    }
+
+    public T1EventDispatcher.Registration addPresenceListener(Consumer<T1PresenceTracker.Change> listener) {
+        return presence.addListener(listener);
+    }
+
+    // Arrivals and departures join the batch of the change that caused them, if any
+    private void presenceChanged(T1PresenceTracker.Change change) {
+        changes.emit(change.kind == T1PresenceTracker.Kind.JOINED
+                ? T1RepositoryChange.playerJoined(change.roomCode, change.playerName)
+                : T1RepositoryChange.playerLeft(change.roomCode, change.playerName));
+    }
+
+    // Changes
+    /**
+     * Tells the listener what every change to the repository did, as one
+     * batch per change, on the thread that made it and with no room locked.
+     * Players expiring arrive one at a time on the presence thread. UI
+     * listeners hand over to the Swing thread themselves.
+     */
+    public T1EventDispatcher.Registration addChangeListener(Consumer<List<T1RepositoryChange>> listener) {
+        return changes.addListener(listener);
+    }
+
+    /** Runs the changes so that listeners get everything they did as one batch, such as a whole import. */
+    public void batch(Runnable work) {
+        changes.begin();
+        try {
+            work.run();
+        } finally {
+            changes.end();
         }
-        return false;
     }
 
     // Story management
 
     public void addStoryToCurrentRoom(T1Card card) {
-        String currentRoomCode = getCurrentRoomCode();
-        if (currentRoomCode != null) {
-            Room room = getRoom(currentRoomCode);
+        defaultSession.addStoryToCurrentRoom(card);
+    }
+
+    /** Adds a story to a room, replacing any story with the same id. */
+    public void addStory(String roomCode, T1Card card) {
+        change(roomCode, room -> {
+            room.addStory(card);
+            changes.emit(T1RepositoryChange.storyAdded(roomCode, card.getId()));
+            T1RepositoryStore log = store;
+            return log != null ? log.storyAdded(roomCode, card) : null;
+        });
+    }
+
+    /** Updates the Taiga details of a story already in the room. */
+    void updateStoryDetails(String roomCode, String storyId, String assignedUser, double totalPoints) {
+        change(roomCode, room -> {
+            T1Card story = room.getStory(storyId);
+            if (story == null) {
+                return null;
+            }
+            story.setAssignedUser(assignedUser);
+            story.setTotalPoints(totalPoints);
+            room.storyChanged(story);
+            changes.emit(T1RepositoryChange.storyUpdated(roomCode, storyId));
+            T1RepositoryStore log = store;
+            return log != null ? log.storyUpdated(roomCode, storyId, assignedUser, totalPoints) : null;
+        });
+    }
+
+    public void updateStoryScore(String roomCode, String storyId, String playerName, int score) {
+        changes.begin();
+        try {
+            recordScore(roomCode, storyId, playerName, score);
+            Room room = rooms.get(roomCode);
             if (room != null) {
-                room.addStory(card);
+                // A vote is a sign of life
+                presence.seen(room, playerName);
             }
+        } finally {
+            changes.end();
         }
     }
 
-    public void updateStoryScore(String roomCode, String storyId, String playerName, int score) {
-        Room room = rooms.get(roomCode);
-        if (room != null) {
+    /** Records a vote without counting it as a sign of life, as for guest votes and restored ones. */
+    public void recordScore(String roomCode, String storyId, String playerName, int score) {
+        change(roomCode, room -> {
             T1Card story = room.getStory(storyId);
-            if (story != null) {
-                story.addScore(playerName, score);
+            if (story == null) {
+                return null;
             }
-        }
+            story.addScore(playerName, score);
+            room.storyChanged(story);
+            changes.emit(T1RepositoryChange.voteCast(roomCode, storyId, playerName, score));
+            T1RepositoryStore log = store;
+            return log != null ? log.scoreRecorded(roomCode, storyId, playerName, score) : null;
+        });
     }
 
     public void revealCards(String roomCode, String storyId) {
-        Room room = rooms.get(roomCode);
-        if (room != null) {
+        change(roomCode, room -> {
+            T1Card story = room.getStory(storyId);
+            if (story == null) {
+                return null;
+            }
+            story.setRevealed(true);
+            story.calculateAverageScore();
+            room.storyChanged(story);
+            changes.emit(T1RepositoryChange.revealed(roomCode, storyId));
+            T1RepositoryStore log = store;
+            return log != null ? log.cardsRevealed(roomCode, storyId, story.getAverageScore()) : null;
+        });
+    }
+
+    /**
+     * Applies a reveal made by another client: the votes it carries, then
+     * the average as that client revealed it. Votes for the story that
+     * arrive before or after the reveal leave the same average, so the
+     * reveal need not be delivered after them.
+     */
+    public void revealCards(String roomCode, String storyId, Map<String, Integer> scores, double averageScore) {
+        change(roomCode, room -> {
             T1Card story = room.getStory(storyId);
-            if (story != null) {
-                story.setRevealed(true);
-                story.calculateAverageScore();
+            if (story == null) {
+                return null;
+            }
+            T1RepositoryStore log = store;
+            Map<String, Integer> current = story.getScores();
+            for (Map.Entry<String, Integer> score : scores.entrySet()) {
+                if (!score.getValue().equals(current.get(score.getKey()))) {
+                    story.addScore(score.getKey(), score.getValue());
+                    changes.emit(T1RepositoryChange.voteCast(roomCode, storyId, score.getKey(), score.getValue()));
+                    if (log != null) {
+                        log.scoreRecorded(roomCode, storyId, score.getKey(), score.getValue());
+                    }
+                }
+            }
+            story.setRevealed(true);
+            story.setAverageScore(averageScore);
+            room.storyChanged(story);
+            changes.emit(T1RepositoryChange.revealed(roomCode, storyId));
+            // Written after the votes, so waiting for it covers them too
+            return log != null ? log.cardsRevealed(roomCode, storyId, averageScore) : null;
+        });
+    }
+
+    /**
+     * Makes a change to a room under its lock, then waits for the log commit
+     * it returns and tells change listeners. A room evicted while the lock
+     * was awaited is looked up again, which loads it back, so no change is
+     * made to a room no longer in use.
+     */
+    private void change(String roomCode, Function<Room, T1RepositoryStore.Commit> change) {
+        changes.begin();
+        try {
+            awaitDurable(apply(roomCode, change));
+        } finally {
+            changes.end();
+        }
+    }
+
+    private T1RepositoryStore.Commit apply(String roomCode, Function<Room, T1RepositoryStore.Commit> change) {
+        while (true) {
+            Room room = resolve(roomCode);
+            if (room == null) {
+                return null;
+            }
+            synchronized (room) {
+                if (!room.evicted) {
+                    return change.apply(room);
+                }
+            }
+        }
+    }
+
+    // Finds the room, loading it back if it was evicted, and marks it as just used
+    private Room resolve(String roomCode) {
+        Room room = rooms.get(roomCode);
+        if (room == null) {
+            T1RoomEvictor spill = evictor;
+            if (spill == null || !spill.isSpilled(roomCode)) {
+                return null;
+            }
+            room = rooms.computeIfAbsent(roomCode, spill::load);
+            if (room == null) {
+                return null;
             }
         }
+        room.lastActivity = System.currentTimeMillis();
+        return room;
+    }
+
+    /** The room if it is in memory, without loading it or counting it as used. */
+    Room getResidentRoom(String roomCode) {
+        return rooms.get(roomCode);
+    }
+
+    void installRoom(Room room) {
+        rooms.put(room.getCode(), room);
+    }
+
+    void removeResidentRoom(Room room) {
+        rooms.remove(room.getCode(), room);
+    }
+
+    /**
+     * Drops a room this repository no longer keeps, such as one handed to
+     * another node, spill file included; call with the room's lock held.
+     */
+    void releaseRoom(Room room) {
+        // Changes waiting for the lock look the room up again and find nothing
+        room.evicted = true;
+        rooms.remove(room.getCode(), room);
+        T1RoomEvictor spill = evictor;
+        if (spill != null) {
+            spill.forget(room.getCode());
+        }
+    }
+
+    public int getResidentRoomCount() {
+        return rooms.size();
+    }
+
+    // Persistence
+    /** The store logging this repository's changes, or null if none is open. */
+    public T1RepositoryStore getStore() {
+        return store;
+    }
+
+    void attachStore(T1RepositoryStore store) {
+        this.store = store;
+    }
+
+    void detachStore(T1RepositoryStore store) {
+        if (this.store == store) {
+            this.store = null;
+        }
+    }
+
+    // Eviction
+    /** The evictor keeping idle rooms on disk, or null if every room stays in memory. */
+    public T1RoomEvictor getEvictor() {
+        return evictor;
+    }
+
+    void attachEvictor(T1RoomEvictor evictor) {
+        this.evictor = evictor;
+    }
+
+    void detachEvictor(T1RoomEvictor evictor) {
+        if (this.evictor == evictor) {
+            this.evictor = null;
+        }
+    }
+
+    // Waits for the sync outside the room lock, so changes to other rooms can share it
+    private static void awaitDurable(T1RepositoryStore.Commit commit) {
+        if (commit != null) {
+            commit.await();
+        }
+    }
+
+    // Room sequence numbers (a Lamport clock per room)
+    public long nextSequence(String roomCode) {
+        return sequenceOf(roomCode).incrementAndGet();
+    }
+
+    public void observeSequence(String roomCode, long seq) {
+        sequenceOf(roomCode).accumulateAndGet(seq, Math::max);
+    }
+
+    public long getSequence(String roomCode) {
+        AtomicLong sequence = sequences.get(roomCode);
+        return sequence == null ? 0 : sequence.get();
+    }
+
+    private AtomicLong sequenceOf(String roomCode) {
+        return sequences.computeIfAbsent(roomCode, code -> new AtomicLong());
+    }
+
+    // Origins of the publishers that send this repository's own changes
+    void addLocalOrigin(String origin) {
+        localOrigins.add(origin);
+    }
+
+    /** Whether events of this origin describe changes already made here, so replicas need not apply them. */
+    public boolean isLocalOrigin(String origin) {
+        return localOrigins.contains(origin);
     }
 
     // Current room and mode
     public String getCurrentRoomCode() {
-        return currentRoomCode;
+        return defaultSession.getCurrentRoomCode();
     }
 
     public void setCurrentRoomCode(String currentRoomCode) {
-        this.currentRoomCode = currentRoomCode;
+        defaultSession.setCurrentRoomCode(currentRoomCode);
     }
 
     public String getCurrentMode() {
-        return currentMode;
+        return defaultSession.getCurrentMode();
     }
 
     public void setCurrentMode(String currentMode) {
-        this.currentMode = currentMode;
+        defaultSession.setCurrentMode(currentMode);
     }
 
     // Taiga credential management
     public void setTaigaCredentials(String username, String password) {
-        this.taigaUsername = username;
-        this.taigaPassword = password;
+        defaultSession.setTaigaCredentials(username, password);
     }
 
     public String getTaigaUsername() {
-        return taigaUsername;
+        return defaultSession.getTaigaUsername();
     }
 
     public String getTaigaPassword() {
-        return taigaPassword;
+        return defaultSession.getTaigaPassword();
     }
 
     public void setTaigaProjectSlug(String slug) {
-        this.taigaProjectSlug = slug;
+        defaultSession.setTaigaProjectSlug(slug);
     }
 
     public String getTaigaProjectSlug() {
-        return taigaProjectSlug;
+        return defaultSession.getTaigaProjectSlug();
     }
 
     public void setTaigaAuthToken(String token) {
-        this.taigaAuthToken = token;
+        defaultSession.setTaigaAuthToken(token);
     }
 
     public String getTaigaAuthToken() {
-        return taigaAuthToken;
+        return defaultSession.getTaigaAuthToken();
     }
 
     public void setTaigaProjectId(int id) {
-        this.taigaProjectId = id;
+        defaultSession.setTaigaProjectId(id);
     }
 
     public int getTaigaProjectId() {
-        return taigaProjectId;
+        return defaultSession.getTaigaProjectId();
     }
 
     public void setTaigaSession(String username, String password, String slug, String token, int projectId) {
-        this.taigaUsername = username;
-        this.taigaPassword = password;
-        this.taigaProjectSlug = slug;
-        this.taigaAuthToken = token;
-        this.taigaProjectId = projectId;
+        defaultSession.setTaigaSession(username, password, slug, token, projectId);
     }
 
     // Room inner class
@@ -183,35 +645,91 @@ public class T1PlanItPokerRepository {
         private final String code;
         private final String name;
         private final String creator;
-        private final List<String> players;
+        private final T1PlayerRoster roster;
         private final Map<String, T1Card> stories;
-        private String scheduledTime;
+        private volatile String scheduledTime;
+        // Set by the repository; rooms built elsewhere keep their roster without presence events
+        volatile T1PresenceTracker presence;
+        // What readers see; replaced, never changed, on every change to the room
+        private final AtomicReference<T1RoomView> view = new AtomicReference<>(T1RoomView.EMPTY);
+        // Used under the room's lock only
+        private final T1StoryIndex index = new T1StoryIndex();
+        // When the room was last looked up or changed, for eviction
+        volatile long lastActivity = System.currentTimeMillis();
+        // Set under the room's lock when it is spilled; changes waiting for the lock look it up again
+        volatile boolean evicted;
 
         public Room(String code, String name, String creator) {
             this.code = code;
             this.name = name;
             this.creator = creator;
-            this.players = new ArrayList<>();
+            this.roster = new T1PlayerRoster();
             this.stories = new ConcurrentHashMap<>();
-            this.players.add(creator);
+            this.roster.setChangeListener(this::playersChanged);
+            this.roster.touch(creator, System.currentTimeMillis());
+        }
+
+        /** The room as it stands, without copying; compare versions to see whether anything changed. */
+        public T1RoomView getView() {
+            return view.get();
+        }
+
+        // The roster is read inside the update, so a retry after losing a race sees the latest players
+        private void playersChanged() {
+            view.updateAndGet(current -> current.withPlayers(roster.getPlayers()));
+        }
+
+        /** Re-indexes a card of this room that changed in place and publishes a new version. */
+        void storyChanged(T1Card story) {
+            synchronized (this) {
+                index.update(story);
+                view.updateAndGet(T1RoomView::touched);
+            }
         }
 
+        /** Starts a query over this room's stories. */
+        public T1StoryQuery findStories() {
+            return new T1StoryQuery(this);
+        }
+
+        List<T1Card> select(T1StoryQuery query) {
+            synchronized (this) {
+                return index.select(query);
+            }
+        }
+
+        // Safe from any thread: Swing, MQTT callbacks and imports all add players
         public void addPlayer(String playerName) {
-            if (!players.contains(playerName)) {
-                players.add(playerName);
+            T1PresenceTracker tracker = presence;
+            if (tracker != null) {
+                tracker.seen(this, playerName);
+            } else {
+                roster.touch(playerName, System.currentTimeMillis());
             }
         }
 
+        public T1PlayerRoster getRoster() {
+            return roster;
+        }
+
         public void addStory(T1Card story) {
-            stories.put(story.getId(), story);
+            synchronized (this) {
+                // Under the view's update, so the map and the view agree on which card holds the id
+                view.updateAndGet(current -> {
+                    stories.put(story.getId(), story);
+                    return current.withStory(story);
+                });
+                index.put(story);
+            }
         }
 
         public T1Card getStory(String storyId) {
             return stories.get(storyId);
         }
 
+        /** The stories in the order they were added; unmodifiable, and not copied. */
         public List<T1Card> getAllStories() {
-            return new ArrayList<>(stories.values());
+            return view.get().getStories();
         }
 
         public String getScheduledTime() {
@@ -234,8 +752,9 @@ public class T1PlanItPokerRepository {
             return creator;
         }
 
+        /** The players in the order they joined; unmodifiable, and not copied. */
         public List<String> getPlayers() {
-            return new ArrayList<>(players);
+            return view.get().getPlayers();
         }
     }
 }
@@ -1,19 +1,18 @@
 package hbaskar.one;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 import java.util.function.Consumer;
 
 import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.MqttCallback;
-import org.eclipse.paho.client.mqttv3.MqttClient;
-import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
-import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 
-import com.google.gson.Gson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,9 +22,47 @@ import hbaskar.T1Card;
  * T1PlanItPokerRepository - MQTT subscriber for receiving and processing game events
  * 
  * This class receives real-time game events from MQTT broker and updates the UI accordingly.
- * Filters events by current room, handles JSON deserialization, and provides callback mechanisms.
+ * Filters events by current room, decodes payloads with whichever {@link T1EventCodec}
+ * wrote them, and provides callback mechanisms.
  * Integrates repository operations with event publishing for seamless real-time updates.
  * 
+ * With the default ROOM topic scheme, room events are received on the
+ * per-room topics of the current room only (see {@link #switchRoom(String)}),
+ * so the broker drops other rooms' traffic before it reaches this client.
+ * 
+ * Any number of listeners may be registered per event type; each
+ * subscribeToXxx call returns a registration that unsubscribes when closed.
+ * Handlers run on a {@link T1RoomDispatchExecutor}, in order within a room,
+ * so a slow handler does not stall the MQTT callback thread.
+ * 
+ * Entering a room this client has not seen before loads the room's retained
+ * snapshot first (see {@link T1RoomSync}); the room's events are held until
+ * then, and those already contained in the snapshot are dropped.
+ * 
+ * Other clients' events are written into the local repository by a
+ * {@link T1ReplicaApplier}, which also drops redelivered duplicates before
+ * they reach any listener. The writes run on the room's dispatch stripe,
+ * like the listeners, so waiting for the disk never stalls MQTT delivery.
+ * 
+ * The broker URL, client options and QoS come from {@link T1MessagingConfig};
+ * a {@code loopback://} URL connects to an in-process {@link T1LoopbackBroker}.
+ * Every subscriber shares the process's one connection to the broker through
+ * {@link T1ConnectionManager}; its {@link T1ConnectionSupervisor} reconnects
+ * after the connection drops and restores every subscription.
+ * 
+ * The time from an event's timestamp to its first listener is recorded per
+ * event type in {@link T1LatencyMetrics}, corrected for other hosts' clock
+ * offsets.
+ * 
+ * Each subscriber follows one {@link T1SessionContext}: its current room
+ * decides which room's topics are subscribed and what CURRENT listeners
+ * hear, and the helper methods act as its logged-in user. Without one it
+ * follows the repository's default session, as the desktop client does.
+ * 
+ * In capture mode every received message is appended to a
+ * {@link T1TrafficCapture}, which {@link T1TrafficReplay} can play back later
+ * against another build.
+ * 
  * @author Daniel Miranda
  * @version 1.0
  * @since 2025
@@ -33,128 +70,276 @@ import hbaskar.T1Card;
 
 public class T1PlanItPokerSubscriber implements MqttCallback {
     private static final Logger logger = LoggerFactory.getLogger(T1PlanItPokerSubscriber.class);
-    private MqttClient mqttClient;
-    private final Gson gson;
-    private final String broker = "tcp://test.mosquitto.org:1883"; // Change to your MQTT broker
-    private final String clientId;
-    
-    // Event handlers
-    private Consumer<T1PlanItPokerPublisher.RoomEvent> roomCreatedHandler;
-    private Consumer<T1PlanItPokerPublisher.PlayerEvent> playerJoinedHandler;
-    private Consumer<T1PlanItPokerPublisher.StoryEvent> storyCreatedHandler;
-    private Consumer<T1PlanItPokerPublisher.ScoreEvent> storyStoredHandler;
-    private Consumer<T1PlanItPokerPublisher.RevealEvent> cardsRevealedHandler;
-    private Consumer<T1PlanItPokerPublisher.RoomsUpdatedEvent> roomsUpdatedHandler;
-    private Consumer<T1PlanItPokerPublisher.ModeEvent> modeChangedHandler;
+    private final T1ConnectionManager.Handle transport;
+    private final T1MessagingConfig config;
+    private final T1SessionContext session;
+    private String subscribedRoom;
+    
+    // Listeners per event type, and how many of them need each MQTT topic
+    private final T1EventDispatcher dispatcher;
+    private final T1RoomDispatchExecutor dispatchExecutor;
+    private final T1RoomSync roomSync;
+    private final T1ReplicaApplier replicaApplier;
+    private final Map<String, Integer> topicRefs = new HashMap<>();
+    private volatile T1TrafficCapture capture;
+    // Publishes the helpers' changes when the session has its own repository; created on first use
+    private T1PlanItPokerPublisher sessionPublisher;
     
+    /** A subscriber with the application's configuration, as installed with {@link T1PlanItPokerPublisher#configure}. */
     public T1PlanItPokerSubscriber() {
-        this.gson = new Gson();
-        this.clientId = "Subscriber_" + UUID.randomUUID().toString();
-        connectToBroker();
+        this(T1PlanItPokerPublisher.getDefaultConfig());
     }
     
-    private void connectToBroker() {
-        try {
-            MemoryPersistence persistence = new MemoryPersistence();
-            mqttClient = new MqttClient(broker, clientId, persistence);
-            mqttClient.setCallback(this);
-            
-            MqttConnectOptions connOpts = new MqttConnectOptions();
-            connOpts.setCleanSession(true);
-            connOpts.setAutomaticReconnect(true);
-            
-            logger.trace("Connecting to broker: " + broker);
-            mqttClient.connect(connOpts);
-            logger.trace("Subscriber connected");
-            
-        } catch (MqttException me) {
-            logger.error("Failed to connect to MQTT broker: " + me.getMessage());
-            me.printStackTrace();
+    public T1PlanItPokerSubscriber(T1MessagingConfig config) {
+        this(config, T1PlanItPokerRepository.getInstance().getDefaultSession());
+    }
+    
+    /** A subscriber acting for one session, for example one of many users on a server. */
+    public T1PlanItPokerSubscriber(T1MessagingConfig config, T1SessionContext session) {
+        this.config = config;
+        this.session = session;
+        this.dispatchExecutor = config.getDispatchThreads() > 0
+                ? new T1RoomDispatchExecutor(config.getDispatchThreads(), config.getDispatchWarnDepth())
+                : null;
+        this.dispatcher = new T1EventDispatcher(this::getCurrentRoomCode, dispatchExecutor);
+        if (config.isLatencyMetrics()) {
+            dispatcher.setDeliveryObserver(T1LatencyMetrics.getInstance()::recordDelivered);
+        }
+        this.roomSync = new T1RoomSync(dispatcher, getRepository(), config.getSnapshotWaitMillis(),
+                dispatchExecutor);
+        dispatcher.addInterceptor(roomSync);
+        if (config.isReplicateToRepository()) {
+            this.replicaApplier = new T1ReplicaApplier(getRepository(), config.getReplayWindowSize(), dispatchExecutor);
+            dispatcher.addInterceptor(replicaApplier);
+        } else {
+            this.replicaApplier = null;
+        }
+        if (config.getCaptureFile() != null) {
+            try {
+                startCapture(config.getCaptureFile());
+            } catch (IOException e) {
+                logger.error("Cannot capture traffic to {}: {}", config.getCaptureFile(), e.getMessage());
+            }
         }
+        this.transport = T1ConnectionManager.acquire(config);
+        transport.setCallback(this);
+        logger.trace("Subscriber using connection {}", transport.getClientId());
     }
     
     // Get repository and current room info
     private T1PlanItPokerRepository getRepository() {
-        return T1PlanItPokerRepository.getInstance();
+        return session.getRepository();
     }
     
     private String getCurrentRoomCode() {
-        return getRepository().getCurrentRoomCode();
+        return session.getCurrentRoomCode();
     }
     
     private String getCurrentPlayerName() {
-        return getRepository().getLoggedInUser();
+        return session.getLoggedInUser();
+    }
+    
+    public T1SessionContext getSession() {
+        return session;
     }
     
     // Subscribe to room creation events
-    public void subscribeToRoomCreated(Consumer<T1PlanItPokerPublisher.RoomEvent> callback) {
-        this.roomCreatedHandler = callback;
-        subscribeToTopic(T1PlanItPokerPublisher.TOPIC_ROOM_CREATED);
+    public T1EventDispatcher.Registration subscribeToRoomCreated(Consumer<T1PlanItPokerPublisher.RoomEvent> callback) {
+        return listen(T1EventType.ROOM_CREATED, T1EventDispatcher.RoomFilter.ANY, callback);
+    }
+    
+    // Subscribe to player joined events in the current room
+    public T1EventDispatcher.Registration subscribeToPlayerJoined(Consumer<T1PlanItPokerPublisher.PlayerEvent> callback) {
+        return listen(T1EventType.PLAYER_JOINED, T1EventDispatcher.RoomFilter.CURRENT, callback);
+    }
+    
+    // Subscribe to player joined events in one room (null for every room)
+    public T1EventDispatcher.Registration subscribeToPlayerJoined(String roomCode, Consumer<T1PlanItPokerPublisher.PlayerEvent> callback) {
+        return listen(T1EventType.PLAYER_JOINED, T1EventDispatcher.RoomFilter.of(roomCode), callback);
     }
     
-    // Subscribe to player joined events
-    public void subscribeToPlayerJoined(Consumer<T1PlanItPokerPublisher.PlayerEvent> callback) {
-        this.playerJoinedHandler = callback;
-        subscribeToTopic(T1PlanItPokerPublisher.TOPIC_PLAYER_JOINED);
+    // Subscribe to story creation events in the current room
+    public T1EventDispatcher.Registration subscribeToStoryCreated(Consumer<T1PlanItPokerPublisher.StoryEvent> callback) {
+        return listen(T1EventType.STORY_CREATED, T1EventDispatcher.RoomFilter.CURRENT, callback);
     }
     
-    // Subscribe to story creation events
-    public void subscribeToStoryCreated(Consumer<T1PlanItPokerPublisher.StoryEvent> callback) {
-        this.storyCreatedHandler = callback;
-        subscribeToTopic(T1PlanItPokerPublisher.TOPIC_STORY_CREATED);
+    // Subscribe to story creation events in one room (null for every room)
+    public T1EventDispatcher.Registration subscribeToStoryCreated(String roomCode, Consumer<T1PlanItPokerPublisher.StoryEvent> callback) {
+        return listen(T1EventType.STORY_CREATED, T1EventDispatcher.RoomFilter.of(roomCode), callback);
     }
     
-    // Subscribe to scoring events
-    public void subscribeToStoryScored(Consumer<T1PlanItPokerPublisher.ScoreEvent> callback) {
-        this.storyStoredHandler = callback;
-        subscribeToTopic(T1PlanItPokerPublisher.TOPIC_STORY_SCORED);
+    // Subscribe to scoring events in the current room
+    public T1EventDispatcher.Registration subscribeToStoryScored(Consumer<T1PlanItPokerPublisher.ScoreEvent> callback) {
+        return listen(T1EventType.STORY_SCORED, T1EventDispatcher.RoomFilter.CURRENT, callback);
     }
     
-    // Subscribe to cards revealed events
-    public void subscribeToCardsRevealed(Consumer<T1PlanItPokerPublisher.RevealEvent> callback) {
-        this.cardsRevealedHandler = callback;
-        subscribeToTopic(T1PlanItPokerPublisher.TOPIC_CARDS_REVEALED);
+    // Subscribe to scoring events in one room (null for every room)
+    public T1EventDispatcher.Registration subscribeToStoryScored(String roomCode, Consumer<T1PlanItPokerPublisher.ScoreEvent> callback) {
+        return listen(T1EventType.STORY_SCORED, T1EventDispatcher.RoomFilter.of(roomCode), callback);
+    }
+    
+    // Subscribe to cards revealed events in the current room
+    public T1EventDispatcher.Registration subscribeToCardsRevealed(Consumer<T1PlanItPokerPublisher.RevealEvent> callback) {
+        return listen(T1EventType.CARDS_REVEALED, T1EventDispatcher.RoomFilter.CURRENT, callback);
+    }
+    
+    // Subscribe to cards revealed events in one room (null for every room)
+    public T1EventDispatcher.Registration subscribeToCardsRevealed(String roomCode, Consumer<T1PlanItPokerPublisher.RevealEvent> callback) {
+        return listen(T1EventType.CARDS_REVEALED, T1EventDispatcher.RoomFilter.of(roomCode), callback);
     }
     
     // Subscribe to rooms updated events
-    public void subscribeToRoomsUpdated(Consumer<T1PlanItPokerPublisher.RoomsUpdatedEvent> callback) {
-        this.roomsUpdatedHandler = callback;
-        subscribeToTopic(T1PlanItPokerPublisher.TOPIC_ROOMS_UPDATED);
+    public T1EventDispatcher.Registration subscribeToRoomsUpdated(Consumer<T1PlanItPokerPublisher.RoomsUpdatedEvent> callback) {
+        return listen(T1EventType.ROOMS_UPDATED, T1EventDispatcher.RoomFilter.ANY, callback);
+    }
+    
+    // Subscribe to mode changed events in the current room
+    public T1EventDispatcher.Registration subscribeToModeChanged(Consumer<T1PlanItPokerPublisher.ModeEvent> callback) {
+        return listen(T1EventType.MODE_CHANGED, T1EventDispatcher.RoomFilter.CURRENT, callback);
     }
     
-    // Subscribe to mode changed events
-    public void subscribeToModeChanged(Consumer<T1PlanItPokerPublisher.ModeEvent> callback) {
-        this.modeChangedHandler = callback;
-        subscribeToTopic(T1PlanItPokerPublisher.TOPIC_MODE_CHANGED);
+    // Subscribe to mode changed events in one room (null for every room)
+    public T1EventDispatcher.Registration subscribeToModeChanged(String roomCode, Consumer<T1PlanItPokerPublisher.ModeEvent> callback) {
+        return listen(T1EventType.MODE_CHANGED, T1EventDispatcher.RoomFilter.of(roomCode), callback);
+    }
+    
+    // Subscribe to snapshots loaded into the repository for the current room
+    public T1EventDispatcher.Registration subscribeToRoomSnapshot(Consumer<T1PlanItPokerPublisher.RoomSnapshotEvent> callback) {
+        return listen(T1EventType.ROOM_SNAPSHOT, T1EventDispatcher.RoomFilter.CURRENT, callback);
     }
     
     // Subscribe to all events in current room
-    public void subscribeToRoomEvents(RoomEventHandler handler) {
-        subscribeToPlayerJoined(handler::onPlayerJoined);
-        subscribeToStoryCreated(handler::onStoryCreated);
-        subscribeToStoryScored(handler::onStoryScored);
-        subscribeToCardsRevealed(handler::onCardsRevealed);
-        subscribeToModeChanged(handler::onModeChanged);
+    public T1EventDispatcher.Registration subscribeToRoomEvents(RoomEventHandler handler) {
+        List<T1EventDispatcher.Registration> registrations = List.of(
+                subscribeToPlayerJoined(handler::onPlayerJoined),
+                subscribeToStoryCreated(handler::onStoryCreated),
+                subscribeToStoryScored(handler::onStoryScored),
+                subscribeToCardsRevealed(handler::onCardsRevealed),
+                subscribeToModeChanged(handler::onModeChanged));
+        return () -> registrations.forEach(T1EventDispatcher.Registration::close);
+    }
+    
+    private <T> T1EventDispatcher.Registration listen(T1EventType type, T1EventDispatcher.RoomFilter filter, Consumer<T> callback) {
+        T1EventDispatcher.Registration registration = dispatcher.addListener(type, filter, callback);
+        List<String> topics = topicsFor(type, filter);
+        for (String topic : topics) {
+            acquireTopic(topic);
+        }
+        return () -> {
+            registration.close();
+            for (String topic : topics) {
+                releaseTopic(topic);
+            }
+        };
+    }
+    
+    // MQTT topics a listener needs beyond the current room's own subscription
+    private List<String> topicsFor(T1EventType type, T1EventDispatcher.RoomFilter filter) {
+        List<String> topics = new ArrayList<>();
+        if (!type.isRoomScoped() || config.getSubscribeTopicScheme() == T1Topics.Scheme.LEGACY) {
+            topics.add(type.getLegacyTopic());
+            if (type == T1EventType.STORY_SCORED) {
+                topics.add(T1EventType.STORY_SCORED_BATCH.getLegacyTopic());
+            }
+        } else if (filter.isCurrent()) {
+            if (subscribedRoom == null && getCurrentRoomCode() != null) {
+                switchRoom(getCurrentRoomCode());
+            }
+        } else if (filter.getRoomCode() != null) {
+            topics.add(T1Topics.roomFilter(filter.getRoomCode()));
+        } else {
+            // Every room: one level wildcard in place of the room code
+            topics.add(T1Topics.ROOM_PREFIX + "+/" + type.getRoomSuffix());
+            if (type == T1EventType.STORY_SCORED) {
+                topics.add(T1Topics.ROOM_PREFIX + "+/" + T1EventType.STORY_SCORED_BATCH.getRoomSuffix());
+            }
+        }
+        return topics;
+    }
+    
+    private synchronized void acquireTopic(String topic) {
+        int refs = topicRefs.merge(topic, 1, Integer::sum);
+        if (refs == 1) {
+            subscribeToTopic(topic);
+        }
+    }
+    
+    private synchronized void releaseTopic(String topic) {
+        Integer refs = topicRefs.get(topic);
+        if (refs == null) {
+            return;
+        }
+        if (refs == 1) {
+            topicRefs.remove(topic);
+            unsubscribeFromTopic(topic);
+        } else {
+            topicRefs.put(topic, refs - 1);
+        }
+    }
+    
+    /**
+     * Moves the per-room subscription to another room. Called when the user
+     * switches rooms. With the LEGACY topic scheme every room's events arrive
+     * on the global topics anyway, so only the room's snapshot topic moves.
+     */
+    public synchronized void switchRoom(String roomCode) {
+        if (roomCode != null && roomCode.equals(subscribedRoom)) {
+            return;
+        }
+        if (subscribedRoom != null) {
+            roomSync.end(subscribedRoom);
+            releaseTopic(roomSubscription(subscribedRoom));
+        }
+        subscribedRoom = roomCode;
+        if (roomCode != null) {
+            roomSync.begin(roomCode);
+            acquireTopic(roomSubscription(roomCode));
+        }
+    }
+    
+    private String roomSubscription(String roomCode) {
+        if (config.getSubscribeTopicScheme() == T1Topics.Scheme.LEGACY) {
+            return T1Topics.roomTopic(roomCode, T1EventType.ROOM_SNAPSHOT);
+        }
+        return T1Topics.roomFilter(roomCode);
+    }
+    
+    private void unsubscribeFromTopic(String topic) {
+        try {
+            transport.unsubscribe(topic);
+            logger.trace("Unsubscribed from topic: " + topic);
+        } catch (MqttException me) {
+            logger.error("Failed to unsubscribe from topic " + topic + ": " + me.getMessage());
+        }
     }
     
     private void subscribeToTopic(String topic) {
         try {
-            if (mqttClient != null && mqttClient.isConnected()) {
-                mqttClient.subscribe(topic, 1); // QoS 1
-                logger.trace("Subscribed to topic: " + topic);
-            }
+            // Remembered by the supervisor and subscribed again after a reconnect
+            transport.subscribe(topic, config.getQos());
+            logger.trace("Subscribed to topic: " + topic);
         } catch (MqttException me) {
-            logger.error("Failed to subscribe to topic " + topic + ": " + me.getMessage());
-            me.printStackTrace();
+            logger.error("Failed to subscribe to topic " + topic + ": " + me.getMessage(), me);
+        }
+    }
+    
+    // The application-wide publisher for the default repository, otherwise one bound to this session's
+    private synchronized T1PlanItPokerPublisher publisher() {
+        if (getRepository() == T1PlanItPokerRepository.getInstance()) {
+            return T1PlanItPokerPublisher.getInstance();
         }
+        if (sessionPublisher == null) {
+            sessionPublisher = T1PlanItPokerPublisher.create(config, session);
+        }
+        return sessionPublisher;
     }
     
     // Helper methods for common operations
     public String createRoom(String roomName, String creatorName) {
-        T1PlanItPokerRepository repo = getRepository();
-        String roomCode = repo.createRoom(roomName, creatorName);
+        String roomCode = session.createRoom(roomName, creatorName);
+        switchRoom(roomCode);
         
-        T1PlanItPokerPublisher publisher = T1PlanItPokerPublisher.getInstance();
+        T1PlanItPokerPublisher publisher = publisher();
         publisher.publishRoomCreated(roomCode, roomName, creatorName);
         publisher.publishRoomsUpdated();
         
@@ -163,11 +348,17 @@ public class T1PlanItPokerSubscriber implements MqttCallback {
     
     public boolean joinRoom(String roomCode, String playerName) {
         T1PlanItPokerRepository repo = getRepository();
+        // A room created elsewhere is only known here once its snapshot has loaded
+        switchRoom(roomCode);
+        roomSync.await(roomCode, config.getSnapshotWaitMillis());
         boolean success = repo.joinRoom(roomCode, playerName);
-        if (success) {
-            repo.setLoggedInUser(playerName);
+        if (!success) {
+            switchRoom(getCurrentRoomCode());
+        } else {
+            session.setLoggedInUser(playerName);
+            session.setCurrentRoomCode(roomCode);
             
-            T1PlanItPokerPublisher publisher = T1PlanItPokerPublisher.getInstance();
+            T1PlanItPokerPublisher publisher = publisher();
             publisher.publishPlayerJoined(roomCode, playerName);
         }
         return success;
@@ -182,7 +373,7 @@ public class T1PlanItPokerSubscriber implements MqttCallback {
             T1PlanItPokerRepository repo = getRepository();
             repo.updateStoryScore(currentRoom, storyId, currentPlayer, score);
             
-            T1PlanItPokerPublisher publisher = T1PlanItPokerPublisher.getInstance();
+            T1PlanItPokerPublisher publisher = publisher();
             publisher.publishStoryScored(currentRoom, storyId, currentPlayer, score);
         }
     }
@@ -196,7 +387,7 @@ public class T1PlanItPokerSubscriber implements MqttCallback {
             T1PlanItPokerRepository.Room room = repo.getRoom(currentRoom);
             T1Card story = room.getStory(storyId);
             
-            T1PlanItPokerPublisher publisher = T1PlanItPokerPublisher.getInstance();
+            T1PlanItPokerPublisher publisher = publisher();
             publisher.publishCardsRevealed(currentRoom, storyId, story.getAverageScore());
         }
     }
@@ -204,10 +395,9 @@ public class T1PlanItPokerSubscriber implements MqttCallback {
     public void changeMode(String newMode) {
         String currentRoom = getCurrentRoomCode();
         if (currentRoom != null) {
-            T1PlanItPokerRepository repo = getRepository();
-            repo.setCurrentMode(newMode);
+            session.setCurrentMode(newMode);
             
-            T1PlanItPokerPublisher publisher = T1PlanItPokerPublisher.getInstance();
+            T1PlanItPokerPublisher publisher = publisher();
             publisher.publishModeChanged(currentRoom, newMode);
         }
     }
@@ -239,88 +429,86 @@ public class T1PlanItPokerSubscriber implements MqttCallback {
     // MQTT Callback methods
     @Override
     public void connectionLost(Throwable cause) {
-        logger.warn("Connection lost: " + cause.getMessage());
-        // Attempt to reconnect
-        connectToBroker();
+        // The supervisor reconnects with backoff and resubscribes; nothing to do here
+        logger.debug("Connection lost: " + cause.getMessage());
     }
     
     @Override
     public void messageArrived(String topic, MqttMessage message) throws Exception {
-        String messageStr = new String(message.getPayload());
-        logger.trace("Received message on topic " + topic + ": " + messageStr);
+        T1TrafficCapture target = capture;
+        if (target != null) {
+            target.record(topic, message.getPayload(), message.getQos(), message.isRetained());
+        }
+        T1EventType type = T1Topics.eventTypeOf(topic);
+        if (type == null || !dispatcher.wants(type)) {
+            return;
+        }
+        byte[] payload = message.getPayload();
+        if (logger.isTraceEnabled()) {
+            logger.trace("Received message on topic " + topic + ": " + T1EventCodecs.describe(payload));
+        }
         
         try {
-            switch (topic) {
-                case T1PlanItPokerPublisher.TOPIC_ROOM_CREATED:
-                    if (roomCreatedHandler != null) {
-                        T1PlanItPokerPublisher.RoomEvent roomEvent = gson.fromJson(messageStr, T1PlanItPokerPublisher.RoomEvent.class);
-                        roomCreatedHandler.accept(roomEvent);
-                    }
-                    break;
-                    
-                case T1PlanItPokerPublisher.TOPIC_PLAYER_JOINED:
-                    if (playerJoinedHandler != null) {
-                        T1PlanItPokerPublisher.PlayerEvent playerEvent = gson.fromJson(messageStr, T1PlanItPokerPublisher.PlayerEvent.class);
-                        // Filter by current room
-                        if (getCurrentRoomCode() == null || getCurrentRoomCode().equals(playerEvent.roomCode)) {
-                            playerJoinedHandler.accept(playerEvent);
-                        }
-                    }
-                    break;
-                    
-                case T1PlanItPokerPublisher.TOPIC_STORY_CREATED:
-                    if (storyCreatedHandler != null) {
-                        T1PlanItPokerPublisher.StoryEvent storyEvent = gson.fromJson(messageStr, T1PlanItPokerPublisher.StoryEvent.class);
-                        // Filter by current room
-                        if (getCurrentRoomCode() == null || getCurrentRoomCode().equals(storyEvent.roomCode)) {
-                            storyCreatedHandler.accept(storyEvent);
-                        }
-                    }
-                    break;
-                    
-                case T1PlanItPokerPublisher.TOPIC_STORY_SCORED:
-                    if (storyStoredHandler != null) {
-                        T1PlanItPokerPublisher.ScoreEvent scoreEvent = gson.fromJson(messageStr, T1PlanItPokerPublisher.ScoreEvent.class);
-                        // Filter by current room
-                        if (getCurrentRoomCode() == null || getCurrentRoomCode().equals(scoreEvent.roomCode)) {
-                            storyStoredHandler.accept(scoreEvent);
-                        }
-                    }
-                    break;
-                    
-                case T1PlanItPokerPublisher.TOPIC_CARDS_REVEALED:
-                    if (cardsRevealedHandler != null) {
-                        T1PlanItPokerPublisher.RevealEvent revealEvent = gson.fromJson(messageStr, T1PlanItPokerPublisher.RevealEvent.class);
-                        // Filter by current room
-                        if (getCurrentRoomCode() == null || getCurrentRoomCode().equals(revealEvent.roomCode)) {
-                            cardsRevealedHandler.accept(revealEvent);
-                        }
-                    }
-                    break;
-                    
-                case T1PlanItPokerPublisher.TOPIC_ROOMS_UPDATED:
-                    if (roomsUpdatedHandler != null) {
-                        T1PlanItPokerPublisher.RoomsUpdatedEvent roomsEvent = gson.fromJson(messageStr, T1PlanItPokerPublisher.RoomsUpdatedEvent.class);
-                        roomsUpdatedHandler.accept(roomsEvent);
-                    }
-                    break;
-                    
-                case T1PlanItPokerPublisher.TOPIC_MODE_CHANGED:
-                    if (modeChangedHandler != null) {
-                        T1PlanItPokerPublisher.ModeEvent modeEvent = gson.fromJson(messageStr, T1PlanItPokerPublisher.ModeEvent.class);
-                        // Filter by current room
-                        if (getCurrentRoomCode() == null || getCurrentRoomCode().equals(modeEvent.roomCode)) {
-                            modeChangedHandler.accept(modeEvent);
-                        }
-                    }
-                    break;
-            }
+            dispatcher.dispatch(type, topic, payload);
         } catch (Exception e) {
-            logger.error("Error processing message: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error processing message: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Starts writing every received message to a new capture file, replacing
+     * any capture already running.
+     */
+    public void startCapture(Path file) throws IOException {
+        T1TrafficCapture previous = capture;
+        capture = T1TrafficCapture.create(file);
+        if (previous != null) {
+            previous.close();
+        }
+        logger.info("Capturing traffic to {}", file);
+    }
+    
+    /** Ends the running capture, if any, and flushes it to disk. */
+    public void stopCapture() {
+        T1TrafficCapture current = capture;
+        capture = null;
+        if (current != null) {
+            try {
+                current.close();
+                logger.info("Captured {} messages to {}", current.getCount(), current.getPath());
+            } catch (IOException e) {
+                logger.error("Failed to close capture {}: {}", current.getPath(), e.getMessage());
+            }
         }
     }
     
+    public T1TrafficCapture getCapture() {
+        return capture;
+    }
+    
+    /** The supervised connection; observe it with {@link T1ConnectionSupervisor#addStateListener}. */
+    public T1ConnectionSupervisor getTransport() {
+        return transport.getSupervisor();
+    }
+    
+    // Applied/duplicate counters; null when replication is turned off
+    public T1ReplicaApplier getReplicaApplier() {
+        return replicaApplier;
+    }
+    
+    public T1RoomSync getRoomSync() {
+        return roomSync;
+    }
+    
+    public T1EventDispatcher getDispatcher() {
+        return dispatcher;
+    }
+    
+    // Queue-depth and handler-latency metrics; null when handlers run inline
+    public T1RoomDispatchExecutor getDispatchExecutor() {
+        return dispatchExecutor;
+    }
+    
     @Override
     public void deliveryComplete(IMqttDeliveryToken token) {
         // Not used for subscribers
@@ -328,11 +516,20 @@ public class T1PlanItPokerSubscriber implements MqttCallback {
     
     // Disconnect from broker
     public void disconnect() {
-        try {
-            if (mqttClient != null && mqttClient.isConnected()) {
-                mqttClient.disconnect();
-                logger.trace("Subscriber disconnected");
+        stopCapture();
+        synchronized (this) {
+            if (sessionPublisher != null) {
+                sessionPublisher.disconnect();
+                sessionPublisher = null;
             }
+        }
+        roomSync.close();
+        if (dispatchExecutor != null) {
+            dispatchExecutor.shutdown(5000);
+        }
+        try {
+            transport.disconnect();
+            logger.trace("Subscriber disconnected");
         } catch (MqttException me) {
             logger.error("Failed to disconnect: " + me.getMessage());
         }
@@ -0,0 +1,117 @@
+package hbaskar.one;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * T1PlayerRoster - the players of a room, in the order they joined
+ *
+ * Membership is a hash lookup, so the Swing thread, the MQTT callback and a
+ * Taiga import can add the same player at once without scanning a list or
+ * taking a lock. Each player also carries the time they were last seen,
+ * which {@link T1PresenceTracker} uses to drop players who went quiet.
+ *
+ * Join order is kept in a skip list keyed by a join counter, so listing the
+ * players never needs sorting. A player who leaves and comes back is listed
+ * at the end. The owning room is told of every arrival and departure so it
+ * can republish its {@link T1RoomView}.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1PlayerRoster {
+
+    private static final class Entry {
+        final long order;
+        volatile long lastSeenMillis;
+
+        Entry(long order, long lastSeenMillis) {
+            this.order = order;
+            this.lastSeenMillis = lastSeenMillis;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, String> joinOrder = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextOrder = new AtomicLong();
+    // Called after every arrival and departure
+    private volatile Runnable onChange;
+
+    void setChangeListener(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    private void changed() {
+        Runnable listener = onChange;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Marks the player as seen now, adding them if they are not on the
+     * roster. Returns true if they were added.
+     */
+    public boolean touch(String player, long nowMillis) {
+        Entry entry = entries.get(player);
+        if (entry != null) {
+            entry.lastSeenMillis = nowMillis;
+            return false;
+        }
+        Entry added = new Entry(nextOrder.getAndIncrement(), nowMillis);
+        entry = entries.putIfAbsent(player, added);
+        if (entry != null) {
+            // Someone else added them first
+            entry.lastSeenMillis = nowMillis;
+            return false;
+        }
+        joinOrder.put(added.order, player);
+        changed();
+        return true;
+    }
+
+    public boolean contains(String player) {
+        return entries.containsKey(player);
+    }
+
+    /** Removes the player; returns false if they were not on the roster. */
+    public boolean remove(String player) {
+        Entry entry = entries.remove(player);
+        if (entry == null) {
+            return false;
+        }
+        joinOrder.remove(entry.order);
+        changed();
+        return true;
+    }
+
+    /** Removes the player only if they have not been seen since the cutoff. */
+    boolean removeIfIdle(String player, long cutoffMillis) {
+        Entry entry = entries.get(player);
+        if (entry == null || entry.lastSeenMillis > cutoffMillis || !entries.remove(player, entry)) {
+            return false;
+        }
+        joinOrder.remove(entry.order);
+        changed();
+        return true;
+    }
+
+    /** When the player was last seen, in epoch milliseconds, or -1 if they are not on the roster. */
+    public long getLastSeen(String player) {
+        Entry entry = entries.get(player);
+        return entry == null ? -1 : entry.lastSeenMillis;
+    }
+
+    /** The players in join order. */
+    public List<String> getPlayers() {
+        return new ArrayList<>(joinOrder.values());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
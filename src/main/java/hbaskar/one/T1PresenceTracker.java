@@ -0,0 +1,208 @@
+package hbaskar.one;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * T1PresenceTracker - who is in which room, and who has gone quiet
+ *
+ * Every sign of life from a player (joining, voting) marks them as seen on
+ * their room's {@link T1PlayerRoster}. With a timeout set, a player not seen
+ * for that long is taken off the roster. Expiry runs on one
+ * {@link T1TimingWheel} for all rooms: each present player has at most one
+ * pending timeout, which on firing either removes the player or, if they
+ * were seen in the meantime, waits for the rest of their new deadline. Being
+ * seen therefore costs a hash lookup and a volatile write, however many rooms
+ * and players there are.
+ *
+ * Listeners hear about every arrival and departure as a {@link Change}, so
+ * a player list can be patched instead of rebuilt. They are called on the
+ * thread that saw the player or on the wheel thread; UI listeners hand over
+ * to the Swing thread themselves.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1PresenceTracker implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(T1PresenceTracker.class);
+
+    // A second per tick and a turn of about 17 minutes suit timeouts of minutes
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 1024;
+
+    /** What happened to a player. */
+    public enum Kind {
+        JOINED,
+        LEFT
+    }
+
+    /** One arrival or departure. */
+    public static final class Change {
+        public final String roomCode;
+        public final String playerName;
+        public final Kind kind;
+        public final long timestamp;
+
+        Change(String roomCode, String playerName, Kind kind, long timestamp) {
+            this.roomCode = roomCode;
+            this.playerName = playerName;
+            this.kind = kind;
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public String toString() {
+            return playerName + " " + kind + " " + roomCode;
+        }
+    }
+
+    // Player of a room, the unit of expiry
+    private static final class Key {
+        final String roomCode;
+        final String player;
+
+        Key(String roomCode, String player) {
+            this.roomCode = roomCode;
+            this.player = player;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return roomCode.equals(other.roomCode) && player.equals(other.player);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(roomCode, player);
+        }
+    }
+
+    /** Takes a player who went quiet off their room, the way the owner records a departure. */
+    interface Expirer {
+        /** Whether the player was still idle since {@code idleBefore} and has left. */
+        boolean expire(T1PlanItPokerRepository.Room room, String player, long idleBefore);
+    }
+
+    private final Function<String, T1PlanItPokerRepository.Room> rooms;
+    private final Expirer expirer;
+    private final CopyOnWriteArrayList<Consumer<Change>> listeners = new CopyOnWriteArrayList<>();
+    // Players with a pending timeout
+    private final Set<Key> scheduled = ConcurrentHashMap.newKeySet();
+    private volatile long timeoutMillis;
+    private volatile T1TimingWheel<Key> wheel;
+
+    T1PresenceTracker(Function<String, T1PlanItPokerRepository.Room> rooms, Expirer expirer) {
+        this.rooms = rooms;
+        this.expirer = expirer;
+    }
+
+    public T1EventDispatcher.Registration addListener(Consumer<Change> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * How long a player may stay silent before leaving the roster; 0, the
+     * default, keeps players until they are removed explicitly.
+     */
+    public synchronized void setTimeoutMillis(long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("Presence timeout must not be negative: " + timeoutMillis);
+        }
+        this.timeoutMillis = timeoutMillis;
+        if (timeoutMillis > 0 && wheel == null) {
+            wheel = new T1TimingWheel<>(Math.min(TICK_MILLIS, timeoutMillis), WHEEL_SIZE, this::check,
+                    "planit-presence");
+        }
+    }
+
+    /** Marks the player as present in the room now. */
+    public void seen(T1PlanItPokerRepository.Room room, String player) {
+        long now = System.currentTimeMillis();
+        if (room.getRoster().touch(player, now)) {
+            fire(new Change(room.getCode(), player, Kind.JOINED, now));
+        }
+        T1TimingWheel<Key> expiry = wheel;
+        if (expiry != null && timeoutMillis > 0) {
+            Key key = new Key(room.getCode(), player);
+            if (scheduled.add(key)) {
+                expiry.schedule(key, timeoutMillis);
+            }
+        }
+    }
+
+    /** Takes the player off the room's roster, for example when they log out. */
+    public void left(T1PlanItPokerRepository.Room room, String player) {
+        if (room.getRoster().remove(player)) {
+            fire(new Change(room.getCode(), player, Kind.LEFT, System.currentTimeMillis()));
+        }
+    }
+
+    /** Takes the player off the roster if they have not been seen since {@code idleBefore}; the caller holds the room's lock. */
+    boolean expireIfIdle(T1PlanItPokerRepository.Room room, String player, long idleBefore) {
+        if (!room.getRoster().removeIfIdle(player, idleBefore)) {
+            return false;
+        }
+        fire(new Change(room.getCode(), player, Kind.LEFT, System.currentTimeMillis()));
+        return true;
+    }
+
+    // Runs on the wheel thread when a player's timeout fires
+    private void check(Key key) {
+        T1PlanItPokerRepository.Room room = rooms.apply(key.roomCode);
+        long timeout = timeoutMillis;
+        // Unmark first: a player seen from here on schedules their own timeout
+        scheduled.remove(key);
+        if (room == null || timeout == 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long lastSeen = room.getRoster().getLastSeen(key.player);
+        if (lastSeen < 0) {
+            return;
+        }
+        if (expirer.expire(room, key.player, now - timeout)) {
+            return;
+        }
+        if (scheduled.add(key)) {
+            T1TimingWheel<Key> expiry = wheel;
+            if (expiry != null) {
+                expiry.schedule(key, lastSeen + timeout - now);
+            }
+        }
+    }
+
+    private void fire(Change change) {
+        for (Consumer<Change> listener : listeners) {
+            try {
+                listener.accept(change);
+            } catch (RuntimeException e) {
+                logger.error("Presence listener failed on {}: {}", change, e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (wheel != null) {
+            wheel.close();
+            wheel = null;
+        }
+    }
+}
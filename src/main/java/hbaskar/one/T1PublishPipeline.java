@@ -0,0 +1,382 @@
+package hbaskar.one;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * T1PublishPipeline - bounded, asynchronous publish queue
+ *
+ * Decouples the thread that asks for a publish (usually the Swing EDT or the
+ * MQTT callback thread) from the broker round-trip. Messages are held in a
+ * bounded in-memory queue and handed to the {@link Sink} by a single worker
+ * thread, which keeps at most {@code maxInflight} unacknowledged publishes
+ * outstanding. Each submission returns a future that completes when the
+ * broker acknowledges the message. Pipelines sending over one connection
+ * can also share a window: each send then takes a slot of it as well, so
+ * together they stay within what the client accepts.
+ *
+ * There are two lanes, each bounded by the capacity: messages of the HIGH
+ * lane are always taken before those of the NORMAL lane, so control events
+ * overtake a deep backlog of votes. A message submitted with a conflation key
+ * replaces a queued message with the same key in place; the replaced message
+ * is never sent, and both submitters get the future of the one that is.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1PublishPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(T1PublishPipeline.class);
+
+    /** What {@link #submit} does when the queue is full. */
+    public enum BackpressurePolicy {
+        /** Wait on the caller's thread until there is room. */
+        BLOCK,
+        /**
+         * Evict the oldest queued NORMAL message and fail its future. HIGH
+         * messages are never evicted: a HIGH message finding its lane full
+         * is rejected instead.
+         */
+        DROP_OLDEST,
+        /** Reject the new message immediately. */
+        FAIL_FAST
+    }
+
+    /** Destination of queued messages, normally an MQTT async client. */
+    public interface Sink {
+        void send(String topic, byte[] payload, int qos, boolean retained, IMqttActionListener listener)
+                throws MqttException;
+    }
+
+    private static final class Pending {
+        final String topic;
+        final String conflationKey;
+        // Replaced when a newer message with the same key arrives; guarded by the pipeline lock
+        byte[] payload;
+        int qos;
+        boolean retained;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Pending(String topic, byte[] payload, int qos, boolean retained, String conflationKey) {
+            this.topic = topic;
+            this.payload = payload;
+            this.qos = qos;
+            this.retained = retained;
+            this.conflationKey = conflationKey;
+        }
+    }
+
+    private final Sink sink;
+    private final int capacity;
+    private final BackpressurePolicy policy;
+    private final Semaphore inflight;
+    private final int maxInflight;
+    // Shared with other senders on the same connection; null if there is none
+    private final Semaphore sharedWindow;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final ArrayDeque<Pending> queue;
+    private final ArrayDeque<Pending> priorityQueue;
+    private final Map<String, Pending> conflatable = new HashMap<>();
+    private boolean closed;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong conflated = new AtomicLong();
+
+    private final Thread worker;
+
+    public T1PublishPipeline(Sink sink, int capacity, int maxInflight, BackpressurePolicy policy) {
+        this(sink, capacity, maxInflight, policy, null);
+    }
+
+    /**
+     * @param sharedWindow inflight slots of the connection, also taken by its
+     *                     other senders; null to rely on {@code maxInflight} alone
+     */
+    public T1PublishPipeline(Sink sink, int capacity, int maxInflight, BackpressurePolicy policy,
+            Semaphore sharedWindow) {
+        this.sink = sink;
+        this.sharedWindow = sharedWindow;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.maxInflight = maxInflight;
+        this.inflight = new Semaphore(maxInflight);
+        this.queue = new ArrayDeque<>(capacity);
+        this.priorityQueue = new ArrayDeque<>();
+
+        this.worker = new Thread(this::drainLoop, "planit-publish-pipeline");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queues a message for publishing.
+     *
+     * @return a future completed on broker acknowledgement, or completed
+     *         exceptionally if the message was rejected, dropped or failed
+     */
+    public CompletableFuture<Void> submit(String topic, byte[] payload, int qos) {
+        return submit(topic, payload, qos, false, T1DeliveryPolicy.Priority.NORMAL, null);
+    }
+
+    /**
+     * Queues a message in the given lane.
+     *
+     * @param conflationKey a queued message with the same topic and key is
+     *                      replaced by this one; null never replaces anything
+     * @return a future completed on broker acknowledgement of this message or
+     *         of a newer one that replaced it
+     */
+    public CompletableFuture<Void> submit(String topic, byte[] payload, int qos, boolean retained,
+            T1DeliveryPolicy.Priority priority, String conflationKey) {
+        String key = conflationKey == null ? null : topic + "|" + conflationKey;
+        Pending pending = new Pending(topic, payload, qos, retained, key);
+        Pending evicted = null;
+        ArrayDeque<Pending> lane = priority == T1DeliveryPolicy.Priority.HIGH ? priorityQueue : queue;
+
+        lock.lock();
+        try {
+            if (closed) {
+                pending.future.completeExceptionally(new RejectedExecutionException("Publish pipeline is closed"));
+                return pending.future;
+            }
+            if (key != null) {
+                Pending queued = conflatable.get(key);
+                if (queued != null) {
+                    // Still waiting to be sent: the newer message takes its place in the queue
+                    queued.payload = payload;
+                    queued.qos = qos;
+                    queued.retained = retained;
+                    conflated.incrementAndGet();
+                    return queued.future;
+                }
+            }
+            if (lane.size() >= capacity) {
+                switch (policy) {
+                    case BLOCK:
+                        while (lane.size() >= capacity && !closed) {
+                            notFull.await();
+                        }
+                        if (closed) {
+                            pending.future.completeExceptionally(new RejectedExecutionException("Publish pipeline is closed"));
+                            return pending.future;
+                        }
+                        break;
+                    case DROP_OLDEST:
+                        if (lane == queue) {
+                            evicted = queue.pollFirst();
+                            forget(evicted);
+                            break;
+                        }
+                        // Control events are not traded for one another
+                        dropped.incrementAndGet();
+                        pending.future.completeExceptionally(new RejectedExecutionException("Priority lane full (" + capacity + ")"));
+                        return pending.future;
+                    case FAIL_FAST:
+                        dropped.incrementAndGet();
+                        pending.future.completeExceptionally(new RejectedExecutionException("Publish queue full (" + capacity + ")"));
+                        return pending.future;
+                }
+            }
+            lane.addLast(pending);
+            if (key != null) {
+                conflatable.put(key, pending);
+            }
+            notEmpty.signal();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            pending.future.completeExceptionally(ie);
+            return pending.future;
+        } finally {
+            lock.unlock();
+        }
+
+        if (evicted != null) {
+            dropped.incrementAndGet();
+            evicted.future.completeExceptionally(new RejectedExecutionException("Dropped by newer message on full queue"));
+        }
+        return pending.future;
+    }
+
+    private Pending take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (queue.isEmpty() && priorityQueue.isEmpty()) {
+                if (closed) {
+                    return null;
+                }
+                notEmpty.await();
+            }
+            Pending next = priorityQueue.isEmpty() ? queue.pollFirst() : priorityQueue.pollFirst();
+            forget(next);
+            // Waiters of both lanes check their own lane again
+            notFull.signalAll();
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held, once a message leaves the queue
+    private void forget(Pending pending) {
+        if (pending != null && pending.conflationKey != null) {
+            conflatable.remove(pending.conflationKey, pending);
+        }
+    }
+
+    private void drainLoop() {
+        try {
+            while (true) {
+                // Reserve an inflight slot before dequeuing so that a full
+                // window leaves messages in the queue, where DROP_OLDEST can see them.
+                inflight.acquire();
+                Pending pending = take();
+                if (pending == null) {
+                    inflight.release();
+                    return;
+                }
+                if (sharedWindow != null) {
+                    // Only once there is something to send, so an idle pipeline holds no shared slot
+                    try {
+                        sharedWindow.acquire();
+                    } catch (InterruptedException ie) {
+                        inflight.release();
+                        pending.future.completeExceptionally(ie);
+                        throw ie;
+                    }
+                }
+                send(pending);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(Pending pending) {
+        try {
+            sink.send(pending.topic, pending.payload, pending.qos, pending.retained, new IMqttActionListener() {
+                @Override
+                public void onSuccess(IMqttToken token) {
+                    release();
+                    published.incrementAndGet();
+                    pending.future.complete(null);
+                }
+
+                @Override
+                public void onFailure(IMqttToken token, Throwable cause) {
+                    release();
+                    failed.incrementAndGet();
+                    pending.future.completeExceptionally(cause);
+                }
+            });
+        } catch (MqttException | RuntimeException e) {
+            release();
+            failed.incrementAndGet();
+            logger.error("Failed to publish to {}: {}", pending.topic, e.getMessage());
+            pending.future.completeExceptionally(e);
+        }
+    }
+
+    private void release() {
+        if (sharedWindow != null) {
+            sharedWindow.release();
+        }
+        inflight.release();
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size() + priorityQueue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Messages waiting in the high-priority lane. */
+    public int getPriorityQueueDepth() {
+        lock.lock();
+        try {
+            return priorityQueue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInflightCount() {
+        return maxInflight - inflight.availablePermits();
+    }
+
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /** Messages replaced by a newer one with the same conflation key before being sent. */
+    public long getConflatedCount() {
+        return conflated.get();
+    }
+
+    /**
+     * Stops accepting messages and lets the worker drain what is already
+     * queued, waiting up to {@code timeoutMillis} for it to finish.
+     */
+    public void close(long timeoutMillis) {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            worker.join(timeoutMillis);
+            // Give outstanding acknowledgements the same grace period.
+            if (inflight.tryAcquire(maxInflight, timeoutMillis, TimeUnit.MILLISECONDS)) {
+                inflight.release(maxInflight);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            worker.interrupt();
+        }
+
+        lock.lock();
+        try {
+            Pending leftover;
+            while ((leftover = priorityQueue.pollFirst()) != null || (leftover = queue.pollFirst()) != null) {
+                leftover.future.completeExceptionally(new RejectedExecutionException("Publish pipeline closed before send"));
+            }
+            conflatable.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
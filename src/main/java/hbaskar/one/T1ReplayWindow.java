@@ -0,0 +1,98 @@
+package hbaskar.one;
+
+import java.util.Arrays;
+
+/**
+ * T1ReplayWindow - duplicate detection over one origin's sequence numbers
+ *
+ * Remembers the highest sequence number seen and, in a bitmap, which of the
+ * {@code size} numbers below it have been seen too (the anti-replay window
+ * of IPsec). A number is accepted once; repeats are rejected, and so is
+ * anything too far behind the highest number to be told apart from a
+ * repeat. A number below the highest but inside the window is accepted
+ * as LATE, so the caller can tell reordering from loss and decide whether
+ * to apply it. Numbers that never arrive (gaps left by conflated or
+ * dropped messages) are simply never marked; nothing waits for them.
+ * Memory use is fixed at {@code size} bits per origin.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1ReplayWindow {
+
+    /** What happened to a sequence number offered to the window. */
+    public enum Verdict {
+        ACCEPTED,
+        /** Seen for the first time, but after a higher number. */
+        LATE,
+        DUPLICATE,
+        TOO_OLD
+    }
+
+    private final long[] bits;
+    private final int size;
+    private long highest;
+
+    /** @param size window length in sequence numbers, rounded up to a multiple of 64 */
+    public T1ReplayWindow(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Replay window size must be positive: " + size);
+        }
+        this.bits = new long[(size + 63) >>> 6];
+        this.size = bits.length << 6;
+    }
+
+    /** Accepts each sequence number (positive) at most once. */
+    public synchronized Verdict offer(long seq) {
+        if (seq > highest) {
+            advance(seq);
+            set(seq);
+            return Verdict.ACCEPTED;
+        }
+        if (seq <= highest - size || seq <= 0) {
+            return Verdict.TOO_OLD;
+        }
+        if (isSet(seq)) {
+            return Verdict.DUPLICATE;
+        }
+        set(seq);
+        return Verdict.LATE;
+    }
+
+    public synchronized long getHighest() {
+        return highest;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // Clears the bits of the numbers the window slides over
+    private void advance(long seq) {
+        long shift = seq - highest;
+        if (shift >= size) {
+            Arrays.fill(bits, 0L);
+        } else {
+            for (long s = highest + 1; s <= seq; s++) {
+                clear(s);
+            }
+        }
+        highest = seq;
+    }
+
+    private boolean isSet(long seq) {
+        int bit = (int) (seq % size);
+        return (bits[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    private void set(long seq) {
+        int bit = (int) (seq % size);
+        bits[bit >>> 6] |= 1L << bit;
+    }
+
+    private void clear(long seq) {
+        int bit = (int) (seq % size);
+        bits[bit >>> 6] &= ~(1L << bit);
+    }
+}
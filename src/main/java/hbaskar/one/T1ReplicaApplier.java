@@ -0,0 +1,203 @@
+package hbaskar.one;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hbaskar.T1Card;
+
+/**
+ * T1ReplicaApplier - writes incoming room events into the local repository
+ *
+ * Every room-scoped event from another client is applied to
+ * {@link T1PlanItPokerRepository}: players join, stories are added, votes
+ * are recorded and cards revealed, so the local copy of a room converges
+ * with everyone else's without any listener code. Events of the local
+ * publisher are not applied again, since its changes are already there.
+ *
+ * Each origin's events pass a {@link T1ReplayWindow} first. A QoS 1
+ * redelivery, or the same event arriving on both topic families, is
+ * recognised as a duplicate and reaches neither the repository nor the
+ * listeners. Events without an origin come from older clients and are
+ * applied as they are. Events behind their origin's latest but inside the
+ * window are counted as reordered and applied rather than dropped, since
+ * the only reordering a sender causes is a HIGH lane event overtaking
+ * NORMAL ones, and those commute: a reveal brings the votes it was taken
+ * over and sets the average as revealed, and a mode change touches no
+ * votes. Events of one lane, such as two votes by the same player, leave
+ * in order over one connection, whose QoS 1 messages the broker keeps in
+ * order. Only events too far behind to tell from a repeat are dropped.
+ *
+ * The duplicate check runs on the calling thread, but with a
+ * {@link T1RoomDispatchExecutor} the repository write is queued on the
+ * room's stripe, ahead of the event's listeners. A write that waits for the
+ * disk therefore holds up only that stripe, not the MQTT callback thread and
+ * its keepalives.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1ReplicaApplier implements T1EventDispatcher.Interceptor {
+    private static final Logger logger = LoggerFactory.getLogger(T1ReplicaApplier.class);
+
+    private final T1PlanItPokerRepository repository;
+    private final int windowSize;
+    // Null to write on the calling thread
+    private final T1RoomDispatchExecutor executor;
+    private final Map<String, T1ReplayWindow> windows = new ConcurrentHashMap<>();
+
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder tooOld = new LongAdder();
+    private final LongAdder reordered = new LongAdder();
+
+    public T1ReplicaApplier(T1PlanItPokerRepository repository, int windowSize, T1RoomDispatchExecutor executor) {
+        this.repository = repository;
+        this.windowSize = windowSize;
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean wants(T1EventType type) {
+        switch (type) {
+            case PLAYER_JOINED:
+            case STORY_CREATED:
+            case STORY_SCORED:
+            case STORY_SCORED_BATCH:
+            case CARDS_REVEALED:
+            case MODE_CHANGED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /** Events of rooms this client does not know are not applied, so they need not be decoded. */
+    @Override
+    public Collection<String> trackedRooms() {
+        return repository.getKnownRoomCodes();
+    }
+
+    @Override
+    public boolean admit(T1EventType type, Object event) {
+        if (!wants(type)) {
+            return true;
+        }
+        String origin = originOf(event);
+        if (origin != null) {
+            T1ReplayWindow window = windows.computeIfAbsent(origin, o -> new T1ReplayWindow(windowSize));
+            T1ReplayWindow.Verdict verdict = window.offer(originSeqOf(event));
+            if (verdict == T1ReplayWindow.Verdict.DUPLICATE) {
+                duplicates.increment();
+                return false;
+            }
+            if (verdict == T1ReplayWindow.Verdict.TOO_OLD) {
+                tooOld.increment();
+                logger.debug("Dropping {} from {}: more than {} events behind", type, origin, window.getSize());
+                return false;
+            }
+            if (verdict == T1ReplayWindow.Verdict.LATE) {
+                reordered.increment();
+            }
+            if (repository.isLocalOrigin(origin)) {
+                return true;
+            }
+        }
+        if (executor == null) {
+            apply(event);
+        } else {
+            try {
+                executor.execute(T1RoomSync.roomOf(event), () -> apply(event));
+            } catch (RejectedExecutionException e) {
+                // The subscriber is disconnecting
+                logger.debug("Not applying {} from {}: dispatch is shut down", type, origin);
+            }
+        }
+        return true;
+    }
+
+    private void apply(Object event) {
+        String roomCode = T1RoomSync.roomOf(event);
+        T1PlanItPokerRepository.Room room = roomCode == null ? null : repository.getRoom(roomCode);
+        if (room == null) {
+            // Unknown here; the room's snapshot will bring it in full
+            return;
+        }
+        if (event instanceof T1PlanItPokerPublisher.ScoreEvent) {
+            T1PlanItPokerPublisher.ScoreEvent e = (T1PlanItPokerPublisher.ScoreEvent) event;
+            repository.updateStoryScore(e.roomCode, e.storyId, e.playerName, e.score);
+        } else if (event instanceof T1PlanItPokerPublisher.RevealEvent) {
+            T1PlanItPokerPublisher.RevealEvent e = (T1PlanItPokerPublisher.RevealEvent) event;
+            // Older senders do not send the votes; their average still stands
+            repository.revealCards(e.roomCode, e.storyId, e.scores == null ? Map.of() : e.scores, e.averageScore);
+        } else if (event instanceof T1PlanItPokerPublisher.PlayerEvent) {
+            T1PlanItPokerPublisher.PlayerEvent e = (T1PlanItPokerPublisher.PlayerEvent) event;
+            repository.joinRoom(e.roomCode, e.playerName);
+        } else if (event instanceof T1PlanItPokerPublisher.StoryEvent) {
+            T1PlanItPokerPublisher.StoryEvent e = (T1PlanItPokerPublisher.StoryEvent) event;
+            if (room.getStory(e.storyId) == null) {
+                repository.addStory(e.roomCode, new T1Card(e.storyId, e.title, e.description, null, 0));
+            }
+        } else if (event instanceof T1PlanItPokerPublisher.ModeEvent) {
+            T1PlanItPokerPublisher.ModeEvent e = (T1PlanItPokerPublisher.ModeEvent) event;
+            repository.applyRoomMode(e.roomCode, e.mode);
+        }
+        // After the change itself, so a snapshot taken now never claims more than it holds
+        repository.observeSequence(roomCode, T1RoomSync.seqOf(event));
+        applied.increment();
+    }
+
+    public long getAppliedCount() {
+        return applied.sum();
+    }
+
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    /** Events dropped because they arrived too far behind their origin's latest. */
+    public long getTooOldCount() {
+        return tooOld.sum();
+    }
+
+    /** Events applied although a later event of their origin had arrived first. */
+    public long getReorderedCount() {
+        return reordered.sum();
+    }
+
+    static String originOf(Object event) {
+        if (event instanceof T1PlanItPokerPublisher.ScoreEvent) {
+            return ((T1PlanItPokerPublisher.ScoreEvent) event).origin;
+        } else if (event instanceof T1PlanItPokerPublisher.PlayerEvent) {
+            return ((T1PlanItPokerPublisher.PlayerEvent) event).origin;
+        } else if (event instanceof T1PlanItPokerPublisher.StoryEvent) {
+            return ((T1PlanItPokerPublisher.StoryEvent) event).origin;
+        } else if (event instanceof T1PlanItPokerPublisher.RevealEvent) {
+            return ((T1PlanItPokerPublisher.RevealEvent) event).origin;
+        } else if (event instanceof T1PlanItPokerPublisher.ModeEvent) {
+            return ((T1PlanItPokerPublisher.ModeEvent) event).origin;
+        }
+        return null;
+    }
+
+    static long originSeqOf(Object event) {
+        if (event instanceof T1PlanItPokerPublisher.ScoreEvent) {
+            return ((T1PlanItPokerPublisher.ScoreEvent) event).originSeq;
+        } else if (event instanceof T1PlanItPokerPublisher.PlayerEvent) {
+            return ((T1PlanItPokerPublisher.PlayerEvent) event).originSeq;
+        } else if (event instanceof T1PlanItPokerPublisher.StoryEvent) {
+            return ((T1PlanItPokerPublisher.StoryEvent) event).originSeq;
+        } else if (event instanceof T1PlanItPokerPublisher.RevealEvent) {
+            return ((T1PlanItPokerPublisher.RevealEvent) event).originSeq;
+        } else if (event instanceof T1PlanItPokerPublisher.ModeEvent) {
+            return ((T1PlanItPokerPublisher.ModeEvent) event).originSeq;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,92 @@
+package hbaskar.one;
+
+/**
+ * T1RepositoryChange - one thing that changed in the repository
+ *
+ * Listeners added with {@link T1PlanItPokerRepository#addChangeListener}
+ * get these in batches, one batch per change made through the repository,
+ * so a panel can patch the component a change touched instead of rebuilding
+ * all of them. Only the fields that belong to the kind are set: a vote
+ * carries the story, the player and the score, a new room only its code.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public final class T1RepositoryChange {
+
+    /** What changed. */
+    public enum Kind {
+        ROOM_CREATED,
+        PLAYER_JOINED,
+        PLAYER_LEFT,
+        STORY_ADDED,
+        STORY_UPDATED,
+        VOTE_CAST,
+        REVEALED
+    }
+
+    public final Kind kind;
+    public final String roomCode;
+    public final String storyId;
+    public final String playerName;
+    public final int score;
+    public final long timestamp;
+
+    private T1RepositoryChange(Kind kind, String roomCode, String storyId, String playerName, int score) {
+        this.kind = kind;
+        this.roomCode = roomCode;
+        this.storyId = storyId;
+        this.playerName = playerName;
+        this.score = score;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    static T1RepositoryChange roomCreated(String roomCode, String creatorName) {
+        return new T1RepositoryChange(Kind.ROOM_CREATED, roomCode, null, creatorName, 0);
+    }
+
+    static T1RepositoryChange playerJoined(String roomCode, String playerName) {
+        return new T1RepositoryChange(Kind.PLAYER_JOINED, roomCode, null, playerName, 0);
+    }
+
+    static T1RepositoryChange playerLeft(String roomCode, String playerName) {
+        return new T1RepositoryChange(Kind.PLAYER_LEFT, roomCode, null, playerName, 0);
+    }
+
+    static T1RepositoryChange storyAdded(String roomCode, String storyId) {
+        return new T1RepositoryChange(Kind.STORY_ADDED, roomCode, storyId, null, 0);
+    }
+
+    static T1RepositoryChange storyUpdated(String roomCode, String storyId) {
+        return new T1RepositoryChange(Kind.STORY_UPDATED, roomCode, storyId, null, 0);
+    }
+
+    static T1RepositoryChange voteCast(String roomCode, String storyId, String playerName, int score) {
+        return new T1RepositoryChange(Kind.VOTE_CAST, roomCode, storyId, playerName, score);
+    }
+
+    static T1RepositoryChange revealed(String roomCode, String storyId) {
+        return new T1RepositoryChange(Kind.REVEALED, roomCode, storyId, null, 0);
+    }
+
+    /** Whether the change is to one of the room's stories rather than to its players. */
+    public boolean isStoryChange() {
+        return storyId != null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder().append(kind).append(' ').append(roomCode);
+        if (storyId != null) {
+            text.append('/').append(storyId);
+        }
+        if (playerName != null) {
+            text.append(' ').append(playerName);
+        }
+        if (kind == Kind.VOTE_CAST) {
+            text.append('=').append(score);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,821 @@
+package hbaskar.one;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hbaskar.T1Card;
+
+/**
+ * T1RepositoryStore - write-ahead log and snapshots behind the repository
+ *
+ * Once opened on a {@link T1PlanItPokerRepository}, every change made
+ * through the repository (rooms created, players joining and leaving,
+ * stories added, votes, reveals) is appended to a log before the call
+ * returns, and the state is written to a snapshot now and then so the log
+ * can be dropped. Opening the store on an empty repository first loads the
+ * latest snapshot and replays the log written since.
+ *
+ * Callers only encode their change and queue it; a single writer thread
+ * takes whatever has queued up, writes it with one call and, depending on
+ * the {@link SyncPolicy}, forces it to disk once for the whole batch. Under
+ * {@link SyncPolicy#EVERY_COMMIT} a caller waits for that sync, but outside
+ * the room lock, so busy rooms share syncs instead of queueing for them.
+ *
+ * Snapshots are taken while the repository keeps changing. The log is first
+ * switched to a new segment; everything in older segments is already in
+ * memory, so the snapshot holds it, and anything the snapshot also picks up
+ * from the new segment is replayed over it. Every record sets state rather
+ * than adding to it, which makes that harmless. A room is read under its
+ * lock, the same lock its changes are logged under, so each room is
+ * captured as it stood between two of its records.
+ *
+ * Files, in the store directory:
+ * <pre>
+ *   wal-N.log        records: int body length, int CRC-32 of the body, body
+ *   body             byte type, room code, then the fields of the change
+ *   snapshot-N.bin   int magic, int version, long N, then per room an int
+ *                    length and the room as {@link T1RoomCodec} writes it;
+ *                    an int 0, then the CRC-32 of all that came before
+ * </pre>
+ * A snapshot numbered N holds everything logged before segment N. It is
+ * written to a temporary file, synced and renamed, so a crash leaves either
+ * the old snapshot or the new one. Replay stops at the first record that is
+ * cut short or fails its checksum, which is where a crash in the middle of
+ * a write leaves off, and the segment is cut back to the last good record.
+ * Rooms that {@link T1RoomEvictor} has spilled to disk go into snapshots as
+ * well, straight from their spill files.
+ *
+ * Event sequence numbers are kept in snapshots only; after replaying a log
+ * tail a room's sequence may be behind, and catches up with the next event
+ * from another client.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1RepositoryStore implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(T1RepositoryStore.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x50534E50; // "PSNP"
+    private static final int VERSION = 1;
+    private static final int RECORD_HEADER = 8;
+    private static final int MAX_RECORD = 16 * 1024 * 1024;
+    private static final int MAX_BATCH = 4096;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("wal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d+)\\.bin");
+
+    // Record types
+    private static final int ROOM_CREATED = 1;
+    private static final int PLAYER_JOINED = 2;
+    private static final int PLAYER_LEFT = 3;
+    private static final int STORY_ADDED = 4;
+    private static final int STORY_UPDATED = 5;
+    private static final int SCORE_RECORDED = 6;
+    private static final int CARDS_REVEALED = 7;
+    private static final int CARDS_REVEALED_AVERAGE = 8;
+
+    // Queue entries that are not records
+    private static final int RECORD = 0;
+    private static final int ROTATE = 1;
+    private static final int STOP = 2;
+
+    /** When log writes are forced to disk. */
+    public enum SyncPolicy {
+        /** Each change is on disk before the call that made it returns. */
+        EVERY_COMMIT,
+        /** Writes are synced every sync interval; a crash of the machine loses at most that much. */
+        PERIODIC,
+        /** Syncing is left to the operating system; survives the process dying but not the machine. */
+        NONE
+    }
+
+    /** A change waiting for the log writer. */
+    final class Commit {
+        final byte[] body;
+        final int crc;
+        final int kind;
+        // Segment started by a rotation
+        long segment;
+        private volatile boolean done;
+
+        Commit(byte[] body, int crc, int kind) {
+            this.body = body;
+            this.crc = crc;
+            this.kind = kind;
+        }
+
+        /** Waits until the change is on disk, or the writer has stopped. */
+        void await() {
+            boolean interrupted = false;
+            synchronized (this) {
+                // Timed, in case the writer stopped just before this was queued
+                while (!done && writer.isAlive()) {
+                    try {
+                        wait(100);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void complete() {
+            synchronized (this) {
+                done = true;
+                notifyAll();
+            }
+        }
+    }
+
+    private final T1PlanItPokerRepository repository;
+    private final Path directory;
+    private final SyncPolicy syncPolicy;
+    private final long syncIntervalNanos;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final LinkedBlockingQueue<Commit> queue;
+    private final Object snapshotLock = new Object();
+    private final Thread writer;
+    private final ScheduledExecutorService snapshots;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    // Writer thread only
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private FileChannel segment;
+    private long segmentNumber;
+
+    // Counters, written by the writer thread
+    private volatile long recordCount;
+    private volatile long batchCount;
+    private volatile long syncCount;
+
+    // Recovery results
+    private long recoveryNanos;
+    private int recoveredRooms;
+    private long replayedRecords;
+
+    private T1RepositoryStore(T1PlanItPokerRepository repository, T1StoreConfig config, FileChannel lockChannel,
+            FileLock lock) throws IOException {
+        this.repository = repository;
+        this.directory = config.getDirectory();
+        this.syncPolicy = config.getSyncPolicy();
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getSyncIntervalMillis());
+        this.lockChannel = lockChannel;
+        this.lock = lock;
+        this.queue = new LinkedBlockingQueue<>(config.getQueueCapacity());
+
+        recover();
+        this.segment = openSegment(segmentNumber);
+        this.writer = new Thread(this::run, "planit-store-writer");
+        writer.setDaemon(true);
+        writer.start();
+        repository.attachStore(this);
+
+        long interval = config.getSnapshotIntervalMillis();
+        if (interval > 0) {
+            snapshots = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "planit-store-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshots.scheduleWithFixedDelay(this::scheduledSnapshot, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            snapshots = null;
+        }
+    }
+
+    /**
+     * Opens the store in the configured directory, recovers its contents
+     * into the repository and starts logging the repository's changes. The
+     * repository should be empty; recovered rooms replace rooms of the same
+     * code.
+     *
+     * @throws IOException if the directory is in use by another process or
+     *                     holds a damaged snapshot
+     */
+    public static T1RepositoryStore open(T1PlanItPokerRepository repository, T1StoreConfig config)
+            throws IOException {
+        if (repository.getStore() != null) {
+            throw new IllegalStateException("Repository already has a store open");
+        }
+        Path directory = config.getDirectory();
+        Files.createDirectories(directory);
+        FileChannel lockChannel = FileChannel.open(directory.resolve("store.lock"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Store " + directory + " is in use");
+        }
+        try {
+            return new T1RepositoryStore(repository, config, lockChannel, lock);
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    // Records, called by the repository under the room's lock
+    Commit roomCreated(String roomCode, String name, String creator) {
+        T1ByteWriter out = record(ROOM_CREATED, roomCode);
+        out.writeString(name);
+        out.writeString(creator);
+        return append(out);
+    }
+
+    Commit playerJoined(String roomCode, String player) {
+        T1ByteWriter out = record(PLAYER_JOINED, roomCode);
+        out.writeString(player);
+        return append(out);
+    }
+
+    Commit playerLeft(String roomCode, String player) {
+        T1ByteWriter out = record(PLAYER_LEFT, roomCode);
+        out.writeString(player);
+        return append(out);
+    }
+
+    Commit storyAdded(String roomCode, T1Card card) {
+        T1ByteWriter out = record(STORY_ADDED, roomCode);
+        out.writeString(card.getId());
+        out.writeString(card.getTitle());
+        out.writeString(card.getDescription());
+        out.writeString(card.getAssignedUser());
+        out.writeDouble(card.getTotalPoints());
+        return append(out);
+    }
+
+    Commit storyUpdated(String roomCode, String storyId, String assignedUser, double totalPoints) {
+        T1ByteWriter out = record(STORY_UPDATED, roomCode);
+        out.writeString(storyId);
+        out.writeString(assignedUser);
+        out.writeDouble(totalPoints);
+        return append(out);
+    }
+
+    Commit scoreRecorded(String roomCode, String storyId, String player, int score) {
+        T1ByteWriter out = record(SCORE_RECORDED, roomCode);
+        out.writeString(storyId);
+        out.writeString(player);
+        out.writeSignedVarLong(score);
+        return append(out);
+    }
+
+    Commit cardsRevealed(String roomCode, String storyId, double averageScore) {
+        T1ByteWriter out = record(CARDS_REVEALED_AVERAGE, roomCode);
+        out.writeString(storyId);
+        out.writeDouble(averageScore);
+        return append(out);
+    }
+
+    private static T1ByteWriter record(int type, String roomCode) {
+        T1ByteWriter out = new T1ByteWriter(64);
+        out.writeByte(type);
+        out.writeString(roomCode);
+        return out;
+    }
+
+    // Returns the commit to wait for, or null if the caller need not wait
+    private Commit append(T1ByteWriter out) {
+        if (closed || failure != null) {
+            return null;
+        }
+        byte[] body = out.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        Commit commit = new Commit(body, (int) crc.getValue(), RECORD);
+        enqueue(commit);
+        return syncPolicy == SyncPolicy.EVERY_COMMIT ? commit : null;
+    }
+
+    private void enqueue(Commit commit) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(commit);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Log writer
+    private void run() {
+        List<Commit> batch = new ArrayList<>(MAX_BATCH);
+        boolean dirty = false;
+        long syncDeadline = 0;
+        try {
+            while (true) {
+                Commit first;
+                if (dirty && syncPolicy == SyncPolicy.PERIODIC) {
+                    first = queue.poll(Math.max(0, syncDeadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } else {
+                    first = queue.take();
+                }
+                boolean stop = false;
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                }
+                for (Commit commit : batch) {
+                    if (commit.kind == RECORD) {
+                        write(commit);
+                        if (!dirty) {
+                            dirty = true;
+                            syncDeadline = System.nanoTime() + syncIntervalNanos;
+                        }
+                    } else if (commit.kind == ROTATE) {
+                        flush();
+                        sync();
+                        dirty = false;
+                        segment.close();
+                        segmentNumber++;
+                        segment = openSegment(segmentNumber);
+                        commit.segment = segmentNumber;
+                    } else {
+                        stop = true;
+                    }
+                }
+                flush();
+                if (dirty && (stop || syncPolicy == SyncPolicy.EVERY_COMMIT
+                        || (syncPolicy == SyncPolicy.PERIODIC && System.nanoTime() - syncDeadline >= 0))) {
+                    sync();
+                    dirty = false;
+                }
+                if (!batch.isEmpty()) {
+                    batchCount++;
+                }
+                for (Commit commit : batch) {
+                    // Nobody waits on records unless every commit is synced
+                    if (commit.kind != RECORD || syncPolicy == SyncPolicy.EVERY_COMMIT) {
+                        commit.complete();
+                    }
+                }
+                batch.clear();
+                if (stop) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+            logger.error("Store log writer failed, changes are no longer logged: {}", e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Commit commit : batch) {
+                commit.complete();
+            }
+            Commit left;
+            while ((left = queue.poll()) != null) {
+                left.complete();
+            }
+            try {
+                segment.close();
+            } catch (IOException e) {
+                logger.warn("Could not close log segment: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void write(Commit commit) throws IOException {
+        int size = RECORD_HEADER + commit.body.length;
+        if (buffer.remaining() < size) {
+            flush();
+        }
+        if (size > buffer.capacity()) {
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER).putInt(commit.body.length).putInt(commit.crc);
+            header.flip();
+            writeFully(header);
+            writeFully(ByteBuffer.wrap(commit.body));
+        } else {
+            buffer.putInt(commit.body.length).putInt(commit.crc).put(commit.body);
+        }
+        recordCount++;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            segment.write(data);
+        }
+    }
+
+    private void sync() throws IOException {
+        if (syncPolicy != SyncPolicy.NONE) {
+            segment.force(false);
+            syncCount++;
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    // Snapshots
+    /**
+     * Writes the repository's state to a new snapshot and deletes the log
+     * segments and snapshots it replaces. Runs on its own schedule as well;
+     * calling it directly is for shutdown and tools.
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            if (closed) {
+                throw new IOException("Store " + directory + " is closed");
+            }
+            long start = System.nanoTime();
+            long base = rotate();
+            Path target = snapshotPath(base);
+            Path temp = directory.resolve(target.getFileName() + ".tmp");
+            int rooms = 0;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                CheckedOutputStream checked = new CheckedOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), new CRC32());
+                DataOutputStream out = new DataOutputStream(checked);
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(base);
+                T1ByteWriter room = new T1ByteWriter(4096);
+                Set<String> written = new HashSet<>();
+                for (T1PlanItPokerRepository.Room r : repository.getRooms()) {
+                    writeRoom(out, room, r);
+                    written.add(r.getCode());
+                    rooms++;
+                }
+                // Rooms spilled to disk go in as they were spilled, unless they came back meanwhile
+                T1RoomEvictor evictor = repository.getEvictor();
+                if (evictor != null) {
+                    for (String code : evictor.getSpilledCodes()) {
+                        if (written.contains(code)) {
+                            continue;
+                        }
+                        T1PlanItPokerRepository.Room resident = repository.getResidentRoom(code);
+                        byte[] spilled = resident == null ? evictor.readSpilled(code) : null;
+                        if (resident != null) {
+                            writeRoom(out, room, resident);
+                        } else if (spilled != null) {
+                            out.writeInt(spilled.length);
+                            out.write(spilled);
+                        } else {
+                            continue;
+                        }
+                        rooms++;
+                    }
+                }
+                out.writeInt(0);
+                out.writeInt((int) checked.getChecksum().getValue());
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+            deleteBefore(base);
+            logger.info("Snapshot of {} rooms written to {} in {} ms", rooms, target,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private void writeRoom(DataOutputStream out, T1ByteWriter buffer, T1PlanItPokerRepository.Room room)
+            throws IOException {
+        buffer.reset();
+        // The room's lock is the one its changes are logged under
+        synchronized (room) {
+            T1RoomCodec.write(buffer, room, repository.getSequence(room.getCode()));
+        }
+        out.writeInt(buffer.size());
+        out.write(buffer.toByteArray());
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            logger.error("Snapshot failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Starts a new segment and returns its number
+    private long rotate() throws IOException {
+        Commit rotation = new Commit(null, 0, ROTATE);
+        enqueue(rotation);
+        rotation.await();
+        if (failure != null) {
+            throw new IOException("Store log writer failed", failure);
+        }
+        if (rotation.segment == 0) {
+            throw new IOException("Store log writer is not running");
+        }
+        return rotation.segment;
+    }
+
+    // Recovery
+    private void recover() throws IOException {
+        long start = System.nanoTime();
+        TreeMap<Long, Path> segments = list(SEGMENT_NAME);
+        TreeMap<Long, Path> snapshotFiles = list(SNAPSHOT_NAME);
+        long base = 0;
+        if (!snapshotFiles.isEmpty()) {
+            base = snapshotFiles.lastKey();
+            recoveredRooms = readSnapshot(snapshotFiles.lastEntry().getValue());
+        }
+        long next = base;
+        boolean damaged = false;
+        for (Map.Entry<Long, Path> entry : segments.tailMap(base, true).entrySet()) {
+            if (damaged) {
+                // Replaying past a gap would apply changes out of order
+                Path aside = entry.getValue().resolveSibling(entry.getValue().getFileName() + ".orphaned");
+                Files.move(entry.getValue(), aside, StandardCopyOption.REPLACE_EXISTING);
+                logger.warn("Log segment {} follows a damaged one and was moved to {}", entry.getValue(), aside);
+                continue;
+            }
+            damaged = !replay(entry.getValue());
+            next = entry.getKey() + 1;
+        }
+        segmentNumber = Math.max(next, 1);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path temp : (Iterable<Path>) files.filter(p -> p.toString().endsWith(".tmp"))::iterator) {
+                Files.deleteIfExists(temp);
+            }
+        }
+        recoveryNanos = System.nanoTime() - start;
+        if (recoveredRooms > 0 || replayedRecords > 0) {
+            logger.info("Recovered {} rooms from snapshot and {} log records from {} in {} ms", recoveredRooms,
+                    replayedRecords, directory, TimeUnit.NANOSECONDS.toMillis(recoveryNanos));
+        }
+    }
+
+    private int readSnapshot(Path path) throws IOException {
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16), new CRC32());
+                DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a snapshot: " + path);
+            }
+            in.readLong();
+            byte[] body = new byte[4096];
+            int rooms = 0;
+            for (int length; (length = in.readInt()) != 0; rooms++) {
+                if (length < 0 || length > MAX_RECORD) {
+                    throw new IOException("Snapshot " + path + " is damaged");
+                }
+                if (length > body.length) {
+                    body = new byte[Math.max(length, body.length * 2)];
+                }
+                in.readFully(body, 0, length);
+                repository.installRoom(T1RoomCodec.read(new T1ByteReader(body, 0, length), repository));
+            }
+            int expected = (int) checked.getChecksum().getValue();
+            if (in.readInt() != expected) {
+                throw new IOException("Snapshot " + path + " is damaged");
+            }
+            return rooms;
+        } catch (EOFException e) {
+            throw new IOException("Snapshot " + path + " is cut short", e);
+        }
+    }
+
+    // Applies a segment's records; returns false if it ended in a damaged record
+    private boolean replay(Path path) throws IOException {
+        long good = 0;
+        boolean damaged = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            CRC32 crc = new CRC32();
+            byte[] body = new byte[256];
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length <= 0 || length > MAX_RECORD) {
+                    damaged = true;
+                    break;
+                }
+                if (length > body.length) {
+                    body = new byte[Math.max(length, body.length * 2)];
+                }
+                int expected;
+                try {
+                    expected = in.readInt();
+                    in.readFully(body, 0, length);
+                } catch (EOFException e) {
+                    damaged = true;
+                    break;
+                }
+                crc.reset();
+                crc.update(body, 0, length);
+                if ((int) crc.getValue() != expected) {
+                    damaged = true;
+                    break;
+                }
+                apply(new T1ByteReader(body, 0, length));
+                good += RECORD_HEADER + length;
+                replayedRecords++;
+            }
+        }
+        if (damaged) {
+            logger.warn("Log segment {} ends in a damaged record; cutting it back to {} bytes", path, good);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(good);
+            }
+        }
+        return !damaged;
+    }
+
+    private void apply(T1ByteReader in) throws IOException {
+        int type = in.readByte();
+        String roomCode = in.readString();
+        switch (type) {
+            case ROOM_CREATED:
+                repository.putRoom(roomCode, in.readString(), in.readString());
+                break;
+            case PLAYER_JOINED:
+                repository.joinRoom(roomCode, in.readString());
+                break;
+            case PLAYER_LEFT:
+                repository.leaveRoom(roomCode, in.readString());
+                break;
+            case STORY_ADDED:
+                repository.addStory(roomCode, new T1Card(in.readString(), in.readString(), in.readString(),
+                        in.readString(), in.readDouble()));
+                break;
+            case STORY_UPDATED:
+                repository.updateStoryDetails(roomCode, in.readString(), in.readString(), in.readDouble());
+                break;
+            case SCORE_RECORDED:
+                repository.recordScore(roomCode, in.readString(), in.readString(), (int) in.readSignedVarLong());
+                break;
+            case CARDS_REVEALED:
+                repository.revealCards(roomCode, in.readString());
+                break;
+            case CARDS_REVEALED_AVERAGE:
+                repository.revealCards(roomCode, in.readString(), Map.of(), in.readDouble());
+                break;
+            default:
+                throw new IOException("Unknown log record type " + type);
+        }
+    }
+
+    // Files
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("wal-%010d.log", number));
+    }
+
+    private Path snapshotPath(long number) {
+        return directory.resolve(String.format("snapshot-%010d.bin", number));
+    }
+
+    private TreeMap<Long, Path> list(Pattern pattern) throws IOException {
+        TreeMap<Long, Path> found = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> {
+                Matcher matcher = pattern.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    found.put(Long.parseLong(matcher.group(1)), path);
+                }
+            });
+        }
+        return found;
+    }
+
+    private void deleteBefore(long base) throws IOException {
+        for (Path path : list(SEGMENT_NAME).headMap(base).values()) {
+            Files.deleteIfExists(path);
+        }
+        for (Path path : list(SNAPSHOT_NAME).headMap(base).values()) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    // Makes the rename itself durable, where the platform allows syncing a directory
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("Could not sync directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    // Statistics
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public SyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
+    /** Time spent loading the snapshot and replaying the log when the store was opened. */
+    public long getRecoveryNanos() {
+        return recoveryNanos;
+    }
+
+    public int getRecoveredRooms() {
+        return recoveredRooms;
+    }
+
+    public long getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    /** Records written since the store was opened. */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /** Writes to the log; records per batch shows how well commits are grouped. */
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /** Why the log writer stopped, or null while it runs. */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /** Stops logging, writes out and syncs what is queued, and releases the directory. */
+    @Override
+    public void close() {
+        synchronized (snapshotLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        repository.detachStore(this);
+        if (snapshots != null) {
+            snapshots.shutdownNow();
+        }
+        enqueue(new Commit(null, 0, STOP));
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            logger.warn("Could not release store lock: {}", e.getMessage());
+        }
+        logger.info("Store {} closed after {} records in {} batches, {} syncs", directory, recordCount, batchCount,
+                syncCount);
+    }
+}
@@ -0,0 +1,91 @@
+package hbaskar.one;
+
+import java.util.List;
+import java.util.Map;
+
+import hbaskar.T1Card;
+
+/**
+ * T1RoomCodec - the compact binary form of a whole room
+ *
+ * One room as written to store snapshots by {@link T1RepositoryStore} and
+ * to spill files by {@link T1RoomEvictor}, so a spilled room can go into a
+ * snapshot as it is:
+ * <pre>
+ *   code, name, creator, varlong sequence number,
+ *   varint player count, players in join order,
+ *   varint story count, per story: id, title, description, assigned user,
+ *   double total points, byte revealed, varint vote count, per vote: player,
+ *   signed varint score
+ * </pre>
+ * Strings are written as by {@link T1ByteWriter#writeString(String)}.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+final class T1RoomCodec {
+
+    private T1RoomCodec() {
+    }
+
+    /** Encodes the room; the caller holds the room's lock so it is captured between two changes. */
+    static void write(T1ByteWriter out, T1PlanItPokerRepository.Room room, long seq) {
+        out.writeString(room.getCode());
+        out.writeString(room.getName());
+        out.writeString(room.getCreator());
+        out.writeVarLong(seq);
+        List<String> players = room.getPlayers();
+        out.writeVarInt(players.size());
+        for (String player : players) {
+            out.writeString(player);
+        }
+        List<T1Card> stories = room.getAllStories();
+        out.writeVarInt(stories.size());
+        for (T1Card card : stories) {
+            out.writeString(card.getId());
+            out.writeString(card.getTitle());
+            out.writeString(card.getDescription());
+            out.writeString(card.getAssignedUser());
+            out.writeDouble(card.getTotalPoints());
+            out.writeByte(card.isRevealed() ? 1 : 0);
+            Map<String, Integer> scores = card.getScores();
+            out.writeVarInt(scores.size());
+            for (Map.Entry<String, Integer> score : scores.entrySet()) {
+                out.writeString(score.getKey());
+                out.writeSignedVarLong(score.getValue());
+            }
+        }
+    }
+
+    /**
+     * Rebuilds a room, not yet added to the repository, and raises the
+     * repository's sequence number for it to the one stored.
+     */
+    static T1PlanItPokerRepository.Room read(T1ByteReader in, T1PlanItPokerRepository repository) {
+        String code = in.readString();
+        String name = in.readString();
+        String creator = in.readString();
+        long seq = in.readVarLong();
+        T1PlanItPokerRepository.Room room = new T1PlanItPokerRepository.Room(code, name, creator);
+        room.presence = repository.getPresence();
+        for (int i = in.readVarInt(); i > 0; i--) {
+            room.addPlayer(in.readString());
+        }
+        for (int i = in.readVarInt(); i > 0; i--) {
+            T1Card card = new T1Card(in.readString(), in.readString(), in.readString(), in.readString(),
+                    in.readDouble());
+            boolean revealed = in.readByte() != 0;
+            for (int j = in.readVarInt(); j > 0; j--) {
+                card.addScore(in.readString(), (int) in.readSignedVarLong());
+            }
+            if (revealed) {
+                card.setRevealed(true);
+                card.calculateAverageScore();
+            }
+            room.addStory(card);
+        }
+        repository.observeSequence(code, seq);
+        return room;
+    }
+}
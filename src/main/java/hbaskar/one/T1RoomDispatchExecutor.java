@@ -0,0 +1,176 @@
+package hbaskar.one;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * T1RoomDispatchExecutor - runs event handlers off the MQTT callback thread
+ *
+ * Work is spread over a fixed number of stripes, each a single thread with
+ * its own queue. A room always hashes to the same stripe, so its events are
+ * handled in arrival order, while different rooms proceed in parallel and a
+ * slow handler only holds up the rooms that share its stripe.
+ *
+ * Each stripe keeps counters for queue depth, time spent waiting in the
+ * queue and time spent in handlers, and logs a warning when its queue grows
+ * past the configured depth.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1RoomDispatchExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(T1RoomDispatchExecutor.class);
+
+    /** Point-in-time metrics of one stripe. */
+    public static final class StripeStats {
+        public final int stripe;
+        public final int queueDepth;
+        public final long tasks;
+        public final double meanQueueWaitMicros;
+        public final double meanHandlerMicros;
+        public final double maxHandlerMicros;
+
+        StripeStats(int stripe, int queueDepth, long tasks, double meanQueueWaitMicros,
+                double meanHandlerMicros, double maxHandlerMicros) {
+            this.stripe = stripe;
+            this.queueDepth = queueDepth;
+            this.tasks = tasks;
+            this.meanQueueWaitMicros = meanQueueWaitMicros;
+            this.meanHandlerMicros = meanHandlerMicros;
+            this.maxHandlerMicros = maxHandlerMicros;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("stripe %d: depth=%d tasks=%d wait=%.1fus handler=%.1fus max=%.1fus",
+                    stripe, queueDepth, tasks, meanQueueWaitMicros, meanHandlerMicros, maxHandlerMicros);
+        }
+    }
+
+    private static final class Stripe {
+        final ThreadPoolExecutor executor;
+        final AtomicInteger depth = new AtomicInteger();
+        final LongAdder tasks = new LongAdder();
+        final LongAdder queueWaitNanos = new LongAdder();
+        final LongAdder handlerNanos = new LongAdder();
+        final AtomicLong maxHandlerNanos = new AtomicLong();
+        volatile boolean warned;
+
+        Stripe(int index) {
+            executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "planit-dispatch-" + index);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private final Stripe[] stripes;
+    private final int warnDepth;
+
+    public T1RoomDispatchExecutor(int threads, int warnDepth) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Dispatch threads must be positive: " + threads);
+        }
+        this.warnDepth = warnDepth;
+        this.stripes = new Stripe[threads];
+        for (int i = 0; i < threads; i++) {
+            stripes[i] = new Stripe(i);
+        }
+    }
+
+    /** Runs a task after every task previously submitted for the same room. */
+    public void execute(String roomCode, Runnable task) {
+        int index = stripeOf(roomCode);
+        Stripe stripe = stripes[index];
+        long enqueued = System.nanoTime();
+
+        int depth = stripe.depth.incrementAndGet();
+        if (depth >= warnDepth && !stripe.warned) {
+            stripe.warned = true;
+            logger.warn("Dispatch stripe {} is falling behind: {} events queued (room {})", index, depth, roomCode);
+        }
+
+        try {
+            stripe.executor.execute(() -> run(stripe, roomCode, task, enqueued));
+        } catch (RejectedExecutionException e) {
+            // Shut down: the task never runs, so it must not stay counted as queued
+            stripe.depth.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void run(Stripe stripe, String roomCode, Runnable task, long enqueued) {
+        long started = System.nanoTime();
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            logger.error("Event handler failed for room " + roomCode + ": " + e.getMessage(), e);
+        } finally {
+            long finished = System.nanoTime();
+            stripe.tasks.increment();
+            stripe.queueWaitNanos.add(started - enqueued);
+            stripe.handlerNanos.add(finished - started);
+            stripe.maxHandlerNanos.accumulateAndGet(finished - started, Math::max);
+            if (stripe.depth.decrementAndGet() < warnDepth / 2) {
+                stripe.warned = false;
+            }
+        }
+    }
+
+    private int stripeOf(String roomCode) {
+        if (roomCode == null) {
+            return 0;
+        }
+        int h = roomCode.hashCode();
+        h ^= (h >>> 16);
+        return Math.floorMod(h, stripes.length);
+    }
+
+    public int getQueueDepth() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.depth.get();
+        }
+        return total;
+    }
+
+    public StripeStats[] getStats() {
+        StripeStats[] stats = new StripeStats[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe s = stripes[i];
+            long tasks = s.tasks.sum();
+            double div = Math.max(1, tasks) * 1000.0;
+            stats[i] = new StripeStats(i, s.depth.get(), tasks, s.queueWaitNanos.sum() / div,
+                    s.handlerNanos.sum() / div, s.maxHandlerNanos.get() / 1000.0);
+        }
+        return stats;
+    }
+
+    /** Lets queued handlers finish, waiting up to {@code timeoutMillis} in total. */
+    public void shutdown(long timeoutMillis) {
+        for (Stripe stripe : stripes) {
+            stripe.executor.shutdown();
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            for (Stripe stripe : stripes) {
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                if (!stripe.executor.awaitTermination(remaining, TimeUnit.MILLISECONDS)) {
+                    stripe.executor.shutdownNow();
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
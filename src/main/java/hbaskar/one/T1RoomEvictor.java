@@ -0,0 +1,280 @@
+package hbaskar.one;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * T1RoomEvictor - keeps the number of rooms in memory within a limit
+ *
+ * Without it the repository holds every room ever created. With it, once
+ * more rooms are in memory than the limit allows, the least recently used
+ * ones that have been idle long enough are written to a spill file in their
+ * {@link T1RoomCodec} form and dropped from memory. Looking a room up,
+ * joining it or changing it loads it back, so callers never see the
+ * difference except in latency.
+ *
+ * A room is spilled under its lock, and marked as evicted before the lock is
+ * released; a change that was waiting for the lock sees the mark and looks
+ * the room up again, which loads it back with everything written before.
+ * Spill files are kept after loading and overwritten by the next eviction,
+ * so a snapshot of the {@link T1RepositoryStore} can always find a room
+ * either in memory or on disk. They are scratch files: the spill directory
+ * is emptied when eviction starts, and closing the evictor loads every room
+ * back.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1RoomEvictor implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(T1RoomEvictor.class);
+
+    private static final String SUFFIX = ".room";
+
+    private final T1PlanItPokerRepository repository;
+    private final Path directory;
+    private final int maxResidentRooms;
+    private final long idleMillis;
+    private final ScheduledExecutorService sweeper;
+    // Rooms with a spill file, in memory or not
+    private final Set<String> spilled = ConcurrentHashMap.newKeySet();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder spilledBytes = new LongAdder();
+
+    private T1RoomEvictor(T1PlanItPokerRepository repository, T1StoreConfig config) {
+        this.repository = repository;
+        this.directory = config.getSpillDirectory();
+        this.maxResidentRooms = config.getMaxResidentRooms();
+        this.idleMillis = config.getEvictionIdleMillis();
+        long interval = config.getEvictionIntervalMillis();
+        if (interval > 0 && maxResidentRooms > 0) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "planit-room-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sweeper.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            sweeper = null;
+        }
+    }
+
+    /** Starts evicting the repository's idle rooms as configured. */
+    public static T1RoomEvictor start(T1PlanItPokerRepository repository, T1StoreConfig config) throws IOException {
+        if (repository.getEvictor() != null) {
+            throw new IllegalStateException("Repository already evicts rooms");
+        }
+        Path directory = config.getSpillDirectory();
+        Files.createDirectories(directory);
+        // Left by an earlier run; the rooms in them are stale or gone
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files.filter(p -> p.toString().endsWith(SUFFIX))::iterator) {
+                Files.delete(path);
+            }
+        }
+        T1RoomEvictor evictor = new T1RoomEvictor(repository, config);
+        repository.attachEvictor(evictor);
+        return evictor;
+    }
+
+    /**
+     * Spills the least recently used idle rooms until no more than the limit
+     * are in memory, or no idle room is left.
+     *
+     * @return the number of rooms spilled
+     */
+    public int evictIdle() {
+        int excess = repository.getResidentRoomCount() - maxResidentRooms;
+        if (maxResidentRooms == 0 || excess <= 0) {
+            return 0;
+        }
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        // Keeps the most recently used of the candidates on top, so only the oldest stay
+        PriorityQueue<T1PlanItPokerRepository.Room> oldest = new PriorityQueue<>(excess + 1,
+                Comparator.comparingLong((T1PlanItPokerRepository.Room room) -> room.lastActivity).reversed());
+        for (T1PlanItPokerRepository.Room room : repository.getRooms()) {
+            if (room.lastActivity > cutoff) {
+                continue;
+            }
+            oldest.add(room);
+            if (oldest.size() > excess) {
+                oldest.poll();
+            }
+        }
+        int evicted = 0;
+        for (T1PlanItPokerRepository.Room room : oldest) {
+            try {
+                if (evict(room, cutoff)) {
+                    evicted++;
+                }
+            } catch (IOException e) {
+                logger.error("Could not spill room {}: {}", room.getCode(), e.getMessage(), e);
+                break;
+            }
+        }
+        return evicted;
+    }
+
+    private void sweep() {
+        try {
+            int evicted = evictIdle();
+            if (evicted > 0) {
+                logger.debug("Spilled {} idle rooms, {} left in memory", evicted, repository.getResidentRoomCount());
+            }
+        } catch (RuntimeException e) {
+            logger.error("Room eviction failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Spills the room unless it was used after the cutoff or is already gone
+    private boolean evict(T1PlanItPokerRepository.Room room, long cutoff) throws IOException {
+        int size;
+        synchronized (room) {
+            if (room.evicted || room.lastActivity > cutoff || repository.getResidentRoom(room.getCode()) != room) {
+                return false;
+            }
+            T1ByteWriter out = new T1ByteWriter(1024);
+            T1RoomCodec.write(out, room, repository.getSequence(room.getCode()));
+            size = out.size();
+            Path path = pathOf(room.getCode());
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(temp, out.toByteArray());
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            spilled.add(room.getCode());
+            // Marked before the lock is released, so waiting changes go after the spilled copy
+            room.evicted = true;
+            repository.removeResidentRoom(room);
+        }
+        evictions.increment();
+        spilledBytes.add(size);
+        return true;
+    }
+
+    /** Whether the room has a spill file, so looking it up may load it. */
+    boolean isSpilled(String roomCode) {
+        return spilled.contains(roomCode);
+    }
+
+    /** Reads a spilled room back; called by the repository with the room's map slot held. */
+    T1PlanItPokerRepository.Room load(String roomCode) {
+        byte[] bytes = readSpilled(roomCode);
+        if (bytes == null) {
+            return null;
+        }
+        reloads.increment();
+        return T1RoomCodec.read(new T1ByteReader(bytes), repository);
+    }
+
+    /** The spilled form of a room, or null if it has none. */
+    byte[] readSpilled(String roomCode) {
+        if (!spilled.contains(roomCode)) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(pathOf(roomCode));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read spilled room " + roomCode, e);
+        }
+    }
+
+    /** Deletes the room's spill file, for a room the repository no longer keeps. */
+    void forget(String roomCode) {
+        if (!spilled.remove(roomCode)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(pathOf(roomCode));
+        } catch (IOException e) {
+            logger.warn("Could not delete spill file of room {}: {}", roomCode, e.getMessage());
+        }
+    }
+
+    /** Codes of every room that has been spilled, including rooms loaded back since. */
+    Set<String> getSpilledCodes() {
+        return spilled;
+    }
+
+    // Room codes are free text, so file names are their UTF-8 bytes in hex
+    private Path pathOf(String roomCode) {
+        byte[] bytes = roomCode.getBytes(StandardCharsets.UTF_8);
+        StringBuilder name = new StringBuilder(bytes.length * 2 + SUFFIX.length());
+        for (byte b : bytes) {
+            name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return directory.resolve(name.append(SUFFIX).toString());
+    }
+
+    // Metrics
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getReloadCount() {
+        return reloads.sum();
+    }
+
+    public int getResidentRoomCount() {
+        return repository.getResidentRoomCount();
+    }
+
+    /** Rooms currently only on disk. */
+    public int getSpilledRoomCount() {
+        int count = 0;
+        for (String code : spilled) {
+            if (repository.getResidentRoom(code) == null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Bytes written to spill files since eviction started. */
+    public long getSpilledBytes() {
+        return spilledBytes.sum();
+    }
+
+    public int getMaxResidentRooms() {
+        return maxResidentRooms;
+    }
+
+    /** Stops evicting and loads every spilled room back into memory. */
+    @Override
+    public void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            try {
+                sweeper.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<String> codes = new ArrayList<>(spilled);
+        for (String code : codes) {
+            repository.getRoom(code);
+        }
+        repository.detachEvictor(this);
+        logger.info("Room eviction stopped after {} evictions and {} reloads", getEvictionCount(), getReloadCount());
+    }
+}
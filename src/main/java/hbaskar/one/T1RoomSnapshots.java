@@ -0,0 +1,83 @@
+package hbaskar.one;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import hbaskar.T1Card;
+
+/**
+ * T1RoomSnapshots - converts between repository rooms and snapshot events
+ *
+ * A snapshot carries everything a client needs to show a room: players,
+ * stories with their votes and reveal state, and the room's sequence
+ * number at the time it was taken. Every change event is idempotent (a vote
+ * replaces the player's previous vote, a reveal sets a flag), so an event
+ * that is both in a snapshot and applied again afterwards does no harm.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public final class T1RoomSnapshots {
+
+    private T1RoomSnapshots() {
+    }
+
+    /** Takes a snapshot of a room, labelled with the given sequence number. */
+    public static T1PlanItPokerPublisher.RoomSnapshotEvent capture(T1PlanItPokerRepository.Room room, long seq) {
+        List<T1PlanItPokerPublisher.StorySnapshot> stories = new ArrayList<>();
+        for (T1Card card : room.getAllStories()) {
+            stories.add(new T1PlanItPokerPublisher.StorySnapshot(card.getId(), card.getTitle(),
+                    card.getDescription(), card.getAssignedUser(), card.getTotalPoints(), card.getScores(),
+                    card.isRevealed(), card.getAverageScore()));
+        }
+        return new T1PlanItPokerPublisher.RoomSnapshotEvent(room.getCode(), room.getName(), room.getCreator(),
+                seq, room.getPlayers(), stories, System.currentTimeMillis());
+    }
+
+    /**
+     * Loads a snapshot into the repository unless the local copy of the room
+     * is already at least as recent.
+     *
+     * @return true if the snapshot was applied
+     */
+    public static boolean apply(T1PlanItPokerRepository repo, T1PlanItPokerPublisher.RoomSnapshotEvent snapshot) {
+        if (!isNewer(repo, snapshot)) {
+            return false;
+        }
+        // One batch, so change listeners see the whole room arrive at once
+        repo.batch(() -> load(repo, snapshot));
+        return true;
+    }
+
+    /** Whether {@link #apply} would load the snapshot, given the repository as it is now. */
+    public static boolean isNewer(T1PlanItPokerRepository repo, T1PlanItPokerPublisher.RoomSnapshotEvent snapshot) {
+        return snapshot.roomCode != null
+                && (snapshot.seq > repo.getSequence(snapshot.roomCode) || repo.getRoom(snapshot.roomCode) == null);
+    }
+
+    private static void load(T1PlanItPokerRepository repo, T1PlanItPokerPublisher.RoomSnapshotEvent snapshot) {
+        T1PlanItPokerRepository.Room room = repo.restoreRoom(snapshot.roomCode, snapshot.roomName, snapshot.creatorName);
+        // Through the repository, so a store open on it logs the snapshot's contents
+        for (String player : snapshot.players) {
+            repo.joinRoom(snapshot.roomCode, player);
+        }
+        for (T1PlanItPokerPublisher.StorySnapshot story : snapshot.stories) {
+            if (room.getStory(story.storyId) == null) {
+                repo.addStory(snapshot.roomCode, new T1Card(story.storyId, story.title, story.description,
+                        story.assignedUser, story.totalPoints));
+            } else {
+                repo.updateStoryDetails(snapshot.roomCode, story.storyId, story.assignedUser, story.totalPoints);
+            }
+            for (Map.Entry<String, Integer> score : story.scores.entrySet()) {
+                repo.recordScore(snapshot.roomCode, story.storyId, score.getKey(), score.getValue());
+            }
+            if (story.revealed) {
+                repo.revealCards(snapshot.roomCode, story.storyId);
+            }
+        }
+        // State first, then the sequence, so the sequence never claims more than the state holds
+        repo.observeSequence(snapshot.roomCode, snapshot.seq);
+    }
+}
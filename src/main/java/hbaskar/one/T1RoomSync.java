@@ -0,0 +1,268 @@
+package hbaskar.one;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * T1RoomSync - brings a late-joining client up to date from the room snapshot
+ *
+ * When the subscriber enters a room it does not know yet, the room's events
+ * are held back until the retained snapshot arrives. The snapshot is loaded
+ * into the repository, held events already covered by it are dropped, and
+ * the rest are released to the listeners in their original order. If no
+ * snapshot turns up within the wait time, the room is assumed to have none
+ * and the held events are released as they are.
+ *
+ * Sequence numbers are per-room Lamport clocks, so an event sequenced the
+ * same as the snapshot may or may not be part of it; such events are let
+ * through, which is harmless because applying an event twice changes nothing.
+ *
+ * Only the bookkeeping (baselines, held events) happens on the calling
+ * thread. With a {@link T1RoomDispatchExecutor} the snapshot itself is
+ * loaded on the room's stripe, ahead of the held events it releases, so a
+ * large room or a slow disk does not stall the MQTT callback thread.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1RoomSync implements T1EventDispatcher.Interceptor {
+    private static final Logger logger = LoggerFactory.getLogger(T1RoomSync.class);
+
+    private static final class Held {
+        final T1EventType type;
+        final Object event;
+
+        Held(T1EventType type, Object event) {
+            this.type = type;
+            this.event = event;
+        }
+    }
+
+    private static final class Pending {
+        final List<Held> held = new ArrayList<>();
+        final CountDownLatch loaded = new CountDownLatch(1);
+        ScheduledFuture<?> timeout;
+    }
+
+    private final T1EventDispatcher dispatcher;
+    private final T1PlanItPokerRepository repository;
+    private final long waitMillis;
+    // Null to load snapshots on the calling thread
+    private final T1RoomDispatchExecutor executor;
+    private final Map<String, Pending> pending = new HashMap<>();
+    // Sequence of the last snapshot loaded per room; older events are already in it
+    private final Map<String, Long> baselines = new ConcurrentHashMap<>();
+    // Rooms between begin and end, whether or not they are being synced
+    private final Set<String> entered = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService timer;
+
+    public T1RoomSync(T1EventDispatcher dispatcher, T1PlanItPokerRepository repository, long waitMillis) {
+        this(dispatcher, repository, waitMillis, null);
+    }
+
+    /**
+     * @param executor where snapshots are loaded; {@code null} loads them on
+     *                 the thread that delivers them
+     */
+    public T1RoomSync(T1EventDispatcher dispatcher, T1PlanItPokerRepository repository, long waitMillis,
+            T1RoomDispatchExecutor executor) {
+        this.dispatcher = dispatcher;
+        this.repository = repository;
+        this.waitMillis = waitMillis;
+        this.executor = executor;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "planit-room-sync");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts holding a room's events until its snapshot arrives. Call before
+     * subscribing so the retained snapshot cannot slip past. Rooms already in
+     * the repository are not held; a newer snapshot still updates them.
+     */
+    public synchronized void begin(String roomCode) {
+        entered.add(roomCode);
+        if (pending.containsKey(roomCode) || repository.getRoom(roomCode) != null) {
+            return;
+        }
+        Pending sync = new Pending();
+        pending.put(roomCode, sync);
+        sync.timeout = timer.schedule(() -> {
+            synchronized (this) {
+                if (pending.get(roomCode) == sync) {
+                    logger.debug("No snapshot for room {} after {} ms; treating it as new", roomCode, waitMillis);
+                    release(roomCode);
+                }
+            }
+        }, waitMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Stops waiting for a room that is no longer subscribed; held events are dropped. */
+    public synchronized void end(String roomCode) {
+        entered.remove(roomCode);
+        Pending sync = pending.remove(roomCode);
+        if (sync != null) {
+            sync.timeout.cancel(false);
+            sync.loaded.countDown();
+        }
+    }
+
+    /**
+     * Waits until the room's snapshot is loaded or the room turned out to have
+     * none. Returns false only if the timeout ran out first.
+     */
+    public boolean await(String roomCode, long timeoutMillis) {
+        Pending sync;
+        synchronized (this) {
+            sync = pending.get(roomCode);
+        }
+        if (sync == null) {
+            return true;
+        }
+        try {
+            return sync.loaded.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public synchronized boolean isSyncing(String roomCode) {
+        return pending.containsKey(roomCode);
+    }
+
+    @Override
+    public boolean wants(T1EventType type) {
+        return type == T1EventType.ROOM_SNAPSHOT;
+    }
+
+    /** The rooms entered with {@link #begin}: their snapshots and held events. */
+    @Override
+    public Collection<String> trackedRooms() {
+        return Collections.unmodifiableSet(entered);
+    }
+
+    @Override
+    public synchronized boolean admit(T1EventType type, Object event) {
+        if (type == T1EventType.ROOM_SNAPSHOT) {
+            T1PlanItPokerPublisher.RoomSnapshotEvent snapshot = (T1PlanItPokerPublisher.RoomSnapshotEvent) event;
+            boolean newer = T1RoomSnapshots.isNewer(repository, snapshot);
+            if (newer) {
+                baselines.merge(snapshot.roomCode, snapshot.seq, Math::max);
+                // Queued before the held events, so they are applied on top of it
+                run(snapshot.roomCode, () -> load(snapshot));
+            }
+            boolean wasSyncing = pending.containsKey(snapshot.roomCode);
+            if (wasSyncing) {
+                release(snapshot.roomCode);
+            }
+            // Listeners only hear about snapshots that change something
+            return newer || wasSyncing;
+        }
+
+        String roomCode = roomOf(event);
+        if (roomCode == null) {
+            return true;
+        }
+        Pending sync = pending.get(roomCode);
+        if (sync != null) {
+            sync.held.add(new Held(type, event));
+            return false;
+        }
+        return isNewer(roomCode, seqOf(event));
+    }
+
+    // Called with the lock held, so events admitted afterwards queue up behind the released ones
+    private void release(String roomCode) {
+        Pending sync = pending.remove(roomCode);
+        if (sync == null) {
+            return;
+        }
+        sync.timeout.cancel(false);
+        for (Held held : sync.held) {
+            if (isNewer(roomCode, seqOf(held.event))) {
+                dispatcher.release(this, held.type, held.event);
+            }
+        }
+        // Waiters wake once the snapshot and the held events are in the repository
+        run(roomCode, sync.loaded::countDown);
+    }
+
+    private void load(T1PlanItPokerPublisher.RoomSnapshotEvent snapshot) {
+        if (T1RoomSnapshots.apply(repository, snapshot)) {
+            logger.debug("Loaded snapshot of room {} at seq {}: {} stories", snapshot.roomCode,
+                    snapshot.seq, snapshot.stories.size());
+        }
+    }
+
+    private void run(String roomCode, Runnable task) {
+        if (executor == null) {
+            task.run();
+            return;
+        }
+        try {
+            executor.execute(roomCode, task);
+        } catch (RejectedExecutionException e) {
+            // The subscriber is disconnecting; run it here rather than lose it
+            task.run();
+        }
+    }
+
+    private boolean isNewer(String roomCode, long seq) {
+        Long baseline = baselines.get(roomCode);
+        // Unsequenced events (seq 0) come from older clients and always pass
+        return seq == 0 || baseline == null || seq >= baseline;
+    }
+
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    static String roomOf(Object event) {
+        if (event instanceof T1PlanItPokerPublisher.ScoreEvent) {
+            return ((T1PlanItPokerPublisher.ScoreEvent) event).roomCode;
+        } else if (event instanceof T1PlanItPokerPublisher.PlayerEvent) {
+            return ((T1PlanItPokerPublisher.PlayerEvent) event).roomCode;
+        } else if (event instanceof T1PlanItPokerPublisher.StoryEvent) {
+            return ((T1PlanItPokerPublisher.StoryEvent) event).roomCode;
+        } else if (event instanceof T1PlanItPokerPublisher.RevealEvent) {
+            return ((T1PlanItPokerPublisher.RevealEvent) event).roomCode;
+        } else if (event instanceof T1PlanItPokerPublisher.ModeEvent) {
+            return ((T1PlanItPokerPublisher.ModeEvent) event).roomCode;
+        }
+        return null;
+    }
+
+    static long seqOf(Object event) {
+        if (event instanceof T1PlanItPokerPublisher.ScoreEvent) {
+            return ((T1PlanItPokerPublisher.ScoreEvent) event).seq;
+        } else if (event instanceof T1PlanItPokerPublisher.PlayerEvent) {
+            return ((T1PlanItPokerPublisher.PlayerEvent) event).seq;
+        } else if (event instanceof T1PlanItPokerPublisher.StoryEvent) {
+            return ((T1PlanItPokerPublisher.StoryEvent) event).seq;
+        } else if (event instanceof T1PlanItPokerPublisher.RevealEvent) {
+            return ((T1PlanItPokerPublisher.RevealEvent) event).seq;
+        } else if (event instanceof T1PlanItPokerPublisher.ModeEvent) {
+            return ((T1PlanItPokerPublisher.ModeEvent) event).seq;
+        }
+        return 0;
+    }
+}
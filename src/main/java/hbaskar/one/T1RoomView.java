@@ -0,0 +1,96 @@
+package hbaskar.one;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import hbaskar.T1Card;
+
+/**
+ * T1RoomView - a versioned, copy-on-write listing of a room for readers
+ *
+ * Each {@link T1PlanItPokerRepository.Room} publishes its stories, in the
+ * order they were added, and its players, in the order they joined, as one
+ * of these. Reading it is a volatile read: no list is built and no lock is
+ * taken, so a panel can fetch it on every refresh. The version goes up with
+ * every change to the room, a vote or reveal included, so a panel that
+ * remembers the version it last drew can skip drawing the same thing again.
+ *
+ * The lists never change once published. A new story copies the story
+ * array once; a new player copies the player list once; a vote or reveal
+ * only bumps the version, sharing both lists with the view before.
+ *
+ * The cards are not copied: they are the room's live {@link T1Card}s, which
+ * votes and reveals change in place. Which stories a view holds, and in what
+ * order, is fixed, but a card read through an old view may show newer votes
+ * than its version says.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public final class T1RoomView {
+    static final T1RoomView EMPTY = new T1RoomView(0, new T1Card[0], Collections.emptyList());
+
+    private final long version;
+    private final T1Card[] stories;
+    private final List<T1Card> storyList;
+    private final List<String> players;
+
+    private T1RoomView(long version, T1Card[] stories, List<String> players) {
+        this(version, stories, Collections.unmodifiableList(Arrays.asList(stories)), players);
+    }
+
+    private T1RoomView(long version, T1Card[] stories, List<T1Card> storyList, List<String> players) {
+        this.version = version;
+        this.stories = stories;
+        this.storyList = storyList;
+        this.players = players;
+    }
+
+    /** Goes up by at least one with every change to the room. */
+    public long getVersion() {
+        return version;
+    }
+
+    /** The stories in the order they were first added; unmodifiable. */
+    public List<T1Card> getStories() {
+        return storyList;
+    }
+
+    /** The players in the order they joined; unmodifiable. */
+    public List<String> getPlayers() {
+        return players;
+    }
+
+    public int getStoryCount() {
+        return stories.length;
+    }
+
+    public int getPlayerCount() {
+        return players.size();
+    }
+
+    // Adds the story, or puts it in the place of the story with the same id
+    T1RoomView withStory(T1Card card) {
+        for (int i = 0; i < stories.length; i++) {
+            if (stories[i].getId().equals(card.getId())) {
+                T1Card[] replaced = stories.clone();
+                replaced[i] = card;
+                return new T1RoomView(version + 1, replaced, players);
+            }
+        }
+        T1Card[] added = Arrays.copyOf(stories, stories.length + 1);
+        added[stories.length] = card;
+        return new T1RoomView(version + 1, added, players);
+    }
+
+    T1RoomView withPlayers(List<String> players) {
+        return new T1RoomView(version + 1, stories, storyList, Collections.unmodifiableList(players));
+    }
+
+    // A card changed in place; both lists stay as they are
+    T1RoomView touched() {
+        return new T1RoomView(version + 1, stories, storyList, players);
+    }
+}
@@ -0,0 +1,107 @@
+package hbaskar.one;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * T1ScoreBatcher - coalesces score events per room into batches
+ *
+ * Score events for the same room are held for a short window and handed to
+ * the {@link Flusher} together, either when the window expires or when the
+ * batch reaches its maximum size, whichever comes first. Every caller gets a
+ * future that completes when the batch carrying its event is published.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1ScoreBatcher {
+
+    /** Publishes one room's batch of score events. */
+    public interface Flusher {
+        CompletableFuture<Void> flush(String roomCode, List<T1PlanItPokerPublisher.ScoreEvent> events);
+    }
+
+    private static final class Batch {
+        final List<T1PlanItPokerPublisher.ScoreEvent> events = new ArrayList<>();
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+    }
+
+    private final Flusher flusher;
+    private final long windowMillis;
+    private final int maxEvents;
+    private final Map<String, Batch> openBatches = new HashMap<>();
+    private final ScheduledExecutorService timer;
+
+    public T1ScoreBatcher(Flusher flusher, long windowMillis, int maxEvents) {
+        this.flusher = flusher;
+        this.windowMillis = windowMillis;
+        this.maxEvents = maxEvents;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "planit-score-batcher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Adds an event to its room's open batch, opening one if needed. */
+    public CompletableFuture<Void> add(T1PlanItPokerPublisher.ScoreEvent event) {
+        Batch full = null;
+        Batch batch;
+        synchronized (this) {
+            batch = openBatches.get(event.roomCode);
+            if (batch == null) {
+                batch = new Batch();
+                openBatches.put(event.roomCode, batch);
+                Batch scheduled = batch;
+                timer.schedule(() -> flush(event.roomCode, scheduled), windowMillis, TimeUnit.MILLISECONDS);
+            }
+            batch.events.add(event);
+            if (batch.events.size() >= maxEvents) {
+                openBatches.remove(event.roomCode);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            publish(event.roomCode, full);
+        }
+        return batch.result;
+    }
+
+    private void flush(String roomCode, Batch batch) {
+        synchronized (this) {
+            // The batch may already have gone out because it filled up
+            if (!openBatches.remove(roomCode, batch)) {
+                return;
+            }
+        }
+        publish(roomCode, batch);
+    }
+
+    private void publish(String roomCode, Batch batch) {
+        flusher.flush(roomCode, batch.events).whenComplete((ignored, error) -> {
+            if (error != null) {
+                batch.result.completeExceptionally(error);
+            } else {
+                batch.result.complete(null);
+            }
+        });
+    }
+
+    /** Publishes every open batch immediately and stops the timer. */
+    public void close() {
+        Map<String, Batch> remaining;
+        synchronized (this) {
+            remaining = new HashMap<>(openBatches);
+            openBatches.clear();
+        }
+        remaining.forEach(this::publish);
+        timer.shutdownNow();
+    }
+}
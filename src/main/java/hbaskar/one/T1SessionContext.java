@@ -0,0 +1,137 @@
+package hbaskar.one;
+
+import hbaskar.T1Card;
+
+/**
+ * T1SessionContext - one user's view of the shared room store
+ *
+ * Holds what used to be process-wide in {@link T1PlanItPokerRepository}: the
+ * logged-in user, the current room and mode, and the Taiga session. Rooms,
+ * stories and sequence numbers stay in the repository and are shared by every
+ * session, so a headless server or a load test can run thousands of users in
+ * one JVM without them moving each other between rooms.
+ *
+ * The desktop client keeps using the repository's own accessors, which work
+ * on {@link T1PlanItPokerRepository#getDefaultSession()}. Fields are volatile:
+ * a session is usually driven by one thread but read by the MQTT and
+ * dispatch threads of its subscriber.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1SessionContext {
+    private final T1PlanItPokerRepository repository;
+
+    private volatile String currentRoomCode;
+    private volatile String currentMode;
+    private volatile String loggedInUser;
+
+    // Taiga integration fields
+    private volatile String taigaUsername;
+    private volatile String taigaPassword;
+    private volatile String taigaProjectSlug;
+    private volatile String taigaAuthToken;
+    private volatile int taigaProjectId;
+
+    /** Created through {@link T1PlanItPokerRepository#newSession()}. */
+    T1SessionContext(T1PlanItPokerRepository repository) {
+        this.repository = repository;
+    }
+
+    public T1PlanItPokerRepository getRepository() {
+        return repository;
+    }
+
+    // User management
+    public String getLoggedInUser() {
+        return loggedInUser;
+    }
+
+    public void setLoggedInUser(String username) {
+        this.loggedInUser = username;
+    }
+
+    // Room management
+    /** Creates a room in the shared store and makes it this session's current room. */
+    public String createRoom(String roomName, String creatorName) {
+        String roomCode = repository.addRoom(roomName, creatorName);
+        setCurrentRoomCode(roomCode);
+        return roomCode;
+    }
+
+    public T1PlanItPokerRepository.Room getCurrentRoom() {
+        String roomCode = currentRoomCode;
+        return roomCode == null ? null : repository.getRoom(roomCode);
+    }
+
+    public void addStoryToCurrentRoom(T1Card card) {
+        String roomCode = currentRoomCode;
+        if (roomCode != null) {
+            repository.addStory(roomCode, card);
+        }
+    }
+
+    // Current room and mode
+    public String getCurrentRoomCode() {
+        return currentRoomCode;
+    }
+
+    public void setCurrentRoomCode(String currentRoomCode) {
+        this.currentRoomCode = currentRoomCode;
+    }
+
+    public String getCurrentMode() {
+        return currentMode;
+    }
+
+    public void setCurrentMode(String currentMode) {
+        this.currentMode = currentMode;
+    }
+
+    // Taiga credential management
+    public void setTaigaCredentials(String username, String password) {
+        this.taigaUsername = username;
+        this.taigaPassword = password;
+    }
+
+    public String getTaigaUsername() {
+        return taigaUsername;
+    }
+
+    public String getTaigaPassword() {
+        return taigaPassword;
+    }
+
+    public void setTaigaProjectSlug(String slug) {
+        this.taigaProjectSlug = slug;
+    }
+
+    public String getTaigaProjectSlug() {
+        return taigaProjectSlug;
+    }
+
+    public void setTaigaAuthToken(String token) {
+        this.taigaAuthToken = token;
+    }
+
+    public String getTaigaAuthToken() {
+        return taigaAuthToken;
+    }
+
+    public void setTaigaProjectId(int id) {
+        this.taigaProjectId = id;
+    }
+
+    public int getTaigaProjectId() {
+        return taigaProjectId;
+    }
+
+    public void setTaigaSession(String username, String password, String slug, String token, int projectId) {
+        this.taigaUsername = username;
+        this.taigaPassword = password;
+        this.taigaProjectSlug = slug;
+        this.taigaAuthToken = token;
+        this.taigaProjectId = projectId;
+    }
+}
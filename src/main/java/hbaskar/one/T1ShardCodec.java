@@ -0,0 +1,191 @@
+package hbaskar.one;
+
+import hbaskar.T1Card;
+
+/**
+ * T1ShardCodec - the messages shard nodes send each other
+ *
+ * Every message starts with the same header, so a node can route it
+ * without decoding the rest:
+ * <pre>
+ *   byte type, byte hops, room code, fields of the type
+ * </pre>
+ * Changes carry the same fields as the records of {@link T1RepositoryStore}.
+ * A handed-off room and a room checkpoint carry the room's sequence number
+ * as a varlong followed by the room in its {@link T1RoomCodec} form.
+ * A node's announcement is a version byte and the varlong time it was sent.
+ * Strings are written as by {@link T1ByteWriter#writeString(String)}.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+final class T1ShardCodec {
+    static final int ROOM_CREATED = 1;
+    static final int PLAYER_JOINED = 2;
+    static final int PLAYER_LEFT = 3;
+    static final int STORY_ADDED = 4;
+    static final int SCORE_RECORDED = 5;
+    static final int CARDS_REVEALED = 6;
+    static final int HANDOFF = 7;
+    static final int CHECKPOINT = 8;
+
+    private static final int ANNOUNCEMENT_VERSION = 1;
+    // Type and hop count
+    private static final int HEADER = 2;
+
+    private T1ShardCodec() {
+    }
+
+    // Changes
+    static byte[] roomCreated(String roomCode, String roomName, String creatorName) {
+        T1ByteWriter out = header(ROOM_CREATED, roomCode);
+        out.writeString(roomName);
+        out.writeString(creatorName);
+        return out.toByteArray();
+    }
+
+    static byte[] playerJoined(String roomCode, String playerName) {
+        T1ByteWriter out = header(PLAYER_JOINED, roomCode);
+        out.writeString(playerName);
+        return out.toByteArray();
+    }
+
+    static byte[] playerLeft(String roomCode, String playerName) {
+        T1ByteWriter out = header(PLAYER_LEFT, roomCode);
+        out.writeString(playerName);
+        return out.toByteArray();
+    }
+
+    static byte[] storyAdded(String roomCode, T1Card card) {
+        T1ByteWriter out = header(STORY_ADDED, roomCode);
+        out.writeString(card.getId());
+        out.writeString(card.getTitle());
+        out.writeString(card.getDescription());
+        out.writeString(card.getAssignedUser());
+        out.writeDouble(card.getTotalPoints());
+        return out.toByteArray();
+    }
+
+    static byte[] scoreRecorded(String roomCode, String storyId, String playerName, int score) {
+        T1ByteWriter out = header(SCORE_RECORDED, roomCode);
+        out.writeString(storyId);
+        out.writeString(playerName);
+        out.writeSignedVarLong(score);
+        return out.toByteArray();
+    }
+
+    static byte[] cardsRevealed(String roomCode, String storyId) {
+        T1ByteWriter out = header(CARDS_REVEALED, roomCode);
+        out.writeString(storyId);
+        return out.toByteArray();
+    }
+
+    /** The whole room, as handed to its new owner or kept as its checkpoint; the caller holds the room's lock. */
+    static byte[] room(int type, T1PlanItPokerRepository.Room room, long seq) {
+        T1ByteWriter out = header(type, room.getCode());
+        out.writeVarLong(seq);
+        T1RoomCodec.write(out, room, seq);
+        return out.toByteArray();
+    }
+
+    private static T1ByteWriter header(int type, String roomCode) {
+        T1ByteWriter out = new T1ByteWriter(64);
+        out.writeByte(type);
+        out.writeByte(0);
+        out.writeString(roomCode);
+        return out;
+    }
+
+    // Header
+    static int typeOf(byte[] message) {
+        return message[0];
+    }
+
+    static int hopsOf(byte[] message) {
+        return message[1];
+    }
+
+    static String roomOf(byte[] message) {
+        return new T1ByteReader(message, HEADER, message.length - HEADER).readString();
+    }
+
+    /** A copy of the message counting one more hop. */
+    static byte[] forwarded(byte[] message) {
+        byte[] copy = message.clone();
+        copy[1]++;
+        return copy;
+    }
+
+    static boolean isRoom(byte[] message) {
+        int type = typeOf(message);
+        return type == HANDOFF || type == CHECKPOINT;
+    }
+
+    /** The sequence number of a handed-off or checkpointed room. */
+    static long seqOf(byte[] message) {
+        T1ByteReader in = body(message);
+        return in.readVarLong();
+    }
+
+    /** Rebuilds a handed-off or checkpointed room, not yet added to the repository. */
+    static T1PlanItPokerRepository.Room readRoom(byte[] message, T1PlanItPokerRepository repository) {
+        T1ByteReader in = body(message);
+        in.readVarLong();
+        return T1RoomCodec.read(in, repository);
+    }
+
+    /** Makes the change through the repository, which must hold the room unless the change creates it. */
+    static void apply(byte[] message, T1PlanItPokerRepository repository) {
+        T1ByteReader in = body(message);
+        String roomCode = roomOf(message);
+        switch (typeOf(message)) {
+            case ROOM_CREATED:
+                repository.restoreRoom(roomCode, in.readString(), in.readString());
+                break;
+            case PLAYER_JOINED:
+                repository.joinRoom(roomCode, in.readString());
+                break;
+            case PLAYER_LEFT:
+                repository.leaveRoom(roomCode, in.readString());
+                break;
+            case STORY_ADDED:
+                repository.addStory(roomCode, new T1Card(in.readString(), in.readString(), in.readString(),
+                        in.readString(), in.readDouble()));
+                break;
+            case SCORE_RECORDED:
+                repository.updateStoryScore(roomCode, in.readString(), in.readString(), (int) in.readSignedVarLong());
+                break;
+            case CARDS_REVEALED:
+                repository.revealCards(roomCode, in.readString());
+                break;
+            default:
+                throw new IllegalArgumentException("Not a change: message type " + typeOf(message));
+        }
+    }
+
+    // Positioned after the room code
+    private static T1ByteReader body(byte[] message) {
+        T1ByteReader in = new T1ByteReader(message, HEADER, message.length - HEADER);
+        in.readString();
+        return in;
+    }
+
+    // Announcements
+    static byte[] announcement(long sentAt) {
+        T1ByteWriter out = new T1ByteWriter(16);
+        out.writeByte(ANNOUNCEMENT_VERSION);
+        out.writeVarLong(sentAt);
+        return out.toByteArray();
+    }
+
+    /** When the announcement was sent. */
+    static long sentAtOf(byte[] announcement) {
+        T1ByteReader in = new T1ByteReader(announcement);
+        int version = in.readByte();
+        if (version != ANNOUNCEMENT_VERSION) {
+            throw new IllegalArgumentException("Unknown announcement version " + version);
+        }
+        return in.readVarLong();
+    }
+}
@@ -0,0 +1,127 @@
+package hbaskar.one;
+
+/**
+ * T1ShardConfig - settings for spreading rooms over several server nodes
+ *
+ * Holds the options used by {@link T1ShardNode#start}. A fresh instance
+ * carries the defaults, so callers only need to set the values they want to
+ * change. Every node of a cluster must use the same number of virtual nodes,
+ * or they will disagree on who owns which room.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1ShardConfig {
+    private int virtualNodes = 128;
+    private long heartbeatIntervalMillis = 1000;
+    private long memberTimeoutMillis = 5000;
+    private long handoffWaitMillis = 2000;
+    private long checkpointIntervalMillis = 1000;
+    private long leaveGraceMillis = 500;
+    private int maxHops = 4;
+    private int laneThreads = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    // Placement
+    /** Points each node takes on the hash ring; more spread rooms more evenly. */
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Virtual nodes must be positive: " + virtualNodes);
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    // Membership
+    /** How often a node repeats its announcement. */
+    public long getHeartbeatIntervalMillis() {
+        return heartbeatIntervalMillis;
+    }
+
+    public void setHeartbeatIntervalMillis(long heartbeatIntervalMillis) {
+        if (heartbeatIntervalMillis < 1) {
+            throw new IllegalArgumentException("Heartbeat interval must be at least 1 ms: " + heartbeatIntervalMillis);
+        }
+        this.heartbeatIntervalMillis = heartbeatIntervalMillis;
+    }
+
+    /** How long a node may go unheard before the others drop it and take over its rooms. */
+    public long getMemberTimeoutMillis() {
+        return memberTimeoutMillis;
+    }
+
+    public void setMemberTimeoutMillis(long memberTimeoutMillis) {
+        if (memberTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Member timeout must be at least 1 ms: " + memberTimeoutMillis);
+        }
+        this.memberTimeoutMillis = memberTimeoutMillis;
+    }
+
+    // Rebalancing
+    /**
+     * How long changes for a room this node now owns wait for the previous
+     * owner to hand it over, before the room's checkpoint is loaded instead.
+     */
+    public long getHandoffWaitMillis() {
+        return handoffWaitMillis;
+    }
+
+    public void setHandoffWaitMillis(long handoffWaitMillis) {
+        if (handoffWaitMillis < 0) {
+            throw new IllegalArgumentException("Handoff wait must not be negative: " + handoffWaitMillis);
+        }
+        this.handoffWaitMillis = handoffWaitMillis;
+    }
+
+    /** How often a changed room's checkpoint is republished; 0 for never, losing rooms of crashed nodes. */
+    public long getCheckpointIntervalMillis() {
+        return checkpointIntervalMillis;
+    }
+
+    public void setCheckpointIntervalMillis(long checkpointIntervalMillis) {
+        if (checkpointIntervalMillis < 0) {
+            throw new IllegalArgumentException("Checkpoint interval must not be negative: " + checkpointIntervalMillis);
+        }
+        this.checkpointIntervalMillis = checkpointIntervalMillis;
+    }
+
+    /** How long a leaving node keeps forwarding changes sent by nodes that have not heard it left. */
+    public long getLeaveGraceMillis() {
+        return leaveGraceMillis;
+    }
+
+    public void setLeaveGraceMillis(long leaveGraceMillis) {
+        if (leaveGraceMillis < 0) {
+            throw new IllegalArgumentException("Leave grace must not be negative: " + leaveGraceMillis);
+        }
+        this.leaveGraceMillis = leaveGraceMillis;
+    }
+
+    // Routing
+    /** Times a change may be forwarded while nodes disagree on the members before it is kept where it is. */
+    public int getMaxHops() {
+        return maxHops;
+    }
+
+    public void setMaxHops(int maxHops) {
+        if (maxHops < 1 || maxHops > 127) {
+            throw new IllegalArgumentException("Max hops must be between 1 and 127: " + maxHops);
+        }
+        this.maxHops = maxHops;
+    }
+
+    /** Threads applying changes; a room always uses the same one, so its changes stay in order. */
+    public int getLaneThreads() {
+        return laneThreads;
+    }
+
+    public void setLaneThreads(int laneThreads) {
+        if (laneThreads < 1) {
+            throw new IllegalArgumentException("Lane threads must be positive: " + laneThreads);
+        }
+        this.laneThreads = laneThreads;
+    }
+}
@@ -0,0 +1,603 @@
+package hbaskar.one;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hbaskar.T1Card;
+
+/**
+ * T1ShardNode - one of several server instances sharing the rooms between them
+ *
+ * Each node keeps only the rooms it owns in its repository. Ownership
+ * follows a {@link T1HashRing} over the live nodes, so every node works out
+ * the owner of any room on its own. Nodes announce themselves with a retained
+ * message on {@link T1Topics#shardMemberTopic}, repeated as a heartbeat, and
+ * clear it when they leave; a node not heard from within the member timeout
+ * is dropped by the others.
+ *
+ * Changes made through a node (creating a room, joining, adding a story,
+ * voting, revealing) are applied where they are made if that node owns the
+ * room, and otherwise sent to the owner's inbox topic. A node that gets a
+ * change for a room it does not own forwards it, up to a hop limit, so
+ * changes still arrive while nodes briefly disagree on the members.
+ *
+ * When the members change, each node hands the rooms it no longer owns to
+ * their new owners: the room is encoded and dropped under its lock, and the
+ * changes that come after it are forwarded behind it. A new owner holds the
+ * changes for a room it does not have yet until the room is handed over. If
+ * no handoff comes, because the old owner crashed, it loads the room's
+ * retained checkpoint instead, which owners republish shortly after every
+ * change; changes made after the last checkpoint of a crashed node are lost.
+ *
+ * A room's changes run in order on one lane of a
+ * {@link T1RoomDispatchExecutor}, and so do its handoffs and checkpoints,
+ * so a room is never changed while it moves. Several nodes can run in one
+ * JVM, each with its own detached repository, over a {@code loopback://}
+ * broker or a local MQTT broker.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1ShardNode implements AutoCloseable, MqttCallback {
+    private static final Logger logger = LoggerFactory.getLogger(T1ShardNode.class);
+
+    private static final byte[] LEFT = new byte[0];
+
+    // Changes for a room this node owns but has not received yet
+    private static final class Held {
+        final List<byte[]> changes = new ArrayList<>();
+        ScheduledFuture<?> timeout;
+        // Past the handoff wait and loading the checkpoint instead
+        boolean fetching;
+    }
+
+    private final String nodeId;
+    private final T1PlanItPokerRepository repository;
+    private final T1ShardConfig config;
+    private final int qos;
+    private final T1ConnectionManager.Handle transport;
+    private final T1RoomDispatchExecutor lanes;
+    private final ScheduledExecutorService timer;
+    private final T1SnapshotScheduler checkpoints;
+    // Other live nodes and when each was last heard from
+    private final Map<String, Long> members = new ConcurrentHashMap<>();
+    // Only changed on the room's lane
+    private final Map<String, Held> held = new ConcurrentHashMap<>();
+    private volatile T1HashRing ring;
+    private volatile boolean leaving;
+    private ScheduledFuture<?> heartbeat;
+
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder handedOff = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rebalances = new LongAdder();
+
+    private T1ShardNode(String nodeId, T1PlanItPokerRepository repository, T1MessagingConfig messaging,
+            T1ShardConfig config) {
+        this.nodeId = nodeId;
+        this.repository = repository;
+        this.config = config;
+        this.qos = messaging.getQos();
+        this.ring = new T1HashRing(Collections.singleton(nodeId), config.getVirtualNodes());
+        this.lanes = new T1RoomDispatchExecutor(config.getLaneThreads(), 10000);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "planit-shard-" + nodeId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.checkpoints = config.getCheckpointIntervalMillis() > 0
+                ? new T1SnapshotScheduler(code -> lanes.execute(code, () -> checkpoint(code)),
+                        config.getCheckpointIntervalMillis())
+                : null;
+        this.transport = T1ConnectionManager.acquire(messaging);
+        transport.setCallback(this);
+    }
+
+    /**
+     * Starts a node keeping its rooms in the repository, which should be
+     * its own (see {@link T1PlanItPokerRepository#createDetached()}), and
+     * announces it to the other nodes on the configured broker.
+     */
+    public static T1ShardNode start(String nodeId, T1PlanItPokerRepository repository, T1MessagingConfig messaging,
+            T1ShardConfig config) throws MqttException {
+        if (nodeId == null || nodeId.isEmpty()) {
+            throw new IllegalArgumentException("Node id must not be empty");
+        }
+        T1ShardNode node = new T1ShardNode(nodeId, repository, messaging, config);
+        try {
+            node.join();
+        } catch (MqttException e) {
+            node.transport.disconnect();
+            node.timer.shutdownNow();
+            node.lanes.shutdown(0);
+            throw e;
+        }
+        return node;
+    }
+
+    private void join() throws MqttException {
+        transport.subscribe(T1Topics.shardInboxTopic(nodeId), qos);
+        // Retained announcements bring in the nodes already running
+        transport.subscribe(T1Topics.shardMemberFilter(), qos);
+        announce();
+        long interval = config.getHeartbeatIntervalMillis();
+        heartbeat = timer.scheduleWithFixedDelay(this::beat, interval, interval, TimeUnit.MILLISECONDS);
+        logger.info("Shard node {} started", nodeId);
+    }
+
+    // Changes
+    public void createRoom(String roomCode, String roomName, String creatorName) {
+        route(T1ShardCodec.roomCreated(roomCode, roomName, creatorName));
+    }
+
+    public void joinRoom(String roomCode, String playerName) {
+        route(T1ShardCodec.playerJoined(roomCode, playerName));
+    }
+
+    public void leaveRoom(String roomCode, String playerName) {
+        route(T1ShardCodec.playerLeft(roomCode, playerName));
+    }
+
+    public void addStory(String roomCode, T1Card card) {
+        route(T1ShardCodec.storyAdded(roomCode, card));
+    }
+
+    public void vote(String roomCode, String storyId, String playerName, int score) {
+        route(T1ShardCodec.scoreRecorded(roomCode, storyId, playerName, score));
+    }
+
+    public void revealCards(String roomCode, String storyId) {
+        route(T1ShardCodec.cardsRevealed(roomCode, storyId));
+    }
+
+    // Applied or sent on from the room's lane, behind everything queued for it
+    private void route(byte[] message) {
+        String roomCode = T1ShardCodec.roomOf(message);
+        lanes.execute(roomCode, () -> handle(roomCode, message));
+    }
+
+    // Routing, on the room's lane
+    private void handle(String roomCode, byte[] message) {
+        if (T1ShardCodec.isRoom(message)) {
+            receive(roomCode, message);
+            return;
+        }
+        String owner = ring.ownerOf(roomCode);
+        if (owner != null && !owner.equals(nodeId) && T1ShardCodec.hopsOf(message) < config.getMaxHops()) {
+            send(owner, T1ShardCodec.forwarded(message));
+            forwarded.increment();
+            return;
+        }
+        Held waiting = held.get(roomCode);
+        if (waiting != null) {
+            waiting.changes.add(message);
+            return;
+        }
+        if (T1ShardCodec.typeOf(message) != T1ShardCodec.ROOM_CREATED && repository.getRoom(roomCode) == null) {
+            hold(roomCode, message);
+            return;
+        }
+        apply(roomCode, message);
+    }
+
+    private void apply(String roomCode, byte[] message) {
+        T1ShardCodec.apply(message, repository);
+        // The sequence number counts changes, so the newer of two copies of a room is known
+        repository.nextSequence(roomCode);
+        applied.increment();
+        if (checkpoints != null) {
+            checkpoints.roomChanged(roomCode);
+        }
+    }
+
+    // Waits for the room to be handed over, then for its checkpoint
+    private void hold(String roomCode, byte[] message) {
+        Held waiting = new Held();
+        waiting.changes.add(message);
+        held.put(roomCode, waiting);
+        waiting.timeout = schedule(roomCode, waiting);
+    }
+
+    private ScheduledFuture<?> schedule(String roomCode, Held waiting) {
+        return timer.schedule(() -> lanes.execute(roomCode, () -> waited(roomCode, waiting)),
+                config.getHandoffWaitMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void waited(String roomCode, Held waiting) {
+        if (held.get(roomCode) != waiting) {
+            return;
+        }
+        if (!waiting.fetching) {
+            // No handoff: the previous owner is gone, so the room comes from its retained checkpoint
+            waiting.fetching = true;
+            subscribe(T1Topics.shardStateTopic(roomCode));
+            waiting.timeout = schedule(roomCode, waiting);
+            return;
+        }
+        // Neither came, so there is no such room; only a change creating it can be applied
+        stopHolding(roomCode, waiting);
+        int lost = 0;
+        for (byte[] change : waiting.changes) {
+            if (T1ShardCodec.typeOf(change) == T1ShardCodec.ROOM_CREATED || repository.getRoom(roomCode) != null) {
+                apply(roomCode, change);
+            } else {
+                lost++;
+            }
+        }
+        if (lost > 0) {
+            dropped.add(lost);
+            logger.warn("Node {} dropped {} changes for unknown room {}", nodeId, lost, roomCode);
+        }
+    }
+
+    private void stopHolding(String roomCode, Held waiting) {
+        held.remove(roomCode, waiting);
+        waiting.timeout.cancel(false);
+        if (waiting.fetching) {
+            unsubscribe(T1Topics.shardStateTopic(roomCode));
+        }
+    }
+
+    // Runs the held changes again, now that the room is here or belongs elsewhere
+    private void release(String roomCode) {
+        Held waiting = held.get(roomCode);
+        if (waiting == null) {
+            return;
+        }
+        stopHolding(roomCode, waiting);
+        for (byte[] change : waiting.changes) {
+            handle(roomCode, change);
+        }
+    }
+
+    // A handed-off room, or the checkpoint of one this node is waiting for
+    private void receive(String roomCode, byte[] message) {
+        boolean handoff = T1ShardCodec.typeOf(message) == T1ShardCodec.HANDOFF;
+        String owner = ring.ownerOf(roomCode);
+        if (handoff && owner != null && !owner.equals(nodeId) && T1ShardCodec.hopsOf(message) < config.getMaxHops()) {
+            send(owner, T1ShardCodec.forwarded(message));
+            forwarded.increment();
+            return;
+        }
+        if (!handoff && !held.containsKey(roomCode)) {
+            // A checkpoint only matters while the room is missing
+            return;
+        }
+        T1PlanItPokerRepository.Room local = repository.getRoom(roomCode);
+        if (local == null || T1ShardCodec.seqOf(message) > repository.getSequence(roomCode)) {
+            T1PlanItPokerRepository.Room room = T1ShardCodec.readRoom(message, repository);
+            if (local != null) {
+                synchronized (local) {
+                    repository.releaseRoom(local);
+                }
+            }
+            repository.installRoom(room);
+            if (handoff) {
+                received.increment();
+            } else {
+                recovered.increment();
+                logger.info("Node {} recovered room {} from its checkpoint", nodeId, roomCode);
+            }
+            if (checkpoints != null) {
+                checkpoints.roomChanged(roomCode);
+            }
+        }
+        release(roomCode);
+    }
+
+    // Rebalancing
+    private synchronized void membershipChanged() {
+        Set<String> nodes = new HashSet<>(members.keySet());
+        if (!leaving) {
+            nodes.add(nodeId);
+        }
+        T1HashRing next = new T1HashRing(nodes, config.getVirtualNodes());
+        if (next.sameAs(ring)) {
+            return;
+        }
+        ring = next;
+        rebalances.increment();
+        logger.info("Node {} now shares rooms with {}", nodeId, next.getNodes());
+        timer.execute(this::rebalance);
+    }
+
+    // Queues a handoff for every room that belongs elsewhere now, behind the room's changes
+    private void rebalance() {
+        T1HashRing current = ring;
+        for (String roomCode : repository.getAvailableRoomCodes()) {
+            if (!nodeId.equals(current.ownerOf(roomCode))) {
+                lanes.execute(roomCode, () -> handOff(roomCode));
+            }
+        }
+        for (String roomCode : held.keySet()) {
+            if (!nodeId.equals(current.ownerOf(roomCode))) {
+                lanes.execute(roomCode, () -> release(roomCode));
+            }
+        }
+    }
+
+    private void handOff(String roomCode) {
+        String owner = ring.ownerOf(roomCode);
+        if (owner == null || owner.equals(nodeId)) {
+            return;
+        }
+        T1PlanItPokerRepository.Room room = repository.getRoom(roomCode);
+        if (room == null) {
+            return;
+        }
+        // Under the lock, so no change made directly on the repository slips in between
+        synchronized (room) {
+            if (!send(owner, T1ShardCodec.room(T1ShardCodec.HANDOFF, room, repository.getSequence(roomCode)))) {
+                return;
+            }
+            repository.releaseRoom(room);
+        }
+        handedOff.increment();
+        logger.debug("Node {} handed room {} to {}", nodeId, roomCode, owner);
+    }
+
+    private void checkpoint(String roomCode) {
+        if (!nodeId.equals(ring.ownerOf(roomCode))) {
+            return;
+        }
+        T1PlanItPokerRepository.Room room = repository.getRoom(roomCode);
+        if (room == null) {
+            return;
+        }
+        byte[] message;
+        synchronized (room) {
+            message = T1ShardCodec.room(T1ShardCodec.CHECKPOINT, room, repository.getSequence(roomCode));
+        }
+        publish(T1Topics.shardStateTopic(roomCode), message, true);
+    }
+
+    // Membership
+    private void beat() {
+        try {
+            announce();
+            expire();
+        } catch (RuntimeException e) {
+            logger.error("Shard node {} heartbeat failed: {}", nodeId, e.getMessage(), e);
+        }
+    }
+
+    private void announce() {
+        publish(T1Topics.shardMemberTopic(nodeId), T1ShardCodec.announcement(System.currentTimeMillis()), true);
+    }
+
+    private void expire() {
+        long cutoff = System.currentTimeMillis() - config.getMemberTimeoutMillis();
+        for (Map.Entry<String, Long> member : members.entrySet()) {
+            if (member.getValue() < cutoff && members.remove(member.getKey(), member.getValue())) {
+                logger.warn("Node {} lost node {}; taking over its rooms", nodeId, member.getKey());
+                // Cleared for everyone, so the others drop it too and later nodes never see it
+                publish(T1Topics.shardMemberTopic(member.getKey()), LEFT, true);
+                membershipChanged();
+            }
+        }
+    }
+
+    private void memberHeard(String member, byte[] announcement) {
+        if (member.equals(nodeId)) {
+            return;
+        }
+        if (announcement.length == 0) {
+            if (members.remove(member) != null) {
+                logger.info("Node {} saw node {} leave", nodeId, member);
+                membershipChanged();
+            }
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // Retained by a node that stopped without leaving
+        if (now - T1ShardCodec.sentAtOf(announcement) > config.getMemberTimeoutMillis()) {
+            return;
+        }
+        if (members.put(member, now) == null) {
+            logger.info("Node {} saw node {} join", nodeId, member);
+            membershipChanged();
+        }
+    }
+
+    // MQTT
+    @Override
+    public void messageArrived(String topic, MqttMessage message) {
+        byte[] payload = message.getPayload();
+        String member = T1Topics.shardMemberOf(topic);
+        if (member != null) {
+            memberHeard(member, payload);
+            return;
+        }
+        // Empty when a retained checkpoint is cleared
+        if (payload.length < 2) {
+            return;
+        }
+        String roomCode = T1ShardCodec.roomOf(payload);
+        lanes.execute(roomCode, () -> handle(roomCode, payload));
+    }
+
+    @Override
+    public void connectionLost(Throwable cause) {
+        // The connection supervisor reconnects and subscribes again; announcements resume with the heartbeat
+        logger.warn("Shard node {} lost its broker connection: {}", nodeId, cause.getMessage());
+    }
+
+    @Override
+    public void deliveryComplete(IMqttDeliveryToken token) {
+    }
+
+    private boolean send(String node, byte[] message) {
+        return publish(T1Topics.shardInboxTopic(node), message, false);
+    }
+
+    private boolean publish(String topic, byte[] payload, boolean retained) {
+        try {
+            transport.publish(topic, payload, qos, retained, null);
+            return true;
+        } catch (MqttException e) {
+            logger.error("Shard node {} could not publish to {}: {}", nodeId, topic, e.getMessage());
+            return false;
+        }
+    }
+
+    private void subscribe(String topic) {
+        try {
+            transport.subscribe(topic, qos);
+        } catch (MqttException e) {
+            logger.error("Shard node {} could not subscribe to {}: {}", nodeId, topic, e.getMessage());
+        }
+    }
+
+    private void unsubscribe(String topic) {
+        try {
+            transport.unsubscribe(topic);
+        } catch (MqttException e) {
+            logger.warn("Shard node {} could not unsubscribe from {}: {}", nodeId, topic, e.getMessage());
+        }
+    }
+
+    // Inspection
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /** The repository holding this node's rooms. */
+    public T1PlanItPokerRepository getRepository() {
+        return repository;
+    }
+
+    /** The ring as this node sees it. */
+    public T1HashRing getRing() {
+        return ring;
+    }
+
+    /** The node the room belongs to, as far as this node knows. */
+    public String ownerOf(String roomCode) {
+        return ring.ownerOf(roomCode);
+    }
+
+    public boolean owns(String roomCode) {
+        return nodeId.equals(ring.ownerOf(roomCode));
+    }
+
+    /** Rooms kept on this node, in memory or spilled. */
+    public int getRoomCount() {
+        return repository.getAvailableRoomCodes().size();
+    }
+
+    /**
+     * Waits until every change queued on this node has been applied or sent
+     * on; changes still travelling between nodes are not covered.
+     *
+     * @return false if the timeout ran out first
+     */
+    public boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (lanes.getQueueDepth() > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    // Metrics
+    public long getAppliedCount() {
+        return applied.sum();
+    }
+
+    public long getForwardedCount() {
+        return forwarded.sum();
+    }
+
+    public long getHandedOffCount() {
+        return handedOff.sum();
+    }
+
+    public long getReceivedCount() {
+        return received.sum();
+    }
+
+    public long getRecoveredCount() {
+        return recovered.sum();
+    }
+
+    /** Changes lost because their room existed nowhere. */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getRebalanceCount() {
+        return rebalances.sum();
+    }
+
+    /** Rooms with changes waiting for the room to arrive. */
+    public int getHeldRoomCount() {
+        return held.size();
+    }
+
+    /**
+     * Leaves the cluster: the other nodes are told first, so they route
+     * elsewhere, then every room is handed to its new owner. Changes still
+     * arriving are forwarded for the leave grace time before the node stops.
+     * The last node to leave keeps its rooms in its repository.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (leaving) {
+                return;
+            }
+            leaving = true;
+        }
+        heartbeat.cancel(false);
+        publish(T1Topics.shardMemberTopic(nodeId), LEFT, true);
+        membershipChanged();
+        try {
+            // The rebalance is queued on the timer; once it ran, the handoffs are on the lanes
+            timer.submit(() -> { }).get();
+            awaitIdle(10000);
+            Thread.sleep(config.getLeaveGraceMillis());
+            awaitIdle(10000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Shard node {} could not hand off its rooms: {}", nodeId, e.getMessage(), e);
+        }
+        if (checkpoints != null) {
+            checkpoints.close();
+        }
+        timer.shutdownNow();
+        try {
+            transport.disconnect();
+        } catch (MqttException e) {
+            logger.warn("Shard node {} could not disconnect: {}", nodeId, e.getMessage());
+        }
+        lanes.shutdown(5000);
+        logger.info("Shard node {} left after handing off {} rooms", nodeId, getHandedOffCount());
+    }
+}
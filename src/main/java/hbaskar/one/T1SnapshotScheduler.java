@@ -0,0 +1,61 @@
+package hbaskar.one;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * T1SnapshotScheduler - decides when a room's snapshot is republished
+ *
+ * A room that changes is marked dirty and its snapshot is published once
+ * the interval has passed, however many changes happened in between. A
+ * voting round therefore costs one snapshot message, not one per vote.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1SnapshotScheduler {
+    private final Consumer<String> publishSnapshot;
+    private final long intervalMillis;
+    private final Set<String> dirtyRooms = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService timer;
+
+    public T1SnapshotScheduler(Consumer<String> publishSnapshot, long intervalMillis) {
+        this.publishSnapshot = publishSnapshot;
+        this.intervalMillis = intervalMillis;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "planit-snapshots");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Schedules a snapshot of the room unless one is already due. */
+    public void roomChanged(String roomCode) {
+        if (roomCode != null && dirtyRooms.add(roomCode)) {
+            timer.schedule(() -> publish(roomCode), intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void publish(String roomCode) {
+        // Unmark first: a change made while publishing schedules the next snapshot
+        if (dirtyRooms.remove(roomCode)) {
+            publishSnapshot.accept(roomCode);
+        }
+    }
+
+    /** Publishes the snapshots still due right away and stops the timer. */
+    public void close() {
+        timer.shutdownNow();
+        List<String> due = new ArrayList<>(dirtyRooms);
+        for (String roomCode : due) {
+            publish(roomCode);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package hbaskar.one;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * T1StoreConfig - settings for how the repository keeps its rooms
+ *
+ * Holds the options used by {@link T1RepositoryStore#open} and
+ * {@link T1RoomEvictor#start}. A fresh instance carries the defaults, so
+ * callers only need to set the values they want to change.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1StoreConfig {
+    private Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "planit-store");
+    private T1RepositoryStore.SyncPolicy syncPolicy = T1RepositoryStore.SyncPolicy.PERIODIC;
+    private long syncIntervalMillis = 200;
+    private long snapshotIntervalMillis = 60000;
+    private int queueCapacity = 65536;
+    private Path spillDirectory = Paths.get(System.getProperty("java.io.tmpdir"), "planit-spill");
+    private int maxResidentRooms = 0;
+    private long evictionIdleMillis = 60000;
+    private long evictionIntervalMillis = 5000;
+
+    // Files
+    /** Directory holding the log segments and snapshots; created if missing. */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(Path directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Store directory must not be null");
+        }
+        this.directory = directory;
+    }
+
+    // Durability
+    /** When log writes are forced to disk. */
+    public T1RepositoryStore.SyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
+    public void setSyncPolicy(T1RepositoryStore.SyncPolicy syncPolicy) {
+        if (syncPolicy == null) {
+            throw new IllegalArgumentException("Sync policy must not be null");
+        }
+        this.syncPolicy = syncPolicy;
+    }
+
+    /** Longest time written changes wait for a sync under {@link T1RepositoryStore.SyncPolicy#PERIODIC}. */
+    public long getSyncIntervalMillis() {
+        return syncIntervalMillis;
+    }
+
+    public void setSyncIntervalMillis(long syncIntervalMillis) {
+        if (syncIntervalMillis < 1) {
+            throw new IllegalArgumentException("Sync interval must be at least 1 ms: " + syncIntervalMillis);
+        }
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    /** Changes waiting for the log writer before callers block; bounds memory under a burst. */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    // Compaction
+    /** How often the state is written to a snapshot and older log segments dropped; 0 for never. */
+    public long getSnapshotIntervalMillis() {
+        return snapshotIntervalMillis;
+    }
+
+    public void setSnapshotIntervalMillis(long snapshotIntervalMillis) {
+        if (snapshotIntervalMillis < 0) {
+            throw new IllegalArgumentException("Snapshot interval must not be negative: " + snapshotIntervalMillis);
+        }
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    // Eviction
+    /** Where evicted rooms are kept until they are needed again; emptied when eviction starts. */
+    public Path getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    public void setSpillDirectory(Path spillDirectory) {
+        if (spillDirectory == null) {
+            throw new IllegalArgumentException("Spill directory must not be null");
+        }
+        this.spillDirectory = spillDirectory;
+    }
+
+    /** Rooms kept in memory before the least recently used idle ones are spilled; 0 for no limit. */
+    public int getMaxResidentRooms() {
+        return maxResidentRooms;
+    }
+
+    public void setMaxResidentRooms(int maxResidentRooms) {
+        if (maxResidentRooms < 0) {
+            throw new IllegalArgumentException("Resident room limit must not be negative: " + maxResidentRooms);
+        }
+        this.maxResidentRooms = maxResidentRooms;
+    }
+
+    /** How long a room must go unused before it may be evicted, even over the limit. */
+    public long getEvictionIdleMillis() {
+        return evictionIdleMillis;
+    }
+
+    public void setEvictionIdleMillis(long evictionIdleMillis) {
+        if (evictionIdleMillis < 0) {
+            throw new IllegalArgumentException("Eviction idle time must not be negative: " + evictionIdleMillis);
+        }
+        this.evictionIdleMillis = evictionIdleMillis;
+    }
+
+    /** How often the resident rooms are checked against the limit; 0 to only evict on request. */
+    public long getEvictionIntervalMillis() {
+        return evictionIntervalMillis;
+    }
+
+    public void setEvictionIntervalMillis(long evictionIntervalMillis) {
+        if (evictionIntervalMillis < 0) {
+            throw new IllegalArgumentException("Eviction interval must not be negative: " + evictionIntervalMillis);
+        }
+        this.evictionIntervalMillis = evictionIntervalMillis;
+    }
+}
@@ -0,0 +1,232 @@
+package hbaskar.one;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import hbaskar.T1Card;
+
+/**
+ * T1StoryIndex - secondary indexes over the stories of one room
+ *
+ * Keeps the room's stories findable by assigned user, by whether their
+ * cards are revealed, by the average of the votes cast so far and by their
+ * Taiga total points, so a {@link T1StoryQuery} touches only the stories it
+ * returns instead of checking every card. Ranges are sorted maps, so a range
+ * query costs a lookup plus one step per match.
+ *
+ * Each story's indexed values are remembered, so when a card changes only
+ * the entries that moved are updated. The index belongs to its room and is
+ * only used under the room's lock, the lock its changes are made under, so
+ * a query never sees a card half indexed.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+final class T1StoryIndex {
+
+    // What a story is indexed under
+    private static final class Entry {
+        final T1Card card;
+        final long order;
+        String assignedUser;
+        boolean revealed;
+        double average;
+        double totalPoints;
+
+        Entry(T1Card card, long order) {
+            this.card = card;
+            this.order = order;
+        }
+    }
+
+    private static final Comparator<Entry> BY_ORDER = Comparator.comparingLong(entry -> entry.order);
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, Set<Entry>> byAssignee = new HashMap<>();
+    private final Set<Entry> revealed = new HashSet<>();
+    private final Set<Entry> unrevealed = new HashSet<>();
+    // Stories without votes have no average and are left out
+    private final NavigableMap<Double, Set<Entry>> byAverage = new TreeMap<>();
+    private final NavigableMap<Double, Set<Entry>> byTotalPoints = new TreeMap<>();
+    private long nextOrder;
+
+    /** Indexes a new story, or a card that replaces the story with the same id. */
+    void put(T1Card card) {
+        Entry previous = entries.get(card.getId());
+        if (previous != null) {
+            unindex(previous);
+        }
+        // A replacement keeps its place, as it does in the room's view
+        Entry entry = new Entry(card, previous == null ? nextOrder++ : previous.order);
+        entries.put(card.getId(), entry);
+        read(entry);
+        index(entry);
+    }
+
+    /** Re-indexes a story after its card changed in place. */
+    void update(T1Card card) {
+        Entry entry = entries.get(card.getId());
+        if (entry == null || entry.card != card) {
+            return;
+        }
+        String assignedUser = card.getAssignedUser();
+        boolean isRevealed = card.isRevealed();
+        double average = averageOf(card);
+        double totalPoints = card.getTotalPoints();
+        if (!Objects.equals(assignedUser, entry.assignedUser)) {
+            remove(byAssignee, entry.assignedUser, entry);
+            entry.assignedUser = assignedUser;
+            byAssignee.computeIfAbsent(assignedUser, key -> new HashSet<>()).add(entry);
+        }
+        if (isRevealed != entry.revealed) {
+            (entry.revealed ? revealed : unrevealed).remove(entry);
+            entry.revealed = isRevealed;
+            (isRevealed ? revealed : unrevealed).add(entry);
+        }
+        if (Double.compare(average, entry.average) != 0) {
+            removeRanged(byAverage, entry.average, entry);
+            entry.average = average;
+            addRanged(byAverage, average, entry);
+        }
+        if (Double.compare(totalPoints, entry.totalPoints) != 0) {
+            removeRanged(byTotalPoints, entry.totalPoints, entry);
+            entry.totalPoints = totalPoints;
+            addRanged(byTotalPoints, totalPoints, entry);
+        }
+    }
+
+    /** Runs a query; the result is in the order the stories were added. */
+    List<T1Card> select(T1StoryQuery query) {
+        Collection<Entry> candidates = candidates(query);
+        List<Entry> matches = new ArrayList<>(Math.min(candidates.size(), 64));
+        for (Entry entry : candidates) {
+            if (matches(entry, query)) {
+                matches.add(entry);
+            }
+        }
+        matches.sort(BY_ORDER);
+        List<T1Card> cards = new ArrayList<>(matches.size());
+        for (Entry entry : matches) {
+            cards.add(entry.card);
+        }
+        return cards;
+    }
+
+    // The smallest indexed set the query is restricted to; the rest is checked per story
+    private Collection<Entry> candidates(T1StoryQuery query) {
+        Collection<Entry> best = entries.values();
+        if (query.assigneeSet) {
+            best = smaller(best, byAssignee.getOrDefault(query.assignedUser, Collections.emptySet()));
+        }
+        if (query.revealed != null) {
+            best = smaller(best, query.revealed ? revealed : unrevealed);
+        }
+        if (best.size() > 64) {
+            // A range is only walked if no set narrowed things down already
+            if (query.hasAverageRange()) {
+                best = smaller(best, range(byAverage, query.minAverage, query.maxAverage));
+            } else if (query.hasPointsRange()) {
+                best = smaller(best, range(byTotalPoints, query.minTotalPoints, query.maxTotalPoints));
+            }
+        }
+        return best;
+    }
+
+    private static Collection<Entry> smaller(Collection<Entry> a, Collection<Entry> b) {
+        return b.size() < a.size() ? b : a;
+    }
+
+    private static List<Entry> range(NavigableMap<Double, Set<Entry>> map, double min, double max) {
+        List<Entry> found = new ArrayList<>();
+        if (min > max) {
+            return found;
+        }
+        for (Set<Entry> set : map.subMap(min, true, max, true).values()) {
+            found.addAll(set);
+        }
+        return found;
+    }
+
+    private static boolean matches(Entry entry, T1StoryQuery query) {
+        if (query.assigneeSet && !Objects.equals(query.assignedUser, entry.assignedUser)) {
+            return false;
+        }
+        if (query.revealed != null && query.revealed != entry.revealed) {
+            return false;
+        }
+        if (query.hasAverageRange()
+                && (Double.isNaN(entry.average) || entry.average < query.minAverage || entry.average > query.maxAverage)) {
+            return false;
+        }
+        return !query.hasPointsRange()
+                || (entry.totalPoints >= query.minTotalPoints && entry.totalPoints <= query.maxTotalPoints);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void read(Entry entry) {
+        entry.assignedUser = entry.card.getAssignedUser();
+        entry.revealed = entry.card.isRevealed();
+        entry.average = averageOf(entry.card);
+        entry.totalPoints = entry.card.getTotalPoints();
+    }
+
+    private void index(Entry entry) {
+        byAssignee.computeIfAbsent(entry.assignedUser, key -> new HashSet<>()).add(entry);
+        (entry.revealed ? revealed : unrevealed).add(entry);
+        addRanged(byAverage, entry.average, entry);
+        addRanged(byTotalPoints, entry.totalPoints, entry);
+    }
+
+    private void unindex(Entry entry) {
+        remove(byAssignee, entry.assignedUser, entry);
+        (entry.revealed ? revealed : unrevealed).remove(entry);
+        removeRanged(byAverage, entry.average, entry);
+        removeRanged(byTotalPoints, entry.totalPoints, entry);
+    }
+
+    private static void addRanged(NavigableMap<Double, Set<Entry>> map, double key, Entry entry) {
+        if (!Double.isNaN(key)) {
+            map.computeIfAbsent(key, k -> new HashSet<>()).add(entry);
+        }
+    }
+
+    private static void removeRanged(NavigableMap<Double, Set<Entry>> map, double key, Entry entry) {
+        if (!Double.isNaN(key)) {
+            remove(map, key, entry);
+        }
+    }
+
+    private static <K> void remove(Map<K, Set<Entry>> map, K key, Entry entry) {
+        Set<Entry> set = map.get(key);
+        if (set != null && set.remove(entry) && set.isEmpty()) {
+            map.remove(key);
+        }
+    }
+
+    // Average of the votes cast so far, whether or not they are revealed; NaN without votes
+    private static double averageOf(T1Card card) {
+        Map<String, Integer> scores = card.getScores();
+        if (scores.isEmpty()) {
+            return Double.NaN;
+        }
+        long sum = 0;
+        for (int score : scores.values()) {
+            sum += score;
+        }
+        return (double) sum / scores.size();
+    }
+}
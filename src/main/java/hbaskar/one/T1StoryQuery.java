@@ -0,0 +1,97 @@
+package hbaskar.one;
+
+import java.util.List;
+
+import hbaskar.T1Card;
+
+/**
+ * T1StoryQuery - finds a room's stories through its indexes
+ *
+ * Built with {@link T1PlanItPokerRepository.Room#findStories()}; each
+ * condition narrows the result and {@link #list()} runs it:
+ * <pre>
+ *   room.findStories().assignedTo("Ana").unrevealed().list();
+ *   room.findStories().averageBetween(5, 8).list();
+ * </pre>
+ * The average is that of the votes cast so far, revealed or not; stories
+ * without votes match no average range. Results are in the order the
+ * stories were added.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public final class T1StoryQuery {
+    private final T1PlanItPokerRepository.Room room;
+
+    boolean assigneeSet;
+    String assignedUser;
+    Boolean revealed;
+    double minAverage = Double.NEGATIVE_INFINITY;
+    double maxAverage = Double.POSITIVE_INFINITY;
+    private boolean averageRange;
+    double minTotalPoints = Double.NEGATIVE_INFINITY;
+    double maxTotalPoints = Double.POSITIVE_INFINITY;
+    private boolean pointsRange;
+
+    T1StoryQuery(T1PlanItPokerRepository.Room room) {
+        this.room = room;
+    }
+
+    /** Stories assigned to the user; null finds stories with nobody assigned. */
+    public T1StoryQuery assignedTo(String user) {
+        this.assigneeSet = true;
+        this.assignedUser = user;
+        return this;
+    }
+
+    public T1StoryQuery revealed() {
+        this.revealed = Boolean.TRUE;
+        return this;
+    }
+
+    public T1StoryQuery unrevealed() {
+        this.revealed = Boolean.FALSE;
+        return this;
+    }
+
+    /** Stories whose average vote lies between the bounds, both included. */
+    public T1StoryQuery averageBetween(double min, double max) {
+        checkRange(min, max);
+        this.minAverage = min;
+        this.maxAverage = max;
+        this.averageRange = true;
+        return this;
+    }
+
+    /** Stories whose Taiga total points lie between the bounds, both included. */
+    public T1StoryQuery totalPointsBetween(double min, double max) {
+        checkRange(min, max);
+        this.minTotalPoints = min;
+        this.maxTotalPoints = max;
+        this.pointsRange = true;
+        return this;
+    }
+
+    public List<T1Card> list() {
+        return room.select(this);
+    }
+
+    public int count() {
+        return list().size();
+    }
+
+    boolean hasAverageRange() {
+        return averageRange;
+    }
+
+    boolean hasPointsRange() {
+        return pointsRange;
+    }
+
+    private static void checkRange(double min, double max) {
+        if (Double.isNaN(min) || Double.isNaN(max)) {
+            throw new IllegalArgumentException("Range bounds must be numbers: " + min + ", " + max);
+        }
+    }
+}
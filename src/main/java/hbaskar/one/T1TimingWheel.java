@@ -0,0 +1,154 @@
+package hbaskar.one;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * T1TimingWheel - cheap timeouts for very many items
+ *
+ * A hashed timing wheel in the style of Varghese and Lauck: a ring of
+ * buckets, one per tick, that a single thread walks around. A timeout lands
+ * in the bucket of its deadline, with a count of whole turns still to wait,
+ * so scheduling costs O(1) however many timeouts are pending, and each tick
+ * only looks at one bucket. Deadlines are rounded up to the tick.
+ *
+ * Timeouts cannot be cancelled. Callers that keep pushing a deadline back,
+ * like presence tracking, schedule one timeout, check the real deadline
+ * when it fires and schedule again if it moved.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1TimingWheel<T> implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(T1TimingWheel.class);
+
+    private static final class Timeout<T> {
+        final T item;
+        final long deadlineNanos;
+        long rounds;
+
+        Timeout(T item, long deadlineNanos) {
+            this.item = item;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    private final long tickNanos;
+    private final int mask;
+    private final List<List<Timeout<T>>> buckets;
+    // New timeouts wait here until the wheel thread files them; buckets belong to that thread alone
+    private final ConcurrentLinkedQueue<Timeout<T>> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Consumer<T> onExpiry;
+    private final long startNanos;
+    private final Thread thread;
+    private volatile boolean closed;
+    private long tick;
+
+    /**
+     * @param wheelSize number of buckets, rounded up to a power of two;
+     *                  one turn of the wheel should cover the usual delay
+     */
+    public T1TimingWheel(long tickMillis, int wheelSize, Consumer<T> onExpiry, String threadName) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Tick must be at least 1 ms: " + tickMillis);
+        }
+        if (wheelSize < 1 || wheelSize > (1 << 20)) {
+            throw new IllegalArgumentException("Wheel size must be between 1 and 2^20: " + wheelSize);
+        }
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.mask = size - 1;
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.onExpiry = onExpiry;
+        this.startNanos = System.nanoTime();
+        this.thread = new Thread(this::run, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Calls the expiry handler with the item once the delay has passed. */
+    public void schedule(T item, long delayMillis) {
+        if (closed) {
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        incoming.add(new Timeout<>(item, deadline));
+        pending.incrementAndGet();
+    }
+
+    /** Timeouts scheduled and not yet expired. */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+
+    private void run() {
+        while (!closed) {
+            long nextTick = startNanos + (tick + 1) * tickNanos;
+            long sleep = nextTick - System.nanoTime();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            fileIncoming();
+            expire(buckets.get((int) (tick & mask)));
+            tick++;
+        }
+    }
+
+    private void fileIncoming() {
+        // Bounded, so a flood of new timeouts cannot starve the ticks
+        for (int i = 0; i < 100_000; i++) {
+            Timeout<T> timeout = incoming.poll();
+            if (timeout == null) {
+                return;
+            }
+            long ticks = Math.max((timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos, tick);
+            timeout.rounds = (ticks - tick) / buckets.size();
+            buckets.get((int) (ticks & mask)).add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout<T>> bucket) {
+        // Compacts survivors to the front instead of removing one by one
+        int kept = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            Timeout<T> timeout = bucket.get(i);
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+                bucket.set(kept++, timeout);
+                continue;
+            }
+            pending.decrementAndGet();
+            try {
+                onExpiry.accept(timeout.item);
+            } catch (RuntimeException e) {
+                logger.error("Timeout handler failed: {}", e.getMessage(), e);
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+}
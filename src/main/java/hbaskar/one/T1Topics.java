@@ -0,0 +1,183 @@
+package hbaskar.one;
+
+import java.util.Arrays;
+
+/**
+ * T1Topics - builds and parses the MQTT topic names used by PlanItPoker
+ *
+ * Room-scoped events are published under {@code planit/room/{code}/{event}}
+ * so that a client can subscribe to its own room only and let the broker do
+ * the filtering. The older global topics ({@code planit/story/scored}, ...)
+ * remain in use for global events and for clients that have not migrated.
+ *
+ * Server nodes sharing rooms between them (see {@link T1ShardNode}) talk on
+ * {@code planit/shard/...}: a retained membership announcement per node, an
+ * inbox per node for the changes routed to it, and a retained checkpoint
+ * per room.
+ *
+ * Room codes are user supplied, so characters with a meaning in MQTT topic
+ * names ({@code / + #}) are percent-encoded when they become a topic level.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public final class T1Topics {
+
+    /** Which topic family a client publishes to or subscribes on. */
+    public enum Scheme {
+        /** Global topics only, filtered by room on the client. */
+        LEGACY,
+        /** Per-room topics only, filtered by the broker. */
+        ROOM,
+        /** Both families; publishers use this while old clients are still around. */
+        BOTH
+    }
+
+    public static final String ROOM_PREFIX = "planit/room/";
+    public static final String SHARD_PREFIX = "planit/shard/";
+    private static final String SHARD_MEMBER_PREFIX = SHARD_PREFIX + "member/";
+    private static final String SHARD_INBOX_PREFIX = SHARD_PREFIX + "node/";
+    private static final String SHARD_STATE_PREFIX = SHARD_PREFIX + "state/";
+
+    private static final T1EventType[] ROOM_SCOPED_TYPES = Arrays.stream(T1EventType.values())
+            .filter(T1EventType::isRoomScoped)
+            .toArray(T1EventType[]::new);
+
+    private T1Topics() {
+    }
+
+    public static String roomTopic(String roomCode, T1EventType type) {
+        if (!type.isRoomScoped()) {
+            throw new IllegalArgumentException(type + " has no per-room topic");
+        }
+        return ROOM_PREFIX + encodeLevel(roomCode) + "/" + type.getRoomSuffix();
+    }
+
+    /** Subscription filter matching every per-room event of one room. */
+    public static String roomFilter(String roomCode) {
+        return ROOM_PREFIX + encodeLevel(roomCode) + "/+";
+    }
+
+    /** Retained announcement of a shard node; an empty message means it left. */
+    public static String shardMemberTopic(String nodeId) {
+        return SHARD_MEMBER_PREFIX + encodeLevel(nodeId);
+    }
+
+    /** Subscription filter matching every shard node's announcement. */
+    public static String shardMemberFilter() {
+        return SHARD_MEMBER_PREFIX + "+";
+    }
+
+    /** Returns the node id of a membership topic, or null for any other topic. */
+    public static String shardMemberOf(String topic) {
+        if (!topic.startsWith(SHARD_MEMBER_PREFIX) || topic.indexOf('/', SHARD_MEMBER_PREFIX.length()) >= 0) {
+            return null;
+        }
+        return decodeLevel(topic.substring(SHARD_MEMBER_PREFIX.length()));
+    }
+
+    /** Where changes and handed-off rooms for a shard node are sent. */
+    public static String shardInboxTopic(String nodeId) {
+        return SHARD_INBOX_PREFIX + encodeLevel(nodeId);
+    }
+
+    /** Retained checkpoint of a room, written by the node that owns it. */
+    public static String shardStateTopic(String roomCode) {
+        return SHARD_STATE_PREFIX + encodeLevel(roomCode);
+    }
+
+    /** Resolves the event type of either a legacy or a per-room topic. */
+    public static T1EventType eventTypeOf(String topic) {
+        T1EventType legacy = T1EventType.fromLegacyTopic(topic);
+        if (legacy != null) {
+            return legacy;
+        }
+        int split = roomLevelEnd(topic);
+        if (split < 0) {
+            return null;
+        }
+        // Compare in place rather than cutting out the suffix: this runs once per message
+        int suffixLength = topic.length() - split - 1;
+        for (T1EventType type : ROOM_SCOPED_TYPES) {
+            String suffix = type.getRoomSuffix();
+            if (suffix.length() == suffixLength && topic.startsWith(suffix, split + 1)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tells whether a per-room topic belongs to the room whose encoded topic
+     * level is given (see {@link #encodeLevel}), without allocating.
+     */
+    public static boolean isTopicOfRoom(String topic, String encodedRoomLevel) {
+        int split = roomLevelEnd(topic);
+        return split == ROOM_PREFIX.length() + encodedRoomLevel.length()
+                && topic.startsWith(encodedRoomLevel, ROOM_PREFIX.length());
+    }
+
+    /** Returns the room code of a per-room topic, or null for any other topic. */
+    public static String roomCodeOf(String topic) {
+        int split = roomLevelEnd(topic);
+        if (split < 0) {
+            return null;
+        }
+        return decodeLevel(topic.substring(ROOM_PREFIX.length(), split));
+    }
+
+    private static int roomLevelEnd(String topic) {
+        if (!topic.startsWith(ROOM_PREFIX)) {
+            return -1;
+        }
+        int split = topic.indexOf('/', ROOM_PREFIX.length());
+        if (split < 0 || topic.indexOf('/', split + 1) >= 0) {
+            return -1;
+        }
+        return split;
+    }
+
+    public static String encodeLevel(String value) {
+        StringBuilder sb = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escape;
+            switch (c) {
+                case '%': escape = "%25"; break;
+                case '/': escape = "%2F"; break;
+                case '+': escape = "%2B"; break;
+                case '#': escape = "%23"; break;
+                default: escape = null;
+            }
+            if (escape != null && sb == null) {
+                sb = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+            if (sb != null) {
+                if (escape != null) {
+                    sb.append(escape);
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb == null ? value : sb.toString();
+    }
+
+    static String decodeLevel(String level) {
+        if (level.indexOf('%') < 0) {
+            return level;
+        }
+        StringBuilder sb = new StringBuilder(level.length());
+        for (int i = 0; i < level.length(); i++) {
+            char c = level.charAt(i);
+            if (c == '%' && i + 2 < level.length()) {
+                sb.append((char) Integer.parseInt(level.substring(i + 1, i + 3), 16));
+                i += 2;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,259 @@
+package hbaskar.one;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * T1TrafficCapture - records received messages to a file for later replay
+ *
+ * Every message is appended with the time since the previous one in
+ * nanoseconds, its QoS and retained flag, its topic and its payload. Topics
+ * repeat constantly, so each is written out once and referred to by number
+ * afterwards; a vote costs its payload plus four or five bytes.
+ *
+ * File layout:
+ * <pre>
+ *   header   int magic, int version, long capture start (epoch millis)
+ *   record   varlong nanoseconds since the previous record,
+ *            byte flags (bits 0-1 QoS, bit 2 retained, bit 3 new topic),
+ *            new topic: varint length and UTF-8 topic, which gets the next number
+ *            otherwise: varint topic number,
+ *            varint payload length, payload
+ * </pre>
+ * Records are buffered and reach the disk on {@link #flush()} and
+ * {@link #close()}; a capture cut short by a crash ends at its last complete
+ * record. Read a capture back with {@link #read(Path)} and replay it with
+ * {@link T1TrafficReplay}.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1TrafficCapture implements AutoCloseable {
+    private static final int MAGIC = 0x50545243; // "PTRC"
+    private static final int VERSION = 1;
+    private static final int FLAG_RETAINED = 0x04;
+    private static final int FLAG_NEW_TOPIC = 0x08;
+
+    /** One captured message. */
+    public static final class Record {
+        /** Nanoseconds since the capture started. */
+        public final long nanos;
+        public final String topic;
+        public final byte[] payload;
+        public final int qos;
+        public final boolean retained;
+
+        Record(long nanos, String topic, byte[] payload, int qos, boolean retained) {
+            this.nanos = nanos;
+            this.topic = topic;
+            this.payload = payload;
+            this.qos = qos;
+            this.retained = retained;
+        }
+    }
+
+    private final Path path;
+    private final OutputStream out;
+    private final Map<String, Integer> topicNumbers = new HashMap<>();
+    private final T1ByteWriter record = new T1ByteWriter(256);
+    private long lastNanos;
+    private long count;
+    private boolean closed;
+
+    private T1TrafficCapture(Path path, OutputStream out) {
+        this.path = path;
+        this.out = out;
+        this.lastNanos = System.nanoTime();
+    }
+
+    /** Starts a new capture; an existing file is never overwritten. */
+    public static T1TrafficCapture create(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), 64 * 1024));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(System.currentTimeMillis());
+        return new T1TrafficCapture(path, out);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /** Messages recorded so far. */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /** Appends one message, stamped with the current time. */
+    public synchronized void record(String topic, byte[] payload, int qos, boolean retained) {
+        if (closed) {
+            return;
+        }
+        long now = System.nanoTime();
+        record.reset();
+        record.writeVarLong(now - lastNanos);
+        lastNanos = now;
+        Integer number = topicNumbers.get(topic);
+        int flags = (qos & 0x03) | (retained ? FLAG_RETAINED : 0);
+        if (number == null) {
+            topicNumbers.put(topic, topicNumbers.size());
+            record.writeByte(flags | FLAG_NEW_TOPIC);
+            byte[] bytes = topic.getBytes(StandardCharsets.UTF_8);
+            record.writeVarInt(bytes.length);
+            record.writeBytes(bytes, 0, bytes.length);
+        } else {
+            record.writeByte(flags);
+            record.writeVarInt(number);
+        }
+        record.writeVarInt(payload.length);
+        record.writeBytes(payload, 0, payload.length);
+        try {
+            out.write(record.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write to capture " + path, e);
+        }
+        count++;
+    }
+
+    public synchronized void flush() throws IOException {
+        if (!closed) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+
+    /** Opens a capture for reading; records are streamed, not loaded at once. */
+    public static Reader read(Path path) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a traffic capture: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported capture version " + version + ": " + path);
+            }
+            return new Reader(in, in.readLong());
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /** Iterates over the records of a capture in the order they were written. */
+    public static final class Reader implements Iterator<Record>, AutoCloseable {
+        private final DataInputStream in;
+        private final long startMillis;
+        private final List<String> topics = new ArrayList<>();
+        private long nanos;
+        private Record next;
+        private boolean done;
+
+        private Reader(DataInputStream in, long startMillis) {
+            this.in = in;
+            this.startMillis = startMillis;
+        }
+
+        /** Wall-clock time the capture started, in epoch milliseconds. */
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                next = readRecord();
+                done = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public Record next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Record record = next;
+            next = null;
+            return record;
+        }
+
+        private Record readRecord() {
+            try {
+                long delta = readVarLong(in);
+                int flags = in.readUnsignedByte();
+                String topic;
+                if ((flags & FLAG_NEW_TOPIC) != 0) {
+                    byte[] bytes = new byte[(int) readVarLong(in)];
+                    in.readFully(bytes);
+                    topic = new String(bytes, StandardCharsets.UTF_8);
+                    topics.add(topic);
+                } else {
+                    int number = (int) readVarLong(in);
+                    if (number >= topics.size()) {
+                        throw new IOException("Unknown topic number " + number);
+                    }
+                    topic = topics.get(number);
+                }
+                byte[] payload = new byte[(int) readVarLong(in)];
+                in.readFully(payload);
+                nanos += delta;
+                return new Record(nanos, topic, payload, flags & 0x03, (flags & FLAG_RETAINED) != 0);
+            } catch (EOFException e) {
+                // End of the capture, or a record cut short by a crash
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read capture", e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private static long readVarLong(InputStream in) throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.read();
+                if (b < 0) {
+                    throw new EOFException();
+                }
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package hbaskar.one;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * T1TrafficReplay - plays a {@link T1TrafficCapture} back at a chosen speed
+ *
+ * Messages are released at their captured pace divided by the speed factor:
+ * 1 reproduces the session as it happened, 10 compresses ten minutes into
+ * one, and {@link #MAX_SPEED} sends every message as soon as the previous one
+ * is done. They go either straight into a callback such as a
+ * {@link T1PlanItPokerSubscriber}, which exercises decoding and the handlers
+ * without a broker, or through a {@link T1PlanItPokerPublisher} to the
+ * broker, payloads unchanged.
+ *
+ * The {@link Result} tells how many messages per second were achieved, how
+ * far the replay fell behind the requested pace, and the latency of each
+ * message: the time spent in {@code messageArrived} (which includes the
+ * handlers when the subscriber runs them inline), or the time until the
+ * broker acknowledged it. Replayed events keep their captured timestamps, so
+ * the end-to-end figures of {@link T1LatencyMetrics} do not apply to them.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1TrafficReplay {
+    private static final Logger logger = LoggerFactory.getLogger(T1TrafficReplay.class);
+
+    /** Speed factor that ignores the captured timing altogether. */
+    public static final double MAX_SPEED = 0;
+
+    /** Outcome of one replay. */
+    public static final class Result {
+        public final long messages;
+        public final long bytes;
+        public final long capturedNanos;
+        public final long elapsedNanos;
+        /** Per-message handler or acknowledgement time. */
+        public final T1LatencyHistogram latency;
+        /** How late each message was released relative to the requested pace. */
+        public final T1LatencyHistogram lag;
+
+        Result(long messages, long bytes, long capturedNanos, long elapsedNanos,
+                T1LatencyHistogram latency, T1LatencyHistogram lag) {
+            this.messages = messages;
+            this.bytes = bytes;
+            this.capturedNanos = capturedNanos;
+            this.elapsedNanos = elapsedNanos;
+            this.latency = latency;
+            this.lag = lag;
+        }
+
+        public double getMessagesPerSecond() {
+            return elapsedNanos == 0 ? 0 : messages * 1e9 / elapsedNanos;
+        }
+
+        /** Captured duration over replay duration: the speed actually reached. */
+        public double getAchievedSpeed() {
+            return elapsedNanos == 0 ? 0 : capturedNanos / (double) elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d messages, %.1f KB in %.3f s (captured %.3f s, %.1fx): %.0f msg/s%n"
+                    + "latency ms: p50 %.3f  p99 %.3f  p999 %.3f  max %.3f%n"
+                    + "lag ms:     p50 %.3f  p99 %.3f  max %.3f",
+                    messages, bytes / 1024.0, elapsedNanos / 1e9, capturedNanos / 1e9, getAchievedSpeed(),
+                    getMessagesPerSecond(),
+                    latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(99) / 1e6,
+                    latency.getValueAtPercentile(99.9) / 1e6, latency.getMax() / 1e6,
+                    lag.getValueAtPercentile(50) / 1e6, lag.getValueAtPercentile(99) / 1e6, lag.getMax() / 1e6);
+        }
+    }
+
+    // Where one replayed message goes; returns when it is done, or a future for later completion
+    private interface Target {
+        CompletableFuture<Void> send(T1TrafficCapture.Record record) throws Exception;
+    }
+
+    private final Path capture;
+    private final double speed;
+
+    /**
+     * @param speed replay speed relative to the capture, or {@link #MAX_SPEED}
+     */
+    public T1TrafficReplay(Path capture, double speed) {
+        if (speed < 0 || Double.isNaN(speed)) {
+            throw new IllegalArgumentException("Replay speed must not be negative: " + speed);
+        }
+        this.capture = capture;
+        this.speed = speed;
+    }
+
+    /** Calls {@code messageArrived} with every captured message, on this thread. */
+    public Result replayInto(MqttCallback callback) throws IOException {
+        return replay(record -> {
+            MqttMessage message = new MqttMessage(record.payload);
+            message.setQos(record.qos);
+            message.setRetained(record.retained);
+            callback.messageArrived(record.topic, message);
+            return null;
+        });
+    }
+
+    /**
+     * Publishes every captured message through the publisher, with its
+     * captured QoS and retained flag, and waits for the acknowledgements.
+     */
+    public Result replayThrough(T1PlanItPokerPublisher publisher) throws IOException {
+        return replay(record -> publisher.publishCaptured(record.topic, record.payload, record.qos, record.retained));
+    }
+
+    private Result replay(Target target) throws IOException {
+        T1LatencyHistogram latency = new T1LatencyHistogram();
+        T1LatencyHistogram lag = new T1LatencyHistogram();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        long messages = 0;
+        long bytes = 0;
+        long capturedNanos = 0;
+        long start = System.nanoTime();
+        try (T1TrafficCapture.Reader reader = T1TrafficCapture.read(capture)) {
+            while (reader.hasNext()) {
+                T1TrafficCapture.Record record = reader.next();
+                capturedNanos = record.nanos;
+                if (speed != MAX_SPEED) {
+                    long due = start + (long) (record.nanos / speed);
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    lag.record(System.nanoTime() - due);
+                }
+                long sent = System.nanoTime();
+                try {
+                    CompletableFuture<Void> done = target.send(record);
+                    if (done == null) {
+                        latency.record(System.nanoTime() - sent);
+                    } else {
+                        pending.add(done.thenRun(() -> latency.record(System.nanoTime() - sent)));
+                    }
+                } catch (Exception e) {
+                    logger.warn("Replay of message on {} failed: {}", record.topic, e.getMessage());
+                }
+                messages++;
+                bytes += record.payload.length;
+            }
+        }
+        for (CompletableFuture<Void> done : pending) {
+            done.exceptionally(e -> null).join();
+        }
+        return new Result(messages, bytes, capturedNanos, System.nanoTime() - start, latency, lag);
+    }
+}
@@ -0,0 +1,86 @@
+package hbaskar.one;
+
+import java.io.Reader;
+
+/**
+ * T1Utf8ByteReader - character reader that decodes UTF-8 straight from a byte array
+ *
+ * Lets a Gson JsonReader stream over a message payload without first
+ * building a String or going through InputStreamReader, which allocates an
+ * 8 KB decode buffer per instance. A reader can be pointed at a new payload
+ * with {@link #reset}, so one instance can serve every message on a thread.
+ *
+ * @author Daniel Miranda
+ * @version 1.0
+ * @since 2025
+ */
+public class T1Utf8ByteReader extends Reader {
+    private byte[] bytes;
+    private int limit;
+    private int position;
+    // Low half of a surrogate pair waiting to be returned
+    private int pendingLowSurrogate = -1;
+
+    public T1Utf8ByteReader(byte[] bytes, int offset, int length) {
+        reset(bytes, offset, length);
+    }
+
+    public void reset(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.position = offset;
+        this.limit = offset + length;
+        this.pendingLowSurrogate = -1;
+    }
+
+    @Override
+    public int read(char[] target, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int written = 0;
+        if (pendingLowSurrogate >= 0) {
+            target[offset + written++] = (char) pendingLowSurrogate;
+            pendingLowSurrogate = -1;
+        }
+        while (written < length && position < limit) {
+            int b = bytes[position] & 0xFF;
+            if (b < 0x80) {
+                target[offset + written++] = (char) b;
+                position++;
+                continue;
+            }
+            int codePoint;
+            if (b >= 0xF0 && position + 3 < limit) {
+                codePoint = ((b & 0x07) << 18) | ((bytes[position + 1] & 0x3F) << 12)
+                        | ((bytes[position + 2] & 0x3F) << 6) | (bytes[position + 3] & 0x3F);
+                position += 4;
+            } else if (b >= 0xE0 && position + 2 < limit) {
+                codePoint = ((b & 0x0F) << 12) | ((bytes[position + 1] & 0x3F) << 6) | (bytes[position + 2] & 0x3F);
+                position += 3;
+            } else if (b >= 0xC0 && position + 1 < limit) {
+                codePoint = ((b & 0x1F) << 6) | (bytes[position + 1] & 0x3F);
+                position += 2;
+            } else {
+                codePoint = 0xFFFD;
+                position++;
+            }
+            if (Character.isSupplementaryCodePoint(codePoint)) {
+                target[offset + written++] = Character.highSurrogate(codePoint);
+                char low = Character.lowSurrogate(codePoint);
+                if (written < length) {
+                    target[offset + written++] = low;
+                } else {
+                    pendingLowSurrogate = low;
+                }
+            } else {
+                target[offset + written++] = (char) codePoint;
+            }
+        }
+        return written == 0 ? -1 : written;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}